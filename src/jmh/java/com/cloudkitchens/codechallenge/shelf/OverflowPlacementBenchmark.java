@@ -0,0 +1,86 @@
+package com.cloudkitchens.codechallenge.shelf;
+
+import com.cloudkitchens.codechallenge.eventlog.OrderEventLog;
+import com.cloudkitchens.codechallenge.order.CookedPlacedOrder;
+import com.cloudkitchens.codechallenge.order.OrderId;
+import com.cloudkitchens.codechallenge.order.PlacedOrder;
+import com.cloudkitchens.codechallenge.order.ShelfPlacedOrder;
+import com.cloudkitchens.codechallenge.timer.TimingWheel;
+import com.cloudkitchens.codechallenge.timer.VirtualClock;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/*
+    Cost of the overflow shelf cascade as the overflow shelf capacity grows: every temperature shelf and the overflow
+    shelf are full, a courier picks up the order on one of the temperature shelves, an overflow order of that
+    temperature is relocated to the room left, and the next order of that temperature has no room but on the
+    overflow shelf.
+
+    Driven through Shelves, so it is the relocation the shelve manager does. The order picked up is the one placed
+    back, the shelves stay full and hold the same orders of every temperature for the whole run.
+
+    Run it with: ./gradlew jmh
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OverflowPlacementBenchmark {
+
+    private static final String[] TEMPERATURES = {"hot", "cold", "frozen"};
+    private static final Shelf.ShelfType[] TEMPERATURE_SHELVES = {Shelf.ShelfType.HOT, Shelf.ShelfType.COLD, Shelf.ShelfType.FROZEN};
+
+    @Param({"15", "100", "1000", "10000", "100000"})
+    public int overflowCapacity;
+
+    private Shelves<OrderId> shelves;
+    private long now;
+    private int next;
+
+    @Setup(Level.Iteration)
+    public void setUp(){
+        Random random = new Random(42);
+        VirtualClock clock = new VirtualClock(0);
+
+        shelves = new Shelves<>(new ShelvesProperties(1, 1, 1, overflowCapacity), DropPolicy.fromName("random"),
+                new TimingWheel<>(10, 512, clock.millis()), clock, random, OrderEventLog.DISABLED,
+                new Shelves.Listener<OrderId>() {
+                    @Override
+                    public void onPlaced(ShelfPlacedOrder shelfPlacedOrder, OrderId order) {
+                    }
+
+                    @Override
+                    public void onWasted(ShelfPlacedOrder shelfPlacedOrder, OrderId order) {
+                    }
+                });
+        now = clock.millis();
+
+        // Temperatures go round, so the overflow shelf has orders of every one of them to relocate
+        for (int i = 0; i < overflowCapacity + TEMPERATURES.length; i++){
+            CookedPlacedOrder cookedPlacedOrder = newOrder(random, TEMPERATURES[i % TEMPERATURES.length]);
+            shelves.place(cookedPlacedOrder, cookedPlacedOrder.id, now);
+        }
+        next = 0;
+    }
+
+    @Benchmark
+    public ShelfPlacedOrder pickUpAndPlaceOnOverflow(){
+        Shelf.ShelfType type = TEMPERATURE_SHELVES[next];
+        next = (next + 1) % TEMPERATURE_SHELVES.length;
+
+        ShelfPlacedOrder pickedUp = shelves.remove(shelves.shelf(type).nextToExpire().id, now);
+        shelves.place(pickedUp.cookedPlacedOrder, pickedUp.id, now);
+        return pickedUp;
+    }
+
+    private static CookedPlacedOrder newOrder(Random random, String temperature){
+        // Orders never go bad within a run, expirations are scheduled and cancelled but never fire
+        return new CookedPlacedOrder(new PlacedOrder(OrderId.of(random.nextLong(), random.nextLong()),
+                "Benchmark Order", temperature, 100_000 + random.nextInt(500), random.nextFloat()), 0);
+    }
+
+}
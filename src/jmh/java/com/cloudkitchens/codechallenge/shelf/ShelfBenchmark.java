@@ -0,0 +1,106 @@
+package com.cloudkitchens.codechallenge.shelf;
+
+import com.cloudkitchens.codechallenge.order.CookedPlacedOrder;
+import com.cloudkitchens.codechallenge.order.OrderId;
+import com.cloudkitchens.codechallenge.order.PlacedOrder;
+import com.cloudkitchens.codechallenge.order.ShelfPlacedOrder;
+import com.cloudkitchens.codechallenge.timer.VirtualClock;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/*
+    Cost of the single shelf operations the shelve manager is built on, for several shelf capacities and fill levels.
+
+    Every benchmark leaves the shelf as it found it (an order taken is placed back and vice versa), so the fill level
+    holds for the whole run. Orders are cooked upfront and the clock does not move, so only the shelf is measured.
+
+    Run it with: ./gradlew jmh
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ShelfBenchmark {
+
+    private static final String[] TEMPERATURES = {"hot", "cold", "frozen"};
+
+    @Param({"10", "100", "1000", "10000"})
+    public int capacity;
+
+    // Percentage of the shelf taken by orders, there is always room for one more order
+    @Param({"50", "90"})
+    public int fillPercent;
+
+    // The overflow shelf holds orders of every temperature, the other shelves only their own
+    @Param({"HOT", "OVERFLOW"})
+    public Shelf.ShelfType type;
+
+    private Shelf shelf;
+    private CookedPlacedOrder extraOrder;
+    private ShelfPlacedOrder[] placed;
+    private int next;
+
+    @Setup(Level.Iteration)
+    public void setUp(){
+        Random random = new Random(42);
+        VirtualClock clock = new VirtualClock(0);
+        shelf = new Shelf(type, capacity, clock, random);
+
+        int fill = Math.min(capacity - 1, Math.max(1, capacity * fillPercent / 100));
+        placed = new ShelfPlacedOrder[fill];
+        for (int i = 0; i < fill; i++)
+            placed[i] = shelf.placeOrder(newOrder(random));
+        extraOrder = newOrder(random);
+        next = 0;
+    }
+
+    @Benchmark
+    public ShelfPlacedOrder placeAndTakeOrder(){
+        ShelfPlacedOrder spo = shelf.placeOrder(extraOrder);
+        return shelf.takeOrder(spo.id);
+    }
+
+    @Benchmark
+    public ShelfPlacedOrder takeAndPlaceBackOrder(){
+        // Orders go round, so it is never the last placed one that is taken
+        int i = next;
+        next = (next + 1) % placed.length;
+        shelf.takeOrder(placed[i].id);
+        placed[i] = shelf.placeOrder(placed[i].cookedPlacedOrder);
+        return placed[i];
+    }
+
+    @Benchmark
+    public List<ShelfPlacedOrder> shelfPlacedOrdersOrderedByOrderValue(){
+        return shelf.getShelfPlacedOrdersOrderedByOrderValue();
+    }
+
+    @Benchmark
+    public void removeRandomAndPlaceBack(Blackhole blackhole){
+        ShelfPlacedOrder spo = shelf.removeRandom();
+        blackhole.consume(shelf.placeOrder(spo.cookedPlacedOrder));
+    }
+
+    @Benchmark
+    public ShelfPlacedOrder lowestValueOrder(){
+        return shelf.lowestValueOrder();
+    }
+
+    @Benchmark
+    public ShelfPlacedOrder nextToExpire(){
+        return shelf.nextToExpire();
+    }
+
+    private CookedPlacedOrder newOrder(Random random){
+        String temp = (type == Shelf.ShelfType.OVERFLOW) ? TEMPERATURES[random.nextInt(TEMPERATURES.length)] : type.name().toLowerCase();
+        return new CookedPlacedOrder(new PlacedOrder(OrderId.of(random.nextLong(), random.nextLong()), "Benchmark Order", temp,
+                100 + random.nextInt(500), random.nextFloat()), 0);
+    }
+
+}
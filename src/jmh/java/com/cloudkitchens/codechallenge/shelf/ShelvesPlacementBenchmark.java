@@ -0,0 +1,106 @@
+package com.cloudkitchens.codechallenge.shelf;
+
+import com.cloudkitchens.codechallenge.eventlog.OrderEventLog;
+import com.cloudkitchens.codechallenge.order.CookedPlacedOrder;
+import com.cloudkitchens.codechallenge.order.OrderId;
+import com.cloudkitchens.codechallenge.order.PlacedOrder;
+import com.cloudkitchens.codechallenge.order.ShelfPlacedOrder;
+import com.cloudkitchens.codechallenge.timer.TimingWheel;
+import com.cloudkitchens.codechallenge.timer.VirtualClock;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayDeque;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/*
+    Cost of placing an order through the whole placement cascade of the shelve manager: preferred shelf, overflow
+    shelf, relocation of an overflow order to its preferred shelf and finally dropping an overflow order.
+
+    The rules are the ones of Shelves, driven directly rather than through the ShelveManagerActor so the mailbox and
+    the scheduler are left out. Every placement comes along with the pick up of the oldest order still around, as a
+    courier would do, so the shelves stay at the same fill level:
+    - half: the shelves are half full and every order goes straight to its preferred shelf
+    - flooded: every shelf is full, so most orders end up relocating or dropping an overflow order
+
+    Run it with: ./gradlew jmh
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ShelvesPlacementBenchmark {
+
+    private static final String[] TEMPERATURES = {"hot", "cold", "frozen"};
+
+    // Capacity of every temperature shelf, the overflow shelf takes one and a half times as much
+    @Param({"10", "100", "1000"})
+    public int capacity;
+
+    @Param({"half", "flooded"})
+    public String fillLevel;
+
+    private Shelves<OrderId> shelves;
+    private long now;
+    // Orders go round, there are always more of them than what the shelves can hold
+    private CookedPlacedOrder[] orders;
+    private int next;
+    // Orders placed and not picked up yet, oldest first
+    private final ArrayDeque<OrderId> placed = new ArrayDeque<>();
+
+    @Setup(Level.Iteration)
+    public void setUp(){
+        Random random = new Random(42);
+        VirtualClock clock = new VirtualClock(0);
+        ShelvesProperties shelvesProperties = new ShelvesProperties(capacity, capacity, capacity, capacity * 3 / 2);
+
+        shelves = new Shelves<>(shelvesProperties, DropPolicy.fromName("random"),
+                new TimingWheel<>(10, 512, clock.millis()), clock, random, OrderEventLog.DISABLED,
+                new Shelves.Listener<OrderId>() {
+                    @Override
+                    public void onPlaced(ShelfPlacedOrder shelfPlacedOrder, OrderId order) {
+                    }
+
+                    @Override
+                    public void onWasted(ShelfPlacedOrder shelfPlacedOrder, OrderId order) {
+                    }
+                });
+        now = clock.millis();
+
+        int totalCapacity = shelvesProperties.getTotalMaxCapacity();
+        orders = new CookedPlacedOrder[totalCapacity * 4];
+        for (int i = 0; i < orders.length; i++)
+            orders[i] = newOrder(random);
+        next = 0;
+
+        placed.clear();
+        int fill = "flooded".equals(fillLevel) ? totalCapacity : totalCapacity / 2;
+        for (int i = 0; i < fill; i++)
+            place();
+    }
+
+    @Benchmark
+    public ShelfPlacedOrder placeOrder(){
+        // Already dropped orders are not on the shelves anymore, which is as cheap as it gets
+        ShelfPlacedOrder pickedUp = shelves.remove(placed.poll(), now);
+        place();
+        return pickedUp;
+    }
+
+    private void place(){
+        CookedPlacedOrder cookedPlacedOrder = orders[next];
+        next = (next + 1) % orders.length;
+        shelves.place(cookedPlacedOrder, cookedPlacedOrder.id, now);
+        placed.add(cookedPlacedOrder.id);
+    }
+
+    private static CookedPlacedOrder newOrder(Random random){
+        // Orders never go bad within a run, expirations are scheduled and cancelled but never fire
+        return new CookedPlacedOrder(new PlacedOrder(OrderId.of(random.nextLong(), random.nextLong()),
+                "Benchmark Order", TEMPERATURES[random.nextInt(TEMPERATURES.length)],
+                100_000 + random.nextInt(500), random.nextFloat()), 0);
+    }
+
+}
@@ -0,0 +1,134 @@
+package com.cloudkitchens.codechallenge.shelf;
+
+import akka.actor.typed.ActorRef;
+import akka.actor.typed.ActorSystem;
+import akka.actor.typed.Behavior;
+import akka.actor.typed.Props;
+import akka.actor.typed.SpawnProtocol;
+import akka.actor.typed.javadsl.AskPattern;
+import akka.actor.typed.javadsl.Behaviors;
+import com.cloudkitchens.codechallenge.order.CookedPlacedOrder;
+import com.cloudkitchens.codechallenge.order.OrderActor;
+import com.cloudkitchens.codechallenge.order.OrderId;
+import com.cloudkitchens.codechallenge.order.PlacedOrder;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/*
+    Throughput of the single shelve manager against the sharded shelves on the same order stream.
+
+    Every order is picked up as soon as it is placed on a shelf, and an operation is over when every order of the
+    stream has either been picked up or wasted. The stream is pushed all at once so the shelves are flooded and the
+    overflow shelf gets its share of hand-offs, relocations and drops. The score is in orders per second.
+
+    Run it with: ./gradlew jmh
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ShelvesThroughputBenchmark {
+
+    private static final int ORDERS = 20_000;
+    private static final String[] TEMPERATURES = {"hot", "cold", "frozen"};
+    private static final ShelvesProperties SHELVES = new ShelvesProperties(100, 100, 100, 150);
+    private static final Duration SPAWN_TIMEOUT = Duration.ofSeconds(5);
+
+    @Param({"single", "sharded"})
+    public String shelves;
+
+    private ActorSystem<SpawnProtocol.Command> system;
+    private ShelfShards shelfShards;
+    private PlacedOrder[] orders;
+
+    @Setup(Level.Trial)
+    public void setUp(){
+        // The shelves log every operation, which would be all we are measuring otherwise
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME)).setLevel(ch.qos.logback.classic.Level.WARN);
+
+        system = ActorSystem.create(SpawnProtocol.create(), "ShelvesThroughputBenchmark");
+        shelfShards = "sharded".equals(shelves) ? shardedShelves() : singleShelveManager();
+
+        Random random = new Random(42);
+        orders = new PlacedOrder[ORDERS];
+        for (int i = 0; i < ORDERS; i++){
+            // Orders never go bad within a run, every one of them is gone by the end of its operation
+            orders[i] = new PlacedOrder(OrderId.of(random.nextLong(), random.nextLong()), "Benchmark Order",
+                    TEMPERATURES[random.nextInt(TEMPERATURES.length)], 100 + random.nextInt(400), 0.1F + random.nextFloat());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown(){
+        system.terminate();
+        system.getWhenTerminated().toCompletableFuture().join();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ORDERS)
+    public long placeAndPickUpOrders(){
+        CompletableFuture<Long> done = new CompletableFuture<>();
+        ActorRef<OrderActor.Message> courier = spawn(courier(shelfShards, ORDERS, done));
+
+        for (PlacedOrder placedOrder: orders){
+            CookedPlacedOrder cookedPlacedOrder = new CookedPlacedOrder(placedOrder);
+            shelfShards.of(cookedPlacedOrder).tell(new ShelveManagerActor.PlaceCookedOrder(courier, cookedPlacedOrder));
+        }
+        return done.join();
+    }
+
+    private ShelfShards singleShelveManager(){
+        return new ShelfShards(spawn(ShelveManagerActor.create(SHELVES)));
+    }
+
+    private ShelfShards shardedShelves(){
+        ActorRef<ShelveManagerActor.Message> overflow =
+                spawn(OverflowShelfActor.create(SHELVES.getMaxCapacityByType(Shelf.ShelfType.OVERFLOW)));
+        return new ShelfShards(
+                spawn(TemperatureShelfActor.create(Shelf.ShelfType.HOT, SHELVES.getMaxCapacityByType(Shelf.ShelfType.HOT), overflow)),
+                spawn(TemperatureShelfActor.create(Shelf.ShelfType.COLD, SHELVES.getMaxCapacityByType(Shelf.ShelfType.COLD), overflow)),
+                spawn(TemperatureShelfActor.create(Shelf.ShelfType.FROZEN, SHELVES.getMaxCapacityByType(Shelf.ShelfType.FROZEN), overflow)));
+    }
+
+    private <T> ActorRef<T> spawn(Behavior<T> behavior){
+        return AskPattern.<SpawnProtocol.Command, ActorRef<T>>ask(system,
+                replyTo -> new SpawnProtocol.Spawn<>(behavior, "", Props.empty(), replyTo), SPAWN_TIMEOUT, system.scheduler())
+                .toCompletableFuture().join();
+    }
+
+    /*
+        Stands for the orders of the stream, picking each one up as soon as it is placed.
+     */
+    private static Behavior<OrderActor.Message> courier(ShelfShards shelfShards, int orders, CompletableFuture<Long> done){
+        Set<OrderId> finished = new HashSet<>(orders * 2);
+        return Behaviors.receive(OrderActor.Message.class)
+                .onMessage(OrderActor.OrderPlacedOnShelfEvent.class, e -> {
+                    if (finished.add(e.shelfPlacedOrder.id))
+                        shelfShards.of(e.shelfPlacedOrder.cookedPlacedOrder).tell(new ShelveManagerActor.RemoveOrderFromShelf(e.shelfPlacedOrder));
+                    return complete(finished, orders, done);
+                })
+                .onMessage(OrderActor.OrderWastedEvent.class, e -> {
+                    finished.add(e.shelfPlacedOrder.id);
+                    return complete(finished, orders, done);
+                })
+                .build();
+    }
+
+    private static Behavior<OrderActor.Message> complete(Set<OrderId> finished, int orders, CompletableFuture<Long> done){
+        if (finished.size() == orders){
+            done.complete(System.nanoTime());
+            return Behaviors.stopped();
+        }
+        return Behaviors.same();
+    }
+
+}
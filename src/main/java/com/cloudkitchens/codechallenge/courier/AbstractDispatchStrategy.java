@@ -0,0 +1,76 @@
+package com.cloudkitchens.codechallenge.courier;
+
+import com.cloudkitchens.codechallenge.order.ShelfPlacedOrder;
+import org.HdrHistogram.Histogram;
+
+import java.util.Random;
+
+/*
+    What every dispatch strategy does the same way: courier arrival times, pick ups and their numbers.
+ */
+abstract class AbstractDispatchStrategy<R> implements DispatchStrategy<R> {
+
+    AbstractDispatchStrategy(int minArrivalSecs, int maxArrivalSecs, Random random, Listener<R> listener){
+        this.minArrivalSecs = minArrivalSecs;
+        this.maxArrivalSecs = maxArrivalSecs;
+        this.random = random;
+        this.listener = listener;
+    }
+
+    private final int minArrivalSecs;
+    private final int maxArrivalSecs;
+    protected final Random random;
+    private final Listener<R> listener;
+
+    private final Histogram foodWait = new Histogram(3);
+    private final Histogram courierWait = new Histogram(3);
+    private long trips;
+    private long pickedUp;
+    private double pickedUpValue;
+
+
+    @Override
+    public long trips(){
+        return trips;
+    }
+
+    @Override
+    public long pickedUp(){
+        return pickedUp;
+    }
+
+    @Override
+    public double pickedUpValue(){
+        return pickedUpValue;
+    }
+
+    @Override
+    public Histogram foodWait(){
+        return foodWait;
+    }
+
+    @Override
+    public Histogram courierWait(){
+        return courierWait;
+    }
+
+    /*
+        How long the next courier sent takes to get to the kitchen.
+     */
+    protected long arriveInMillis(){
+        return (minArrivalSecs + random.nextInt((maxArrivalSecs - minArrivalSecs) + 1)) * 1000L;
+    }
+
+    protected void trip(){
+        trips++;
+    }
+
+    protected void pickUp(ShelfPlacedOrder shelfPlacedOrder, R order, long readyMillis, long courierArrivedMillis, long now){
+        pickedUp++;
+        pickedUpValue += Math.max(0, shelfPlacedOrder.orderValue(now));
+        foodWait.recordValue(Math.max(0, now - readyMillis));
+        courierWait.recordValue(Math.max(0, now - courierArrivedMillis));
+        listener.onPickedUp(shelfPlacedOrder, order, now);
+    }
+
+}
@@ -0,0 +1,157 @@
+package com.cloudkitchens.codechallenge.courier;
+
+import akka.actor.typed.ActorRef;
+import akka.actor.typed.Behavior;
+import akka.actor.typed.PostStop;
+import akka.actor.typed.javadsl.*;
+import com.cloudkitchens.codechallenge.eventlog.OrderEventLog;
+import com.cloudkitchens.codechallenge.kitchen.KitchenUnitConfig;
+import com.cloudkitchens.codechallenge.order.OrderActor;
+import com.cloudkitchens.codechallenge.order.OrderId;
+import com.cloudkitchens.codechallenge.order.ShelfPlacedOrder;
+import com.cloudkitchens.codechallenge.timer.Clock;
+import com.typesafe.config.Config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Random;
+
+/*
+    Couriers of a kitchen unit dispatched following a dispatch strategy (matched, fifo or fleet), instead of one
+    CourierDispatcherActor per order. The kitchen unit tells it when an order is received, the orders (order actors
+    or order workers) tell it when they are on a shelf and when they go to waste, and it tells them to hand their package over when a courier comes for them (see
+    DispatchStrategy). The numbers of the couriers are logged when it stops.
+ */
+public class CourierDispatchActor {
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    public interface Message{}
+    public interface Event extends Message{}
+
+    public static class OrderReceived implements Event {
+        public final OrderId orderId;
+
+        public OrderReceived(OrderId orderId){
+            this.orderId = orderId;
+        }
+    }
+
+    public static class OrderReady implements Event {
+        public final ShelfPlacedOrder shelfPlacedOrder;
+        public final ActorRef<OrderActor.Message> order;
+
+        public OrderReady(ShelfPlacedOrder shelfPlacedOrder, ActorRef<OrderActor.Message> order){
+            this.shelfPlacedOrder = shelfPlacedOrder;
+            this.order = order;
+        }
+    }
+
+    public static class OrderCancelled implements Event {
+        public final OrderId orderId;
+
+        public OrderCancelled(OrderId orderId){
+            this.orderId = orderId;
+        }
+    }
+
+    // Time for the next courier to be sent or to get somewhere
+    private static enum DispatchTick implements Event {INSTANCE}
+
+
+    public static Behavior<Message> create(DispatchStrategy.Kind kind, CourierFleetProperties fleetProperties){
+        return create(kind, fleetProperties, OrderEventLog.DISABLED);
+    }
+
+    public static Behavior<Message> create(DispatchStrategy.Kind kind, CourierFleetProperties fleetProperties, OrderEventLog eventLog){
+        return Behaviors.withTimers(timer -> new CourierDispatchActor(timer, kind, fleetProperties, eventLog).receive());
+    }
+
+    private CourierDispatchActor(TimerScheduler<Message> timer, DispatchStrategy.Kind kind, CourierFleetProperties fleetProperties,
+                                 OrderEventLog eventLog){
+        this.timer = timer;
+        this.eventLog = eventLog;
+
+        Config config = KitchenUnitConfig.config.getConfig("courier-arrival-range-second");
+        strategy = DispatchStrategy.create(kind, fleetProperties, config.getInt("min"), config.getInt("max"),
+                new Random(), this::onPickedUp);
+
+        log.info("Couriers dispatched following the {} strategy", kind);
+    }
+
+    private final TimerScheduler<Message> timer;
+    private final Clock clock = Clock.SYSTEM;
+    private final OrderEventLog eventLog;
+    private final DispatchStrategy<ActorRef<OrderActor.Message>> strategy;
+
+
+    public Behavior<Message> receive() {
+        return Behaviors.receive(Message.class)
+                .onMessage(OrderReceived.class, this::onOrderReceived)
+                .onMessage(OrderReady.class, this::onOrderReady)
+                .onMessage(OrderCancelled.class, this::onOrderCancelled)
+                .onMessageEquals(DispatchTick.INSTANCE, this::onDispatchTick)
+                .onSignal(PostStop.class, signal -> onPostStop())
+                .build();
+    }
+
+    private Behavior<Message> onOrderReceived(OrderReceived orderReceived){
+        long now = clock.millis();
+        strategy.advance(now);
+        strategy.received(orderReceived.orderId, now);
+        scheduleNextTick(now);
+        return Behaviors.same();
+    }
+
+    private Behavior<Message> onOrderReady(OrderReady orderReady){
+        log.debug("[ORDERID: {}] - Order waiting for a courier", orderReady.shelfPlacedOrder.id);
+        long now = clock.millis();
+        strategy.advance(now);
+        strategy.ready(orderReady.shelfPlacedOrder, orderReady.order, now);
+        scheduleNextTick(now);
+        return Behaviors.same();
+    }
+
+    private Behavior<Message> onOrderCancelled(OrderCancelled orderCancelled){
+        log.debug("[ORDERID: {}] - Courier dispatch receive cancel of the order", orderCancelled.orderId);
+        long now = clock.millis();
+        strategy.advance(now);
+        strategy.cancel(orderCancelled.orderId);
+        // Its courier may have been sent home
+        scheduleNextTick(now);
+        return Behaviors.same();
+    }
+
+    private Behavior<Message> onDispatchTick(){
+        long now = clock.millis();
+        strategy.advance(now);
+        scheduleNextTick(now);
+        return Behaviors.same();
+    }
+
+    private void onPickedUp(ShelfPlacedOrder spo, ActorRef<OrderActor.Message> order, long now){
+        log.debug("[ORDERID: {}] - Arrived to pickup order", spo.id);
+        eventLog.record(OrderEventLog.Transition.COURIER_ARRIVED, spo.id);
+        order.tell(new OrderActor.CourierPickupCommand(spo));
+    }
+
+    private void scheduleNextTick(long now){
+        long next = strategy.nextEventMillis();
+        if (next == Long.MAX_VALUE)
+            timer.cancel(DispatchTick.INSTANCE);
+        else
+            timer.startSingleTimer(DispatchTick.INSTANCE, Duration.ofMillis(Math.max(0, next - now)));
+    }
+
+    private Behavior<Message> onPostStop(){
+        log.info("== Courier Trips: {} ({} orders, {} delivered value per trip)", strategy.trips(), strategy.pickedUp(),
+                String.format("%.3f", (strategy.trips() == 0) ? 0 : strategy.pickedUpValue() / strategy.trips()));
+        log.info("== Food Wait (ms): mean {}, p99 {}, max {}", String.format("%.0f", strategy.foodWait().getMean()),
+                strategy.foodWait().getValueAtPercentile(99), strategy.foodWait().getMaxValue());
+        log.info("== Courier Wait (ms): mean {}, p99 {}, max {}", String.format("%.0f", strategy.courierWait().getMean()),
+                strategy.courierWait().getValueAtPercentile(99), strategy.courierWait().getMaxValue());
+        return Behaviors.same();
+    }
+
+}
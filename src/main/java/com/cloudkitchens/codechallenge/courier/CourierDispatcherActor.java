@@ -3,6 +3,7 @@ package com.cloudkitchens.codechallenge.courier;
 import akka.actor.typed.ActorRef;
 import akka.actor.typed.Behavior;
 import akka.actor.typed.javadsl.*;
+import com.cloudkitchens.codechallenge.eventlog.OrderEventLog;
 import com.cloudkitchens.codechallenge.kitchen.KitchenUnitConfig;
 import com.cloudkitchens.codechallenge.order.OrderActor;
 import com.cloudkitchens.codechallenge.order.PlacedOrder;
@@ -26,13 +27,23 @@ public class CourierDispatcherActor {
 
 
     public static Behavior<Message> create(ActorRef<OrderActor.Message> orderActor, PlacedOrder placedOrder){
-        return Behaviors.withTimers(timer -> new CourierDispatcherActor(timer, orderActor, placedOrder).receive());
+        return create(orderActor, placedOrder, OrderEventLog.DISABLED);
+    }
+
+    public static Behavior<Message> create(ActorRef<OrderActor.Message> orderActor, PlacedOrder placedOrder, OrderEventLog eventLog){
+        return Behaviors.withTimers(timer -> new CourierDispatcherActor(timer, orderActor, placedOrder, eventLog).receive());
     }
 
     public CourierDispatcherActor(TimerScheduler<Message> timer, ActorRef<OrderActor.Message> orderActor, PlacedOrder placedOrder){
+        this(timer, orderActor, placedOrder, OrderEventLog.DISABLED);
+    }
+
+    public CourierDispatcherActor(TimerScheduler<Message> timer, ActorRef<OrderActor.Message> orderActor, PlacedOrder placedOrder,
+                                  OrderEventLog eventLog){
         this.timer = timer;
         this.orderActor = orderActor;
         this.placedOrder = placedOrder;
+        this.eventLog = eventLog;
 
         Config config = KitchenUnitConfig.config.getConfig("courier-arrival-range-second");
         minArrivalSecs = config.getInt("min");
@@ -46,6 +57,7 @@ public class CourierDispatcherActor {
     private final int maxArrivalSecs;
     private final ActorRef<OrderActor.Message> orderActor;
     private final PlacedOrder placedOrder;
+    private final OrderEventLog eventLog;
 
 
     public Behavior<Message> receive() {
@@ -58,7 +70,8 @@ public class CourierDispatcherActor {
 
     private void dispatch(){
         int arriveIn = arriveIn();
-        log.info("[ORDERID: {}] - Dispatching courier for pickup, ETA(seconds): {}", placedOrder.id, arriveIn);
+        log.debug("[ORDERID: {}] - Dispatching courier for pickup, ETA(seconds): {}", placedOrder.id, arriveIn);
+        eventLog.record(OrderEventLog.Transition.COURIER_DISPATCHED, placedOrder.id);
 
         // The reason why we need to catch an unsupported operation in the timer is to be able to support
         // behavior test of this actor. As of the current writing of this code the behavior test kit is not
@@ -74,19 +87,20 @@ public class CourierDispatcherActor {
     }
 
     private Behavior<Message> onOrderCancelledEvent(){
-        log.info("[ORDERID: {}] - Courier receive cancel of the order", placedOrder.id);
+        log.debug("[ORDERID: {}] - Courier receive cancel of the order", placedOrder.id);
         timer.cancel(placedOrder.id);
         return Behaviors.stopped();
     }
 
     private Behavior<Message> onArrivePickupOrder(){
-        log.info("[ORDERID: {}] - Arrived to pickup order", placedOrder.id);
+        log.debug("[ORDERID: {}] - Arrived to pickup order", placedOrder.id);
+        eventLog.record(OrderEventLog.Transition.COURIER_ARRIVED, placedOrder.id);
         orderActor.tell(OrderActor.PickupOrderCommand.INSTANCE);
         return Behaviors.same();
     }
 
     private Behavior<Message> onConfirmOrderIsAvailableToPickup(){
-        log.info("[ORDERID: {}] - Courier has just delivered the order (enjoy your meal!)", placedOrder.id);
+        log.debug("[ORDERID: {}] - Courier has just delivered the order (enjoy your meal!)", placedOrder.id);
         orderActor.tell(OrderActor.OrderDeliveredEvent.INSTANCE);
         return Behaviors.stopped();
     }
@@ -0,0 +1,151 @@
+package com.cloudkitchens.codechallenge.courier;
+
+import com.cloudkitchens.codechallenge.order.OrderId;
+import com.cloudkitchens.codechallenge.order.ShelfPlacedOrder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.PriorityQueue;
+import java.util.Random;
+
+/*
+    A bounded fleet of couriers, each one picking up several orders per trip, instead of one courier per order.
+
+    Orders wait for a courier once they are on a shelf. A courier is sent from the fleet base as soon as there are
+    batch-size orders waiting that no courier on its way is going to take, or once the first of them has waited
+    batch-window-millis, so orders ready within the same window travel together. It takes courier-arrival-range
+    to get to the kitchen, and once there it picks up the batch-size waiting orders closest to expire (whichever
+    orders they are by then), delivers them and gets back to the base round-trip-range later, ready for another
+    trip. With every courier out, orders keep waiting (and may go to waste) until one of them is back.
+
+    Its numbers (trips and delivered value) are meant to be compared with the ones of one courier per order.
+ */
+public class CourierFleet<R> extends AbstractDispatchStrategy<R> {
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    public CourierFleet(CourierFleetProperties properties, int minArrivalSecs, int maxArrivalSecs,
+                        Random random, Listener<R> listener){
+        super(minArrivalSecs, maxArrivalSecs, random, listener);
+        this.properties = properties;
+        this.atBase = properties.size;
+    }
+
+    private final CourierFleetProperties properties;
+
+    // Orders on the shelves waiting for a courier, closest to expire first
+    private final WaitingOrders<R> waiting = new WaitingOrders<>();
+    // When the couriers on their way get to the kitchen, and when the ones delivering get back to the base
+    private final PriorityQueue<Long> arrivals = new PriorityQueue<>();
+    private final PriorityQueue<Long> returns = new PriorityQueue<>();
+    private int atBase;
+    // When the oldest order no courier is on its way for got ready, or -1 if there is none
+    private long windowStartMillis = -1;
+
+
+    /*
+        An order already waiting (moved to another shelf) does not need another courier.
+     */
+    @Override
+    public void ready(ShelfPlacedOrder shelfPlacedOrder, R order, long now){
+        if (!waiting.ready(shelfPlacedOrder, order, now))
+            return;
+
+        if (windowStartMillis < 0)
+            windowStartMillis = now;
+        dispatch(now);
+    }
+
+    /*
+        Couriers on their way come for fewer orders.
+     */
+    @Override
+    public void cancel(OrderId orderId){
+        waiting.remove(orderId);
+        if (uncovered() <= 0)
+            windowStartMillis = -1;
+    }
+
+    @Override
+    public void advance(long now){
+        while (true){
+            long nextArrival = arrivals.isEmpty() ? Long.MAX_VALUE : arrivals.peek();
+            long nextReturn = returns.isEmpty() ? Long.MAX_VALUE : returns.peek();
+            long next = Math.min(nextArrival, nextReturn);
+            if (next > now)
+                break;
+
+            if (nextReturn <= nextArrival){
+                returns.poll();
+                atBase++;
+            }else{
+                arrivals.poll();
+                arrive(next);
+            }
+            dispatch(next);
+        }
+        dispatch(now);
+    }
+
+    @Override
+    public long nextEventMillis(){
+        long next = Math.min(arrivals.isEmpty() ? Long.MAX_VALUE : arrivals.peek(),
+                returns.isEmpty() ? Long.MAX_VALUE : returns.peek());
+        if (windowStartMillis >= 0 && atBase > 0)
+            next = Math.min(next, windowStartMillis + properties.batchWindowMillis);
+        return next;
+    }
+
+    @Override
+    public boolean isIdle(){
+        return waiting.isEmpty() && arrivals.isEmpty();
+    }
+
+    public int waitingOrders(){
+        return waiting.size();
+    }
+
+    public int couriersAtBase(){
+        return atBase;
+    }
+
+    // Waiting orders no courier on its way is going to take
+    private int uncovered(){
+        return waiting.size() - arrivals.size() * properties.batchSize;
+    }
+
+    private void dispatch(long now){
+        int uncovered = uncovered();
+        // Orders left uncovered by a courier that took others have waited long enough already
+        boolean windowOver = windowStartMillis < 0 || now >= windowStartMillis + properties.batchWindowMillis;
+        while (atBase > 0 && uncovered > 0 && (uncovered >= properties.batchSize || windowOver)){
+            long arriveIn = arriveInMillis();
+            log.debug("Dispatching courier for {} waiting orders, ETA(seconds): {}", Math.min(uncovered, properties.batchSize), arriveIn / 1000);
+            atBase--;
+            arrivals.add(now + arriveIn);
+            uncovered -= properties.batchSize;
+            // The orders left behind start a new window
+            windowStartMillis = now;
+        }
+        if (uncovered <= 0)
+            windowStartMillis = -1;
+    }
+
+    private void arrive(long now){
+        trip();
+        log.debug("Courier arrived to pick up {} orders, {} orders waiting",
+                Math.min(waiting.size(), properties.batchSize), waiting.size());
+
+        for (int i = 0; i < properties.batchSize; i++){
+            WaitingOrders.WaitingOrder<R> waitingOrder = waiting.poll();
+            if (waitingOrder == null)
+                break;
+            pickUp(waitingOrder.shelfPlacedOrder, waitingOrder.order, waitingOrder.readyMillis, now, now);
+        }
+
+        int roundTrip = properties.minRoundTripSecs +
+                random.nextInt((properties.maxRoundTripSecs - properties.minRoundTripSecs) + 1);
+        returns.add(now + roundTrip * 1000L);
+    }
+
+}
@@ -0,0 +1,37 @@
+package com.cloudkitchens.codechallenge.courier;
+
+import com.typesafe.config.Config;
+
+public class CourierFleetProperties {
+
+    // Couriers in the fleet
+    public final int size;
+    // Orders a courier takes at most per trip
+    public final int batchSize;
+    // How long orders wait for others to travel with before a courier is sent for them
+    public final long batchWindowMillis;
+    // Time from a courier picking up its orders to being back at the base, delivery included
+    public final int minRoundTripSecs;
+    public final int maxRoundTripSecs;
+
+    public CourierFleetProperties(int size, int batchSize, long batchWindowMillis, int minRoundTripSecs, int maxRoundTripSecs){
+        if (size <= 0 || batchSize <= 0)
+            throw new IllegalArgumentException(String.format("The courier fleet needs couriers and room for orders, got %d couriers of %d orders", size, batchSize));
+
+        this.size = size;
+        this.batchSize = batchSize;
+        this.batchWindowMillis = batchWindowMillis;
+        this.minRoundTripSecs = minRoundTripSecs;
+        this.maxRoundTripSecs = maxRoundTripSecs;
+    }
+
+    public static CourierFleetProperties fromConfig(Config fleetConfig){
+        return new CourierFleetProperties(
+                fleetConfig.getInt("size"),
+                fleetConfig.getInt("batch-size"),
+                fleetConfig.getLong("batch-window-millis"),
+                fleetConfig.getInt("round-trip-second.min"),
+                fleetConfig.getInt("round-trip-second.max"));
+    }
+
+}
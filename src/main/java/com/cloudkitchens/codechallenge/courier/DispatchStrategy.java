@@ -0,0 +1,109 @@
+package com.cloudkitchens.codechallenge.courier;
+
+import com.cloudkitchens.codechallenge.order.OrderId;
+import com.cloudkitchens.codechallenge.order.ShelfPlacedOrder;
+import org.HdrHistogram.Histogram;
+
+import java.util.Random;
+
+/*
+    Decides which courier picks up which order.
+
+    Orders are told as soon as they are received, so strategies sending couriers right away do not wait for them to
+    be cooked and placed, handed over once they are on a shelf (again when they are moved to another shelf) and
+    taken back when they go to waste. Couriers are sent and arrive in the strategy's own time, so whoever drives it (the
+    CourierDispatchActor in real time, or the KitchenSimulation in virtual time) only has to move it forward to
+    its next event, and gets every picked up order through the listener along with the handle it gave for it.
+
+    Every strategy measures the food wait (from the order being on a shelf to its pick up) and the courier wait
+    (from the courier arriving to its pick up), in milliseconds.
+
+    Implementations are not thread safe.
+ */
+public interface DispatchStrategy<R> {
+
+    interface Listener<R> {
+
+        /*
+            The order has been taken by a courier, it is up to the owner to take it off its shelf.
+         */
+        void onPickedUp(ShelfPlacedOrder shelfPlacedOrder, R order, long now);
+
+    }
+
+    /*
+        The order was received, it is not on a shelf yet. Strategies sending couriers once the order is ready
+        ignore it.
+     */
+    default void received(OrderId orderId, long now){
+    }
+
+    void ready(ShelfPlacedOrder shelfPlacedOrder, R order, long now);
+
+    void cancel(OrderId orderId);
+
+    /*
+        Couriers sent, arriving or picking up orders up to the given time.
+     */
+    void advance(long now);
+
+    /*
+        When the next courier is sent or gets somewhere, Long.MAX_VALUE if nothing is going to happen.
+     */
+    long nextEventMillis();
+
+    /*
+        No order is waiting for a courier and no courier is on its way to the kitchen.
+     */
+    boolean isIdle();
+
+    /*
+        Couriers that got to the kitchen, whether the orders they came for were still there or not.
+     */
+    long trips();
+
+    long pickedUp();
+
+    /*
+        Sum of the values of the orders at the moment they were picked up.
+     */
+    double pickedUpValue();
+
+    Histogram foodWait();
+
+    Histogram courierWait();
+
+
+    public static enum Kind {
+        // Every order gets a courier of its own, which only takes that order (how it has always been done)
+        MATCHED,
+        // Every order gets a courier when received, and any arriving courier takes the ready order closest to waste
+        FIFO,
+        // A bounded fleet of couriers taking several orders per trip (see CourierFleet)
+        FLEET;
+
+        /*
+            Resolves the kind from its configuration name, e.g. "matched", "fifo" or "fleet".
+         */
+        public static Kind fromName(String name){
+            return valueOf(name.trim().toUpperCase().replace('-', '_'));
+        }
+    }
+
+    /*
+        Strategy of the given kind, with couriers taking between the given seconds to get to the kitchen. The fleet
+        properties are only used by the fleet.
+     */
+    static <R> DispatchStrategy<R> create(Kind kind, CourierFleetProperties fleetProperties,
+                                          int minArrivalSecs, int maxArrivalSecs, Random random, Listener<R> listener){
+        switch (kind){
+            case FIFO:
+                return new FifoDispatch<>(minArrivalSecs, maxArrivalSecs, random, listener);
+            case FLEET:
+                return new CourierFleet<>(fleetProperties, minArrivalSecs, maxArrivalSecs, random, listener);
+            default:
+                return new MatchedDispatch<>(minArrivalSecs, maxArrivalSecs, random, listener);
+        }
+    }
+
+}
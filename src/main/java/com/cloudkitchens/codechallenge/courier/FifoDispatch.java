@@ -0,0 +1,179 @@
+package com.cloudkitchens.codechallenge.courier;
+
+import com.cloudkitchens.codechallenge.order.OrderId;
+import com.cloudkitchens.codechallenge.order.OrderIdMap;
+import com.cloudkitchens.codechallenge.order.ShelfPlacedOrder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+/*
+    Every order gets a courier as soon as it is received, but couriers are not tied to an order: an arriving
+    courier takes the ready order closest to waste (the one with the least shelf life left, which is the one whose
+    value runs out first), or waits at the kitchen for the next one to be ready, couriers waiting the longest
+    first.
+
+    There are always as many couriers out as orders neither picked up nor wasted. Every courier is on its way for
+    one of them, which is the order it was sent for until it takes another one: the courier sent for the order taken
+    is then on its way for the order the first one was sent for. A courier whose order went to waste is sent home,
+    whether it is still on its way or already waiting at the kitchen.
+ */
+public class FifoDispatch<R> extends AbstractDispatchStrategy<R> {
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    private static class Courier implements Comparable<Courier> {
+        public final long arrivalMillis;
+        // Breaks ties between couriers arriving at the same time, so they arrive in the order they were sent
+        public final long sequence;
+        public OrderId orderId;
+        public boolean atKitchen;
+        // Sent home on its way, its arrival is skipped when it comes up
+        public boolean sentHome;
+
+        public Courier(long arrivalMillis, long sequence, OrderId orderId){
+            this.arrivalMillis = arrivalMillis;
+            this.sequence = sequence;
+            this.orderId = orderId;
+        }
+
+        @Override
+        public int compareTo(Courier other) {
+            int byArrival = Long.compare(arrivalMillis, other.arrivalMillis);
+            return (byArrival != 0) ? byArrival : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    public FifoDispatch(int minArrivalSecs, int maxArrivalSecs, Random random, Listener<R> listener){
+        super(minArrivalSecs, maxArrivalSecs, random, listener);
+    }
+
+    private final WaitingOrders<R> waiting = new WaitingOrders<>();
+    // Courier on its way for every order neither picked up nor wasted
+    private final OrderIdMap<Courier> couriers = new OrderIdMap<>();
+    private final PriorityQueue<Courier> arrivals = new PriorityQueue<>();
+    // Couriers waiting at the kitchen for an order to be ready, the ones sent home are skipped
+    private final ArrayDeque<Courier> atKitchen = new ArrayDeque<>();
+    private int couriersAtKitchen;
+    private long sequence;
+
+
+    @Override
+    public void received(OrderId orderId, long now){
+        if (!couriers.containsKey(orderId))
+            send(orderId, now);
+    }
+
+    /*
+        Orders that got no courier when they were received (put back on the shelves after a crash) get one now.
+     */
+    @Override
+    public void ready(ShelfPlacedOrder shelfPlacedOrder, R order, long now){
+        // Moved to another shelf, where it goes to waste at another time
+        if (!waiting.ready(shelfPlacedOrder, order, now))
+            return;
+
+        if (!couriers.containsKey(shelfPlacedOrder.id))
+            send(shelfPlacedOrder.id, now);
+
+        // Couriers only wait with no order ready, so the one waiting the longest takes this one
+        Courier courier = nextCourierAtKitchen();
+        if (courier != null)
+            pickUp(courier, waiting.poll(), now);
+    }
+
+    @Override
+    public void cancel(OrderId orderId){
+        waiting.remove(orderId);
+
+        Courier courier = couriers.remove(orderId);
+        if (courier == null)
+            return;
+        log.debug("[ORDERID: {}] - Order went to waste, sending its courier home", orderId);
+        courier.sentHome = true;
+        if (courier.atKitchen)
+            couriersAtKitchen--;
+    }
+
+    @Override
+    public void advance(long now){
+        Courier courier;
+        while ((courier = nextArrival()) != null && courier.arrivalMillis <= now){
+            arrivals.poll();
+            trip();
+
+            WaitingOrders.WaitingOrder<R> waitingOrder = waiting.poll();
+            if (waitingOrder == null){
+                log.debug("[ORDERID: {}] - Courier arrived with no order ready, waiting for the next one", courier.orderId);
+                courier.atKitchen = true;
+                atKitchen.add(courier);
+                couriersAtKitchen++;
+                continue;
+            }
+            pickUp(courier, waitingOrder, now);
+        }
+    }
+
+    @Override
+    public long nextEventMillis(){
+        Courier courier = nextArrival();
+        return (courier == null) ? Long.MAX_VALUE : courier.arrivalMillis;
+    }
+
+    @Override
+    public boolean isIdle(){
+        return waiting.isEmpty() && nextArrival() == null;
+    }
+
+    public int waitingOrders(){
+        return waiting.size();
+    }
+
+    public int couriersAtKitchen(){
+        return couriersAtKitchen;
+    }
+
+    private void send(OrderId orderId, long now){
+        long arriveIn = arriveInMillis();
+        log.debug("[ORDERID: {}] - Dispatching courier for pickup, ETA(seconds): {}", orderId, arriveIn / 1000);
+        Courier courier = new Courier(now + arriveIn, sequence++, orderId);
+        couriers.put(orderId, courier);
+        arrivals.add(courier);
+    }
+
+    private void pickUp(Courier courier, WaitingOrders.WaitingOrder<R> waitingOrder, long now){
+        OrderId orderId = waitingOrder.shelfPlacedOrder.id;
+        Courier ownCourier = couriers.remove(orderId);
+        if (ownCourier != courier){
+            // The courier sent for the order taken goes on for the order this courier was on its way for
+            couriers.remove(courier.orderId);
+            if (ownCourier != null){
+                ownCourier.orderId = courier.orderId;
+                couriers.put(ownCourier.orderId, ownCourier);
+            }
+        }
+        pickUp(waitingOrder.shelfPlacedOrder, waitingOrder.order, waitingOrder.readyMillis, courier.arrivalMillis, now);
+    }
+
+    // Next courier on its way, dropping the ones sent home
+    private Courier nextArrival(){
+        while (!arrivals.isEmpty() && arrivals.peek().sentHome)
+            arrivals.poll();
+        return arrivals.peek();
+    }
+
+    private Courier nextCourierAtKitchen(){
+        while (!atKitchen.isEmpty()){
+            Courier courier = atKitchen.poll();
+            if (courier.sentHome)
+                continue;
+            couriersAtKitchen--;
+            return courier;
+        }
+        return null;
+    }
+
+}
@@ -0,0 +1,105 @@
+package com.cloudkitchens.codechallenge.courier;
+
+import com.cloudkitchens.codechallenge.order.OrderId;
+import com.cloudkitchens.codechallenge.order.OrderIdMap;
+import com.cloudkitchens.codechallenge.order.ShelfPlacedOrder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.PriorityQueue;
+import java.util.Random;
+
+/*
+    Every order gets a courier of its own as soon as it is on a shelf, and that courier only takes that order. If the
+    order goes to waste before its courier gets to the kitchen, the courier leaves empty handed.
+ */
+public class MatchedDispatch<R> extends AbstractDispatchStrategy<R> {
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    private static class WaitingOrder<R> {
+        public final R order;
+        public final long readyMillis;
+        public ShelfPlacedOrder shelfPlacedOrder;
+
+        public WaitingOrder(ShelfPlacedOrder shelfPlacedOrder, R order, long readyMillis){
+            this.shelfPlacedOrder = shelfPlacedOrder;
+            this.order = order;
+            this.readyMillis = readyMillis;
+        }
+    }
+
+    private static class CourierArrival implements Comparable<CourierArrival> {
+        public final long arrivalMillis;
+        // Breaks ties between couriers arriving at the same time, so they arrive in the order they were sent
+        public final long sequence;
+        public final OrderId orderId;
+
+        public CourierArrival(long arrivalMillis, long sequence, OrderId orderId){
+            this.arrivalMillis = arrivalMillis;
+            this.sequence = sequence;
+            this.orderId = orderId;
+        }
+
+        @Override
+        public int compareTo(CourierArrival other) {
+            int byArrival = Long.compare(arrivalMillis, other.arrivalMillis);
+            return (byArrival != 0) ? byArrival : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    public MatchedDispatch(int minArrivalSecs, int maxArrivalSecs, Random random, Listener<R> listener){
+        super(minArrivalSecs, maxArrivalSecs, random, listener);
+    }
+
+    private final OrderIdMap<WaitingOrder<R>> waiting = new OrderIdMap<>();
+    private final PriorityQueue<CourierArrival> arrivals = new PriorityQueue<>();
+    private long sequence;
+
+
+    @Override
+    public void ready(ShelfPlacedOrder shelfPlacedOrder, R order, long now){
+        WaitingOrder<R> waitingOrder = waiting.get(shelfPlacedOrder.id);
+        if (waitingOrder != null){
+            waitingOrder.shelfPlacedOrder = shelfPlacedOrder;
+            return;
+        }
+
+        waiting.put(shelfPlacedOrder.id, new WaitingOrder<>(shelfPlacedOrder, order, now));
+        long arriveIn = arriveInMillis();
+        log.debug("[ORDERID: {}] - Dispatching courier for pickup, ETA(seconds): {}", shelfPlacedOrder.id, arriveIn / 1000);
+        arrivals.add(new CourierArrival(now + arriveIn, sequence++, shelfPlacedOrder.id));
+    }
+
+    @Override
+    public void cancel(OrderId orderId){
+        waiting.remove(orderId);
+    }
+
+    @Override
+    public void advance(long now){
+        while (!arrivals.isEmpty() && arrivals.peek().arrivalMillis <= now){
+            CourierArrival courierArrival = arrivals.poll();
+            trip();
+
+            WaitingOrder<R> waitingOrder = waiting.remove(courierArrival.orderId);
+            if (waitingOrder == null){
+                log.debug("[ORDERID: {}] - Order is not waiting for its courier anymore", courierArrival.orderId);
+                continue;
+            }
+            pickUp(waitingOrder.shelfPlacedOrder, waitingOrder.order, waitingOrder.readyMillis,
+                    courierArrival.arrivalMillis, courierArrival.arrivalMillis);
+        }
+    }
+
+    @Override
+    public long nextEventMillis(){
+        return arrivals.isEmpty() ? Long.MAX_VALUE : arrivals.peek().arrivalMillis;
+    }
+
+    @Override
+    public boolean isIdle(){
+        return waiting.isEmpty() && arrivals.isEmpty();
+    }
+
+}
@@ -0,0 +1,106 @@
+package com.cloudkitchens.codechallenge.courier;
+
+import com.cloudkitchens.codechallenge.order.OrderId;
+import com.cloudkitchens.codechallenge.order.OrderIdMap;
+import com.cloudkitchens.codechallenge.order.ShelfPlacedOrder;
+
+import java.util.PriorityQueue;
+
+/*
+    Orders on the shelves waiting for a courier, taken closest to waste first (the one with the least shelf life
+    left, which is the one whose value runs out first).
+
+    They are kept in a binary heap by the moment they go to waste, so taking the next one is O(log n) whatever the
+    number of them. Orders moved to another shelf (or gone to waste) leave their old heap entry behind, which is
+    skipped when it comes up.
+
+    This class is not thread safe.
+ */
+class WaitingOrders<R> {
+
+    static class WaitingOrder<R> {
+        public final R order;
+        public final long readyMillis;
+        public final long sequence;
+        public ShelfPlacedOrder shelfPlacedOrder;
+        // Its current entry in the heap, any other entry of this order is stale
+        private QueuedOrder<R> queued;
+
+        private WaitingOrder(ShelfPlacedOrder shelfPlacedOrder, R order, long readyMillis, long sequence){
+            this.shelfPlacedOrder = shelfPlacedOrder;
+            this.order = order;
+            this.readyMillis = readyMillis;
+            this.sequence = sequence;
+        }
+    }
+
+    private static class QueuedOrder<R> implements Comparable<QueuedOrder<R>> {
+        public final long expiresAtMillis;
+        public final WaitingOrder<R> waitingOrder;
+
+        public QueuedOrder(WaitingOrder<R> waitingOrder){
+            this.expiresAtMillis = waitingOrder.shelfPlacedOrder.expiresAtMillis;
+            this.waitingOrder = waitingOrder;
+        }
+
+        @Override
+        public int compareTo(QueuedOrder<R> other) {
+            int byExpiration = Long.compare(expiresAtMillis, other.expiresAtMillis);
+            return (byExpiration != 0) ? byExpiration : Long.compare(waitingOrder.sequence, other.waitingOrder.sequence);
+        }
+    }
+
+    private final OrderIdMap<WaitingOrder<R>> waiting = new OrderIdMap<>();
+    private final PriorityQueue<QueuedOrder<R>> byExpiration = new PriorityQueue<>();
+    private long sequence;
+
+
+    /*
+        Adds the order, or moves it if it is already waiting (it then goes to waste at another time). Returns whether
+        the order was not waiting yet.
+     */
+    boolean ready(ShelfPlacedOrder shelfPlacedOrder, R order, long now){
+        WaitingOrder<R> waitingOrder = waiting.get(shelfPlacedOrder.id);
+        boolean added = waitingOrder == null;
+        if (added){
+            waitingOrder = new WaitingOrder<>(shelfPlacedOrder, order, now, sequence++);
+            waiting.put(shelfPlacedOrder.id, waitingOrder);
+        }else
+            waitingOrder.shelfPlacedOrder = shelfPlacedOrder;
+
+        waitingOrder.queued = new QueuedOrder<>(waitingOrder);
+        byExpiration.add(waitingOrder.queued);
+        return added;
+    }
+
+    /*
+        Its heap entry is skipped when it comes up.
+     */
+    WaitingOrder<R> remove(OrderId orderId){
+        return waiting.remove(orderId);
+    }
+
+    /*
+        Takes the waiting order closest to waste, null if there is none.
+     */
+    WaitingOrder<R> poll(){
+        while (!byExpiration.isEmpty()){
+            QueuedOrder<R> queued = byExpiration.poll();
+            WaitingOrder<R> waitingOrder = queued.waitingOrder;
+            if (waitingOrder.queued != queued || waiting.get(waitingOrder.shelfPlacedOrder.id) != waitingOrder)
+                continue;
+            waiting.remove(waitingOrder.shelfPlacedOrder.id);
+            return waitingOrder;
+        }
+        return null;
+    }
+
+    int size(){
+        return waiting.size();
+    }
+
+    boolean isEmpty(){
+        return waiting.isEmpty();
+    }
+
+}
@@ -0,0 +1,277 @@
+package com.cloudkitchens.codechallenge.eventlog;
+
+import com.cloudkitchens.codechallenge.order.OrderId;
+import com.cloudkitchens.codechallenge.shelf.Shelf;
+import com.cloudkitchens.codechallenge.timer.Clock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.LockSupport;
+
+/*
+    Event log written to a file by a background thread.
+
+    Records are kept in a ring of preallocated columns (time, transition, order id, shelf and value), so recording
+    a transition is a handful of stores under a short lock and never allocates. The writer thread drains the ring
+    every flush interval and appends one compact line per record to the file:
+
+        <millis> <TRANSITION> <order id> <SHELF or -> <value or ->
+
+    with the fields separated by tabs. When the ring is full the new records are dropped (and counted) rather than
+    holding the caller back, a kitchen running behind its own log is worse than a gap in it.
+ */
+public class AsyncOrderEventLog implements OrderEventLog {
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    private static final OrderEventLog.Transition[] TRANSITIONS = OrderEventLog.Transition.values();
+    private static final Shelf.ShelfType[] SHELF_TYPES = Shelf.ShelfType.values();
+    private static final byte NO_SHELF = -1;
+
+    public AsyncOrderEventLog(Path file, int bufferSize, long flushIntervalMillis, Clock clock){
+        if (bufferSize <= 0 || Integer.bitCount(bufferSize) != 1)
+            throw new IllegalArgumentException(String.format("The buffer size must be a power of two, got %d", bufferSize));
+
+        this.file = file;
+        this.clock = clock;
+        this.flushIntervalNanos = flushIntervalMillis * 1_000_000;
+        this.mask = bufferSize - 1;
+        this.millis = new long[bufferSize];
+        this.transitions = new byte[bufferSize];
+        this.orderIds = new OrderId[bufferSize];
+        this.shelves = new byte[bufferSize];
+        this.values = new float[bufferSize];
+
+        this.writer = new Thread(this::writeLoop, "order-event-log");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    private final Path file;
+    private final Clock clock;
+    private final long flushIntervalNanos;
+    private final Thread writer;
+
+    private final int mask;
+    private final long[] millis;
+    private final byte[] transitions;
+    private final OrderId[] orderIds;
+    private final byte[] shelves;
+    private final float[] values;
+
+    // Records in [head, tail) are waiting for the writer, both only move forward and are guarded by this
+    private long head;
+    private long tail;
+    private long dropped;
+    private volatile boolean closed;
+
+    // Only used by the writer thread
+    private final ByteBuffer out = ByteBuffer.allocateDirect(64 * 1024);
+    private FileChannel channel;
+    private long written;
+
+
+    @Override
+    public void record(OrderEventLog.Transition transition, OrderId orderId, Shelf.ShelfType shelf, float value){
+        long now = clock.millis();
+        synchronized (this){
+            if (closed || tail - head > mask){
+                dropped++;
+                return;
+            }
+            int slot = (int) (tail & mask);
+            millis[slot] = now;
+            transitions[slot] = (byte) transition.ordinal();
+            orderIds[slot] = orderId;
+            shelves[slot] = (shelf == null) ? NO_SHELF : (byte) shelf.ordinal();
+            values[slot] = value;
+            tail++;
+        }
+    }
+
+    /*
+        Records dropped because the writer was not keeping up (or the log was already closed).
+     */
+    public synchronized long dropped(){
+        return dropped;
+    }
+
+    /*
+        Records written to the file so far.
+     */
+    public synchronized long written(){
+        return written;
+    }
+
+    @Override
+    public void close(){
+        if (closed)
+            return;
+        closed = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        }catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeLoop(){
+        try {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+
+            boolean drained;
+            do {
+                // Once closed, whatever was recorded before is still written out
+                drained = closed;
+                drain();
+                if (!drained)
+                    LockSupport.parkNanos(flushIntervalNanos);
+            } while (!drained);
+
+        }catch (IOException e){
+            log.error("Order event log {} could not be written, no more order events will be recorded", file, e);
+            closed = true;
+        }finally {
+            try {
+                if (channel != null)
+                    channel.close();
+            }catch (IOException e){
+                log.warn("Order event log {} could not be closed", file, e);
+            }
+        }
+    }
+
+    private void drain() throws IOException {
+        long from;
+        long to;
+        synchronized (this){
+            from = head;
+            to = tail;
+        }
+        if (from == to)
+            return;
+
+        // Producers never touch the slots in [from, to) until head moves past them
+        for (long sequence = from; sequence < to; sequence++){
+            int slot = (int) (sequence & mask);
+            if (out.remaining() < maxLineLength(orderIds[slot]))
+                flush();
+            encode(slot);
+            orderIds[slot] = null;
+        }
+        flush();
+
+        synchronized (this){
+            head = to;
+            written += to - from;
+        }
+    }
+
+    private void encode(int slot){
+        putLong(millis[slot]);
+        out.put((byte) '\t');
+        putAscii(TRANSITIONS[transitions[slot]].name());
+        out.put((byte) '\t');
+        putOrderId(orderIds[slot]);
+        out.put((byte) '\t');
+        if (shelves[slot] == NO_SHELF)
+            out.put((byte) '-');
+        else
+            putAscii(SHELF_TYPES[shelves[slot]].name());
+        out.put((byte) '\t');
+        putValue(values[slot]);
+        out.put((byte) '\n');
+    }
+
+    private static int maxLineLength(OrderId orderId){
+        // Time, transition, shelf and value take less than 64 bytes all together
+        if (orderId == null)
+            return 64 + 4;
+        return 64 + (orderId.isUuid() ? 36 : orderId.toString().length());
+    }
+
+    /*
+        UUIDs are written straight from their two longs, without going through their text.
+     */
+    private void putOrderId(OrderId orderId){
+        if (orderId == null || !orderId.isUuid()){
+            putAscii((orderId == null) ? null : orderId.toString());
+            return;
+        }
+        putHex(orderId.mostSignificantBits >>> 32, 8);
+        out.put((byte) '-');
+        putHex(orderId.mostSignificantBits >>> 16, 4);
+        out.put((byte) '-');
+        putHex(orderId.mostSignificantBits, 4);
+        out.put((byte) '-');
+        putHex(orderId.leastSignificantBits >>> 48, 4);
+        out.put((byte) '-');
+        putHex(orderId.leastSignificantBits, 12);
+    }
+
+    private void putHex(long value, int digits){
+        for (int shift = (digits - 1) * 4; shift >= 0; shift -= 4){
+            int digit = (int) (value >>> shift) & 0xF;
+            out.put((byte) ((digit < 10) ? '0' + digit : 'a' + digit - 10));
+        }
+    }
+
+    private void putAscii(String s){
+        if (s == null){
+            out.put((byte) '-');
+            return;
+        }
+        for (int i = 0; i < s.length(); i++){
+            char c = s.charAt(i);
+            out.put((c < 128) ? (byte) c : (byte) '?');
+        }
+    }
+
+    private void putLong(long v){
+        if (v < 0){
+            out.put((byte) '-');
+            v = -v;
+        }
+        long divisor = 1;
+        while (v / divisor >= 10)
+            divisor *= 10;
+        for (; divisor > 0; divisor /= 10)
+            out.put((byte) ('0' + (v / divisor) % 10));
+    }
+
+    /*
+        Order values go with three decimals, which is more than what they are ever compared with.
+     */
+    private void putValue(float value){
+        if (Float.isNaN(value)){
+            out.put((byte) '-');
+            return;
+        }
+        long thousandths = Math.round(value * 1000d);
+        if (thousandths < 0){
+            out.put((byte) '-');
+            thousandths = -thousandths;
+        }
+        putLong(thousandths / 1000);
+        out.put((byte) '.');
+        long decimals = thousandths % 1000;
+        out.put((byte) ('0' + decimals / 100));
+        out.put((byte) ('0' + (decimals / 10) % 10));
+        out.put((byte) ('0' + decimals % 10));
+    }
+
+    private void flush() throws IOException {
+        out.flip();
+        while (out.hasRemaining())
+            channel.write(out);
+        out.clear();
+    }
+
+}
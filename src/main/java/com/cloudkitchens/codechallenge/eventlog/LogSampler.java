@@ -0,0 +1,28 @@
+package com.cloudkitchens.codechallenge.eventlog;
+
+/*
+    Lets a periodic log line through at most once per interval, e.g. the shelves inventory that would otherwise be
+    logged after every single placement, pick up and expiration.
+
+    An interval of 0 lets every line through and a negative one none of them. It is not thread safe, every actor
+    keeps its own.
+ */
+public class LogSampler {
+
+    public LogSampler(long intervalMillis){
+        this.intervalMillis = intervalMillis;
+    }
+
+    private final long intervalMillis;
+    private long lastSampleMillis = Long.MIN_VALUE;
+
+    public boolean sample(long nowMillis){
+        if (intervalMillis < 0)
+            return false;
+        if (lastSampleMillis != Long.MIN_VALUE && nowMillis - lastSampleMillis < intervalMillis)
+            return false;
+        lastSampleMillis = nowMillis;
+        return true;
+    }
+
+}
@@ -0,0 +1,111 @@
+package com.cloudkitchens.codechallenge.eventlog;
+
+import com.cloudkitchens.codechallenge.order.OrderId;
+import com.cloudkitchens.codechallenge.shelf.Shelf;
+import com.cloudkitchens.codechallenge.timer.Clock;
+import com.typesafe.config.Config;
+
+import java.nio.file.Paths;
+
+/*
+    Log of the transitions every order goes through (received, placed, moved, picked up, wasted...).
+
+    It replaces the per order INFO lines of the hot paths: recording a transition must be cheap enough to be done
+    from any actor handler, so implementations must not block the caller nor allocate for every record.
+ */
+public interface OrderEventLog extends AutoCloseable {
+
+    public static enum Transition {
+        // Order taken by the kitchen unit
+        RECEIVED,
+        // Order put on a shelf
+        PLACED,
+        // Order moved from the overflow shelf to its preferred shelf
+        MOVED,
+        COURIER_DISPATCHED,
+        COURIER_ARRIVED,
+        // Order taken from its shelf by its courier
+        PICKED_UP,
+        DELIVERED,
+        // Order wasted because it went bad on its shelf
+        EXPIRED,
+        // Order wasted by the drop policy to make room for another order
+        DROPPED,
+        // Order turned down by the kitchen unit since no shelf takes its temperature
+        REFUSED
+    }
+
+    // Log that records nothing, for benchmark runs
+    OrderEventLog DISABLED = (transition, orderId, shelf, value) -> {};
+
+    /*
+        Records a transition of the given order. The shelf and the order value are only known for some transitions,
+        pass null and NaN when they are not.
+     */
+    void record(Transition transition, OrderId orderId, Shelf.ShelfType shelf, float value);
+
+    default void record(Transition transition, OrderId orderId){
+        record(transition, orderId, null, Float.NaN);
+    }
+
+    /*
+        Change in the number of orders on the given shelf, reported by the shelf owners every time it changes. Every
+        kitchen unit (and every shelf shard) owns its own shelves, so it is a delta to add up rather than the size of
+        one of them. Only the logs that keep gauges (e.g. the kitchen metrics) care about it.
+     */
+    default void occupancyChanged(Shelf.ShelfType shelf, int delta){
+    }
+
+    /*
+        Writes whatever is pending and releases the log, the transitions recorded afterwards are lost.
+     */
+    @Override
+    default void close(){
+    }
+
+    /*
+        Log recording every transition in both of the given logs.
+     */
+    static OrderEventLog both(OrderEventLog first, OrderEventLog second){
+        if (first == DISABLED)
+            return second;
+        if (second == DISABLED)
+            return first;
+
+        return new OrderEventLog() {
+            @Override
+            public void record(Transition transition, OrderId orderId, Shelf.ShelfType shelf, float value) {
+                first.record(transition, orderId, shelf, value);
+                second.record(transition, orderId, shelf, value);
+            }
+
+            @Override
+            public void occupancyChanged(Shelf.ShelfType shelf, int delta) {
+                first.occupancyChanged(shelf, delta);
+                second.occupancyChanged(shelf, delta);
+            }
+
+            @Override
+            public void close() {
+                try {
+                    first.close();
+                } finally {
+                    second.close();
+                }
+            }
+        };
+    }
+
+    static OrderEventLog fromConfig(Config conf){
+        Config eventLogConfig = conf.getConfig("event-log");
+        if (!eventLogConfig.getBoolean("enabled"))
+            return DISABLED;
+
+        return new AsyncOrderEventLog(
+                Paths.get(eventLogConfig.getString("file")),
+                eventLogConfig.getInt("buffer-size"),
+                eventLogConfig.getLong("flush-interval-millis"),
+                Clock.SYSTEM);
+    }
+
+}
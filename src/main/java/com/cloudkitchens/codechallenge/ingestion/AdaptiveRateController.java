@@ -0,0 +1,142 @@
+package com.cloudkitchens.codechallenge.ingestion;
+
+import com.typesafe.config.Config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/*
+    Decides how many orders per second are let into the kitchen, based on how the kitchen is coping with them.
+
+    It follows an AIMD (additive increase, multiplicative decrease) scheme: on every sample the rate grows by a
+    fixed step while the kitchen is healthy, and it is cut by a factor as soon as the kitchen shows pressure, that is
+    orders being dropped, the overflow shelf getting close to full or too many orders waiting for their courier.
+    Flooding the shelves is what makes orders be dropped before their courier arrives, so backing off as soon as
+    that happens keeps the delivered orders per second close to what the kitchen can actually handle.
+
+    It is shared between the ingestion stream (reading the rate) and the kitchen unit or kitchen router (sampling),
+    so it is thread safe.
+ */
+public class AdaptiveRateController {
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    /*
+        What the kitchen looked like since the previous sample.
+     */
+    public static class Signals {
+        // Share of the overflow shelf in use (0 to 1)
+        public final float overflowOccupancy;
+        // Orders dropped since the previous sample
+        public final int droppedOrders;
+        // Orders waiting for their courier
+        public final int courierBacklog;
+
+        public Signals(float overflowOccupancy, int droppedOrders, int courierBacklog){
+            this.overflowOccupancy = overflowOccupancy;
+            this.droppedOrders = droppedOrders;
+            this.courierBacklog = courierBacklog;
+        }
+    }
+
+    public AdaptiveRateController(double initialRate, double minRate, double maxRate, double increaseStep,
+                                  double decreaseFactor, float overflowHighWaterMark, int courierBacklogLimit){
+        if (minRate <= 0 || maxRate < minRate)
+            throw new IllegalArgumentException(String.format("Invalid ingestion rate range [%s, %s]", minRate, maxRate));
+        if (decreaseFactor <= 0 || decreaseFactor >= 1)
+            throw new IllegalArgumentException(String.format("The decrease factor must be between 0 and 1, got %s", decreaseFactor));
+
+        this.minRate = minRate;
+        this.maxRate = maxRate;
+        this.increaseStep = increaseStep;
+        this.decreaseFactor = decreaseFactor;
+        this.overflowHighWaterMark = overflowHighWaterMark;
+        this.courierBacklogLimit = courierBacklogLimit;
+        this.rate = clamp(initialRate);
+    }
+
+    /*
+        Controller set up from the ingestion-rate section of the kitchen unit config. A courier backlog limit of 0
+        stands for the capacity of all the shelves together, of every kitchen unit.
+     */
+    public static AdaptiveRateController fromConfig(Config conf){
+        Config rateConfig = conf.getConfig("ingestion-rate");
+        int courierBacklogLimit = rateConfig.getInt("courier-backlog-limit");
+        if (courierBacklogLimit <= 0){
+            Config shelvesConfig = conf.getConfig("shelf-max-capacity");
+            courierBacklogLimit = shelvesConfig.getInt("hot") + shelvesConfig.getInt("cold")
+                    + shelvesConfig.getInt("frozen") + shelvesConfig.getInt("overflow");
+            courierBacklogLimit *= Math.max(1, conf.getInt("kitchen-units.count"));
+        }
+        return new AdaptiveRateController(
+                conf.getInt("order-ingestion-rate-per-second"),
+                rateConfig.getDouble("min"),
+                rateConfig.getDouble("max"),
+                rateConfig.getDouble("increase-step"),
+                rateConfig.getDouble("decrease-factor"),
+                (float) rateConfig.getDouble("overflow-high-water-mark"),
+                courierBacklogLimit);
+    }
+
+    private final double minRate;
+    private final double maxRate;
+    private final double increaseStep;
+    private final double decreaseFactor;
+    private final float overflowHighWaterMark;
+    private final int courierBacklogLimit;
+
+    private volatile double rate;
+    // Rate decisions taken so far, exposed as metrics
+    private long increases;
+    private long decreases;
+    private long droppedOrders;
+
+
+    /*
+        Takes a new sample of the kitchen and returns the rate (orders per second) to be used from now on.
+     */
+    public synchronized double update(Signals signals){
+        double previous = rate;
+        droppedOrders += signals.droppedOrders;
+
+        if (underPressure(signals)){
+            rate = clamp(previous * decreaseFactor);
+            decreases++;
+        }else{
+            rate = clamp(previous + increaseStep);
+            increases++;
+        }
+
+        if (rate != previous)
+            log.info("Ingestion rate {} -> {} orders/s (overflow {}%, dropped {}, courier backlog {})",
+                    String.format("%.2f", previous), String.format("%.2f", rate),
+                    Math.round(signals.overflowOccupancy * 100), signals.droppedOrders, signals.courierBacklog);
+        return rate;
+    }
+
+    public double rate(){
+        return rate;
+    }
+
+    public synchronized long increases(){
+        return increases;
+    }
+
+    public synchronized long decreases(){
+        return decreases;
+    }
+
+    public synchronized long droppedOrders(){
+        return droppedOrders;
+    }
+
+    private boolean underPressure(Signals signals){
+        return signals.droppedOrders > 0
+                || signals.overflowOccupancy >= overflowHighWaterMark
+                || signals.courierBacklog >= courierBacklogLimit;
+    }
+
+    private double clamp(double value){
+        return Math.max(minRate, Math.min(maxRate, value));
+    }
+
+}
@@ -0,0 +1,49 @@
+package com.cloudkitchens.codechallenge.ingestion;
+
+import akka.NotUsed;
+import akka.actor.typed.ActorSystem;
+import akka.pattern.Patterns;
+import akka.stream.javadsl.Flow;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/*
+    Throttle stage whose rate is read from an AdaptiveRateController for every element, rather than fixed
+    when the stream is built.
+
+    Elements are spaced by 1/rate seconds. The time of the next slot is kept (instead of just sleeping 1/rate
+    between elements) so the scheduler granularity does not bring the actual rate down.
+ */
+public class AdaptiveThrottle {
+
+    private AdaptiveThrottle(){}
+
+    public static <T> Flow<T, T, NotUsed> create(Class<T> elementClass, AdaptiveRateController controller, ActorSystem<?> system){
+        // The pacer keeps the state of a single stream, so a new stage is meant to be created for every stream
+        Pacer pacer = new Pacer(controller);
+        return Flow.of(elementClass).mapAsync(1, element -> pacer.pace(element, system));
+    }
+
+    private static class Pacer {
+        private final AdaptiveRateController controller;
+        private long nextSlotNanos = System.nanoTime();
+
+        Pacer(AdaptiveRateController controller){
+            this.controller = controller;
+        }
+
+        <T> CompletionStage<T> pace(T element, ActorSystem<?> system){
+            long now = System.nanoTime();
+            long delayNanos = nextSlotNanos - now;
+            nextSlotNanos = Math.max(now, nextSlotNanos) + (long) (1_000_000_000L / controller.rate());
+
+            if (delayNanos <= 0)
+                return CompletableFuture.completedFuture(element);
+            return Patterns.after(Duration.ofNanos(delayNanos), system.classicSystem().scheduler(), system.executionContext(),
+                    () -> CompletableFuture.completedFuture(element));
+        }
+    }
+
+}
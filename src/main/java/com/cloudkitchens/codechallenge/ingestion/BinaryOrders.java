@@ -0,0 +1,111 @@
+package com.cloudkitchens.codechallenge.ingestion;
+
+import akka.NotUsed;
+import akka.stream.javadsl.Flow;
+import akka.stream.javadsl.Framing;
+import akka.util.ByteString;
+import com.cloudkitchens.codechallenge.order.OrderId;
+import com.cloudkitchens.codechallenge.order.OrderVo;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/*
+    Compact binary format of the orders files, one length prefixed record per order (big endian):
+
+    int     length of the rest of the record
+    long    id, most significant bits of the UUID
+    long    id, least significant bits of the UUID
+    byte    temperature: 0 hot, 1 cold, 2 frozen
+    int     shelf life
+    float   decay rate
+    int     kitchen, -1 when not set
+    short   length of the name, followed by the name in UTF-8
+
+    Records are cut by their length alone, so there is nothing to scan for and no JSON to parse.
+ */
+public class BinaryOrders {
+
+    private static final String[] TEMPERATURES = {"hot", "cold", "frozen"};
+    private static final int LENGTH_BYTES = 4;
+    private static final int FIXED_BYTES = 16 + 1 + 4 + 4 + 4 + 2;
+    private static final int MAX_NAME_BYTES = Short.MAX_VALUE;
+    private static final int MAX_RECORD_BYTES = LENGTH_BYTES + FIXED_BYTES + MAX_NAME_BYTES;
+
+    private BinaryOrders(){}
+
+    /*
+        Cuts a stream of bytes of a binary orders file into records, each one with its length prefix.
+     */
+    public static Flow<ByteString, ByteString, NotUsed> framing(){
+        return Framing.lengthField(LENGTH_BYTES, 0, MAX_RECORD_BYTES, ByteOrder.BIG_ENDIAN);
+    }
+
+    /*
+        Decodes a record cut by framing (length prefix included).
+     */
+    public static OrderVo decode(ByteString record) throws IOException {
+        ByteBuffer buffer = record.asByteBuffer();
+        if (buffer.remaining() < LENGTH_BYTES + FIXED_BYTES || buffer.getInt() != buffer.remaining())
+            throw new IOException("Truncated order record");
+
+        OrderVo orderVo = new OrderVo();
+        orderVo.setOrderId(OrderId.of(buffer.getLong(), buffer.getLong()));
+        int temperature = buffer.get();
+        if (temperature < 0 || temperature >= TEMPERATURES.length)
+            throw new IOException(String.format("Unknown temperature %d in order %s", temperature, orderVo.getOrderId()));
+        orderVo.setTemp(TEMPERATURES[temperature]);
+        orderVo.setShelfLife(buffer.getInt());
+        orderVo.setDecayRate(buffer.getFloat());
+        int kitchen = buffer.getInt();
+        if (kitchen >= 0)
+            orderVo.setKitchen(kitchen);
+
+        int nameLength = buffer.getShort();
+        if (nameLength < 0 || nameLength != buffer.remaining())
+            throw new IOException(String.format("Malformed name in order %s", orderVo.getOrderId()));
+        byte[] name = new byte[nameLength];
+        buffer.get(name);
+        orderVo.setName(new String(name, StandardCharsets.UTF_8));
+
+        return orderVo;
+    }
+
+    /*
+        Writes the record of the order. Its id has to be a UUID, and it needs a known temperature, a shelf life and
+        a decay rate.
+     */
+    public static void write(OrderVo orderVo, DataOutputStream out) throws IOException {
+        OrderId id = orderVo.getOrderId();
+        if (id == null || !id.isUuid())
+            throw new IOException(String.format("The binary format only takes UUID order ids, not %s", orderVo.getId()));
+        int temperature = temperatureOf(orderVo);
+        if (orderVo.getShelfLife() == null || orderVo.getDecayRate() == null)
+            throw new IOException(String.format("Order %s has no shelf life or decay rate", orderVo.getId()));
+        byte[] name = (orderVo.getName() == null) ? new byte[0] : orderVo.getName().getBytes(StandardCharsets.UTF_8);
+        if (name.length > MAX_NAME_BYTES)
+            throw new IOException(String.format("The name of order %s is too long", orderVo.getId()));
+
+        out.writeInt(FIXED_BYTES + name.length);
+        out.writeLong(id.mostSignificantBits);
+        out.writeLong(id.leastSignificantBits);
+        out.writeByte(temperature);
+        out.writeInt(orderVo.getShelfLife());
+        out.writeFloat(orderVo.getDecayRate());
+        out.writeInt((orderVo.getKitchen() == null) ? -1 : orderVo.getKitchen());
+        out.writeShort(name.length);
+        out.write(name);
+    }
+
+    private static int temperatureOf(OrderVo orderVo) throws IOException {
+        for (int i = 0; i < TEMPERATURES.length; i++){
+            if (TEMPERATURES[i].equals(orderVo.getTemp()))
+                return i;
+        }
+        throw new IOException(String.format("Unknown temperature %s in order %s", orderVo.getTemp(), orderVo.getId()));
+    }
+
+}
@@ -0,0 +1,150 @@
+package com.cloudkitchens.codechallenge.ingestion;
+
+import akka.actor.typed.ActorSystem;
+import akka.http.javadsl.Http;
+import akka.http.javadsl.ServerBinding;
+import akka.http.javadsl.model.ContentTypes;
+import akka.http.javadsl.model.HttpMethods;
+import akka.http.javadsl.model.HttpRequest;
+import akka.http.javadsl.model.HttpResponse;
+import akka.http.javadsl.model.StatusCode;
+import akka.http.javadsl.model.StatusCodes;
+import akka.http.javadsl.model.headers.RawHeader;
+import akka.stream.Materializer;
+import akka.stream.QueueOfferResult;
+import akka.stream.javadsl.JsonFraming;
+import akka.stream.javadsl.Sink;
+import akka.stream.javadsl.SourceQueueWithComplete;
+import akka.stream.scaladsl.Framing;
+import com.cloudkitchens.codechallenge.order.OrderVo;
+import com.typesafe.config.Config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+    HTTP intake of orders: POST /orders with a single JSON order, a JSON array of orders or newline delimited
+    orders (NDJSON), all framed and decoded as the body streams in.
+
+    The orders are offered one at a time to the queue feeding the kitchen unit, which only takes them as fast as
+    the kitchen (throttle, back pressure) lets it. The answer tells how many orders were accepted:
+
+    - 202 Accepted: every order was accepted
+    - 429 Too Many Requests: the queue is full, the orders after the accepted ones were not taken and should be
+      sent again later
+    - 503 Service Unavailable: the kitchen is shutting down and takes no more orders (from the moment the shutting
+      down flag is set, even while the queue still drains the orders it holds)
+    - 400 Bad Request: an order could not be read, the orders before it were accepted
+ */
+public class HttpOrderIntake {
+
+    private static final Logger log = LoggerFactory.getLogger(HttpOrderIntake.class);
+
+    private static final String ORDERS_PATH = "/orders";
+
+    private final SourceQueueWithComplete<OrderVo> orders;
+    private final AtomicBoolean shuttingDown;
+    private final int maxOrderBytes;
+    private final Materializer materializer;
+
+    private HttpOrderIntake(SourceQueueWithComplete<OrderVo> orders, AtomicBoolean shuttingDown, int maxOrderBytes,
+                            Materializer materializer){
+        this.orders = orders;
+        this.shuttingDown = shuttingDown;
+        this.maxOrderBytes = maxOrderBytes;
+        this.materializer = materializer;
+    }
+
+    /*
+        Starts serving the orders endpoint at the host and port of the given order-intake.http config.
+     */
+    public static CompletionStage<ServerBinding> bind(Config httpConfig, SourceQueueWithComplete<OrderVo> orders, ActorSystem<?> system){
+        return bind(httpConfig, orders, new AtomicBoolean(), system);
+    }
+
+    /*
+        Orders are turned away with a 503 as soon as the given flag is set, which is meant to happen before the queue
+        is completed: a completed queue still holding orders only tells the new ones are dropped until it is empty.
+     */
+    public static CompletionStage<ServerBinding> bind(Config httpConfig, SourceQueueWithComplete<OrderVo> orders,
+                                                      AtomicBoolean shuttingDown, ActorSystem<?> system){
+        HttpOrderIntake intake = new HttpOrderIntake(orders, shuttingDown, httpConfig.getInt("max-order-bytes"),
+                Materializer.matFromSystem(system));
+
+        return Http.get(system)
+                .newServerAt(httpConfig.getString("host"), httpConfig.getInt("port"))
+                .bind(intake::handle)
+                .thenApply(binding -> {
+                    log.info("Taking orders at http://{}:{}{}", binding.localAddress().getHostString(), binding.localAddress().getPort(), ORDERS_PATH);
+                    return binding;
+                });
+    }
+
+    private CompletionStage<HttpResponse> handle(HttpRequest request){
+        if (!ORDERS_PATH.equals(request.getUri().path())){
+            request.discardEntityBytes(materializer);
+            return CompletableFuture.completedFuture(response(StatusCodes.NOT_FOUND, "{\"error\":\"Orders are posted to " + ORDERS_PATH + "\"}"));
+        }
+        if (request.method() != HttpMethods.POST){
+            request.discardEntityBytes(materializer);
+            return CompletableFuture.completedFuture(response(StatusCodes.METHOD_NOT_ALLOWED, "{\"error\":\"Orders are posted to " + ORDERS_PATH + "\"}"));
+        }
+        if (shuttingDown.get()){
+            request.discardEntityBytes(materializer);
+            return CompletableFuture.completedFuture(response(StatusCodes.SERVICE_UNAVAILABLE, "{\"accepted\":0}"));
+        }
+
+        AtomicInteger accepted = new AtomicInteger();
+
+        // Works the same way for a single order, an array of orders and NDJSON, the scanner finds every object
+        return request.entity().getDataBytes()
+                .via(JsonFraming.objectScanner(maxOrderBytes))
+                .map(OrderVoDecoder::decode)
+                // One offer at a time keeps the orders of a request in order
+                .mapAsync(1, orders::offer)
+                // The first order not taken ends the request, the ones after it are not offered
+                .dropWhile(result -> {
+                    if (result != QueueOfferResult.enqueued())
+                        return false;
+                    accepted.incrementAndGet();
+                    return true;
+                })
+                .runWith(Sink.headOption(), materializer)
+                .handle((notTaken, error) -> toResponse(notTaken, error, accepted.get()));
+    }
+
+    private HttpResponse toResponse(Optional<QueueOfferResult> notTaken, Throwable error, int accepted){
+        String body = String.format("{\"accepted\":%d}", accepted);
+
+        if (error != null){
+            Throwable cause = (error instanceof CompletionException && error.getCause() != null) ? error.getCause() : error;
+            if (cause instanceof IOException || cause instanceof Framing.FramingException){
+                log.debug("Malformed orders after {} accepted ones: {}", accepted, cause.getMessage());
+                return response(StatusCodes.BAD_REQUEST, body);
+            }
+            // Offering to a queue that has been completed fails
+            return response(StatusCodes.SERVICE_UNAVAILABLE, body);
+        }
+
+        if (!notTaken.isPresent())
+            return response(StatusCodes.ACCEPTED, body);
+
+        // Dropped by a queue draining its last orders
+        if (notTaken.get() == QueueOfferResult.dropped() && !shuttingDown.get())
+            return response(StatusCodes.TOO_MANY_REQUESTS, body).addHeader(RawHeader.create("Retry-After", "1"));
+
+        return response(StatusCodes.SERVICE_UNAVAILABLE, body);
+    }
+
+    private static HttpResponse response(StatusCode status, String body){
+        return HttpResponse.create().withStatus(status).withEntity(ContentTypes.APPLICATION_JSON, body);
+    }
+
+}
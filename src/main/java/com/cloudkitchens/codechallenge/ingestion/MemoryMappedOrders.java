@@ -0,0 +1,108 @@
+package com.cloudkitchens.codechallenge.ingestion;
+
+import akka.NotUsed;
+import akka.stream.javadsl.Source;
+import com.cloudkitchens.codechallenge.order.OrderVo;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+
+/*
+    Reads orders from a memory mapped file, meant for replaying multi-GB order files.
+
+    The file is mapped in regions of up to 2GB (the most a single mapping can take) and a single streaming parser
+    walks them all, so the orders are decoded as they are read without any framing step in between.
+ */
+public class MemoryMappedOrders implements Closeable {
+
+    private static final long MAX_REGION_SIZE = Integer.MAX_VALUE;
+
+    private final FileChannel channel;
+    private final JsonParser parser;
+
+    private MemoryMappedOrders(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+
+        List<InputStream> regions = new ArrayList<>();
+        long size = channel.size();
+        for (long position = 0; position < size; position += MAX_REGION_SIZE){
+            regions.add(new ByteBufferBackedInputStream(
+                    channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAX_REGION_SIZE, size - position))));
+        }
+
+        this.parser = OrderVoDecoder.createParser(new SequenceInputStream(Collections.enumeration(regions)));
+    }
+
+    public static MemoryMappedOrders open(Path path) throws IOException {
+        return new MemoryMappedOrders(path);
+    }
+
+    public static Source<OrderVo, NotUsed> source(Path path){
+        return Source.unfoldResource(
+                () -> open(path),
+                orders -> Optional.ofNullable(orders.next()),
+                MemoryMappedOrders::close);
+    }
+
+    /*
+        The next order of the file, or null when there are no more orders.
+     */
+    public OrderVo next() throws IOException {
+        return OrderVoDecoder.next(parser);
+    }
+
+    /*
+        The remaining orders as an iterator, for the consumers that are not streams (e.g. the virtual time simulation).
+     */
+    public Iterator<OrderVo> iterator(){
+        return new Iterator<OrderVo>() {
+            private OrderVo next = read();
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public OrderVo next() {
+                if (next == null)
+                    throw new NoSuchElementException();
+                OrderVo current = next;
+                next = read();
+                return current;
+            }
+
+            private OrderVo read(){
+                try {
+                    return MemoryMappedOrders.this.next();
+                }catch (IOException e){
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            parser.close();
+        } finally {
+            channel.close();
+        }
+    }
+
+}
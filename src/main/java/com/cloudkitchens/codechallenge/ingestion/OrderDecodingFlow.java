@@ -0,0 +1,39 @@
+package com.cloudkitchens.codechallenge.ingestion;
+
+import akka.NotUsed;
+import akka.stream.javadsl.Flow;
+import akka.util.ByteString;
+import com.cloudkitchens.codechallenge.order.OrderVo;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/*
+    Stream stage decoding JSON order frames into orders.
+
+    With a parallelism greater than one the frames are decoded concurrently on the given executor, while
+    the orders are still emitted in the same order their frames came in (mapAsync keeps the upstream order).
+ */
+public class OrderDecodingFlow {
+
+    private OrderDecodingFlow(){}
+
+    public static Flow<ByteString, OrderVo, NotUsed> create(int parallelism, Executor executor){
+        if (parallelism <= 1)
+            return Flow.of(ByteString.class).map(OrderVoDecoder::decode);
+
+        return Flow.of(ByteString.class)
+                .mapAsync(parallelism, frame -> CompletableFuture.supplyAsync(() -> decode(frame), executor));
+    }
+
+    private static OrderVo decode(ByteString frame){
+        try {
+            return OrderVoDecoder.decode(frame);
+        }catch (IOException e){
+            throw new UncheckedIOException(e);
+        }
+    }
+
+}
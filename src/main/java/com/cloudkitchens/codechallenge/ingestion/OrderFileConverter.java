@@ -0,0 +1,88 @@
+package com.cloudkitchens.codechallenge.ingestion;
+
+import com.cloudkitchens.codechallenge.order.OrderVo;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/*
+    Converts an orders file (a JSON array of orders, or NDJSON) into NDJSON or binary, as told by the extension of
+    the output file (see OrderFileFormat). The orders are streamed one at a time, so the size of the file does not
+    matter. Run it with: ./gradlew convertOrders -Pinput=orders.json -Poutput=orders.ndjson
+ */
+public class OrderFileConverter {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2){
+            System.err.println("Usage: OrderFileConverter <input orders file> <output .ndjson or .bin file>");
+            System.exit(1);
+        }
+
+        Path input = Paths.get(args[0]);
+        Path output = Paths.get(args[1]);
+        OrderFileFormat format = OrderFileFormat.of(output, "auto");
+
+        long orders = convert(input, output, format);
+        System.out.printf("%d orders written to %s (%s)%n", orders, output.toAbsolutePath(), format);
+    }
+
+    /*
+        Writes the orders of the input file to the output file in the given format, returning how many there were.
+     */
+    public static long convert(Path input, Path output, OrderFileFormat format) throws IOException {
+        if (format == OrderFileFormat.JSON)
+            throw new IllegalArgumentException("Orders are converted into NDJSON or BINARY");
+
+        long count = 0;
+        try (InputStream in = Files.newInputStream(input);
+             JsonParser parser = OrderVoDecoder.createParser(in);
+             OutputStream out = new BufferedOutputStream(Files.newOutputStream(output), 1 << 16)){
+
+            OrderVo orderVo;
+            if (format == OrderFileFormat.BINARY){
+                DataOutputStream data = new DataOutputStream(out);
+                while ((orderVo = OrderVoDecoder.next(parser)) != null){
+                    BinaryOrders.write(orderVo, data);
+                    count++;
+                }
+                data.flush();
+            }else{
+                JsonGenerator json = new JsonFactory().createGenerator(out);
+                // Every order on its own line, with nothing but the line break in between
+                json.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+                json.setRootValueSeparator(null);
+                while ((orderVo = OrderVoDecoder.next(parser)) != null){
+                    writeJson(orderVo, json);
+                    json.writeRaw('\n');
+                    count++;
+                }
+                json.close();
+            }
+        }
+        return count;
+    }
+
+    private static void writeJson(OrderVo orderVo, JsonGenerator json) throws IOException {
+        json.writeStartObject();
+        json.writeStringField("id", orderVo.getId());
+        json.writeStringField("name", orderVo.getName());
+        json.writeStringField("temp", orderVo.getTemp());
+        if (orderVo.getShelfLife() != null)
+            json.writeNumberField("shelfLife", orderVo.getShelfLife());
+        if (orderVo.getDecayRate() != null)
+            json.writeNumberField("decayRate", orderVo.getDecayRate());
+        if (orderVo.getKitchen() != null)
+            json.writeNumberField("kitchen", orderVo.getKitchen());
+        json.writeEndObject();
+    }
+
+}
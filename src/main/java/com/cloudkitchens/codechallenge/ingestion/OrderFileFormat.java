@@ -0,0 +1,32 @@
+package com.cloudkitchens.codechallenge.ingestion;
+
+import java.nio.file.Path;
+
+/*
+    Formats of the orders files:
+
+    - JSON: a JSON array of orders (orders.json)
+    - NDJSON: one JSON order per line, so the orders are cut at the line breaks without scanning the JSON
+    - BINARY: length prefixed binary records (see BinaryOrders)
+ */
+public enum OrderFileFormat {
+    JSON,
+    NDJSON,
+    BINARY;
+
+    /*
+        The configured format, or with "auto" the one of the file extension (.ndjson or .jsonl for NDJSON, .bin for
+        BINARY, anything else JSON).
+     */
+    public static OrderFileFormat of(Path file, String configured){
+        if (!"auto".equals(configured))
+            return valueOf(configured.trim().toUpperCase());
+
+        String name = file.getFileName().toString().toLowerCase();
+        if (name.endsWith(".ndjson") || name.endsWith(".jsonl"))
+            return NDJSON;
+        if (name.endsWith(".bin"))
+            return BINARY;
+        return JSON;
+    }
+}
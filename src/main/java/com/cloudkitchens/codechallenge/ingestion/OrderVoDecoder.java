@@ -0,0 +1,114 @@
+package com.cloudkitchens.codechallenge.ingestion;
+
+import akka.util.ByteString;
+import com.cloudkitchens.codechallenge.order.OrderVo;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/*
+    Decodes orders straight from their JSON bytes with a streaming token parser.
+
+    There is no intermediate String nor object mapper involved: the parser reads the frame through a view of its
+    bytes and the fields are set on the OrderVo as their tokens come along. The JsonFactory is thread safe, so
+    a single one is shared by every decoding stage.
+ */
+public class OrderVoDecoder {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private OrderVoDecoder(){}
+
+    /*
+        Decodes a frame holding a single JSON order.
+     */
+    public static OrderVo decode(ByteString frame) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(new ByteBufferBackedInputStream(frame.asByteBuffer()))){
+            if (parser.nextToken() != JsonToken.START_OBJECT)
+                throw new IOException("An order must be a JSON object");
+            return decode(parser);
+        }
+    }
+
+    /*
+        Parser over a stream of orders, either a JSON array of orders or a sequence of JSON orders.
+     */
+    public static JsonParser createParser(InputStream inputStream) throws IOException {
+        return JSON_FACTORY.createParser(inputStream);
+    }
+
+    /*
+        Decodes the next order from a parser created by createParser, or null if there are no more orders.
+     */
+    public static OrderVo next(JsonParser parser) throws IOException {
+        JsonToken token = parser.nextToken();
+        if (token == JsonToken.START_ARRAY)
+            token = parser.nextToken();
+        if (token == null || token == JsonToken.END_ARRAY)
+            return null;
+        if (token != JsonToken.START_OBJECT)
+            throw new IOException(String.format("Unexpected %s while looking for the next order", token));
+        return decode(parser);
+    }
+
+    /*
+        Decodes the order whose START_OBJECT token is the current token of the parser.
+     */
+    private static OrderVo decode(JsonParser parser) throws IOException {
+        OrderVo orderVo = new OrderVo();
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME){
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            if (value == JsonToken.VALUE_NULL)
+                continue;
+
+            switch (field){
+                case "id":
+                    orderVo.setId(parser.getText());
+                    break;
+                case "name":
+                    orderVo.setName(parser.getText());
+                    break;
+                case "temp":
+                    orderVo.setTemp(parser.getText());
+                    break;
+                case "shelfLife":
+                    orderVo.setShelfLife(intValue(parser, field));
+                    break;
+                case "decayRate":
+                    orderVo.setDecayRate(floatValue(parser, field));
+                    break;
+                case "kitchen":
+                    orderVo.setKitchen(intValue(parser, field));
+                    break;
+                default:
+                    // Unknown fields (and whatever they hold) are ignored
+                    parser.skipChildren();
+            }
+        }
+
+        return orderVo;
+    }
+
+    /*
+        Numbers are taken as they come, anything else fails the decoding rather than being coerced (a shelf life of
+        "300" or "soon" would otherwise end up as 300 or 0). Missing fields are left null.
+     */
+    private static int intValue(JsonParser parser, String field) throws IOException {
+        if (parser.currentToken() != JsonToken.VALUE_NUMBER_INT)
+            throw new IOException(String.format("The %s of an order must be a whole number, not %s", field, parser.getText()));
+        return parser.getIntValue();
+    }
+
+    private static float floatValue(JsonParser parser, String field) throws IOException {
+        if (!parser.currentToken().isNumeric())
+            throw new IOException(String.format("The %s of an order must be a number, not %s", field, parser.getText()));
+        return parser.getFloatValue();
+    }
+
+}
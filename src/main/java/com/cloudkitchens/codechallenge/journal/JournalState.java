@@ -0,0 +1,143 @@
+package com.cloudkitchens.codechallenge.journal;
+
+import com.cloudkitchens.codechallenge.order.CookedPlacedOrder;
+import com.cloudkitchens.codechallenge.order.OrderId;
+import com.cloudkitchens.codechallenge.order.OrderIdMap;
+import com.cloudkitchens.codechallenge.shelf.Shelf;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+
+/*
+    State of the kitchen as told by the order journal: the orders in flight (taken, and neither picked up nor wasted
+    yet) with the shelf each one of them is on, and how many orders were taken from the input, picked up, delivered
+    and wasted.
+
+    It is the fold of every record of the journal, so it is what a snapshot holds, and recovery gets it back by
+    applying the records written after the snapshot on top of it.
+
+    This class is not thread safe, the journal guards it.
+ */
+public class JournalState {
+
+    public static class JournaledOrder {
+        public final CookedPlacedOrder cookedPlacedOrder;
+        // Position of the order in the input, 0 for the first order taken
+        public final long inputOffset;
+        // Shelf the order is on, null while it is on its way to the shelves
+        private Shelf.ShelfType shelfType;
+
+        JournaledOrder(CookedPlacedOrder cookedPlacedOrder, long inputOffset, Shelf.ShelfType shelfType){
+            this.cookedPlacedOrder = cookedPlacedOrder;
+            this.inputOffset = inputOffset;
+            this.shelfType = shelfType;
+        }
+
+        public Shelf.ShelfType shelfType(){
+            return shelfType;
+        }
+    }
+
+    private final OrderIdMap<JournaledOrder> orders = new OrderIdMap<>();
+    // Orders taken from the input so far, which is also where the input goes on from
+    private long inputOffset;
+    private long pickedUp;
+    // Sum of the values of the orders when they were picked up
+    private double pickedUpValue;
+    private long delivered;
+    private long wasted;
+
+
+    public long inputOffset(){
+        return inputOffset;
+    }
+
+    public int inFlight(){
+        return orders.size();
+    }
+
+    public JournaledOrder order(OrderId orderId){
+        return orders.get(orderId);
+    }
+
+    /*
+        Orders in flight, in the order they were taken.
+     */
+    public List<JournaledOrder> orders(){
+        List<JournaledOrder> inFlight = new ArrayList<>(orders.size());
+        orders.forEachValue(inFlight::add);
+        inFlight.sort(Comparator.comparingLong(order -> order.inputOffset));
+        return inFlight;
+    }
+
+    public long pickedUp(){
+        return pickedUp;
+    }
+
+    public double pickedUpValue(){
+        return pickedUpValue;
+    }
+
+    public long delivered(){
+        return delivered;
+    }
+
+    public long wasted(){
+        return wasted;
+    }
+
+    /*
+        Copy of this state, which does not change with it.
+     */
+    public JournalState copy(){
+        JournalState copy = new JournalState();
+        orders.forEachValue(order -> copy.orders.put(order.cookedPlacedOrder.id,
+                new JournaledOrder(order.cookedPlacedOrder, order.inputOffset, order.shelfType)));
+        copy.restoreCounters(inputOffset, pickedUp, pickedUpValue, delivered, wasted);
+        return copy;
+    }
+
+    void taken(JournaledOrder order){
+        orders.put(order.cookedPlacedOrder.id, order);
+        inputOffset = Math.max(inputOffset, order.inputOffset + 1);
+    }
+
+    void placed(OrderId orderId, Shelf.ShelfType shelfType){
+        JournaledOrder order = orders.get(orderId);
+        if (order != null)
+            order.shelfType = shelfType;
+    }
+
+    void pickedUp(OrderId orderId, float value){
+        if (orders.remove(orderId) == null)
+            return;
+        pickedUp++;
+        if (!Float.isNaN(value))
+            pickedUpValue += Math.max(0, value);
+    }
+
+    void delivered(OrderId orderId){
+        // The order left the shelves when it was picked up, only the count changes
+        delivered++;
+    }
+
+    void wasted(OrderId orderId){
+        if (orders.remove(orderId) != null)
+            wasted++;
+    }
+
+    void restoreCounters(long inputOffset, long pickedUp, double pickedUpValue, long delivered, long wasted){
+        this.inputOffset = inputOffset;
+        this.pickedUp = pickedUp;
+        this.pickedUpValue = pickedUpValue;
+        this.delivered = delivered;
+        this.wasted = wasted;
+    }
+
+    void forEachOrder(Consumer<JournaledOrder> action){
+        orders.forEachValue(action);
+    }
+
+}
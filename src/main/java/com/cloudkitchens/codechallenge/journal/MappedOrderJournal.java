@@ -0,0 +1,531 @@
+package com.cloudkitchens.codechallenge.journal;
+
+import com.cloudkitchens.codechallenge.order.CookedPlacedOrder;
+import com.cloudkitchens.codechallenge.order.OrderId;
+import com.cloudkitchens.codechallenge.shelf.Shelf;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.CRC32;
+
+/*
+    Order journal written to memory mapped segment files, with periodic snapshots of the orders in flight.
+
+    Every record is appended to the mapped segment under a short lock, right where the previous one ended:
+
+        <payload length> <CRC32 of the payload> <record type> <id most significant bits> <id least significant bits> ...
+
+    followed by the rest of the order for the taken orders (see OrderCodec), the shelf for the placed and moved
+    ones, and the value for the picked up ones. Appending a record is a handful of stores into memory, no system
+    call. Once a segment is full the next one is mapped, every segment being named after the sequence number of
+    its first record.
+
+    Records are committed in groups: a background thread forces whatever was written to the segments since its
+    previous commit to the disk every commit interval, so a single flush makes every record of that interval
+    durable. A crash of the machine loses at most the records of the last interval, and recovery stops at the first
+    record whose length or CRC does not add up, the one torn by the crash.
+
+    Every snapshot interval the same thread writes the orders in flight and the counters to a snapshot file, named
+    after the sequence number of the first record it does not include, and deletes the older snapshots and the
+    segments whose records are all in it. Opening the journal loads the last snapshot and replays the records
+    written after it, so recovery goes through the orders in flight and one snapshot interval of records, however
+    long the kitchen has been running.
+ */
+public class MappedOrderJournal implements OrderJournal {
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    private static final String SEGMENT_SUFFIX = ".segment";
+    private static final String SNAPSHOT_SUFFIX = ".snapshot";
+    private static final int SNAPSHOT_MAGIC = 0x4f4a524e;
+    private static final int MIN_SEGMENT_BYTES = 4096;
+    // Length and CRC of every record
+    private static final int HEADER_BYTES = 8;
+    // Type and order id, the payload every record starts with
+    private static final int RECORD_BYTES = 17;
+    private static final byte NO_SHELF = -1;
+    private static final Shelf.ShelfType[] SHELF_TYPES = Shelf.ShelfType.values();
+
+    private static enum RecordType {
+        TAKEN,
+        PLACED,
+        MOVED,
+        PICKED_UP,
+        DELIVERED,
+        WASTED
+    }
+
+    private static final RecordType[] RECORD_TYPES = RecordType.values();
+
+    /*
+        Journal in the given directory, recovered from whatever is already there. A snapshot interval of 0 only
+        takes a snapshot when the journal is closed.
+     */
+    public MappedOrderJournal(Path directory, int segmentBytes, long commitIntervalMillis, long snapshotIntervalMillis)
+            throws IOException {
+        if (segmentBytes < MIN_SEGMENT_BYTES)
+            throw new IllegalArgumentException(String.format("Segments take at least %d bytes, got %d",
+                    MIN_SEGMENT_BYTES, segmentBytes));
+
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.commitIntervalNanos = commitIntervalMillis * 1_000_000;
+        this.snapshotIntervalNanos = snapshotIntervalMillis * 1_000_000;
+
+        Files.createDirectories(directory);
+        recover();
+        this.recovered = state.copy();
+        mapSegment(sequence);
+
+        this.committer = new Thread(this::commitLoop, "order-journal");
+        this.committer.setDaemon(true);
+        this.committer.start();
+    }
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final long commitIntervalNanos;
+    private final long snapshotIntervalNanos;
+    private final Thread committer;
+    private final JournalState recovered;
+
+    // Guarded by this
+    private final JournalState state = new JournalState();
+    private final OrderCodec codec = new OrderCodec();
+    private final CRC32 crc = new CRC32();
+    private MappedByteBuffer segment;
+    // Full segments not forced to the disk yet
+    private final List<MappedByteBuffer> rolled = new ArrayList<>();
+    // Sequence number of the next record
+    private long sequence;
+    private volatile boolean closed;
+
+    // Commits and snapshots are taken one at a time, guarded by commitLock
+    private final Object commitLock = new Object();
+    private volatile long committed;
+    private long lastSnapshot;
+
+
+    @Override
+    public void record(Transition transition, OrderId orderId, Shelf.ShelfType shelf, float value){
+        switch (transition){
+            case PLACED:
+                append(RecordType.PLACED, orderId, shelf, value);
+                break;
+            case MOVED:
+                append(RecordType.MOVED, orderId, shelf, value);
+                break;
+            case PICKED_UP:
+                append(RecordType.PICKED_UP, orderId, shelf, value);
+                break;
+            case DELIVERED:
+                append(RecordType.DELIVERED, orderId, shelf, value);
+                break;
+            case EXPIRED:
+            case DROPPED:
+            case REFUSED:
+                append(RecordType.WASTED, orderId, shelf, value);
+                break;
+            default:
+                // Taken orders come with the whole order (see taken), couriers are not part of the kitchen state
+                break;
+        }
+    }
+
+    @Override
+    public synchronized void taken(CookedPlacedOrder cookedPlacedOrder){
+        if (closed)
+            return;
+
+        JournalState.JournaledOrder order = new JournalState.JournaledOrder(cookedPlacedOrder, state.inputOffset(), null);
+        int length = 1 + codec.length(cookedPlacedOrder.placedOrder);
+        int start = reserve(length);
+        segment.put((byte) RecordType.TAKEN.ordinal());
+        codec.put(segment, cookedPlacedOrder, order.inputOffset);
+        seal(start, length);
+
+        state.taken(order);
+    }
+
+    @Override
+    public JournalState recovered(){
+        return recovered;
+    }
+
+    /*
+        Records appended so far, and the ones already forced to the disk.
+     */
+    public synchronized long records(){
+        return sequence;
+    }
+
+    public long committedRecords(){
+        return committed;
+    }
+
+    /*
+        Forces every record appended so far to the disk.
+     */
+    public void commit(){
+        synchronized (commitLock){
+            List<MappedByteBuffer> toForce;
+            long upTo;
+            synchronized (this){
+                toForce = new ArrayList<>(rolled);
+                rolled.clear();
+                toForce.add(segment);
+                upTo = sequence;
+            }
+            if (upTo == committed)
+                return;
+
+            for (MappedByteBuffer buffer: toForce)
+                buffer.force();
+            committed = upTo;
+        }
+    }
+
+    /*
+        Writes the orders in flight and the counters to a new snapshot, then deletes what it makes useless.
+     */
+    public void snapshot(){
+        synchronized (commitLock){
+            ByteBuffer snapshot;
+            long at;
+            synchronized (this){
+                at = sequence;
+                if (at == lastSnapshot)
+                    return;
+                snapshot = encodeState(at);
+            }
+
+            // The records before the snapshot are on the disk before the segments holding them go
+            commit();
+            try {
+                Path temporary = directory.resolve(fileName(at, SNAPSHOT_SUFFIX + ".tmp"));
+                try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)){
+                    while (snapshot.hasRemaining())
+                        channel.write(snapshot);
+                    channel.force(true);
+                }
+                // A crash leaves either the previous snapshot or this one, never half of it
+                Files.move(temporary, directory.resolve(fileName(at, SNAPSHOT_SUFFIX)), StandardCopyOption.ATOMIC_MOVE);
+            }catch (IOException e){
+                throw new UncheckedIOException(e);
+            }
+            lastSnapshot = at;
+            log.debug("Order journal snapshot taken at record {}", at);
+
+            deleteBefore(at);
+        }
+    }
+
+    /*
+        Commits and snapshots what was recorded, so the next start has nothing to replay. The records appended
+        afterwards are lost.
+     */
+    @Override
+    public void close(){
+        if (closed)
+            return;
+        synchronized (this){
+            closed = true;
+        }
+        LockSupport.unpark(committer);
+        try {
+            committer.join();
+        }catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+        }
+
+        try {
+            snapshot();
+        }catch (UncheckedIOException e){
+            log.error("Order journal {} could not be snapshot on close, it is replayed on the next start", directory, e);
+        }
+    }
+
+    private synchronized void append(RecordType type, OrderId orderId, Shelf.ShelfType shelf, float value){
+        if (closed)
+            return;
+
+        int length = RECORD_BYTES;
+        if (type == RecordType.PLACED || type == RecordType.MOVED)
+            length += 1;
+        else if (type == RecordType.PICKED_UP)
+            length += 4;
+
+        int start = reserve(length);
+        segment.put((byte) type.ordinal());
+        segment.putLong(orderId.mostSignificantBits);
+        segment.putLong(orderId.leastSignificantBits);
+        switch (type){
+            case PLACED:
+            case MOVED:
+                segment.put((shelf == null) ? NO_SHELF : (byte) shelf.ordinal());
+                state.placed(orderId, shelf);
+                break;
+            case PICKED_UP:
+                segment.putFloat(value);
+                state.pickedUp(orderId, value);
+                break;
+            case DELIVERED:
+                state.delivered(orderId);
+                break;
+            default:
+                state.wasted(orderId);
+                break;
+        }
+        seal(start, length);
+    }
+
+    /*
+        Room for a record of the given payload length, mapping the next segment if this one has not got enough.
+        Returns where the record starts, its length is already there.
+     */
+    private int reserve(int length){
+        if (HEADER_BYTES + length > segmentBytes)
+            throw new IllegalArgumentException(String.format("A record of %d bytes does not fit in segments of %d bytes",
+                    HEADER_BYTES + length, segmentBytes));
+
+        if (segment.remaining() < HEADER_BYTES + length){
+            // The rest of the segment is left zeroed, which reads as its end
+            rolled.add(segment);
+            try {
+                mapSegment(sequence);
+            }catch (IOException e){
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        int start = segment.position();
+        segment.putInt(length);
+        segment.putInt(0);
+        return start;
+    }
+
+    /*
+        Writes the CRC of the record once its payload is in, which is what makes it readable.
+     */
+    private void seal(int start, int length){
+        int end = start + HEADER_BYTES + length;
+        crc.reset();
+        segment.position(start + HEADER_BYTES).limit(end);
+        crc.update(segment);
+        segment.limit(segment.capacity());
+        segment.putInt(start + 4, (int) crc.getValue());
+        sequence++;
+    }
+
+    private void mapSegment(long firstSequence) throws IOException {
+        // A segment with the same name can only be left by a start that did not append anything
+        try (FileChannel channel = FileChannel.open(directory.resolve(fileName(firstSequence, SEGMENT_SUFFIX)),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)){
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        }
+    }
+
+    private void commitLoop(){
+        long nextSnapshotNanos = System.nanoTime() + snapshotIntervalNanos;
+        while (!closed){
+            LockSupport.parkNanos(commitIntervalNanos);
+            try {
+                commit();
+                if (snapshotIntervalNanos > 0 && System.nanoTime() - nextSnapshotNanos >= 0){
+                    snapshot();
+                    nextSnapshotNanos = System.nanoTime() + snapshotIntervalNanos;
+                }
+            }catch (UncheckedIOException e){
+                log.error("Order journal {} could not be committed", directory, e);
+            }
+        }
+    }
+
+    private ByteBuffer encodeState(long at){
+        List<JournalState.JournaledOrder> orders = state.orders();
+
+        int length = 4 + 8 + 8 + 8 + 8 + 8 + 8 + 4 + 4;
+        for (JournalState.JournaledOrder order: orders)
+            length += 1 + codec.length(order.cookedPlacedOrder.placedOrder);
+
+        ByteBuffer out = ByteBuffer.allocate(length);
+        out.putInt(SNAPSHOT_MAGIC);
+        out.putLong(at);
+        out.putLong(state.inputOffset());
+        out.putLong(state.pickedUp());
+        out.putDouble(state.pickedUpValue());
+        out.putLong(state.delivered());
+        out.putLong(state.wasted());
+        out.putInt(orders.size());
+        for (JournalState.JournaledOrder order: orders){
+            out.put((order.shelfType() == null) ? NO_SHELF : (byte) order.shelfType().ordinal());
+            codec.put(out, order.cookedPlacedOrder, order.inputOffset);
+        }
+
+        CRC32 snapshotCrc = new CRC32();
+        snapshotCrc.update(out.array(), 0, out.position());
+        out.putInt((int) snapshotCrc.getValue());
+        out.flip();
+        return out;
+    }
+
+    private void recover() throws IOException {
+        List<Long> snapshots = sequences(SNAPSHOT_SUFFIX);
+        if (!snapshots.isEmpty()){
+            lastSnapshot = snapshots.get(snapshots.size() - 1);
+            loadSnapshot(directory.resolve(fileName(lastSnapshot, SNAPSHOT_SUFFIX)), lastSnapshot);
+        }
+        sequence = lastSnapshot;
+
+        long replayed = 0;
+        for (long firstSequence: sequences(SEGMENT_SUFFIX)){
+            long end = replay(directory.resolve(fileName(firstSequence, SEGMENT_SUFFIX)), firstSequence, lastSnapshot);
+            replayed += Math.max(0, end - Math.max(firstSequence, lastSnapshot));
+            sequence = Math.max(sequence, end);
+        }
+        committed = sequence;
+
+        if (sequence > 0)
+            log.info("Order journal {} recovered {} orders in flight and {} orders taken, {} records replayed after the snapshot",
+                    directory, state.inFlight(), state.inputOffset(), replayed);
+    }
+
+    private void loadSnapshot(Path file, long at) throws IOException {
+        ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(file));
+
+        CRC32 snapshotCrc = new CRC32();
+        snapshotCrc.update(in.array(), 0, Math.max(0, in.limit() - 4));
+        if (in.limit() < 60 || in.getInt(0) != SNAPSHOT_MAGIC || in.getLong(4) != at
+                || in.getInt(in.limit() - 4) != (int) snapshotCrc.getValue())
+            throw new IOException(String.format("Order journal snapshot %s is corrupted", file));
+
+        in.position(12);
+        long inputOffset = in.getLong();
+        long pickedUp = in.getLong();
+        double pickedUpValue = in.getDouble();
+        long delivered = in.getLong();
+        long wasted = in.getLong();
+        state.restoreCounters(inputOffset, pickedUp, pickedUpValue, delivered, wasted);
+
+        int orders = in.getInt();
+        for (int i = 0; i < orders; i++){
+            byte shelf = in.get();
+            state.taken(OrderCodec.get(in, (shelf == NO_SHELF) ? null : SHELF_TYPES[shelf]));
+        }
+    }
+
+    /*
+        Applies the records of the segment from the given sequence number on, returning the sequence number of the
+        record after its last readable one.
+     */
+    private long replay(Path file, long firstSequence, long from) throws IOException {
+        MappedByteBuffer in;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)){
+            in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        long recordSequence = firstSequence;
+        while (in.remaining() >= HEADER_BYTES){
+            int start = in.position();
+            int length = in.getInt();
+            int expectedCrc = in.getInt();
+            if (length <= 0 || length > in.remaining())
+                break;
+
+            crc.reset();
+            in.limit(start + HEADER_BYTES + length);
+            crc.update(in);
+            in.limit(in.capacity());
+            if ((int) crc.getValue() != expectedCrc){
+                log.warn("Order journal segment {} ends with a torn record, {} records of it are recovered",
+                        file, recordSequence - firstSequence);
+                break;
+            }
+
+            if (recordSequence >= from){
+                in.position(start + HEADER_BYTES);
+                apply(in);
+            }
+            in.position(start + HEADER_BYTES + length);
+            recordSequence++;
+        }
+        return recordSequence;
+    }
+
+    private void apply(ByteBuffer in){
+        RecordType type = RECORD_TYPES[in.get()];
+        if (type == RecordType.TAKEN){
+            state.taken(OrderCodec.get(in, null));
+            return;
+        }
+
+        OrderId orderId = OrderId.of(in.getLong(), in.getLong());
+        switch (type){
+            case PLACED:
+            case MOVED:
+                byte shelf = in.get();
+                state.placed(orderId, (shelf == NO_SHELF) ? null : SHELF_TYPES[shelf]);
+                break;
+            case PICKED_UP:
+                state.pickedUp(orderId, in.getFloat());
+                break;
+            case DELIVERED:
+                state.delivered(orderId);
+                break;
+            default:
+                state.wasted(orderId);
+                break;
+        }
+    }
+
+    /*
+        Deletes the snapshots older than the given one, and the segments whose records are all before it.
+     */
+    private void deleteBefore(long at){
+        try {
+            for (long snapshot: sequences(SNAPSHOT_SUFFIX))
+                if (snapshot < at)
+                    Files.deleteIfExists(directory.resolve(fileName(snapshot, SNAPSHOT_SUFFIX)));
+
+            // A segment ends where the next one starts, the segment being written has none after it
+            List<Long> segments = sequences(SEGMENT_SUFFIX);
+            for (int i = 0; i + 1 < segments.size() && segments.get(i + 1) <= at; i++)
+                Files.deleteIfExists(directory.resolve(fileName(segments.get(i), SEGMENT_SUFFIX)));
+        }catch (IOException e){
+            log.warn("Order journal {} could not delete what is before record {}", directory, at, e);
+        }
+    }
+
+    private List<Long> sequences(String suffix) throws IOException {
+        List<Long> sequences = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + suffix)){
+            for (Path file: files){
+                String name = file.getFileName().toString();
+                sequences.add(Long.parseLong(name.substring(0, name.length() - suffix.length())));
+            }
+        }
+        Collections.sort(sequences);
+        return sequences;
+    }
+
+    private static String fileName(long sequence, String suffix){
+        return String.format("%019d%s", sequence, suffix);
+    }
+
+}
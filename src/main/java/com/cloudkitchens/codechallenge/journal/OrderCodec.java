@@ -0,0 +1,113 @@
+package com.cloudkitchens.codechallenge.journal;
+
+import com.cloudkitchens.codechallenge.order.CookedPlacedOrder;
+import com.cloudkitchens.codechallenge.order.OrderId;
+import com.cloudkitchens.codechallenge.order.PlacedOrder;
+import com.cloudkitchens.codechallenge.shelf.Shelf;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/*
+    Binary form of an order in the journal records and snapshots:
+
+        <id most significant bits> <id least significant bits> <input offset> <ready since millis> <shelf life>
+        <decay rate> <name> <temperature> <id text>
+
+    with 8 bytes for the longs, 4 bytes for the shelf life and the decay rate, and 2 bytes of length followed by
+    the UTF-8 bytes for the texts (a length of -1 for no text). The id text is only there for the ids that are not
+    UUIDs, UUIDs are rebuilt from their two longs.
+
+    Names and temperatures are the catalog copies shared by every order of the same dish (see DishCatalog), so
+    their bytes are only encoded once.
+
+    This class is not thread safe.
+ */
+class OrderCodec {
+
+    private static final short NO_TEXT = -1;
+    // Past this many texts new ones are encoded every time, so made up names can not grow it without bounds
+    private static final int MAX_ENCODED_TEXTS = 1 << 16;
+
+    private final Map<String, byte[]> encodedTexts = new IdentityHashMap<>();
+
+
+    int length(PlacedOrder placedOrder){
+        return 40 + textLength(placedOrder.name, true) + textLength(placedOrder.temp, true)
+                + textLength(idText(placedOrder.id), false);
+    }
+
+    void put(ByteBuffer out, CookedPlacedOrder cookedPlacedOrder, long inputOffset){
+        PlacedOrder placedOrder = cookedPlacedOrder.placedOrder;
+        out.putLong(placedOrder.id.mostSignificantBits);
+        out.putLong(placedOrder.id.leastSignificantBits);
+        out.putLong(inputOffset);
+        out.putLong(cookedPlacedOrder.readySinceMillis);
+        out.putInt(placedOrder.shelfLife);
+        out.putFloat(placedOrder.decayRate);
+        putText(out, placedOrder.name, true);
+        putText(out, placedOrder.temp, true);
+        // Every id is a text of its own, not worth keeping
+        putText(out, idText(placedOrder.id), false);
+    }
+
+    static JournalState.JournaledOrder get(ByteBuffer in, Shelf.ShelfType shelfType){
+        long mostSignificantBits = in.getLong();
+        long leastSignificantBits = in.getLong();
+        long inputOffset = in.getLong();
+        long readySinceMillis = in.getLong();
+        int shelfLife = in.getInt();
+        float decayRate = in.getFloat();
+        String name = getText(in);
+        String temp = getText(in);
+        String idText = getText(in);
+
+        OrderId id = (idText == null) ? OrderId.of(mostSignificantBits, leastSignificantBits) : OrderId.of(idText);
+        PlacedOrder placedOrder = new PlacedOrder(id, name, temp, shelfLife, decayRate);
+        return new JournalState.JournaledOrder(new CookedPlacedOrder(placedOrder, readySinceMillis), inputOffset, shelfType);
+    }
+
+    private static String idText(OrderId id){
+        return id.isUuid() ? null : id.toString();
+    }
+
+    private int textLength(String text, boolean shared){
+        return 2 + ((text == null) ? 0 : encoded(text, shared).length);
+    }
+
+    private void putText(ByteBuffer out, String text, boolean shared){
+        if (text == null){
+            out.putShort(NO_TEXT);
+            return;
+        }
+        byte[] bytes = encoded(text, shared);
+        out.putShort((short) bytes.length);
+        out.put(bytes);
+    }
+
+    private static String getText(ByteBuffer in){
+        short length = in.getShort();
+        if (length == NO_TEXT)
+            return null;
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private byte[] encoded(String text, boolean shared){
+        byte[] bytes = shared ? encodedTexts.get(text) : null;
+        if (bytes != null)
+            return bytes;
+
+        bytes = text.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > Short.MAX_VALUE)
+            throw new IllegalArgumentException(String.format("Texts of the journal take up to %d bytes, got %d",
+                    Short.MAX_VALUE, bytes.length));
+        if (shared && encodedTexts.size() < MAX_ENCODED_TEXTS)
+            encodedTexts.put(text, bytes);
+        return bytes;
+    }
+
+}
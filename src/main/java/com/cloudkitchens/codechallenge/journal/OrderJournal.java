@@ -0,0 +1,68 @@
+package com.cloudkitchens.codechallenge.journal;
+
+import com.cloudkitchens.codechallenge.eventlog.OrderEventLog;
+import com.cloudkitchens.codechallenge.order.CookedPlacedOrder;
+import com.cloudkitchens.codechallenge.order.OrderId;
+import com.cloudkitchens.codechallenge.shelf.Shelf;
+import com.typesafe.config.Config;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+
+/*
+    Journal of the lifecycle of the orders (taken, placed, moved, picked up, delivered, wasted), which the kitchen
+    gets its orders in flight back from after a crash, and where the input goes on from.
+
+    It is an order event log, so hooked up to the event log of the kitchen it gets every transition from wherever
+    it happens. On top of that the kitchen unit hands over every order it takes, since the journal needs the whole
+    order, and where it came in the input, to put it back on the shelves.
+
+    Implementations are thread safe.
+ */
+public interface OrderJournal extends OrderEventLog {
+
+    // Journal that records nothing and recovers nothing
+    OrderJournal DISABLED = new OrderJournal() {
+        @Override
+        public void record(Transition transition, OrderId orderId, Shelf.ShelfType shelf, float value) {
+        }
+
+        @Override
+        public void taken(CookedPlacedOrder cookedPlacedOrder) {
+        }
+
+        @Override
+        public JournalState recovered() {
+            return new JournalState();
+        }
+    };
+
+    /*
+        Records the order as taken from the input, right after the orders taken before it.
+     */
+    void taken(CookedPlacedOrder cookedPlacedOrder);
+
+    /*
+        State the journal got back when it was opened (nothing for a new journal), it does not change afterwards.
+        The input goes on from its input offset, and its orders in flight are to be put back on the shelves.
+     */
+    JournalState recovered();
+
+    static OrderJournal fromConfig(Config conf){
+        Config journalConfig = conf.getConfig("order-journal");
+        if (!journalConfig.getBoolean("enabled"))
+            return DISABLED;
+
+        try {
+            return new MappedOrderJournal(
+                    Paths.get(journalConfig.getString("directory")),
+                    journalConfig.getInt("segment-bytes"),
+                    journalConfig.getLong("commit-interval-millis"),
+                    journalConfig.getLong("snapshot-interval-millis"));
+        }catch (IOException e){
+            throw new UncheckedIOException(e);
+        }
+    }
+
+}
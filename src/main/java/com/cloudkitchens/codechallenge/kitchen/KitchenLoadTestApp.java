@@ -0,0 +1,144 @@
+package com.cloudkitchens.codechallenge.kitchen;
+
+import akka.actor.typed.ActorSystem;
+import akka.stream.javadsl.Source;
+import com.cloudkitchens.codechallenge.journal.OrderJournal;
+import com.cloudkitchens.codechallenge.loadtest.LoadTestOrders;
+import com.cloudkitchens.codechallenge.metrics.KitchenMetrics;
+import com.cloudkitchens.codechallenge.order.OrderVo;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.typesafe.config.Config;
+import org.HdrHistogram.Histogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+/*
+    Headless load test of the whole kitchen: orders are pushed through the same stream and actors as the kitchen
+    unit app (see KitchenUnitApp), and it reports how many orders per second the kitchen sustained along with the
+    latencies of the transitions of the orders, as the kitchen metrics measure them (see KitchenMetrics).
+
+    The orders are either synthesized or replayed from the orders file, as set in the load-test block of
+    kitchen-unit.conf. Everything else (shelves, couriers, execution mode, back pressure...) comes from the rest of
+    the file. Run it with: ./gradlew loadTest
+ */
+public class KitchenLoadTestApp {
+
+    private static final Logger log = LoggerFactory.getLogger(KitchenLoadTestApp.class);
+
+    public static void main(String[] args) throws IOException {
+
+        Config conf = KitchenUnitConfig.config;
+        Config loadTestConfig = conf.getConfig("load-test");
+
+        // Every actor of the kitchen records in the metrics, which time the transitions of the orders
+        KitchenMetrics metrics = new KitchenMetrics();
+
+        ActorSystem<KitchenUnitActor.Message> kitchenUnit =
+                ActorSystem.create(KitchenUnitApp.kitchenBehavior(conf, null, metrics, OrderJournal.DISABLED), "kitchenUnit");
+
+        Source<OrderVo, ?> orders = Source.fromIterator(() -> orders(conf, loadTestConfig));
+        int ratePerSecond = loadTestConfig.getInt("rate-per-second");
+        if (ratePerSecond > 0)
+            orders = orders.throttle(ratePerSecond, Duration.ofSeconds(1));
+
+        long startNanos = System.nanoTime();
+        orders.runWith(KitchenUnitApp.kitchenUnitSink(conf, kitchenUnit), kitchenUnit);
+
+        // The kitchen unit stops once the orders are over and every order has been delivered or wasted
+        kitchenUnit.getWhenTerminated().toCompletableFuture().join();
+        long elapsedNanos = System.nanoTime() - startNanos;
+
+        // The only snapshot taken, so it holds the latencies of the whole run
+        KitchenMetrics.Snapshot snapshot = metrics.snapshot();
+        File resultsFile = Paths.get(loadTestConfig.getString("results-file")).toFile();
+        writeResults(resultsFile, snapshot, elapsedNanos);
+        logResults(resultsFile, snapshot, elapsedNanos);
+    }
+
+    private static Iterator<OrderVo> orders(Config conf, Config loadTestConfig){
+        if ("synthetic".equals(loadTestConfig.getString("source")))
+            return LoadTestOrders.synthetic(loadTestConfig);
+
+        try {
+            return LoadTestOrders.replay(Paths.get(conf.getString("orders-file-location")), loadTestConfig.getInt("replay-times"));
+        }catch (IOException e){
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeResults(File resultsFile, KitchenMetrics.Snapshot snapshot, long elapsedNanos) throws IOException {
+        long completed = completed(snapshot);
+
+        try (JsonGenerator json = new JsonFactory().createGenerator(resultsFile, JsonEncoding.UTF8)){
+            json.useDefaultPrettyPrinter();
+            json.writeStartObject();
+            json.writeNumberField("receivedOrders", snapshot.received);
+            json.writeNumberField("deliveredOrders", snapshot.delivered);
+            json.writeNumberField("expiredOrders", snapshot.expired);
+            json.writeNumberField("droppedOrders", snapshot.dropped);
+            json.writeNumberField("refusedOrders", snapshot.refused);
+            json.writeNumberField("deliveredRatio", (completed == 0) ? 0 : (double) snapshot.delivered / completed);
+            json.writeNumberField("elapsedMillis", TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+            json.writeNumberField("ordersPerSecond", ordersPerSecond(completed, elapsedNanos));
+
+            json.writeObjectFieldStart("latencyMicros");
+            writeLatencies(json, "timeToPlacement", snapshot.timeToPlacement);
+            writeLatencies(json, "shelfToPickup", snapshot.shelfToPickup);
+            writeLatencies(json, "shelfToWaste", snapshot.shelfToWaste);
+            writeLatencies(json, "endToEnd", snapshot.endToEnd);
+            json.writeEndObject();
+
+            json.writeEndObject();
+        }
+    }
+
+    private static void writeLatencies(JsonGenerator json, String name, Histogram micros) throws IOException {
+        json.writeObjectFieldStart(name);
+        json.writeNumberField("count", micros.getTotalCount());
+        json.writeNumberField("mean", Math.round(micros.getMean()));
+        json.writeNumberField("p50", micros.getValueAtPercentile(50));
+        json.writeNumberField("p99", micros.getValueAtPercentile(99));
+        json.writeNumberField("p999", micros.getValueAtPercentile(99.9));
+        json.writeNumberField("max", micros.getMaxValue());
+        json.writeEndObject();
+    }
+
+    private static void logResults(File resultsFile, KitchenMetrics.Snapshot snapshot, long elapsedNanos){
+        log.info("====== Kitchen Load Test ======");
+        log.info("== Orders: {} received, {} delivered, {} expired, {} dropped, {} refused",
+                snapshot.received, snapshot.delivered, snapshot.expired, snapshot.dropped, snapshot.refused);
+        log.info("== Throughput: {} orders/s over {} ms",
+                String.format("%.1f", ordersPerSecond(completed(snapshot), elapsedNanos)), TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+        logLatencies("Time to placement", snapshot.timeToPlacement);
+        logLatencies("Shelf to pickup", snapshot.shelfToPickup);
+        logLatencies("Shelf to waste", snapshot.shelfToWaste);
+        logLatencies("End to end", snapshot.endToEnd);
+        log.info("== Results written to {}", resultsFile.getAbsolutePath());
+        log.info("===============================");
+    }
+
+    private static void logLatencies(String name, Histogram micros){
+        log.info("== {} (us): p50 {}, p99 {}, p999 {}, max {}", name, micros.getValueAtPercentile(50),
+                micros.getValueAtPercentile(99), micros.getValueAtPercentile(99.9), micros.getMaxValue());
+    }
+
+    // Orders that left the kitchen, one way or the other
+    private static long completed(KitchenMetrics.Snapshot snapshot){
+        return snapshot.delivered + snapshot.expired + snapshot.dropped + snapshot.refused;
+    }
+
+    private static double ordersPerSecond(long orders, long elapsedNanos){
+        return (elapsedNanos == 0) ? 0 : orders * 1e9 / elapsedNanos;
+    }
+
+}
@@ -0,0 +1,201 @@
+package com.cloudkitchens.codechallenge.kitchen;
+
+import akka.actor.typed.ActorRef;
+import akka.actor.typed.Behavior;
+import akka.actor.typed.javadsl.AbstractBehavior;
+import akka.actor.typed.javadsl.ActorContext;
+import akka.actor.typed.javadsl.Behaviors;
+import akka.actor.typed.javadsl.Receive;
+import com.cloudkitchens.codechallenge.eventlog.OrderEventLog;
+import com.cloudkitchens.codechallenge.ingestion.AdaptiveRateController;
+import com.cloudkitchens.codechallenge.journal.OrderJournal;
+import com.cloudkitchens.codechallenge.order.OrderVo;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+    Root actor of the multi-kitchen mode. It stands for several kitchen units running side by side, each one
+    with its own shelves, orders and counters, and routes every order from the stream to one of them.
+
+    It speaks the same protocol as a single kitchen unit, so the ingestion stream does not need to know how many
+    kitchen units there are. Once the upstream is completed every kitchen unit is advised, and when all of them
+    are done the aggregate report is printed.
+
+    With an adaptive ingestion rate the rate controller is fed by the router rather than by the kitchen units: every
+    control interval it asks all of them for a sample, and updates the controller once with what they replied
+    together, so the rate moves once per interval whatever the number of kitchen units.
+ */
+public class KitchenRouterActor extends AbstractBehavior<KitchenUnitActor.Message> {
+
+    // Route by the hash of the order id
+    public static final String ORDER_ID_HASH = "order-id-hash";
+    // Route by the kitchen field of the order (falling back to the hash of its id when it has none)
+    public static final String KITCHEN_FIELD = "kitchen-field";
+
+    // Time to sample the kitchen units for the adaptive ingestion rate controller
+    private static enum RateControlTick implements KitchenUnitActor.Command {
+        INSTANCE
+    }
+
+    public static Behavior<KitchenUnitActor.Message> create(int kitchenUnits, String routingKey){
+        return create(kitchenUnits, routingKey, null, OrderEventLog.DISABLED);
+    }
+
+    /*
+        Kitchen units all sampled for the given rate controller (if not null), so the ingestion rate backs off as soon
+        as any of them is under pressure, and all recording in the given event log.
+     */
+    public static Behavior<KitchenUnitActor.Message> create(int kitchenUnits, String routingKey, AdaptiveRateController rateController,
+                                                            OrderEventLog eventLog){
+        return Behaviors.setup(ctx -> new KitchenRouterActor(ctx, kitchenUnits, routingKey, rateController, eventLog));
+    }
+
+    private KitchenRouterActor(ActorContext<KitchenUnitActor.Message> ctx, int kitchenUnits, String routingKey,
+                               AdaptiveRateController rateController, OrderEventLog eventLog){
+        super(ctx);
+
+        if (!ORDER_ID_HASH.equals(routingKey) && !KITCHEN_FIELD.equals(routingKey))
+            throw new IllegalArgumentException(String.format("Unknown kitchen unit routing key %s", routingKey));
+        this.routeByKitchenField = KITCHEN_FIELD.equals(routingKey);
+        this.rateController = rateController;
+
+        for (int i = 0; i < kitchenUnits; i++){
+            this.kitchenUnits.add(getContext().spawn(
+                    KitchenUnitActor.create(getContext().getSelf(), null, eventLog, OrderJournal.DISABLED),
+                    String.format("kitchenUnit:%d", i)));
+        }
+        getContext().getLog().info("Running {} kitchen units routed by {}", kitchenUnits, routingKey);
+
+        if (rateController != null){
+            rateControlInterval = Duration.ofMillis(KitchenUnitConfig.config.getLong("ingestion-rate.control-interval-millis"));
+            getContext().scheduleOnce(rateControlInterval, getContext().getSelf(), RateControlTick.INSTANCE);
+        }
+    }
+
+    private final boolean routeByKitchenField;
+    private final List<ActorRef<KitchenUnitActor.Message>> kitchenUnits = new ArrayList<>();
+    private final List<KitchenUnitActor.KitchenUnitReport> reports = new ArrayList<>();
+    private final AdaptiveRateController rateController;
+    private Duration rateControlInterval;
+    // Samples of the kitchen units replied so far in the current round, put together as they come
+    private long rateControlRound;
+    private int rateSignalsReplies;
+    private float overflowOccupancy;
+    private int droppedOrders;
+    private int courierBacklog;
+
+
+    @Override
+    public Receive<KitchenUnitActor.Message> createReceive() {
+        return newReceiveBuilder()
+                .onMessage(KitchenUnitActor.UpstreamStarted.class, this::onUpstreamStarted)
+                .onMessage(KitchenUnitActor.OrderRequest.class, this::onOrderRequest)
+                .onMessage(KitchenUnitActor.UpstreamCompleted.class, this::onUpstreamFinished)
+                .onMessage(KitchenUnitActor.UpstreamFailed.class, this::onUpstreamFinished)
+                .onMessage(KitchenUnitActor.KitchenUnitReport.class, this::onKitchenUnitReport)
+                .onMessage(RateControlTick.class, this::onRateControlTick)
+                .onMessage(KitchenUnitActor.RateSignals.class, this::onRateSignals)
+                .build();
+    }
+
+    private Behavior<KitchenUnitActor.Message> onUpstreamStarted(KitchenUnitActor.UpstreamStarted upstreamStarted){
+        // Demand for the following orders is granted by the kitchen unit each order is routed to
+        upstreamStarted.ackTo.tell(KitchenUnitActor.Ack.INSTANCE);
+        return this;
+    }
+
+    private Behavior<KitchenUnitActor.Message> onOrderRequest(KitchenUnitActor.OrderRequest orderRequest){
+        kitchenUnits.get(kitchenUnitOf(orderRequest.orderVo)).tell(orderRequest);
+        return this;
+    }
+
+    private Behavior<KitchenUnitActor.Message> onUpstreamFinished(KitchenUnitActor.Message upstreamFinished){
+        kitchenUnits.forEach(kitchenUnit -> kitchenUnit.tell(upstreamFinished));
+        return this;
+    }
+
+    private Behavior<KitchenUnitActor.Message> onKitchenUnitReport(KitchenUnitActor.KitchenUnitReport report){
+        reports.add(report);
+        if (reports.size() < kitchenUnits.size()){
+            // A kitchen unit done with its orders no longer replies, the round may be complete without it
+            updateRateController();
+            return this;
+        }
+
+        printAggregateReport();
+        return Behaviors.stopped();
+    }
+
+    /*
+        A round still waiting for replies when the next tick comes is given up, so a sample lost by a kitchen unit
+        going down does not hold the rate controller back.
+     */
+    private Behavior<KitchenUnitActor.Message> onRateControlTick(RateControlTick rateControlTick){
+        rateControlRound++;
+        rateSignalsReplies = 0;
+        overflowOccupancy = 0;
+        droppedOrders = 0;
+        courierBacklog = 0;
+        kitchenUnits.forEach(kitchenUnit ->
+                kitchenUnit.tell(new KitchenUnitActor.GetRateSignals(rateControlRound, getContext().getSelf())));
+        getContext().scheduleOnce(rateControlInterval, getContext().getSelf(), RateControlTick.INSTANCE);
+        return this;
+    }
+
+    /*
+        The kitchen is under pressure as soon as any of its units is: the fullest overflow shelf stands for all of
+        them, whereas the drops and the orders waiting for their courier add up.
+     */
+    private Behavior<KitchenUnitActor.Message> onRateSignals(KitchenUnitActor.RateSignals rateSignals){
+        if (rateSignals.round != rateControlRound)
+            return this;
+
+        rateSignalsReplies++;
+        overflowOccupancy = Math.max(overflowOccupancy, rateSignals.signals.overflowOccupancy);
+        droppedOrders += rateSignals.signals.droppedOrders;
+        courierBacklog += rateSignals.signals.courierBacklog;
+        updateRateController();
+        return this;
+    }
+
+    private void updateRateController(){
+        if (rateController == null || rateSignalsReplies == 0 || rateSignalsReplies < kitchenUnits.size() - reports.size())
+            return;
+
+        rateController.update(new AdaptiveRateController.Signals(overflowOccupancy, droppedOrders, courierBacklog));
+        // Nothing more is expected from this round
+        rateSignalsReplies = 0;
+        rateControlRound++;
+    }
+
+    private int kitchenUnitOf(OrderVo orderVo){
+        if (routeByKitchenField && orderVo.getKitchen() != null)
+            return Math.floorMod(orderVo.getKitchen(), kitchenUnits.size());
+        return Math.floorMod(orderVo.getOrderId().hashCode(), kitchenUnits.size());
+    }
+
+    private void printAggregateReport(){
+        int requestCount = 0;
+        int requestDeliveryCount = 0;
+        int requestDroppedCount = 0;
+
+        getContext().getLog().info("====== Kitchen Units Report ======");
+        for (KitchenUnitActor.KitchenUnitReport report: reports){
+            getContext().getLog().info("== {}: Received {}, Delivered {}, Dropped {}", report.kitchenUnit,
+                    report.requestCount, report.requestDeliveryCount, report.requestDroppedCount);
+            requestCount += report.requestCount;
+            requestDeliveryCount += report.requestDeliveryCount;
+            requestDroppedCount += report.requestDroppedCount;
+        }
+        getContext().getLog().info("== Received Orders: {}", requestCount);
+        getContext().getLog().info("== Delivered Orders: {}", requestDeliveryCount);
+        getContext().getLog().info("== Dropped Orders: {}", requestDroppedCount);
+        if (rateController != null)
+            getContext().getLog().info("== Ingestion Rate: {} orders/s ({} increases, {} decreases)",
+                    String.format("%.2f", rateController.rate()), rateController.increases(), rateController.decreases());
+        getContext().getLog().info("==================================");
+    }
+
+}
@@ -6,17 +6,31 @@ import akka.actor.typed.javadsl.AbstractBehavior;
 import akka.actor.typed.javadsl.ActorContext;
 import akka.actor.typed.javadsl.Behaviors;
 import akka.actor.typed.javadsl.Receive;
-import com.cloudkitchens.codechallenge.courier.CourierDispatcherActor;
+import com.cloudkitchens.codechallenge.courier.CourierDispatchActor;
+import com.cloudkitchens.codechallenge.courier.CourierFleetProperties;
+import com.cloudkitchens.codechallenge.courier.DispatchStrategy;
+import com.cloudkitchens.codechallenge.eventlog.OrderEventLog;
+import com.cloudkitchens.codechallenge.ingestion.AdaptiveRateController;
+import com.cloudkitchens.codechallenge.journal.JournalState;
+import com.cloudkitchens.codechallenge.journal.OrderJournal;
 import com.cloudkitchens.codechallenge.order.CookedPlacedOrder;
 import com.cloudkitchens.codechallenge.order.OrderActor;
+import com.cloudkitchens.codechallenge.order.OrderIdMap;
 import com.cloudkitchens.codechallenge.order.OrderVo;
+import com.cloudkitchens.codechallenge.order.OrderWorkerActor;
 import com.cloudkitchens.codechallenge.order.PlacedOrder;
+import com.cloudkitchens.codechallenge.shelf.OverflowShelfActor;
+import com.cloudkitchens.codechallenge.shelf.Shelf;
+import com.cloudkitchens.codechallenge.shelf.ShelfShards;
 import com.cloudkitchens.codechallenge.shelf.ShelveManagerActor;
 import com.cloudkitchens.codechallenge.shelf.ShelvesProperties;
+import com.cloudkitchens.codechallenge.shelf.TemperatureShelfActor;
+import com.cloudkitchens.codechallenge.timer.Clock;
 import com.typesafe.config.Config;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 
 public class KitchenUnitActor extends AbstractBehavior<KitchenUnitActor.Message> {
 
@@ -26,12 +40,37 @@ public class KitchenUnitActor extends AbstractBehavior<KitchenUnitActor.Message>
 
     public static class OrderRequest implements Command{
         public final OrderVo orderVo;
+        // Where to signal demand for the next order, only set when the upstream is back pressured
+        public final ActorRef<Ack> ackTo;
 
         public OrderRequest(OrderVo orderVo){
+            this(orderVo, null);
+        }
+
+        public OrderRequest(OrderVo orderVo, ActorRef<Ack> ackTo){
             this.orderVo = orderVo;
+            this.ackTo = ackTo;
         }
     }
 
+    /*
+        First message of a back pressured upstream, no order is sent before it is acknowledged.
+     */
+    public static class UpstreamStarted implements Command{
+        public final ActorRef<Ack> ackTo;
+
+        public UpstreamStarted(ActorRef<Ack> ackTo){
+            this.ackTo = ackTo;
+        }
+    }
+
+    /*
+        Demand signal to a back pressured upstream, allowing it to send the next order.
+     */
+    public static enum Ack {
+        INSTANCE
+    }
+
     public static enum UpstreamCompleted implements Command {
         INSTANCE
     }
@@ -39,8 +78,53 @@ public class KitchenUnitActor extends AbstractBehavior<KitchenUnitActor.Message>
         INSTANCE
     }
 
+    // Time to sample the kitchen unit for the adaptive ingestion rate controller
+    private static enum RateControlTick implements Command {
+        INSTANCE
+    }
+
+    /*
+        Asks for a sample of the kitchen unit for a rate controller fed by several kitchen units, the sample is sent
+        back as RateSignals of the same round.
+     */
+    public static class GetRateSignals implements Command {
+        public final long round;
+        public final ActorRef<Message> replyTo;
+
+        public GetRateSignals(long round, ActorRef<Message> replyTo){
+            this.round = round;
+            this.replyTo = replyTo;
+        }
+    }
+
+    // Time to sample the overflow shelf, while a back pressured upstream is attached
+    private static enum OverflowSampleTick implements Command {
+        INSTANCE
+    }
+
     public interface Event extends Message {}
 
+    private static class WrappedOverflowOccupancy implements Event {
+        public final ShelveManagerActor.OverflowOccupancy overflowOccupancy;
+
+        public WrappedOverflowOccupancy(ShelveManagerActor.OverflowOccupancy overflowOccupancy){
+            this.overflowOccupancy = overflowOccupancy;
+        }
+    }
+
+    /*
+        Sample of the kitchen unit since the previous one, answering the GetRateSignals of the given round.
+     */
+    public static class RateSignals implements Event {
+        public final long round;
+        public final AdaptiveRateController.Signals signals;
+
+        public RateSignals(long round, AdaptiveRateController.Signals signals){
+            this.round = round;
+            this.signals = signals;
+        }
+    }
+
     public static class OrderDelivered implements Event {
         public final PlacedOrder placedOrder;
 
@@ -57,76 +141,260 @@ public class KitchenUnitActor extends AbstractBehavior<KitchenUnitActor.Message>
         }
     }
 
+    /*
+        Final numbers of a kitchen unit, sent to whom is interested when it shuts down.
+     */
+    public static class KitchenUnitReport implements Event {
+        public final String kitchenUnit;
+        public final int requestCount;
+        public final int requestDeliveryCount;
+        public final int requestDroppedCount;
+
+        public KitchenUnitReport(String kitchenUnit, int requestCount, int requestDeliveryCount, int requestDroppedCount){
+            this.kitchenUnit = kitchenUnit;
+            this.requestCount = requestCount;
+            this.requestDeliveryCount = requestDeliveryCount;
+            this.requestDroppedCount = requestDroppedCount;
+        }
+    }
+
     public static Behavior<Message> create(){
         return Behaviors.setup(KitchenUnitActor::new);
     }
 
+    public static Behavior<Message> create(ActorRef<Message> reportTo){
+        return create(reportTo, null);
+    }
+
+    /*
+        Kitchen unit feeding the given controller with samples of its shelves and orders, if not null.
+     */
+    public static Behavior<Message> create(ActorRef<Message> reportTo, AdaptiveRateController rateController){
+        return create(reportTo, rateController, OrderEventLog.DISABLED, OrderJournal.DISABLED);
+    }
+
+    /*
+        Kitchen unit recording the transitions of its orders in the given event log, which every actor of the unit
+        records in, and the orders it takes in the given journal (it takes back the orders the journal recovered).
+        The journal is expected to be part of the event log, so it also gets the transitions.
+     */
+    public static Behavior<Message> create(ActorRef<Message> reportTo, AdaptiveRateController rateController,
+                                           OrderEventLog eventLog, OrderJournal journal){
+        return Behaviors.setup(ctx -> new KitchenUnitActor(ctx, reportTo, rateController, eventLog, journal));
+    }
+
     public KitchenUnitActor(ActorContext<Message> ctx){
+        this(ctx, null, null, OrderEventLog.DISABLED, OrderJournal.DISABLED);
+    }
+
+    private KitchenUnitActor(ActorContext<Message> ctx, ActorRef<Message> reportTo, AdaptiveRateController rateController,
+                             OrderEventLog eventLog, OrderJournal journal){
         super(ctx);
+        this.reportTo = reportTo;
+        this.rateController = rateController;
+        this.eventLog = eventLog;
+        this.journal = journal;
         setup();
     }
 
     private Config conf = KitchenUnitConfig.config;
-    private ActorRef<ShelveManagerActor.Message> shelveManager;
-    private final Map<String, ActorRef<OrderActor.Message>> managedOrders = new HashMap<>();
+    private final OrderEventLog eventLog;
+    private final OrderJournal journal;
+    private final ActorRef<Message> reportTo;
+    private ShelfShards shelfShards;
+    // Owner of the overflow shelf, either the shelves manager or the overflow shard
+    private ActorRef<ShelveManagerActor.Message> overflowShelf;
+    private final AdaptiveRateController rateController;
+    private Duration rateControlInterval;
+    private ActorRef<ShelveManagerActor.OverflowOccupancy> overflowOccupancyAdapter;
+    private int droppedSinceLastSample;
+    // The next overflow occupancy sampled goes to the rate controller, or to whom asked for it when set
+    private boolean rateSampleRequested;
+    private GetRateSignals rateSignalsRequest;
+    // Last sampled occupancy of the overflow shelf (0 to 1)
+    private float overflowOccupancy;
+    private Duration overflowSampleInterval;
+    private boolean overflowSampling;
+    private final List<ActorRef<OrderActor.Message>> orderWorkers = new ArrayList<>();
+    // Couriers of every order, following the configured dispatch strategy
+    private ActorRef<CourierDispatchActor.Message> courierDispatch;
+    private final OrderIdMap<ActorRef<OrderActor.Message>> managedOrders = new OrderIdMap<>();
     private boolean closedUpstream = false;
     private int requestCount;
     private int requestDeliveryCount;
     private int requestDroppedCount;
+    // In flight orders above which a back pressured upstream is not allowed to send more orders
+    private int highWaterMark;
+    // Overflow occupancy at or above which a back pressured upstream is not allowed to send more orders either
+    private float overflowHighWaterMark;
+    // Demand held back while the kitchen unit is above one of its high-water marks
+    private ActorRef<Ack> pendingAck;
 
     @Override
     public Receive<Message> createReceive() {
         return newReceiveBuilder()
+                .onMessage(UpstreamStarted.class, this::onUpstreamStarted)
                 .onMessage(OrderRequest.class, this::onOrderRequest)
                 .onMessage(OrderDelivered.class, this::onOrderDelivered)
                 .onMessage(OrderDropped.class, this::onOrderDropped)
                 .onMessage(UpstreamCompleted.class, this::onUpstreamCompleted)
                 .onMessage(UpstreamFailed.class, this::onUpstreamFailed)
+                .onMessage(RateControlTick.class, this::onRateControlTick)
+                .onMessage(GetRateSignals.class, this::onGetRateSignals)
+                .onMessage(OverflowSampleTick.class, this::onOverflowSampleTick)
+                .onMessage(WrappedOverflowOccupancy.class, this::onOverflowOccupancy)
                 .build();
     }
 
 
+    private Behavior<Message> onUpstreamStarted(UpstreamStarted upstreamStarted){
+        getContext().getLog().info("Back pressured upstream started, allowing up to {} orders in flight and the overflow shelf up to {} full",
+                highWaterMark, overflowHighWaterMark);
+        if (!overflowSampling){
+            overflowSampling = true;
+            setupOverflowOccupancyAdapter();
+            getContext().scheduleOnce(overflowSampleInterval, getContext().getSelf(), OverflowSampleTick.INSTANCE);
+        }
+        grantDemand(upstreamStarted.ackTo);
+        return this;
+    }
+
     private Behavior<Message> onOrderRequest(OrderRequest orderRequest){
 
         PlacedOrder placedOrder = fromOrderVo(orderRequest.orderVo);
 
-        getContext().getLog().info("[ORDERID: {}] - Order has been placed", placedOrder.id);
+        getContext().getLog().debug("[ORDERID: {}] - Order has been placed", placedOrder.id);
+        eventLog.record(OrderEventLog.Transition.RECEIVED, placedOrder.id);
+
+        String refusal = refusal(orderRequest.orderVo, placedOrder);
+        if (refusal != null){
+            refuse(placedOrder, refusal);
+        }else{
+            // Cook the order :)
+            CookedPlacedOrder cookedPlacedOrder = cookOrder(placedOrder);
+            journal.taken(cookedPlacedOrder);
+
+            handOver(cookedPlacedOrder);
+        }
+
+        requestCount++;
+
+        grantDemand(orderRequest.ackTo);
+
+        return this;
+    }
+
+    /*
+        Why the order cannot be cooked, null when it can: no shelf takes its temperature, or it comes without a
+        shelf life or a decay rate to tell when it goes to waste.
+     */
+    private static String refusal(OrderVo orderVo, PlacedOrder placedOrder){
+        if (placedOrder.preferredShelfType == null)
+            return String.format("no shelf takes the temperature %s", placedOrder.temp);
+        if (orderVo.getShelfLife() == null)
+            return "it has no shelf life";
+        if (orderVo.getDecayRate() == null)
+            return "it has no decay rate";
+        return null;
+    }
+
+    /*
+        The order is not cooked and it is counted as dropped right away. It is still journaled as taken (and then
+        wasted), so the input goes on after it when the journal is recovered.
+     */
+    private void refuse(PlacedOrder placedOrder, String refusal){
+        getContext().getLog().warn("[ORDERID: {}] - Order refused, {}", placedOrder.id, refusal);
+        journal.taken(cookOrder(placedOrder));
+        eventLog.record(OrderEventLog.Transition.REFUSED, placedOrder.id);
+        requestDroppedCount++;
+    }
+
+    /*
+        Gets the cooked order on its way to the shelves and to its courier.
+     */
+    private void handOver(CookedPlacedOrder cookedPlacedOrder){
+        PlacedOrder placedOrder = cookedPlacedOrder.placedOrder;
+
+        // Strategies sending couriers as soon as the order is received do not wait for it to be on a shelf
+        courierDispatch.tell(new CourierDispatchActor.OrderReceived(placedOrder.id));
+
+        if (!orderWorkers.isEmpty()){
+            assignToOrderWorker(cookedPlacedOrder);
+            return;
+        }
 
         // Create the order actor that will handle with this request
         ActorRef<OrderActor.Message> orderActor =
-                getContext().spawn(OrderActor.create(getContext().getSelf(),shelveManager, fromOrderVo(orderRequest.orderVo)),
+                getContext().spawn(OrderActor.create(getContext().getSelf(), shelfShards.of(cookedPlacedOrder), placedOrder),
                         String.format("Order:%s", placedOrder.id));
 
-        // Create the courier dispatcher actor that will handle the picked and delivery of this order
-        // and assign it to the orderActor
-        ActorRef<CourierDispatcherActor.Message> courierActor =
-                getContext().spawn(CourierDispatcherActor.create(orderActor,placedOrder),
-                        String.format("CourierDispacher:%s",placedOrder.id));
-        orderActor.tell(new OrderActor.CourierDispatcherAssigned(courierActor));
+        // The order waits for a courier of the courier dispatch once it is on a shelf
+        orderActor.tell(new OrderActor.CourierDispatchAssigned(courierDispatch));
 
         // Add the order actor on the list of orders that is being managed by this kitchen unit
         managedOrders.put(placedOrder.id, orderActor);
 
-        // Cook the order :)
-        CookedPlacedOrder cookedPlacedOrder = cookOrder(placedOrder);
         orderActor.tell(new OrderActor.OrderCookedEvent(cookedPlacedOrder));
+    }
 
-        requestCount++;
+    /*
+        Every order in flight is sitting on a shelf (or about to be), so bounding the in flight orders bounds both
+        the memory used by this kitchen unit and the pressure put on its shelves, whatever the input rate is. The
+        orders in flight can still be too many for the shelves when they are not spread over the temperatures, so
+        the upstream is also held back while the overflow shelf is (as last sampled) at its own high-water mark,
+        rather than have the next orders dropped from it.
+     */
+    private void grantDemand(ActorRef<Ack> ackTo){
+        if (ackTo == null)
+            return;
+
+        if (demandAllowed()){
+            ackTo.tell(Ack.INSTANCE);
+        }else{
+            getContext().getLog().debug("{} orders in flight, overflow shelf {} full, holding the upstream back",
+                    managedOrders.size(), overflowOccupancy);
+            pendingAck = ackTo;
+        }
+    }
 
-        return this;
+    private void releasePendingDemand(){
+        if (pendingAck != null && demandAllowed()){
+            pendingAck.tell(Ack.INSTANCE);
+            pendingAck = null;
+        }
+    }
+
+    private boolean demandAllowed(){
+        return managedOrders.size() < highWaterMark && overflowOccupancy < overflowHighWaterMark;
+    }
+
+    private void assignToOrderWorker(CookedPlacedOrder cookedPlacedOrder){
+        // The same order id always lands on the same worker, so every message of an order lifecycle is
+        // handled by the single worker that owns its state
+        ActorRef<OrderActor.Message> orderWorker =
+                orderWorkers.get(Math.floorMod(cookedPlacedOrder.id.hashCode(), orderWorkers.size()));
+
+        managedOrders.put(cookedPlacedOrder.id, orderWorker);
+
+        // Hand the order over to its worker, which is also in charge of its courier
+        orderWorker.tell(new OrderActor.OrderCookedEvent(cookedPlacedOrder));
     }
 
     private Behavior<Message> onOrderDelivered(OrderDelivered orderDelivered){
-        getContext().getLog().info("[ORDERID: {}] - Order has been properly delivered", orderDelivered.placedOrder.id);
+        getContext().getLog().debug("[ORDERID: {}] - Order has been properly delivered", orderDelivered.placedOrder.id);
+        eventLog.record(OrderEventLog.Transition.DELIVERED, orderDelivered.placedOrder.id);
         managedOrders.remove(orderDelivered.placedOrder.id);
         requestDeliveryCount++;
+        releasePendingDemand();
         return potentialShutdownBehavior();
     }
 
     private Behavior<Message> onOrderDropped(OrderDropped orderDropped){
-        getContext().getLog().info("[ORDERID: {}] - Order has been wasted", orderDropped.placedOrder.id);
+        getContext().getLog().debug("[ORDERID: {}] - Order has been wasted", orderDropped.placedOrder.id);
         managedOrders.remove(orderDropped.placedOrder.id);
         requestDroppedCount++;
+        droppedSinceLastSample++;
+        releasePendingDemand();
         return potentialShutdownBehavior();
     }
 
@@ -142,13 +410,60 @@ public class KitchenUnitActor extends AbstractBehavior<KitchenUnitActor.Message>
         return potentialShutdownBehavior();
     }
 
+    private Behavior<Message> onRateControlTick(RateControlTick rateControlTick){
+        rateSampleRequested = true;
+        overflowShelf.tell(new ShelveManagerActor.GetOverflowOccupancy(overflowOccupancyAdapter));
+        getContext().scheduleOnce(rateControlInterval, getContext().getSelf(), RateControlTick.INSTANCE);
+        return this;
+    }
+
+    private Behavior<Message> onGetRateSignals(GetRateSignals getRateSignals){
+        rateSampleRequested = true;
+        rateSignalsRequest = getRateSignals;
+        setupOverflowOccupancyAdapter();
+        overflowShelf.tell(new ShelveManagerActor.GetOverflowOccupancy(overflowOccupancyAdapter));
+        return this;
+    }
+
+    private Behavior<Message> onOverflowSampleTick(OverflowSampleTick overflowSampleTick){
+        overflowShelf.tell(new ShelveManagerActor.GetOverflowOccupancy(overflowOccupancyAdapter));
+        getContext().scheduleOnce(overflowSampleInterval, getContext().getSelf(), OverflowSampleTick.INSTANCE);
+        return this;
+    }
+
+    /*
+        Samples asked for by both ticks look the same, the rate controller takes the first one after its tick (or
+        after the request of the kitchen router, which feeds the rate controller with the samples of all its units).
+     */
+    private Behavior<Message> onOverflowOccupancy(WrappedOverflowOccupancy wrappedOverflowOccupancy){
+        overflowOccupancy = wrappedOverflowOccupancy.overflowOccupancy.ratio();
+        releasePendingDemand();
+
+        if (rateSampleRequested){
+            rateSampleRequested = false;
+            AdaptiveRateController.Signals signals = new AdaptiveRateController.Signals(
+                    overflowOccupancy, droppedSinceLastSample, managedOrders.size());
+            droppedSinceLastSample = 0;
+
+            if (rateSignalsRequest != null){
+                rateSignalsRequest.replyTo.tell(new RateSignals(rateSignalsRequest.round, signals));
+                rateSignalsRequest = null;
+            }else
+                rateController.update(signals);
+        }
+        return this;
+    }
+
+    /*
+        A missing shelf life or decay rate is taken as 0 here, the order is refused anyway (see refusal).
+     */
     private PlacedOrder fromOrderVo(OrderVo vo){
         return new PlacedOrder(
-                vo.getId(),
+                vo.getOrderId(),
                 vo.getName(),
                 vo.getTemp(),
-                vo.getShelfLife(),
-                vo.getDecayRate());
+                (vo.getShelfLife() == null) ? 0 : vo.getShelfLife(),
+                (vo.getDecayRate() == null) ? 0 : vo.getDecayRate());
     }
 
     private CookedPlacedOrder cookOrder(PlacedOrder placedOrder){
@@ -158,16 +473,112 @@ public class KitchenUnitActor extends AbstractBehavior<KitchenUnitActor.Message>
 
     private void setup(){
         setupShelvesManager();
+        setupCourierDispatch();
+        setupOrderWorkers();
+        setupRateControl();
+        recoverOrders();
+    }
+
+    /*
+        Takes back the orders in flight when the kitchen went down, as the order journal recovered them. They are
+        placed again with the time they were cooked, so they expire when they would have, and get a new courier.
+        The orders picked up before the crash were already on their way, they are counted as delivered.
+     */
+    private void recoverOrders(){
+        JournalState recovered = journal.recovered();
+        if (recovered.inputOffset() == 0)
+            return;
+
+        requestCount = (int) recovered.inputOffset();
+        requestDeliveryCount = (int) recovered.pickedUp();
+        requestDroppedCount = (int) recovered.wasted();
+
+        getContext().getLog().info("Taking back {} orders in flight from the order journal, {} orders were taken before",
+                recovered.inFlight(), recovered.inputOffset());
+        for (JournalState.JournaledOrder journaledOrder: recovered.orders())
+            handOver(journaledOrder.cookedPlacedOrder);
+    }
+
+    private void setupRateControl(){
+        if (rateController == null)
+            return;
+
+        rateControlInterval = Duration.ofMillis(conf.getLong("ingestion-rate.control-interval-millis"));
+        setupOverflowOccupancyAdapter();
+        getContext().scheduleOnce(rateControlInterval, getContext().getSelf(), RateControlTick.INSTANCE);
+    }
+
+    // Both the rate control and the back pressure sample the overflow shelf
+    private void setupOverflowOccupancyAdapter(){
+        if (overflowOccupancyAdapter == null)
+            overflowOccupancyAdapter = getContext().messageAdapter(ShelveManagerActor.OverflowOccupancy.class, WrappedOverflowOccupancy::new);
+    }
+
+    private void setupCourierDispatch(){
+        Config dispatchConfig = conf.getConfig("courier-dispatch");
+        DispatchStrategy.Kind kind = DispatchStrategy.Kind.fromName(dispatchConfig.getString("strategy"));
+        // Matched couriers too, so their food and courier waits are measured as with the other strategies
+        courierDispatch = getContext().spawn(CourierDispatchActor.create(kind,
+                CourierFleetProperties.fromConfig(dispatchConfig.getConfig("fleet")), eventLog), "courierDispatch");
+    }
+
+    private void setupOrderWorkers(){
+        Config executionConfig = conf.getConfig("order-execution");
+        if (!"pooled".equals(executionConfig.getString("mode")))
+            return;
+
+        int poolSize = executionConfig.getInt("pool-size");
+        if (poolSize <= 0)
+            poolSize = Runtime.getRuntime().availableProcessors();
+
+        for (int i = 0; i < poolSize; i++){
+            orderWorkers.add(getContext().spawn(OrderWorkerActor.create(getContext().getSelf(), shelfShards, courierDispatch, eventLog),
+                    String.format("OrderWorker:%d", i)));
+        }
+        getContext().getLog().info("Kitchen unit running in pooled mode with {} order workers", poolSize);
     }
 
     private void setupShelvesManager(){
         Config shelvesConfig = conf.getConfig("shelf-max-capacity");
-        shelveManager = getContext().spawn(ShelveManagerActor.create(new ShelvesProperties(
+        ShelvesProperties shelvesProperties = new ShelvesProperties(
                 shelvesConfig.getInt("hot"),
                 shelvesConfig.getInt("cold"),
                 shelvesConfig.getInt("frozen"),
                 shelvesConfig.getInt("overflow")
-        )), "shelvesManager");
+        );
+
+        // By default the kitchen unit holds as many orders as its shelves can
+        highWaterMark = conf.getInt("back-pressure.high-water-mark");
+        if (highWaterMark <= 0)
+            highWaterMark = shelvesProperties.getTotalMaxCapacity();
+        overflowHighWaterMark = (float) conf.getDouble("back-pressure.overflow-high-water-mark");
+        overflowSampleInterval = Duration.ofMillis(conf.getLong("back-pressure.overflow-sample-interval-millis"));
+
+        if ("sharded".equals(conf.getString("shelves-mode"))){
+            setupShelfShards(shelvesProperties);
+        }else{
+            overflowShelf = getContext().spawn(ShelveManagerActor.create(shelvesProperties, Clock.SYSTEM, eventLog), "shelvesManager");
+            shelfShards = new ShelfShards(overflowShelf);
+        }
+    }
+
+    private void setupShelfShards(ShelvesProperties shelvesProperties){
+        overflowShelf = getContext().spawn(OverflowShelfActor.create(
+                shelvesProperties.getMaxCapacityByType(Shelf.ShelfType.OVERFLOW), eventLog), "overflowShelf");
+
+        shelfShards = new ShelfShards(
+                spawnTemperatureShelf(Shelf.ShelfType.HOT, shelvesProperties, overflowShelf),
+                spawnTemperatureShelf(Shelf.ShelfType.COLD, shelvesProperties, overflowShelf),
+                spawnTemperatureShelf(Shelf.ShelfType.FROZEN, shelvesProperties, overflowShelf));
+
+        getContext().getLog().info("Kitchen unit running with sharded shelves");
+    }
+
+    private ActorRef<ShelveManagerActor.Message> spawnTemperatureShelf(Shelf.ShelfType type,
+                                                                      ShelvesProperties shelvesProperties,
+                                                                      ActorRef<ShelveManagerActor.Message> overflowShelf){
+        return getContext().spawn(TemperatureShelfActor.create(type, shelvesProperties.getMaxCapacityByType(type), overflowShelf, eventLog),
+                String.format("%sShelf", type.name().toLowerCase()));
     }
 
     private Behavior<Message> potentialShutdownBehavior(){
@@ -184,7 +595,14 @@ public class KitchenUnitActor extends AbstractBehavior<KitchenUnitActor.Message>
         getContext().getLog().info("== Received Orders: {}", requestCount);
         getContext().getLog().info("== Delivered Orders: {}", requestDeliveryCount);
         getContext().getLog().info("== Dropped Orders: {}", requestDroppedCount);
+        if (rateController != null)
+            getContext().getLog().info("== Ingestion Rate: {} orders/s ({} increases, {} decreases)",
+                    String.format("%.2f", rateController.rate()), rateController.increases(), rateController.decreases());
         getContext().getLog().info("=================================");
+
+        if (reportTo != null)
+            reportTo.tell(new KitchenUnitReport(getContext().getSelf().path().name(),
+                    requestCount, requestDeliveryCount, requestDroppedCount));
     }
 
 }
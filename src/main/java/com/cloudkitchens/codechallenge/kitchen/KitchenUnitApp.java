@@ -1,17 +1,48 @@
 package com.cloudkitchens.codechallenge.kitchen;
 
 import akka.NotUsed;
+import akka.actor.CoordinatedShutdown;
+import akka.actor.typed.ActorRef;
 import akka.actor.typed.ActorSystem;
+import akka.actor.typed.Behavior;
+import akka.stream.OverflowStrategy;
 import akka.stream.javadsl.FileIO;
+import akka.stream.javadsl.Flow;
+import akka.stream.javadsl.Framing;
+import akka.stream.javadsl.FramingTruncation;
 import akka.stream.javadsl.JsonFraming;
 import akka.stream.javadsl.Sink;
+import akka.stream.javadsl.Source;
+import akka.stream.javadsl.SourceQueueWithComplete;
 import akka.stream.typed.javadsl.ActorSink;
+import akka.util.ByteString;
+import ch.qos.logback.classic.Level;
+import com.cloudkitchens.codechallenge.eventlog.OrderEventLog;
+import com.cloudkitchens.codechallenge.ingestion.AdaptiveRateController;
+import com.cloudkitchens.codechallenge.ingestion.AdaptiveThrottle;
+import com.cloudkitchens.codechallenge.ingestion.BinaryOrders;
+import com.cloudkitchens.codechallenge.ingestion.HttpOrderIntake;
+import com.cloudkitchens.codechallenge.ingestion.MemoryMappedOrders;
+import com.cloudkitchens.codechallenge.ingestion.OrderDecodingFlow;
+import com.cloudkitchens.codechallenge.ingestion.OrderFileFormat;
+import com.cloudkitchens.codechallenge.journal.OrderJournal;
+import com.cloudkitchens.codechallenge.metrics.KitchenMetrics;
+import com.cloudkitchens.codechallenge.metrics.MetricsReporter;
 import com.cloudkitchens.codechallenge.order.OrderVo;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.cloudkitchens.codechallenge.simulation.KitchenSimulation;
 import com.typesafe.config.Config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.Duration;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class KitchenUnitApp {
 
@@ -19,29 +50,211 @@ public class KitchenUnitApp {
 
         Config conf = KitchenUnitConfig.config;
 
-        final ActorSystem<KitchenUnitActor.Message> kitchenUnit = ActorSystem.create(KitchenUnitActor.create(), "kitchenUnit");
+        if (conf.getBoolean("virtual-time.enabled")){
+            runInVirtualTime(conf);
+            return;
+        }
 
-        Sink<KitchenUnitActor.Message, NotUsed> kitchenUnitSink =
-                ActorSink.actorRef(kitchenUnit, KitchenUnitActor.UpstreamCompleted.INSTANCE, e -> KitchenUnitActor.UpstreamFailed.INSTANCE);
+        // Only set when the ingestion rate is adapted to how the kitchen is coping with the orders
+        AdaptiveRateController rateController =
+                "adaptive".equals(conf.getString("ingestion-rate.mode")) ? AdaptiveRateController.fromConfig(conf) : null;
+
+        // Every actor of the kitchen records the transitions of its orders in this event log, which feeds the metrics too
+        OrderEventLog eventLog = OrderEventLog.fromConfig(conf);
+        MetricsReporter metricsReporter = null;
+        if (conf.getBoolean("metrics.enabled")){
+            KitchenMetrics metrics = new KitchenMetrics();
+            eventLog = OrderEventLog.both(eventLog, metrics);
+            metricsReporter = MetricsReporter.start(metrics, rateController, conf.getLong("metrics.report-interval-millis"));
+        }
+
+        // The kitchen unit takes back the orders in flight when the kitchen went down, and the orders file goes on
+        // from where it was left
+        OrderJournal journal = orderJournal(conf);
+        final OrderEventLog kitchenEventLog = OrderEventLog.both(eventLog, journal);
+
+        final ActorSystem<KitchenUnitActor.Message> kitchenUnit =
+                ActorSystem.create(kitchenBehavior(conf, rateController, kitchenEventLog, journal), "kitchenUnit");
+        // Whatever is still waiting to go to the order event log (and the journal) is written out on shutdown
+        kitchenUnit.getWhenTerminated().thenRun(kitchenEventLog::close);
+        if (metricsReporter != null)
+            kitchenUnit.getWhenTerminated().thenRun(metricsReporter::close);
+
+        if (rateController != null)
+            LoggerFactory.getLogger(KitchenUnitApp.class).info("Ingesting orders at an adaptive rate, starting at {} orders/s",
+                    String.format("%.2f", rateController.rate()));
+        else
+            LoggerFactory.getLogger(KitchenUnitApp.class).info("Ingesting orders at a fixed rate of {} orders/s",
+                    conf.getInt("order-ingestion-rate-per-second"));
 
-        System.out.println(KitchenUnitConfig.config.getInt("order-ingestion-rate-per-second"));
+        if ("http".equals(conf.getString("order-intake.mode"))){
+            takeOrdersOverHttp(conf, rateController, kitchenUnit);
+            return;
+        }
 
         // Source stream being the file containing the orders
-        FileIO.fromPath(Paths.get(conf.getString("orders-file-location")))
-                // Frame input based on jason objects
-                .via(JsonFraming.objectScanner(1024))
-                // Convert from bytstring to utf8 string
-                .map(e -> e.utf8String())
-                // Parse JSON into a VO object
-                .map(e -> new ObjectMapper().readValue(e, OrderVo.class))
-                // Wrap the VO into a Kitchen Unit Order command object
-                .map(e -> new KitchenUnitActor.OrderRequest(e))
-                .map(e -> (KitchenUnitActor.Message)e)
+        orders(conf, kitchenUnit)
+                .drop(journal.recovered().inputOffset())
                 // Throttle the request configurable number of requests per second
-                .throttle(conf.getInt("order-ingestion-rate-per-second"), Duration.ofSeconds(1))
+                .via(throttle(conf, rateController, kitchenUnit))
                 // Sink requests to the Kitchen Unit sink that is ultimately responsible to handle the order requests
-                .runWith(kitchenUnitSink, kitchenUnit);
+                .runWith(kitchenUnitSink(conf, kitchenUnit), kitchenUnit);
+
+    }
+
+    /*
+        Replays the orders file through the kitchen simulation, where time only moves from one event to the next.
+     */
+    private static void runInVirtualTime(Config conf){
+        // Logging every order would take far longer than the simulation itself
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger("com.cloudkitchens.codechallenge.shelf")).setLevel(Level.WARN);
+
+        Logger log = LoggerFactory.getLogger(KitchenUnitApp.class);
+        long startNanos = System.nanoTime();
+
+        KitchenSimulation.Report report;
+        try (MemoryMappedOrders orders = MemoryMappedOrders.open(Paths.get(conf.getString("orders-file-location")));
+             OrderJournal journal = OrderJournal.fromConfig(conf)){
+            report = KitchenSimulation.fromConfig(conf).run(orders.iterator(), journal);
+        }catch (IOException e){
+            throw new UncheckedIOException(e);
+        }
+
+        log.info("====== Kitchen Unit Report (virtual time) ======");
+        log.info("== Received Orders: {}", report.requestCount);
+        log.info("== Delivered Orders: {}", report.requestDeliveryCount);
+        log.info("== Dropped Orders: {}", report.requestDroppedCount);
+        log.info("== Waste Rate: {}%", String.format("%.2f", report.wasteRate() * 100));
+        log.info("== Courier Trips: {} ({} delivered value per trip)", report.courierTrips,
+                String.format("%.3f", report.deliveredValuePerTrip()));
+        log.info("== Food Wait (ms): mean {}, p99 {}", String.format("%.0f", report.foodWait.getMean()),
+                report.foodWait.getValueAtPercentile(99));
+        log.info("== Courier Wait (ms): mean {}, p99 {}", String.format("%.0f", report.courierWait.getMean()),
+                report.courierWait.getValueAtPercentile(99));
+        log.info("== Virtual Time: {} s, Elapsed Time: {} ms", report.virtualMillis / 1000, (System.nanoTime() - startNanos) / 1_000_000);
+        log.info("================================================");
+    }
+
+    /*
+        Every kitchen unit would take back every order of the journal, so it is only kept with a single unit.
+     */
+    private static OrderJournal orderJournal(Config conf){
+        if (conf.getInt("kitchen-units.count") > 1){
+            if (conf.getBoolean("order-journal.enabled"))
+                LoggerFactory.getLogger(KitchenUnitApp.class).warn("The order journal is only kept with a single kitchen unit, it is turned off");
+            return OrderJournal.DISABLED;
+        }
+        return OrderJournal.fromConfig(conf);
+    }
+
+    /*
+        Orders posted over HTTP are queued and go through the same throttle and kitchen unit sink as the orders file.
+        The queue is only completed when the app is shutting down, so the kitchen unit keeps taking orders until then
+        instead of stopping once its upstream is over.
+     */
+    private static void takeOrdersOverHttp(Config conf, AdaptiveRateController rateController, ActorSystem<KitchenUnitActor.Message> kitchenUnit){
+        Config httpConfig = conf.getConfig("order-intake.http");
+
+        SourceQueueWithComplete<OrderVo> orders = Source.<OrderVo>queue(httpConfig.getInt("buffer-size"), OverflowStrategy.dropNew())
+                .via(throttle(conf, rateController, kitchenUnit))
+                .to(kitchenUnitSink(conf, kitchenUnit))
+                .run(kitchenUnit);
+
+        // Set before the queue is completed, so the orders coming in while it drains are answered 503
+        AtomicBoolean shuttingDown = new AtomicBoolean();
+        HttpOrderIntake.bind(httpConfig, orders, shuttingDown, kitchenUnit)
+                .thenAccept(binding -> CoordinatedShutdown.get(kitchenUnit).addTask(
+                        CoordinatedShutdown.PhaseServiceUnbind(), "order-intake-unbind", () -> {
+                            shuttingDown.set(true);
+                            orders.complete();
+                            return binding.unbind();
+                        }))
+                .exceptionally(e -> {
+                    LoggerFactory.getLogger(KitchenUnitApp.class).error("Could not take orders over HTTP", e);
+                    kitchenUnit.terminate();
+                    return null;
+                });
+    }
+
+    private static Flow<OrderVo, OrderVo, NotUsed> throttle(Config conf, AdaptiveRateController rateController, ActorSystem<?> system){
+        if (rateController != null)
+            return AdaptiveThrottle.create(OrderVo.class, rateController, system);
+        return Flow.of(OrderVo.class).throttle(conf.getInt("order-ingestion-rate-per-second"), Duration.ofSeconds(1));
+    }
+
+    static Sink<OrderVo, NotUsed> kitchenUnitSink(Config conf, ActorRef<KitchenUnitActor.Message> kitchenUnit){
+        // The kitchen unit acknowledges every order and holds the acknowledgement back while it has too many in flight
+        if (conf.getBoolean("back-pressure.enabled"))
+            return ActorSink.actorRefWithBackpressure(kitchenUnit,
+                    (ActorRef<KitchenUnitActor.Ack> ackTo, OrderVo orderVo) -> new KitchenUnitActor.OrderRequest(orderVo, ackTo),
+                    KitchenUnitActor.UpstreamStarted::new,
+                    KitchenUnitActor.Ack.INSTANCE,
+                    KitchenUnitActor.UpstreamCompleted.INSTANCE,
+                    e -> KitchenUnitActor.UpstreamFailed.INSTANCE);
+
+        Sink<KitchenUnitActor.Message, NotUsed> sink =
+                ActorSink.actorRef(kitchenUnit, KitchenUnitActor.UpstreamCompleted.INSTANCE, e -> KitchenUnitActor.UpstreamFailed.INSTANCE);
+        // Wrap the VO into a Kitchen Unit Order command object
+        return Flow.of(OrderVo.class)
+                .map(e -> (KitchenUnitActor.Message)new KitchenUnitActor.OrderRequest(e))
+                .to(sink);
+    }
+
+    private static Source<OrderVo, ?> orders(Config conf, ActorSystem<?> system){
+        Path ordersFile = Paths.get(conf.getString("orders-file-location"));
+        OrderFileFormat format = OrderFileFormat.of(ordersFile, conf.getString("orders-file-format"));
+        int maxOrderBytes = conf.getInt("orders-file-max-order-bytes");
+
+        // Records are cut by their length and decoded without any parsing
+        if (format == OrderFileFormat.BINARY)
+            return FileIO.fromPath(ordersFile)
+                    .via(BinaryOrders.framing())
+                    .map(BinaryOrders::decode);
+
+        // Map the file into memory and stream the orders right out of it (the parser takes both JSON and NDJSON)
+        if (conf.getBoolean("orders-file-memory-mapped"))
+            return MemoryMappedOrders.source(ordersFile);
+
+        Source<ByteString, ?> frames = (format == OrderFileFormat.NDJSON)
+                // One order per line, cut at the line breaks without looking at the JSON
+                ? FileIO.fromPath(ordersFile)
+                    .via(Framing.delimiter(ByteString.fromString("\n"), maxOrderBytes, FramingTruncation.ALLOW))
+                    .filter(line -> !line.isEmpty())
+                // Frame input based on jason objects
+                : FileIO.fromPath(ordersFile)
+                    .via(JsonFraming.objectScanner(maxOrderBytes));
+
+        // Parse JSON bytes into a VO object, keeping the file order
+        return frames.via(OrderDecodingFlow.create(decodingParallelism(conf), decodingExecutor(conf, system)));
+    }
+
+    private static int decodingParallelism(Config conf){
+        int parallelism = conf.getInt("order-decoding-parallelism");
+        return (parallelism <= 0) ? Runtime.getRuntime().availableProcessors() : parallelism;
+    }
+
+    private static Executor decodingExecutor(Config conf, ActorSystem<?> system){
+        int parallelism = decodingParallelism(conf);
+        if (parallelism <= 1)
+            return null;
+
+        ExecutorService decoders = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "order-decoder");
+            thread.setDaemon(true);
+            return thread;
+        });
+        system.getWhenTerminated().thenRun(decoders::shutdown);
+        return decoders;
+    }
 
+    static Behavior<KitchenUnitActor.Message> kitchenBehavior(Config conf, AdaptiveRateController rateController,
+                                                              OrderEventLog eventLog, OrderJournal journal){
+        Config kitchenUnitsConfig = conf.getConfig("kitchen-units");
+        int count = kitchenUnitsConfig.getInt("count");
+        if (count <= 1)
+            return KitchenUnitActor.create(null, rateController, eventLog, journal);
+        // The journal is only kept with a single kitchen unit (see orderJournal)
+        return KitchenRouterActor.create(count, kitchenUnitsConfig.getString("routing-key"), rateController, eventLog);
     }
 
 }
@@ -0,0 +1,117 @@
+package com.cloudkitchens.codechallenge.loadtest;
+
+import com.cloudkitchens.codechallenge.ingestion.MemoryMappedOrders;
+import com.cloudkitchens.codechallenge.order.OrderVo;
+import com.typesafe.config.Config;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.UUID;
+
+/*
+    Orders fed to the kitchen by the load test, either synthesized or replayed from an orders file.
+ */
+public class LoadTestOrders {
+
+    private static final String[] TEMPERATURES = {"hot", "cold", "frozen"};
+
+    private LoadTestOrders(){}
+
+    /*
+        The orders of the file replayed the given number of times. Every replay gets its own order ids (the original
+        id followed by the replay number), since the kitchen tells the orders apart by their id.
+     */
+    public static Iterator<OrderVo> replay(Path ordersFile, int times) throws IOException {
+        List<OrderVo> orders = new ArrayList<>();
+        try (MemoryMappedOrders file = MemoryMappedOrders.open(ordersFile)){
+            file.iterator().forEachRemaining(orders::add);
+        }
+
+        return new Iterator<OrderVo>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return !orders.isEmpty() && next < orders.size() * times;
+            }
+
+            @Override
+            public OrderVo next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                OrderVo original = orders.get(next % orders.size());
+                int replay = next / orders.size();
+                next++;
+
+                OrderVo order = new OrderVo();
+                order.setId(String.format("%s-%d", original.getId(), replay));
+                order.setName(original.getName());
+                order.setTemp(original.getTemp());
+                order.setShelfLife(original.getShelfLife());
+                order.setDecayRate(original.getDecayRate());
+                order.setKitchen(original.getKitchen());
+                return order;
+            }
+        };
+    }
+
+    /*
+        Orders made up from the load-test settings: their temperature follows the weights of the temperature mix,
+        and their shelf life and decay rate are uniformly distributed within their ranges.
+     */
+    public static Iterator<OrderVo> synthetic(Config loadTestConfig){
+        int count = loadTestConfig.getInt("orders");
+        Random random = new Random(loadTestConfig.getLong("seed"));
+
+        Config mix = loadTestConfig.getConfig("temperature-mix");
+        double[] cumulativeWeights = new double[TEMPERATURES.length];
+        double totalWeight = 0;
+        for (int i = 0; i < TEMPERATURES.length; i++){
+            totalWeight += mix.getDouble(TEMPERATURES[i]);
+            cumulativeWeights[i] = totalWeight;
+        }
+        if (totalWeight <= 0)
+            throw new IllegalArgumentException("The temperature mix needs at least one temperature with a positive weight");
+        final double weights = totalWeight;
+
+        int minShelfLife = loadTestConfig.getInt("shelf-life-seconds.min");
+        int maxShelfLife = loadTestConfig.getInt("shelf-life-seconds.max");
+        double minDecayRate = loadTestConfig.getDouble("decay-rate.min");
+        double maxDecayRate = loadTestConfig.getDouble("decay-rate.max");
+
+        return new Iterator<OrderVo>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < count;
+            }
+
+            @Override
+            public OrderVo next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                next++;
+
+                double pick = random.nextDouble() * weights;
+                int temperature = 0;
+                while (cumulativeWeights[temperature] <= pick)
+                    temperature++;
+
+                OrderVo order = new OrderVo();
+                order.setId(new UUID(random.nextLong(), random.nextLong()).toString());
+                order.setName("Load Test Order");
+                order.setTemp(TEMPERATURES[temperature]);
+                order.setShelfLife(minShelfLife + random.nextInt(maxShelfLife - minShelfLife + 1));
+                order.setDecayRate((float) (minDecayRate + random.nextDouble() * (maxDecayRate - minDecayRate)));
+                return order;
+            }
+        };
+    }
+
+}
@@ -0,0 +1,223 @@
+package com.cloudkitchens.codechallenge.metrics;
+
+import com.cloudkitchens.codechallenge.eventlog.OrderEventLog;
+import com.cloudkitchens.codechallenge.order.OrderId;
+import com.cloudkitchens.codechallenge.shelf.Shelf;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/*
+    Metrics of the orders going through the kitchen, fed by the order transitions (it is an order event log, so
+    it sees the same transitions the actors record anyway):
+
+    - time to placement: from the order being taken (and cooked) by the kitchen unit to its first placement
+    - shelf to pickup: from its first placement to its courier taking it from the shelf
+    - shelf to waste: from its first placement to it being wasted (expired or dropped), kept apart so the wasted
+      orders do not skew the latency of the picked up ones
+    - courier wait: from its courier arriving to the courier taking the order from the shelf
+    - end to end: from the order being taken by the kitchen unit to its delivery
+    - value at pickup: the order value when its courier takes it, in thousandths
+
+    Besides the order counters, the relocations from the overflow shelf and the drops done to make room on it,
+    and the number of orders on every shelf (added up across the kitchen units sharing these metrics).
+
+    Times are in microseconds. The histograms are HdrHistogram recorders, so recording never blocks nor allocates,
+    and a snapshot takes what has been recorded since the previous one without stopping the recording.
+ */
+public class KitchenMetrics implements OrderEventLog {
+
+    private static final long MAX_VALUE_THOUSANDTHS = 1000;
+
+    private static class OrderTimes {
+        final long receivedNanos;
+        volatile long placedNanos;
+        volatile long courierArrivedNanos;
+
+        OrderTimes(long receivedNanos){
+            this.receivedNanos = receivedNanos;
+        }
+    }
+
+    public KitchenMetrics(){
+        this(System::nanoTime);
+    }
+
+    public KitchenMetrics(LongSupplier nanoTime){
+        this.nanoTime = nanoTime;
+    }
+
+    private final LongSupplier nanoTime;
+    // Orders taken by the kitchen unit that are neither delivered nor wasted yet
+    private final ConcurrentHashMap<OrderId, OrderTimes> onTheirWay = new ConcurrentHashMap<>();
+
+    private final Recorder timeToPlacement = new Recorder(3);
+    private final Recorder shelfToPickup = new Recorder(3);
+    private final Recorder shelfToWaste = new Recorder(3);
+    private final Recorder courierWait = new Recorder(3);
+    private final Recorder endToEnd = new Recorder(3);
+    private final Recorder valueAtPickup = new Recorder(MAX_VALUE_THOUSANDTHS, 3);
+
+    private final LongAdder received = new LongAdder();
+    private final LongAdder placed = new LongAdder();
+    private final LongAdder relocated = new LongAdder();
+    private final LongAdder pickedUp = new LongAdder();
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder refused = new LongAdder();
+
+    private final AtomicIntegerArray occupancy = new AtomicIntegerArray(Shelf.ShelfType.values().length);
+
+
+    @Override
+    public void record(Transition transition, OrderId orderId, Shelf.ShelfType shelf, float value){
+        long now = nanoTime.getAsLong();
+        OrderTimes times;
+
+        switch (transition){
+            case RECEIVED:
+                onTheirWay.put(orderId, new OrderTimes(now));
+                received.increment();
+                break;
+
+            case PLACED:
+                placed.increment();
+                times = onTheirWay.get(orderId);
+                // Only the first placement counts, orders can be placed again after a relocation is rejected
+                if (times != null && times.placedNanos == 0){
+                    times.placedNanos = now;
+                    timeToPlacement.recordValue(micros(now - times.receivedNanos));
+                }
+                break;
+
+            case MOVED:
+                relocated.increment();
+                break;
+
+            case COURIER_ARRIVED:
+                times = onTheirWay.get(orderId);
+                if (times != null)
+                    times.courierArrivedNanos = now;
+                break;
+
+            case PICKED_UP:
+                pickedUp.increment();
+                // Kept until it is delivered
+                times = onTheirWay.get(orderId);
+                if (times != null){
+                    recordTimeOnShelf(shelfToPickup, times, now);
+                    if (times.courierArrivedNanos != 0)
+                        courierWait.recordValue(micros(now - times.courierArrivedNanos));
+                }
+                valueAtPickup.recordValue(Math.min(MAX_VALUE_THOUSANDTHS, Math.max(0, Math.round(value * 1000))));
+                break;
+
+            case DELIVERED:
+                delivered.increment();
+                times = onTheirWay.remove(orderId);
+                if (times != null)
+                    endToEnd.recordValue(micros(now - times.receivedNanos));
+                break;
+
+            case EXPIRED:
+                expired.increment();
+                recordTimeOnShelf(shelfToWaste, onTheirWay.remove(orderId), now);
+                break;
+
+            case DROPPED:
+                dropped.increment();
+                recordTimeOnShelf(shelfToWaste, onTheirWay.remove(orderId), now);
+                break;
+
+            case REFUSED:
+                refused.increment();
+                onTheirWay.remove(orderId);
+                break;
+
+            default:
+                break;
+        }
+    }
+
+    @Override
+    public void occupancyChanged(Shelf.ShelfType shelf, int delta){
+        occupancy.addAndGet(shelf.ordinal(), delta);
+    }
+
+    /*
+        The counters and gauges as they are now, and the histograms of what has been recorded since the previous
+        snapshot (everything since the start for the first one). Meant to be taken by a single reader (see
+        MetricsReporter).
+     */
+    public Snapshot snapshot(){
+        int[] shelves = new int[occupancy.length()];
+        for (int i = 0; i < shelves.length; i++)
+            shelves[i] = occupancy.get(i);
+
+        return new Snapshot(
+                received.sum(), placed.sum(), relocated.sum(), pickedUp.sum(), delivered.sum(), expired.sum(), dropped.sum(),
+                refused.sum(), shelves,
+                timeToPlacement.getIntervalHistogram(), shelfToPickup.getIntervalHistogram(), shelfToWaste.getIntervalHistogram(),
+                courierWait.getIntervalHistogram(), endToEnd.getIntervalHistogram(), valueAtPickup.getIntervalHistogram());
+    }
+
+    private static void recordTimeOnShelf(Recorder recorder, OrderTimes times, long now){
+        if (times != null && times.placedNanos != 0)
+            recorder.recordValue(micros(now - times.placedNanos));
+    }
+
+    private static long micros(long nanos){
+        return Math.max(0, TimeUnit.NANOSECONDS.toMicros(nanos));
+    }
+
+
+    public static class Snapshot {
+        public final long received;
+        public final long placed;
+        public final long relocated;
+        public final long pickedUp;
+        public final long delivered;
+        public final long expired;
+        public final long dropped;
+        public final long refused;
+        private final int[] occupancy;
+        public final Histogram timeToPlacement;
+        public final Histogram shelfToPickup;
+        public final Histogram shelfToWaste;
+        public final Histogram courierWait;
+        public final Histogram endToEnd;
+        public final Histogram valueAtPickup;
+
+        Snapshot(long received, long placed, long relocated, long pickedUp, long delivered, long expired, long dropped,
+                 long refused, int[] occupancy,
+                 Histogram timeToPlacement, Histogram shelfToPickup, Histogram shelfToWaste, Histogram courierWait,
+                 Histogram endToEnd, Histogram valueAtPickup){
+            this.received = received;
+            this.placed = placed;
+            this.relocated = relocated;
+            this.pickedUp = pickedUp;
+            this.delivered = delivered;
+            this.expired = expired;
+            this.dropped = dropped;
+            this.refused = refused;
+            this.occupancy = occupancy;
+            this.timeToPlacement = timeToPlacement;
+            this.shelfToPickup = shelfToPickup;
+            this.shelfToWaste = shelfToWaste;
+            this.courierWait = courierWait;
+            this.endToEnd = endToEnd;
+            this.valueAtPickup = valueAtPickup;
+        }
+
+        public int occupancy(Shelf.ShelfType shelf){
+            return occupancy[shelf.ordinal()];
+        }
+    }
+
+}
@@ -0,0 +1,129 @@
+package com.cloudkitchens.codechallenge.metrics;
+
+import com.cloudkitchens.codechallenge.ingestion.AdaptiveRateController;
+import com.cloudkitchens.codechallenge.shelf.Shelf;
+import org.HdrHistogram.Histogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/*
+    Logs a snapshot of the kitchen metrics every interval while the kitchen runs, from a thread of its own so the
+    actors are never held up by it. The histograms of every report cover that interval only, and the totals since
+    the start are logged once more when the reporter is closed.
+
+    Given the rate controller of an adaptive ingestion rate, every report tells the current rate too, and how many
+    times it was raised or cut since the previous report.
+ */
+public class MetricsReporter implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(MetricsReporter.class);
+
+    private final KitchenMetrics metrics;
+    // Null with a fixed ingestion rate
+    private final AdaptiveRateController rateController;
+    private final ScheduledExecutorService scheduler;
+
+    // Everything reported so far, only touched by the reporting thread (and by close once it is stopped)
+    private final Histogram totalTimeToPlacement = new Histogram(3);
+    private final Histogram totalShelfToPickup = new Histogram(3);
+    private final Histogram totalShelfToWaste = new Histogram(3);
+    private final Histogram totalCourierWait = new Histogram(3);
+    private final Histogram totalEndToEnd = new Histogram(3);
+    private final Histogram totalValueAtPickup = new Histogram(3);
+    private long reportedIncreases;
+    private long reportedDecreases;
+
+    private MetricsReporter(KitchenMetrics metrics, AdaptiveRateController rateController, long intervalMillis){
+        this.metrics = metrics;
+        this.rateController = rateController;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "kitchen-metrics-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(this::report, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public static MetricsReporter start(KitchenMetrics metrics, long intervalMillis){
+        return new MetricsReporter(metrics, null, intervalMillis);
+    }
+
+    public static MetricsReporter start(KitchenMetrics metrics, AdaptiveRateController rateController, long intervalMillis){
+        return new MetricsReporter(metrics, rateController, intervalMillis);
+    }
+
+    private void report(){
+        KitchenMetrics.Snapshot snapshot = metrics.snapshot();
+        totalTimeToPlacement.add(snapshot.timeToPlacement);
+        totalShelfToPickup.add(snapshot.shelfToPickup);
+        totalShelfToWaste.add(snapshot.shelfToWaste);
+        totalCourierWait.add(snapshot.courierWait);
+        totalEndToEnd.add(snapshot.endToEnd);
+        totalValueAtPickup.add(snapshot.valueAtPickup);
+
+        log.info("== Metrics: orders {} received, {} placed, {} relocated, {} picked up, {} delivered, {} expired, {} dropped, {} refused",
+                snapshot.received, snapshot.placed, snapshot.relocated, snapshot.pickedUp, snapshot.delivered, snapshot.expired,
+                snapshot.dropped, snapshot.refused);
+        log.info("== Metrics: shelves HOT {}, COLD {}, FROZEN {}, OVERFLOW {}",
+                snapshot.occupancy(Shelf.ShelfType.HOT), snapshot.occupancy(Shelf.ShelfType.COLD),
+                snapshot.occupancy(Shelf.ShelfType.FROZEN), snapshot.occupancy(Shelf.ShelfType.OVERFLOW));
+        logHistogram("time to placement (us)", snapshot.timeToPlacement);
+        logHistogram("shelf to pickup (us)", snapshot.shelfToPickup);
+        logHistogram("shelf to waste (us)", snapshot.shelfToWaste);
+        logHistogram("courier wait (us)", snapshot.courierWait);
+        logHistogram("end to end (us)", snapshot.endToEnd);
+        logHistogram("value at pickup (1/1000)", snapshot.valueAtPickup);
+        logIngestionRate();
+    }
+
+    private void logIngestionRate(){
+        if (rateController == null)
+            return;
+        long increases = rateController.increases();
+        long decreases = rateController.decreases();
+        log.info("== Metrics: ingestion rate {} orders/s, {} increases, {} decreases",
+                String.format("%.2f", rateController.rate()), increases - reportedIncreases, decreases - reportedDecreases);
+        reportedIncreases = increases;
+        reportedDecreases = decreases;
+    }
+
+    private static void logHistogram(String name, Histogram histogram){
+        if (histogram.getTotalCount() == 0)
+            return;
+        log.info("== Metrics: {}: count {}, p50 {}, p99 {}, p999 {}, max {}", name, histogram.getTotalCount(),
+                histogram.getValueAtPercentile(50), histogram.getValueAtPercentile(99),
+                histogram.getValueAtPercentile(99.9), histogram.getMaxValue());
+    }
+
+    /*
+        Stops the periodic reports and logs what was recorded since the last one, followed by the totals.
+     */
+    @Override
+    public void close(){
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(1, TimeUnit.SECONDS);
+        }catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+        }
+
+        report();
+        log.info("====== Kitchen Metrics (totals) ======");
+        logHistogram("time to placement (us)", totalTimeToPlacement);
+        logHistogram("shelf to pickup (us)", totalShelfToPickup);
+        logHistogram("shelf to waste (us)", totalShelfToWaste);
+        logHistogram("courier wait (us)", totalCourierWait);
+        logHistogram("end to end (us)", totalEndToEnd);
+        logHistogram("value at pickup (1/1000)", totalValueAtPickup);
+        if (rateController != null)
+            log.info("== Metrics: ingestion rate {} orders/s, {} increases, {} decreases, {} dropped orders seen",
+                    String.format("%.2f", rateController.rate()), rateController.increases(),
+                    rateController.decreases(), rateController.droppedOrders());
+        log.info("======================================");
+    }
+
+}
@@ -1,31 +1,30 @@
 package com.cloudkitchens.codechallenge.order;
 
 import com.cloudkitchens.codechallenge.shelf.Shelf;
+import com.cloudkitchens.codechallenge.timer.Clock;
 
 public class CookedPlacedOrder {
 
     public final PlacedOrder placedOrder;
-    public final String id;
+    public final OrderId id;
     public final long readySinceMillis;
 
     public CookedPlacedOrder(PlacedOrder placedOrder){
-        readySinceMillis = System.currentTimeMillis();
+        this(placedOrder, Clock.SYSTEM.millis());
+    }
+
+    public CookedPlacedOrder(PlacedOrder placedOrder, long readySinceMillis){
+        this.readySinceMillis = readySinceMillis;
         this.placedOrder = placedOrder;
         this.id = placedOrder.id;
     }
 
     public Shelf.ShelfType preferredShelfType(){
-        switch (placedOrder.temp){
-            case "hot":
-                return Shelf.ShelfType.HOT;
-            case "cold":
-                return Shelf.ShelfType.COLD;
-            case "frozen":
-                return Shelf.ShelfType.FROZEN;
-            default:
-                throw new RuntimeException(String.format(
-                        "The temperature %s has no supported shelf - order if %s", placedOrder.temp, placedOrder.id));
-        }
+        // Resolved when the order was taken, since it is checked on every placement and relocation of this order
+        if (placedOrder.preferredShelfType == null)
+            throw new RuntimeException(String.format(
+                    "The temperature %s has no supported shelf - order if %s", placedOrder.temp, placedOrder.id));
+        return placedOrder.preferredShelfType;
     }
 
 }
@@ -0,0 +1,40 @@
+package com.cloudkitchens.codechallenge.order;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+    Catalog of the dish names (and temperatures) of the orders, so all the orders of a dish share a single name
+    instead of each one holding the copy it was decoded into. There are only so many dishes on the menu, whatever
+    the number of orders.
+
+    It is shared by every kitchen unit and thread safe.
+ */
+public final class DishCatalog {
+
+    // Names past this many are not cataloged, so orders with made up names can not grow it without bounds
+    private static final int MAX_NAMES = 1 << 16;
+
+    private static final ConcurrentHashMap<String, String> names = new ConcurrentHashMap<>();
+
+    private DishCatalog(){}
+
+    /*
+        The catalog copy of the given name, which becomes the catalog copy if the name is new.
+     */
+    public static String intern(String name){
+        if (name == null)
+            return null;
+        String known = names.get(name);
+        if (known != null)
+            return known;
+        if (names.size() >= MAX_NAMES)
+            return name;
+        known = names.putIfAbsent(name, name);
+        return (known == null) ? name : known;
+    }
+
+    public static int size(){
+        return names.size();
+    }
+
+}
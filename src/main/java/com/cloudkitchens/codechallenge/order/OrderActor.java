@@ -9,6 +9,7 @@ import akka.actor.typed.javadsl.Receive;
 import com.cloudkitchens.codechallenge.kitchen.KitchenUnitActor;
 import com.cloudkitchens.codechallenge.shelf.ShelveManagerActor;
 import com.cloudkitchens.codechallenge.courier.CourierDispatcherActor;
+import com.cloudkitchens.codechallenge.courier.CourierDispatchActor;
 
 public class OrderActor extends AbstractBehavior<OrderActor.Message> {
 
@@ -18,6 +19,18 @@ public class OrderActor extends AbstractBehavior<OrderActor.Message> {
 
     public static enum PickupOrderCommand implements Command { INSTANCE }
 
+    /*
+        A courier sent by the courier dispatch came for the order, it carries the order so a worker owning many orders
+        knows which one.
+     */
+    public static class CourierPickupCommand implements Command {
+        public final ShelfPlacedOrder shelfPlacedOrder;
+
+        public CourierPickupCommand(ShelfPlacedOrder shelfPlacedOrder){
+            this.shelfPlacedOrder = shelfPlacedOrder;
+        }
+    }
+
     public interface Event extends Message{}
 
     public static class OrderCookedEvent implements Event {
@@ -36,6 +49,14 @@ public class OrderActor extends AbstractBehavior<OrderActor.Message> {
         }
     }
 
+    public static class CourierDispatchAssigned implements Event {
+        public final ActorRef<CourierDispatchActor.Message> courierDispatch;
+
+        public CourierDispatchAssigned(ActorRef<CourierDispatchActor.Message> courierDispatch){
+            this.courierDispatch = courierDispatch;
+        }
+    }
+
     public static class OrderPlacedOnShelfEvent implements Event {
         public final ShelfPlacedOrder shelfPlacedOrder;
 
@@ -71,13 +92,14 @@ public class OrderActor extends AbstractBehavior<OrderActor.Message> {
         this.shelvesManager = shelvesManager;
         this.placedOrder = placedOrder;
 
-        getContext().getLog().info("[ORDERID: {}] - Order actor has been created to manage the lifecycle of this specific order", placedOrder.id);
+        getContext().getLog().debug("[ORDERID: {}] - Order actor has been created to manage the lifecycle of this specific order", placedOrder.id);
     }
 
     private final PlacedOrder placedOrder;
     private final ActorRef<ShelveManagerActor.Message> shelvesManager;
     private final ActorRef<KitchenUnitActor.Message> kitchenUnit;
     private ActorRef<CourierDispatcherActor.Message> courierDispatcher;
+    private ActorRef<CourierDispatchActor.Message> courierDispatch;
     private ShelfPlacedOrder shelfPlacedOrder;
 
 
@@ -86,29 +108,40 @@ public class OrderActor extends AbstractBehavior<OrderActor.Message> {
         return newReceiveBuilder()
                 .onMessage(OrderCookedEvent.class, this::onOrderCookedEvent)
                 .onMessage(CourierDispatcherAssigned.class, this::onCourierDispatcherAssigned)
+                .onMessage(CourierDispatchAssigned.class, this::onCourierDispatchAssigned)
                 .onMessage(OrderPlacedOnShelfEvent.class, this::onOrderPlacedOnShelfEvent)
                 .onMessage(OrderWastedEvent.class, this::onOrderWastedEvent)
                 .onMessage(PickupOrderCommand.class, this::onPickupOrderCommand)
+                .onMessage(CourierPickupCommand.class, this::onCourierPickupCommand)
                 .onMessage(OrderDeliveredEvent.class, this::onOrderDeliveredEvent)
                 .build();
     }
 
     private Behavior<Message> onOrderCookedEvent(OrderCookedEvent orderCookedEvent){
-        getContext().getLog().info("[ORDERID: {}] - Order has been cooked. Handing the order to the shelve manager", placedOrder.id);
+        getContext().getLog().debug("[ORDERID: {}] - Order has been cooked. Handing the order to the shelve manager", placedOrder.id);
         shelvesManager.tell(new ShelveManagerActor.PlaceCookedOrder(getContext().getSelf(), orderCookedEvent.cookedPlacedOrder));
         return this;
     }
 
     private Behavior<Message> onCourierDispatcherAssigned(CourierDispatcherAssigned courierDispatcherAssigned){
-        getContext().getLog().info("[ORDERID: {}] - Order has been assigned to a courier.");
+        getContext().getLog().debug("[ORDERID: {}] - Order has been assigned to a courier.");
         this.courierDispatcher = courierDispatcherAssigned.courierDispatcher;
         return this;
     }
 
+    private Behavior<Message> onCourierDispatchAssigned(CourierDispatchAssigned courierDispatchAssigned){
+        getContext().getLog().debug("[ORDERID: {}] - Order is going to be picked up by a courier of the courier dispatch.", placedOrder.id);
+        this.courierDispatch = courierDispatchAssigned.courierDispatch;
+        return this;
+    }
+
     private Behavior<Message> onOrderPlacedOnShelfEvent(OrderPlacedOnShelfEvent orderPlacedOnShelfEvent){
         this.shelfPlacedOrder = orderPlacedOnShelfEvent.shelfPlacedOrder;
-        getContext().getLog().info("[ORDERID: {}, Value: {}] - Order Placed in shelf",
-                placedOrder.id, shelfPlacedOrder.orderValue());
+        getContext().getLog().debug("[ORDERID: {}] - Order Placed in shelf", placedOrder.id);
+
+        // Moved orders let the courier dispatch know too, as they go to waste at another time
+        if (courierDispatch != null)
+            courierDispatch.tell(new CourierDispatchActor.OrderReady(shelfPlacedOrder, getContext().getSelf()));
         return this;
     }
 
@@ -116,11 +149,12 @@ public class OrderActor extends AbstractBehavior<OrderActor.Message> {
         //Since the item is considered wasted at this point we will advice the courier and
         //the kitchen unit actors and shutdown this actor
 
-        getContext().getLog().info("[ORDERID: {}, Value: {}] - This order is being dropped. Order actor is shutting itself down",
-                placedOrder.id, orderWastedEvent.shelfPlacedOrder.orderValue());
+        getContext().getLog().debug("[ORDERID: {}] - This order is being dropped. Order actor is shutting itself down", placedOrder.id);
 
         if(courierDispatcher != null)
             courierDispatcher.tell(CourierDispatcherActor.OrderCancelled.INSTANCE);
+        else if(courierDispatch != null)
+            courierDispatch.tell(new CourierDispatchActor.OrderCancelled(placedOrder.id));
         else
             getContext().getLog().warn("[ORDERID: {}, Value: {}] - No assigned dispatcher.");
 
@@ -132,7 +166,7 @@ public class OrderActor extends AbstractBehavior<OrderActor.Message> {
 
     private Behavior<Message> onPickupOrderCommand(PickupOrderCommand pickupOrderCommand){
 
-        getContext().getLog().info("[ORDERID: {}, Value: {}] - Handing over order package to the courier", placedOrder.id, shelfPlacedOrder.orderValue());
+        getContext().getLog().debug("[ORDERID: {}] - Handing over order package to the courier", placedOrder.id);
 
         shelvesManager.tell(new ShelveManagerActor.RemoveOrderFromShelf(shelfPlacedOrder));
 
@@ -144,12 +178,21 @@ public class OrderActor extends AbstractBehavior<OrderActor.Message> {
         return this;
     }
 
+    private Behavior<Message> onCourierPickupCommand(CourierPickupCommand courierPickupCommand){
+
+        getContext().getLog().debug("[ORDERID: {}] - Handing over order package to a courier of the courier dispatch", placedOrder.id);
+
+        // Same as with a courier of its own, the order goes with the courier and it is as good as delivered
+        shelvesManager.tell(new ShelveManagerActor.RemoveOrderFromShelf(shelfPlacedOrder));
+
+        return onOrderDeliveredEvent(OrderDeliveredEvent.INSTANCE);
+    }
+
     private Behavior<Message> onOrderDeliveredEvent(OrderDeliveredEvent orderDeliveredEvent){
         //Since the item is considered dispatched at this point we will advice the Orders management
         //and shutdown this actor
         kitchenUnit.tell(new KitchenUnitActor.OrderDelivered(placedOrder));
-        getContext().getLog().info("[ORDERID: {}, Value:{}] - Order has been delivered. Order actor is shutting itself down",
-                placedOrder.id, shelfPlacedOrder.orderValue());
+        getContext().getLog().debug("[ORDERID: {}] - Order has been delivered. Order actor is shutting itself down", placedOrder.id);
         return Behaviors.stopped();
     }
 
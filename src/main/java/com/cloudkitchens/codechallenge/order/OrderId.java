@@ -0,0 +1,124 @@
+package com.cloudkitchens.codechallenge.order;
+
+/*
+    Id of an order as a 128 bit number held in two longs, instead of the 36 characters of its text.
+
+    Order ids are UUIDs, whose text is parsed into their 128 bits and printed back from them when needed. Any other
+    id is hashed into 128 bits (two independent 64 bit hashes, so two distinct ids practically never collide) and
+    keeps its text, only to be printed.
+
+    Equality and hashing only look at the two longs, so ids are cheap to compare and to use as keys (see OrderIdMap).
+ */
+public final class OrderId {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    public final long mostSignificantBits;
+    public final long leastSignificantBits;
+    // Text of the ids that are not UUIDs, null for UUIDs
+    private final String text;
+
+    private OrderId(long mostSignificantBits, long leastSignificantBits, String text){
+        this.mostSignificantBits = mostSignificantBits;
+        this.leastSignificantBits = leastSignificantBits;
+        this.text = text;
+    }
+
+    public static OrderId of(long mostSignificantBits, long leastSignificantBits){
+        return new OrderId(mostSignificantBits, leastSignificantBits, null);
+    }
+
+    public static OrderId of(String id){
+        if (isUuid(id))
+            return of(hex(id, 0, 8) << 32 | hex(id, 9, 13) << 16 | hex(id, 14, 18),
+                    hex(id, 19, 23) << 48 | hex(id, 24, 36));
+
+        // FNV-1a and a multiply-xorshift hash of the characters, both 64 bits
+        long first = 0xcbf29ce484222325L;
+        long second = 0x9e3779b97f4a7c15L;
+        for (int i = 0; i < id.length(); i++){
+            char c = id.charAt(i);
+            first = (first ^ c) * 0x100000001b3L;
+            second = (second + c) * 0xbf58476d1ce4e5b9L;
+            second ^= second >>> 31;
+        }
+        return new OrderId(first, second, id);
+    }
+
+    public boolean isUuid(){
+        return text == null;
+    }
+
+    @Override
+    public boolean equals(Object other){
+        if (this == other)
+            return true;
+        if (!(other instanceof OrderId))
+            return false;
+        OrderId that = (OrderId) other;
+        return mostSignificantBits == that.mostSignificantBits && leastSignificantBits == that.leastSignificantBits;
+    }
+
+    @Override
+    public int hashCode(){
+        return hash(mostSignificantBits, leastSignificantBits);
+    }
+
+    /*
+        Hash of the id with the given bits, spread over all the bits of the int.
+     */
+    static int hash(long mostSignificantBits, long leastSignificantBits){
+        long h = mostSignificantBits * 0x9e3779b97f4a7c15L ^ leastSignificantBits;
+        h *= 0xbf58476d1ce4e5b9L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    @Override
+    public String toString(){
+        if (text != null)
+            return text;
+
+        char[] chars = new char[36];
+        digits(mostSignificantBits >>> 32, chars, 0, 8);
+        chars[8] = '-';
+        digits(mostSignificantBits >>> 16, chars, 9, 4);
+        chars[13] = '-';
+        digits(mostSignificantBits, chars, 14, 4);
+        chars[18] = '-';
+        digits(leastSignificantBits >>> 48, chars, 19, 4);
+        chars[23] = '-';
+        digits(leastSignificantBits, chars, 24, 12);
+        return new String(chars);
+    }
+
+    private static void digits(long value, char[] chars, int offset, int count){
+        for (int i = offset + count - 1; i >= offset; i--){
+            chars[i] = HEX[(int) (value & 0xF)];
+            value >>>= 4;
+        }
+    }
+
+    // Only the canonical 8-4-4-4-12 form, in lower or upper case hex digits
+    private static boolean isUuid(String id){
+        if (id.length() != 36)
+            return false;
+        for (int i = 0; i < 36; i++){
+            char c = id.charAt(i);
+            if (i == 8 || i == 13 || i == 18 || i == 23){
+                if (c != '-')
+                    return false;
+            }else if (!((c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F'))){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long hex(String id, int from, int to){
+        long value = 0;
+        for (int i = from; i < to; i++)
+            value = value << 4 | Character.digit(id.charAt(i), 16);
+        return value;
+    }
+
+}
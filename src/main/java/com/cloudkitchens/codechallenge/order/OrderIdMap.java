@@ -0,0 +1,165 @@
+package com.cloudkitchens.codechallenge.order;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/*
+    Map keyed by order id, holding the two longs of every id in primitive arrays (open addressing with linear
+    probing) instead of a HashMap entry and a boxed key per order. Values can not be null.
+
+    Removals shift the following entries of the probe sequence back, so there are no tombstones and lookups never
+    get slower as orders come and go.
+
+    This class is not thread safe. It is meant to be owned by a single actor.
+ */
+public class OrderIdMap<V> {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] mostSignificantBits;
+    private long[] leastSignificantBits;
+    // A null value marks a free position
+    private Object[] values;
+    private int mask;
+    private int size;
+
+    public OrderIdMap(){
+        this(MIN_CAPACITY);
+    }
+
+    public OrderIdMap(int expectedSize){
+        allocate(capacityFor(expectedSize));
+    }
+
+    public V get(OrderId id){
+        int index = indexOf(id.mostSignificantBits, id.leastSignificantBits);
+        return (index < 0) ? null : value(index);
+    }
+
+    public boolean containsKey(OrderId id){
+        return indexOf(id.mostSignificantBits, id.leastSignificantBits) >= 0;
+    }
+
+    /*
+        Maps the id to the value, returning the value it was mapped to before (or null).
+     */
+    public V put(OrderId id, V value){
+        if (value == null)
+            throw new NullPointerException("OrderIdMap does not take null values");
+
+        long most = id.mostSignificantBits;
+        long least = id.leastSignificantBits;
+        int index = OrderId.hash(most, least) & mask;
+        while (values[index] != null){
+            if (mostSignificantBits[index] == most && leastSignificantBits[index] == least){
+                V previous = value(index);
+                values[index] = value;
+                return previous;
+            }
+            index = (index + 1) & mask;
+        }
+
+        mostSignificantBits[index] = most;
+        leastSignificantBits[index] = least;
+        values[index] = value;
+        // Kept at most half full, so the probe sequences stay short
+        if (++size > values.length >> 1)
+            resize(values.length << 1);
+        return null;
+    }
+
+    public V remove(OrderId id){
+        int index = indexOf(id.mostSignificantBits, id.leastSignificantBits);
+        if (index < 0)
+            return null;
+
+        V removed = value(index);
+        size--;
+
+        // Shift back every following entry that would not be found anymore past the freed position
+        int free = index;
+        int next = (free + 1) & mask;
+        while (values[next] != null){
+            int home = OrderId.hash(mostSignificantBits[next], leastSignificantBits[next]) & mask;
+            if (((next - home) & mask) >= ((next - free) & mask)){
+                mostSignificantBits[free] = mostSignificantBits[next];
+                leastSignificantBits[free] = leastSignificantBits[next];
+                values[free] = values[next];
+                free = next;
+            }
+            next = (next + 1) & mask;
+        }
+        values[free] = null;
+        return removed;
+    }
+
+    public int size(){
+        return size;
+    }
+
+    public boolean isEmpty(){
+        return size == 0;
+    }
+
+    /*
+        Hands every value over to the given action, in no particular order. The map must not be changed meanwhile.
+     */
+    public void forEachValue(Consumer<? super V> action){
+        for (int i = 0; i < values.length; i++)
+            if (values[i] != null)
+                action.accept(value(i));
+    }
+
+    public void clear(){
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    private int indexOf(long most, long least){
+        int index = OrderId.hash(most, least) & mask;
+        while (values[index] != null){
+            if (mostSignificantBits[index] == most && leastSignificantBits[index] == least)
+                return index;
+            index = (index + 1) & mask;
+        }
+        return -1;
+    }
+
+    @SuppressWarnings("unchecked")
+    private V value(int index){
+        return (V) values[index];
+    }
+
+    private void resize(int capacity){
+        long[] oldMost = mostSignificantBits;
+        long[] oldLeast = leastSignificantBits;
+        Object[] oldValues = values;
+
+        allocate(capacity);
+        for (int i = 0; i < oldValues.length; i++){
+            if (oldValues[i] == null)
+                continue;
+            int index = OrderId.hash(oldMost[i], oldLeast[i]) & mask;
+            while (values[index] != null)
+                index = (index + 1) & mask;
+            mostSignificantBits[index] = oldMost[i];
+            leastSignificantBits[index] = oldLeast[i];
+            values[index] = oldValues[i];
+        }
+    }
+
+    private void allocate(int capacity){
+        mostSignificantBits = new long[capacity];
+        leastSignificantBits = new long[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+    }
+
+    private static int capacityFor(int expectedSize){
+        int capacity = MIN_CAPACITY;
+        while (capacity >> 1 < expectedSize)
+            capacity <<= 1;
+        return capacity;
+    }
+
+}
@@ -3,17 +3,38 @@ package com.cloudkitchens.codechallenge.order;
 public class OrderVo {
 
     private String id;
+    // Parsed id, handed over by the decoders that read it as such (the binary orders) or parsed from the id once
+    private OrderId orderId;
     private String name;
     private String temp;
     private Integer shelfLife;
     private Float decayRate;
+    // Optional, kitchen unit this order is meant to when running multiple kitchen units
+    private Integer kitchen;
 
     public String getId() {
+        if (id == null && orderId != null)
+            id = orderId.toString();
         return id;
     }
 
     public void setId(String id) {
         this.id = id;
+        this.orderId = null;
+    }
+
+    public OrderId getOrderId() {
+        if (orderId == null && id != null)
+            orderId = OrderId.of(id);
+        return orderId;
+    }
+
+    /*
+        Sets the id already parsed, its text is only rendered if somebody asks for it.
+     */
+    public void setOrderId(OrderId orderId) {
+        this.orderId = orderId;
+        this.id = null;
     }
 
     public String getName() {
@@ -47,4 +68,12 @@ public class OrderVo {
     public void setDecayRate(Float decayRate) {
         this.decayRate = decayRate;
     }
+
+    public Integer getKitchen() {
+        return kitchen;
+    }
+
+    public void setKitchen(Integer kitchen) {
+        this.kitchen = kitchen;
+    }
 }
@@ -0,0 +1,228 @@
+package com.cloudkitchens.codechallenge.order;
+
+import akka.actor.typed.ActorRef;
+import akka.actor.typed.Behavior;
+import akka.actor.typed.javadsl.*;
+import com.cloudkitchens.codechallenge.courier.CourierDispatchActor;
+import com.cloudkitchens.codechallenge.eventlog.OrderEventLog;
+import com.cloudkitchens.codechallenge.kitchen.KitchenUnitActor;
+import com.cloudkitchens.codechallenge.kitchen.KitchenUnitConfig;
+import com.cloudkitchens.codechallenge.shelf.ShelfShards;
+import com.cloudkitchens.codechallenge.shelf.ShelveManagerActor;
+import com.cloudkitchens.codechallenge.timer.Clock;
+import com.cloudkitchens.codechallenge.timer.TimingWheel;
+import com.typesafe.config.Config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Random;
+
+/*
+    Long-lived worker used by the pooled execution mode. Instead of spawning one OrderActor and one
+    CourierDispatcherActor per order, the kitchen unit keeps a fixed pool of these workers and routes every
+    order to one of them by the hash of its id. Each worker owns the lifecycle and the courier of all the
+    orders routed to it, keeping their state in plain maps.
+
+    It speaks the same OrderActor protocol with the shelve manager, so the shelve manager does not need to
+    know which execution mode is in place. Since the worker is shared among several orders it can only react
+    to the messages that carry the order id (cooked, placed on shelf and wasted events, and the pick ups of the
+    courier dispatch when there is one instead of a courier per order).
+ */
+public class OrderWorkerActor {
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    // Periodic tick that moves the courier arrivals timing wheel forward
+    private static enum CourierArrivalTick implements OrderActor.Command { INSTANCE }
+
+    private static class ManagedOrder {
+        public final PlacedOrder placedOrder;
+        public ShelfPlacedOrder shelfPlacedOrder;
+        public boolean courierWaiting;
+
+        public ManagedOrder(PlacedOrder placedOrder){
+            this.placedOrder = placedOrder;
+        }
+    }
+
+
+    public static Behavior<OrderActor.Message> create(ActorRef<KitchenUnitActor.Message> kitchenUnit,
+                                                      ActorRef<ShelveManagerActor.Message> shelvesManager){
+        return create(kitchenUnit, new ShelfShards(shelvesManager));
+    }
+
+    public static Behavior<OrderActor.Message> create(ActorRef<KitchenUnitActor.Message> kitchenUnit,
+                                                      ShelfShards shelfShards){
+        return create(kitchenUnit, shelfShards, null);
+    }
+
+    /*
+        Worker whose orders are picked up by the couriers of the given courier dispatch, or by couriers of their own
+        if it is null.
+     */
+    public static Behavior<OrderActor.Message> create(ActorRef<KitchenUnitActor.Message> kitchenUnit,
+                                                      ShelfShards shelfShards,
+                                                      ActorRef<CourierDispatchActor.Message> courierDispatch){
+        return create(kitchenUnit, shelfShards, courierDispatch, OrderEventLog.DISABLED);
+    }
+
+    public static Behavior<OrderActor.Message> create(ActorRef<KitchenUnitActor.Message> kitchenUnit,
+                                                      ShelfShards shelfShards,
+                                                      ActorRef<CourierDispatchActor.Message> courierDispatch,
+                                                      OrderEventLog eventLog){
+        return Behaviors.setup(ctx -> Behaviors.withTimers(timer ->
+                new OrderWorkerActor(ctx, timer, kitchenUnit, shelfShards, courierDispatch, eventLog).receive()));
+    }
+
+    private OrderWorkerActor(ActorContext<OrderActor.Message> ctx,
+                             TimerScheduler<OrderActor.Message> timer,
+                             ActorRef<KitchenUnitActor.Message> kitchenUnit,
+                             ShelfShards shelfShards,
+                             ActorRef<CourierDispatchActor.Message> courierDispatch,
+                             OrderEventLog eventLog){
+        this.self = ctx.getSelf();
+        this.timer = timer;
+        this.kitchenUnit = kitchenUnit;
+        this.shelfShards = shelfShards;
+        this.courierDispatch = courierDispatch;
+        this.eventLog = eventLog;
+
+        Config config = KitchenUnitConfig.config.getConfig("courier-arrival-range-second");
+        minArrivalSecs = config.getInt("min");
+        maxArrivalSecs = config.getInt("max");
+
+        Config wheelConfig = KitchenUnitConfig.config.getConfig("timing-wheel");
+        courierArrivals = new TimingWheel<>(wheelConfig.getLong("tick-millis"), wheelConfig.getInt("wheel-size"),
+                clock.millis());
+    }
+
+    private final ActorRef<OrderActor.Message> self;
+    private final Clock clock = Clock.SYSTEM;
+    private final OrderEventLog eventLog;
+    private final TimerScheduler<OrderActor.Message> timer;
+    private final ActorRef<KitchenUnitActor.Message> kitchenUnit;
+    private final ShelfShards shelfShards;
+    private final ActorRef<CourierDispatchActor.Message> courierDispatch;
+    private final int minArrivalSecs;
+    private final int maxArrivalSecs;
+    private final Random random = new Random();
+    // Arrival of the courier of every managed order, keyed by order id
+    private final TimingWheel<OrderId, OrderId> courierArrivals;
+    private final OrderIdMap<ManagedOrder> managedOrders = new OrderIdMap<>();
+
+
+    public Behavior<OrderActor.Message> receive(){
+        return Behaviors.receive(OrderActor.Message.class)
+                .onMessage(OrderActor.OrderCookedEvent.class, this::onOrderCookedEvent)
+                .onMessage(OrderActor.OrderPlacedOnShelfEvent.class, this::onOrderPlacedOnShelfEvent)
+                .onMessage(OrderActor.OrderWastedEvent.class, this::onOrderWastedEvent)
+                .onMessage(OrderActor.CourierPickupCommand.class, this::onCourierPickupCommand)
+                .onMessage(CourierArrivalTick.class, this::onCourierArrivalTick)
+                .build();
+    }
+
+    private Behavior<OrderActor.Message> onOrderCookedEvent(OrderActor.OrderCookedEvent orderCookedEvent){
+        CookedPlacedOrder cookedPlacedOrder = orderCookedEvent.cookedPlacedOrder;
+        managedOrders.put(cookedPlacedOrder.id, new ManagedOrder(cookedPlacedOrder.placedOrder));
+
+        if (courierDispatch == null)
+            dispatchCourier(cookedPlacedOrder.id);
+
+        log.debug("[ORDERID: {}] - Order has been cooked. Handing the order to the shelve manager", cookedPlacedOrder.id);
+        shelfShards.of(cookedPlacedOrder).tell(new ShelveManagerActor.PlaceCookedOrder(self, cookedPlacedOrder));
+        return Behaviors.same();
+    }
+
+    private Behavior<OrderActor.Message> onOrderPlacedOnShelfEvent(OrderActor.OrderPlacedOnShelfEvent orderPlacedOnShelfEvent){
+        ShelfPlacedOrder spo = orderPlacedOnShelfEvent.shelfPlacedOrder;
+        ManagedOrder managedOrder = managedOrders.get(spo.id);
+        if (managedOrder == null)
+            return Behaviors.same();
+
+        managedOrder.shelfPlacedOrder = spo;
+        log.debug("[ORDERID: {}] - Order Placed in shelf", spo.id);
+
+        if (courierDispatch != null)
+            courierDispatch.tell(new CourierDispatchActor.OrderReady(spo, self));
+
+        // The courier showed up before the shelve manager confirmed the placement, so it has been waiting for it
+        if (managedOrder.courierWaiting)
+            pickupOrder(managedOrder);
+
+        return Behaviors.same();
+    }
+
+    private Behavior<OrderActor.Message> onOrderWastedEvent(OrderActor.OrderWastedEvent orderWastedEvent){
+        ShelfPlacedOrder spo = orderWastedEvent.shelfPlacedOrder;
+        ManagedOrder managedOrder = managedOrders.remove(spo.id);
+        if (managedOrder == null)
+            return Behaviors.same();
+
+        log.debug("[ORDERID: {}] - This order is being dropped. Cancelling its courier", spo.id);
+
+        if (courierDispatch != null)
+            courierDispatch.tell(new CourierDispatchActor.OrderCancelled(spo.id));
+        else
+            courierArrivals.cancel(spo.id);
+        kitchenUnit.tell(new KitchenUnitActor.OrderDropped(managedOrder.placedOrder));
+
+        return Behaviors.same();
+    }
+
+    private Behavior<OrderActor.Message> onCourierPickupCommand(OrderActor.CourierPickupCommand courierPickupCommand){
+        ManagedOrder managedOrder = managedOrders.get(courierPickupCommand.shelfPlacedOrder.id);
+        // Gone to waste while the courier was on its way
+        if (managedOrder == null || managedOrder.shelfPlacedOrder == null)
+            return Behaviors.same();
+
+        pickupOrder(managedOrder);
+        return Behaviors.same();
+    }
+
+    private Behavior<OrderActor.Message> onCourierArrivalTick(CourierArrivalTick courierArrivalTick){
+        for (OrderId orderId: courierArrivals.advance(clock.millis()))
+            onCourierArrived(orderId);
+
+        if (courierArrivals.isEmpty())
+            timer.cancel(CourierArrivalTick.INSTANCE);
+
+        return Behaviors.same();
+    }
+
+    private void onCourierArrived(OrderId orderId){
+        ManagedOrder managedOrder = managedOrders.get(orderId);
+        if (managedOrder == null)
+            return;
+
+        log.debug("[ORDERID: {}] - Arrived to pickup order", orderId);
+        eventLog.record(OrderEventLog.Transition.COURIER_ARRIVED, orderId);
+
+        if (managedOrder.shelfPlacedOrder == null)
+            managedOrder.courierWaiting = true;
+        else
+            pickupOrder(managedOrder);
+    }
+
+    private void pickupOrder(ManagedOrder managedOrder){
+        ShelfPlacedOrder spo = managedOrder.shelfPlacedOrder;
+
+        log.debug("[ORDERID: {}] - Handing over order package to the courier", spo.id);
+
+        shelfShards.of(spo.cookedPlacedOrder).tell(new ShelveManagerActor.RemoveOrderFromShelf(spo));
+        managedOrders.remove(spo.id);
+
+        log.debug("[ORDERID: {}] - Courier has just delivered the order (enjoy your meal!)", spo.id);
+        kitchenUnit.tell(new KitchenUnitActor.OrderDelivered(managedOrder.placedOrder));
+    }
+
+    private void dispatchCourier(OrderId orderId){
+        int arriveIn = minArrivalSecs + random.nextInt((maxArrivalSecs - minArrivalSecs) + 1);
+        log.debug("[ORDERID: {}] - Dispatching courier for pickup, ETA(seconds): {}", orderId, arriveIn);
+        eventLog.record(OrderEventLog.Transition.COURIER_DISPATCHED, orderId);
+        if (courierArrivals.isEmpty())
+            timer.startTimerAtFixedRate(CourierArrivalTick.INSTANCE, CourierArrivalTick.INSTANCE, Duration.ofMillis(courierArrivals.tickMillis));
+        courierArrivals.schedule(orderId, orderId, arriveIn * 1000L, clock.millis());
+    }
+
+}
@@ -1,19 +1,55 @@
 package com.cloudkitchens.codechallenge.order;
 
+import com.cloudkitchens.codechallenge.shelf.Shelf;
+
+/*
+    An order as taken by the kitchen unit. It is kept compact since there can be millions of them in flight: the id
+    is held in two longs, the temperature is resolved to its shelf once, here, and the name and temperature are
+    the catalog copies shared by every order of the same dish (see DishCatalog).
+ */
 public class PlacedOrder {
 
-    public final String id;
+    public final OrderId id;
     public final String name;
     public final String temp;
-    public final Integer shelfLife;
+    // Shelf of the temperature of this order, null when no shelf takes it
+    public final Shelf.ShelfType preferredShelfType;
+    public final int shelfLife;
     public final float decayRate;
 
-    public PlacedOrder(String id, String name, String temp, Integer shelfLife, float decayRate){
+    public PlacedOrder(String id, String name, String temp, int shelfLife, float decayRate){
+        this(OrderId.of(id), name, temp, shelfLife, decayRate);
+    }
+
+    public PlacedOrder(OrderId id, String name, String temp, int shelfLife, float decayRate){
         this.id = id;
-        this.name = name;
-        this.temp = temp;
+        this.name = DishCatalog.intern(name);
+        this.temp = DishCatalog.intern(temp);
+        this.preferredShelfType = shelfTypeOf(temp);
         this.shelfLife = shelfLife;
         this.decayRate = decayRate;
     }
 
+    /*
+        Share of its value this order loses every second on its preferred shelf.
+     */
+    public float decayPerSecond(){
+        return decayRate / shelfLife;
+    }
+
+    private static Shelf.ShelfType shelfTypeOf(String temp){
+        if (temp == null)
+            return null;
+        switch (temp){
+            case "hot":
+                return Shelf.ShelfType.HOT;
+            case "cold":
+                return Shelf.ShelfType.COLD;
+            case "frozen":
+                return Shelf.ShelfType.FROZEN;
+            default:
+                return null;
+        }
+    }
+
 }
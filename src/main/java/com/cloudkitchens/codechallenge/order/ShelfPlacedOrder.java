@@ -5,47 +5,53 @@ import com.cloudkitchens.codechallenge.shelf.Shelf;
 public class ShelfPlacedOrder {
 
     public final CookedPlacedOrder cookedPlacedOrder;
-    public final String id;
+    public final OrderId id;
     public final Shelf.ShelfType shelfType;
     public final long totalExpirationMillis;
+    // Moment this order goes to waste if it stays on this shelf
+    public final long expiresAtMillis;
+    // Share of its value this order loses every second it stays on this shelf
+    private final float decayPerSecond;
 
     public ShelfPlacedOrder(Shelf shelf, CookedPlacedOrder cookedPlacedOrder){
         this.cookedPlacedOrder = cookedPlacedOrder;
         this.id = cookedPlacedOrder.id;
         this.shelfType = shelf.type;
-        this.totalExpirationMillis = calcTotalExpirationMillis();
-    }
-
-    public float orderValue(){
-
-        long orderAge = (System.currentTimeMillis() - cookedPlacedOrder.readySinceMillis)/1000;
 
-        return (cookedPlacedOrder.placedOrder.shelfLife
-                - (cookedPlacedOrder.placedOrder.decayRate * orderAge * shelfDecayModifier()))
-                    / cookedPlacedOrder.placedOrder.shelfLife;
+        PlacedOrder placedOrder = cookedPlacedOrder.placedOrder;
+        int shelfDecayModifier = shelfDecayModifier(shelfType);
+        this.decayPerSecond = placedOrder.decayRate * shelfDecayModifier / placedOrder.shelfLife;
+        this.totalExpirationMillis = calcTotalExpirationMillis(placedOrder, shelfDecayModifier);
+        this.expiresAtMillis = cookedPlacedOrder.readySinceMillis + totalExpirationMillis;
+    }
 
+    /*
+        Value of this order at the given time (from 1 when it is cooked down to 0 when it goes to waste).
+        The time is given by the caller, so many orders can be evaluated against a single clock reading.
+     */
+    public float orderValue(long nowMillis){
+        long orderAge = (nowMillis - cookedPlacedOrder.readySinceMillis)/1000;
+        return 1 - (decayPerSecond * orderAge);
     }
 
-    public boolean wasted(){
-        return (orderValue() <= 0);
+    public boolean wasted(long nowMillis){
+        return (orderValue(nowMillis) <= 0);
     }
 
-    public long remainingForWasteMillis(){
-        return totalExpirationMillis - (System.currentTimeMillis() - cookedPlacedOrder.readySinceMillis);
+    public long remainingForWasteMillis(long nowMillis){
+        return expiresAtMillis - nowMillis;
     }
 
-    private int shelfDecayModifier(){
-        return (shelfType.equals(Shelf.ShelfType.OVERFLOW)) ? 2 : 1;
+    private static int shelfDecayModifier(Shelf.ShelfType shelfType){
+        return (shelfType == Shelf.ShelfType.OVERFLOW) ? 2 : 1;
     }
 
     /*
         Based on shelfLife, decay, and decayModifier we can calculate the time this order goes to waste (expired).
         The result here being in milliseconds
      */
-    private long calcTotalExpirationMillis(){
-        return Float.valueOf(
-                ((cookedPlacedOrder.placedOrder.shelfLife/ cookedPlacedOrder.placedOrder.decayRate)/shelfDecayModifier()) * 1000)
-                    .longValue();
+    private static long calcTotalExpirationMillis(PlacedOrder placedOrder, int shelfDecayModifier){
+        return (long) (((placedOrder.shelfLife / placedOrder.decayRate) / shelfDecayModifier) * 1000);
     }
 
 }
@@ -0,0 +1,70 @@
+package com.cloudkitchens.codechallenge.shelf;
+
+import com.cloudkitchens.codechallenge.order.CookedPlacedOrder;
+import com.cloudkitchens.codechallenge.order.ShelfPlacedOrder;
+
+/*
+    The placement rules the kitchen unit has always followed: the overflow shelf while it has room, then moving the
+    overflow order closest to expire whose preferred shelf has room, and finally dropping an overflow order
+    following the drop policy. Room left on a temperature shelf goes to the overflow order closest to expire.
+ */
+public class CascadePlacement implements PlacementPolicy {
+
+    public CascadePlacement(DropPolicy dropPolicy){
+        this.dropPolicy = dropPolicy;
+    }
+
+    private final DropPolicy dropPolicy;
+
+
+    @Override
+    public Placement place(CookedPlacedOrder cookedPlacedOrder, Shelves<?> shelves, long now){
+        Shelf overflowShelf = shelves.shelf(Shelf.ShelfType.OVERFLOW);
+        if (!overflowShelf.isFull())
+            return Placement.overflow();
+
+        ShelfPlacedOrder candidateToMove = overflowCandidateToMove(shelves);
+        if (candidateToMove != null)
+            return Placement.move(candidateToMove);
+
+        // There is no order we can accommodate in other shelves.
+        // Therefore we need to make room in the overflow shelf.
+        return Placement.drop(dropPolicy.chooseVictim(overflowShelf));
+    }
+
+    /*
+        The overflow order closest to expire, as when making room for a new order.
+     */
+    @Override
+    public ShelfPlacedOrder promote(Shelf shelf, Shelves<?> shelves, long now){
+        return shelves.shelf(Shelf.ShelfType.OVERFLOW).nextToExpire(shelf.type);
+    }
+
+    private ShelfPlacedOrder overflowCandidateToMove(Shelves<?> shelves){
+
+        Shelf overflowShelf = shelves.shelf(Shelf.ShelfType.OVERFLOW);
+        Shelf mostAvailableShelf = null;
+
+        // The overflow shelf keeps its orders bucketed by preferred shelf, so we only need to look at the
+        // temperature shelves (not the overflow orders) to find the shelf with more room that can take any of them.
+        // If we get so far it is kind of obvious that the current shelf this order needs is full
+        // as well as the overflow shelf, but too keep clarity I'd prefer make this very explicity here
+        for (Shelf.ShelfType type: Shelf.ShelfType.values()){
+            Shelf s = shelves.shelf(type);
+            if (s.type == Shelf.ShelfType.OVERFLOW || s.availableCapacity() == 0 || overflowShelf.size(s.type) == 0)
+                continue;
+            if (mostAvailableShelf == null || s.availableCapacity() > mostAvailableShelf.availableCapacity())
+                mostAvailableShelf = s;
+        }
+
+        // The soonest to expire order that fits the shelf with more room
+        return (mostAvailableShelf == null) ? null : overflowShelf.nextToExpire(mostAvailableShelf.type);
+
+    }
+
+    @Override
+    public String toString(){
+        return String.format("cascade (%s drop policy)", dropPolicy);
+    }
+
+}
@@ -0,0 +1,137 @@
+package com.cloudkitchens.codechallenge.shelf;
+
+import com.cloudkitchens.codechallenge.order.CookedPlacedOrder;
+import com.cloudkitchens.codechallenge.order.ShelfPlacedOrder;
+
+/*
+    Places orders so the value they are expected to have when they are picked up adds up to the most.
+
+    An order is expected to be picked up a fixed time after it is ready (e.g. the mean courier arrival), and as the
+    value of an order only depends on its age and the shelf it is on, its projected value at the pick up only
+    depends on how fast it decays: 1 - decay * modifier * pickup time, where the modifier is 2 on the overflow shelf
+    (and 0 once it would be wasted before its courier gets there). What an order gains from being on its preferred
+    shelf rather than on the overflow shelf grows with its decay up to the orders that would be wasted just at
+    their pick up on the overflow shelf, and shrinks after that, down to nothing for the orders wasted before their
+    pick up anyway.
+
+    When the preferred shelf of an order is full, the order gains more than the order on that shelf gaining the
+    least moves it to the overflow shelf. When the overflow shelf is full as well, it picks the best of moving the
+    overflow order gaining the most to its preferred shelf, dropping the overflow order with the least projected
+    value, or wasting the new order itself. Room left on a temperature shelf goes to the overflow order gaining
+    the most from it.
+
+    Every candidate comes from the decay index the shelves keep for each temperature, so a decision takes a few
+    O(log n) look ups whatever the number of orders on the shelves.
+ */
+public class CostBasedPlacement implements PlacementPolicy {
+
+    private static final int OVERFLOW_DECAY_MODIFIER = 2;
+
+    public CostBasedPlacement(long expectedPickupMillis){
+        // Order values go down once per whole second
+        this.expectedPickupSecs = expectedPickupMillis / 1000;
+        // Decay of the orders gaining the most from their preferred shelf
+        this.peakGainDecay = (expectedPickupSecs == 0) ? Float.MAX_VALUE : 0.5F / expectedPickupSecs;
+    }
+
+    private final long expectedPickupSecs;
+    private final float peakGainDecay;
+
+
+    @Override
+    public Placement place(CookedPlacedOrder cookedPlacedOrder, Shelves<?> shelves, long now){
+        Shelf.ShelfType preferredShelfType = cookedPlacedOrder.preferredShelfType();
+        Shelf overflowShelf = shelves.shelf(Shelf.ShelfType.OVERFLOW);
+        float decay = cookedPlacedOrder.placedOrder.decayPerSecond();
+
+        if (!overflowShelf.isFull()){
+            ShelfPlacedOrder leastGaining = leastGaining(shelves.shelf(preferredShelfType), preferredShelfType);
+            if (leastGaining != null && gain(decay) > gain(decayOf(leastGaining)))
+                return Placement.demote(leastGaining);
+            return Placement.overflow();
+        }
+
+        float projectedValue = projectedValue(decay, OVERFLOW_DECAY_MODIFIER);
+        // Wasting the new order changes nothing, any other placement has to be worth more than that
+        Placement best = Placement.reject();
+        float bestScore = 0;
+
+        ShelfPlacedOrder lowestValue = null;
+        for (Shelf.ShelfType type: Shelf.ShelfType.values()){
+            if (type == Shelf.ShelfType.OVERFLOW)
+                continue;
+
+            // The fastest decaying order of every temperature is the one with the least projected value
+            ShelfPlacedOrder fastest = overflowShelf.decayFloor(type, Float.MAX_VALUE);
+            if (fastest != null && (lowestValue == null || decayOf(fastest) > decayOf(lowestValue)))
+                lowestValue = fastest;
+
+            if (shelves.shelf(type).availableCapacity() == 0)
+                continue;
+            ShelfPlacedOrder mostGaining = mostGaining(overflowShelf, type);
+            if (mostGaining != null){
+                float score = gain(decayOf(mostGaining)) + projectedValue;
+                if (score > bestScore){
+                    best = Placement.move(mostGaining);
+                    bestScore = score;
+                }
+            }
+        }
+
+        if (lowestValue != null){
+            float score = projectedValue - projectedValue(decayOf(lowestValue), OVERFLOW_DECAY_MODIFIER);
+            if (score > bestScore)
+                best = Placement.drop(lowestValue);
+        }
+
+        return best;
+    }
+
+    /*
+        The overflow order gaining the most from the shelf, unless it is going to be wasted before its pick up on any
+        shelf, in which case the room is better kept for a new order.
+     */
+    @Override
+    public ShelfPlacedOrder promote(Shelf shelf, Shelves<?> shelves, long now){
+        ShelfPlacedOrder mostGaining = mostGaining(shelves.shelf(Shelf.ShelfType.OVERFLOW), shelf.type);
+        return (mostGaining == null || gain(decayOf(mostGaining)) <= 0) ? null : mostGaining;
+    }
+
+    // The order of the given temperature gaining the most from being on its preferred shelf, which decays the
+    // closest to the peak gain from either side
+    private ShelfPlacedOrder mostGaining(Shelf shelf, Shelf.ShelfType type){
+        ShelfPlacedOrder floor = shelf.decayFloor(type, peakGainDecay);
+        ShelfPlacedOrder ceiling = shelf.decayCeiling(type, peakGainDecay);
+        if (floor == null || ceiling == null)
+            return (floor == null) ? ceiling : floor;
+        return (gain(decayOf(ceiling)) > gain(decayOf(floor))) ? ceiling : floor;
+    }
+
+    // The order of the given temperature gaining the least from being on its preferred shelf, which is either the
+    // slowest or the fastest decaying one
+    private ShelfPlacedOrder leastGaining(Shelf shelf, Shelf.ShelfType type){
+        ShelfPlacedOrder slowest = shelf.decayCeiling(type, 0);
+        ShelfPlacedOrder fastest = shelf.decayFloor(type, Float.MAX_VALUE);
+        if (slowest == null)
+            return null;
+        return (gain(decayOf(fastest)) < gain(decayOf(slowest))) ? fastest : slowest;
+    }
+
+    private float gain(float decay){
+        return projectedValue(decay, 1) - projectedValue(decay, OVERFLOW_DECAY_MODIFIER);
+    }
+
+    private float projectedValue(float decay, int modifier){
+        return Math.max(0, 1 - decay * modifier * expectedPickupSecs);
+    }
+
+    private static float decayOf(ShelfPlacedOrder shelfPlacedOrder){
+        return shelfPlacedOrder.cookedPlacedOrder.placedOrder.decayPerSecond();
+    }
+
+    @Override
+    public String toString(){
+        return String.format("cost-based (pick up expected after %s s)", expectedPickupSecs);
+    }
+
+}
@@ -0,0 +1,48 @@
+package com.cloudkitchens.codechallenge.shelf;
+
+import com.cloudkitchens.codechallenge.order.ShelfPlacedOrder;
+
+/*
+    Decides which order is wasted when there is no room left on the overflow shelf
+    and none of its orders can be moved to its preferred shelf.
+ */
+public interface DropPolicy {
+
+    /*
+        Picks the order to be dropped from the given (non empty) shelf. It must not change the shelf.
+     */
+    ShelfPlacedOrder chooseVictim(Shelf shelf);
+
+    public static enum Standard implements DropPolicy {
+
+        RANDOM {
+            @Override
+            public ShelfPlacedOrder chooseVictim(Shelf shelf){
+                return shelf.randomOrder();
+            }
+        },
+
+        LOWEST_VALUE {
+            @Override
+            public ShelfPlacedOrder chooseVictim(Shelf shelf){
+                return shelf.lowestValueOrder();
+            }
+        },
+
+        SOONEST_TO_EXPIRE {
+            @Override
+            public ShelfPlacedOrder chooseVictim(Shelf shelf){
+                return shelf.nextToExpire();
+            }
+        }
+
+    }
+
+    /*
+        Resolves the policy from its configuration name, e.g. "random", "lowest-value" or "soonest-to-expire".
+     */
+    static DropPolicy fromName(String name){
+        return Standard.valueOf(name.trim().toUpperCase().replace('-', '_'));
+    }
+
+}
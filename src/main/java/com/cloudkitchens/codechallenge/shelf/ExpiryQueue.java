@@ -0,0 +1,90 @@
+package com.cloudkitchens.codechallenge.shelf;
+
+import java.util.Arrays;
+
+/*
+    Indexed binary min-heap of shelf slots keyed on their absolute expiration time.
+
+    Every slot knows its own position in the heap, so besides O(1) access to the next order to expire
+    it supports O(log n) insertion and O(log n) removal of any order (e.g. when it is picked up or moved).
+ */
+class ExpiryQueue {
+
+    private ShelfSlot[] heap;
+    private int size;
+
+    ExpiryQueue(int initialCapacity){
+        this.heap = new ShelfSlot[Math.max(1, initialCapacity)];
+    }
+
+    void offer(ShelfSlot slot){
+        if (size == heap.length)
+            heap = Arrays.copyOf(heap, size * 2);
+        heap[size] = slot;
+        slot.queueIndex = size;
+        size++;
+        siftUp(slot.queueIndex);
+    }
+
+    ShelfSlot peek(){
+        return (size == 0) ? null : heap[0];
+    }
+
+    boolean remove(ShelfSlot slot){
+        int index = slot.queueIndex;
+        if (index < 0 || index >= size || heap[index] != slot)
+            return false;
+
+        size--;
+        ShelfSlot last = heap[size];
+        heap[size] = null;
+        slot.queueIndex = -1;
+
+        if (index != size){
+            heap[index] = last;
+            last.queueIndex = index;
+            siftDown(index);
+            if (heap[index] == last)
+                siftUp(index);
+        }
+        return true;
+    }
+
+    int size(){
+        return size;
+    }
+
+    private void siftUp(int index){
+        ShelfSlot slot = heap[index];
+        while (index > 0){
+            int parent = (index - 1) >>> 1;
+            if (heap[parent].expiresAtMillis <= slot.expiresAtMillis)
+                break;
+            place(heap[parent], index);
+            index = parent;
+        }
+        place(slot, index);
+    }
+
+    private void siftDown(int index){
+        ShelfSlot slot = heap[index];
+        int half = size >>> 1;
+        while (index < half){
+            int child = (index << 1) + 1;
+            int right = child + 1;
+            if (right < size && heap[right].expiresAtMillis < heap[child].expiresAtMillis)
+                child = right;
+            if (slot.expiresAtMillis <= heap[child].expiresAtMillis)
+                break;
+            place(heap[child], index);
+            index = child;
+        }
+        place(slot, index);
+    }
+
+    private void place(ShelfSlot slot, int index){
+        heap[index] = slot;
+        slot.queueIndex = index;
+    }
+
+}
@@ -0,0 +1,229 @@
+package com.cloudkitchens.codechallenge.shelf;
+
+import akka.actor.typed.ActorRef;
+import akka.actor.typed.Behavior;
+import akka.actor.typed.javadsl.ActorContext;
+import akka.actor.typed.javadsl.Behaviors;
+import akka.actor.typed.javadsl.TimerScheduler;
+import com.cloudkitchens.codechallenge.eventlog.OrderEventLog;
+import com.cloudkitchens.codechallenge.kitchen.KitchenUnitConfig;
+import com.cloudkitchens.codechallenge.order.CookedPlacedOrder;
+import com.cloudkitchens.codechallenge.order.OrderActor;
+import com.cloudkitchens.codechallenge.order.OrderId;
+import com.cloudkitchens.codechallenge.order.ShelfPlacedOrder;
+import com.cloudkitchens.codechallenge.timer.Clock;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+
+/*
+    Owner of the overflow shelf in the sharded shelves mode. It is the only point where the shards need
+    to coordinate, and it only gets involved when a temperature shelf is full.
+
+    Orders handed off by a full temperature shard are placed here. When this shelf is full as well, the soonest
+    to expire order of the temperature shard with more room is handed off to that shard (relocation) to make
+    room, or an order is dropped following the drop policy when no shard has room.
+
+    Its view of the room on each temperature shard is only updated when they get full or get room again, so a
+    relocation can be rejected by a shard that got full in the meantime. In that case the order comes back to
+    be placed here again (which might end up in dropping an order).
+ */
+public class OverflowShelfActor extends ShelfShardActor {
+
+    /*
+        Order handed off by a temperature shard that has no room for it.
+     */
+    static class OverflowPlacement implements ShelveManagerActor.Command {
+        public final ShelveManagerActor.PlaceCookedOrder placeCookedOrder;
+
+        public OverflowPlacement(ShelveManagerActor.PlaceCookedOrder placeCookedOrder){
+            this.placeCookedOrder = placeCookedOrder;
+        }
+    }
+
+    static class ShardCapacity implements ShelveManagerActor.Event {
+        public final Shelf.ShelfType type;
+        public final ActorRef<ShelveManagerActor.Message> shard;
+        public final int availableCapacity;
+
+        public ShardCapacity(Shelf.ShelfType type, ActorRef<ShelveManagerActor.Message> shard, int availableCapacity){
+            this.type = type;
+            this.shard = shard;
+            this.availableCapacity = availableCapacity;
+        }
+    }
+
+    static class RelocationCompleted implements ShelveManagerActor.Event {
+        public final OrderId orderId;
+
+        public RelocationCompleted(OrderId orderId){
+            this.orderId = orderId;
+        }
+    }
+
+    static class RelocationRejected implements ShelveManagerActor.Event {
+        public final ShelfPlacedOrder shelfPlacedOrder;
+        public final ActorRef<OrderActor.Message> order;
+
+        public RelocationRejected(ShelfPlacedOrder shelfPlacedOrder, ActorRef<OrderActor.Message> order){
+            this.shelfPlacedOrder = shelfPlacedOrder;
+            this.order = order;
+        }
+    }
+
+    private static class ShardView {
+        public final Shelf.ShelfType type;
+        public final ActorRef<ShelveManagerActor.Message> shard;
+        public int availableCapacity;
+
+        public ShardView(Shelf.ShelfType type, ActorRef<ShelveManagerActor.Message> shard){
+            this.type = type;
+            this.shard = shard;
+        }
+    }
+
+
+    public static Behavior<ShelveManagerActor.Message> create(int maxCapacity){
+        return create(maxCapacity, OrderEventLog.DISABLED);
+    }
+
+    public static Behavior<ShelveManagerActor.Message> create(int maxCapacity, OrderEventLog eventLog){
+        return Behaviors.setup(ctx -> Behaviors.withTimers(timer ->
+                new OverflowShelfActor(ctx, timer, new Shelf(Shelf.ShelfType.OVERFLOW, maxCapacity), eventLog).receive()));
+    }
+
+    private OverflowShelfActor(ActorContext<ShelveManagerActor.Message> context,
+                               TimerScheduler<ShelveManagerActor.Message> timer,
+                               Shelf shelf,
+                               OrderEventLog eventLog){
+        super(context, timer, shelf, Clock.SYSTEM, eventLog);
+        this.dropPolicy = DropPolicy.fromName(KitchenUnitConfig.config.getString("overflow-drop-policy"));
+    }
+
+    private final DropPolicy dropPolicy;
+    private final EnumMap<Shelf.ShelfType, ShardView> shards = new EnumMap<>(Shelf.ShelfType.class);
+    // Orders handed off to a temperature shard whose relocation has not been confirmed yet
+    private final HashMap<OrderId, Shelf.ShelfType> relocating = new HashMap<>();
+
+
+    public Behavior<ShelveManagerActor.Message> receive(){
+        return receiveBuilder()
+                .onMessage(OverflowPlacement.class, this::onOverflowPlacement)
+                .onMessage(ShelveManagerActor.RemoveOrderFromShelf.class, this::onRemoveOrderFromShelf)
+                .onMessage(ForwardedRemoval.class, this::onForwardedRemoval)
+                .onMessage(ShardCapacity.class, this::onShardCapacity)
+                .onMessage(RelocationCompleted.class, this::onRelocationCompleted)
+                .onMessage(RelocationRejected.class, this::onRelocationRejected)
+                .onMessage(ShelveManagerActor.GetOverflowOccupancy.class, this::onGetOverflowOccupancy)
+                .build();
+    }
+
+    private Behavior<ShelveManagerActor.Message> onOverflowPlacement(OverflowPlacement overflowPlacement){
+        ShelveManagerActor.PlaceCookedOrder placeCookedOrder = overflowPlacement.placeCookedOrder;
+        placeOrMakeRoom(placeCookedOrder.cookedPlacedOrder, placeCookedOrder.order);
+        logCurrentShelfInventory();
+        return Behaviors.same();
+    }
+
+    private Behavior<ShelveManagerActor.Message> onRemoveOrderFromShelf(ShelveManagerActor.RemoveOrderFromShelf removeOrderFromShelf){
+        remove(removeOrderFromShelf.shelfPlacedOrder, 0);
+        return Behaviors.same();
+    }
+
+    private Behavior<ShelveManagerActor.Message> onForwardedRemoval(ForwardedRemoval forwardedRemoval){
+        remove(forwardedRemoval.shelfPlacedOrder, forwardedRemoval.hops);
+        return Behaviors.same();
+    }
+
+    private Behavior<ShelveManagerActor.Message> onShardCapacity(ShardCapacity shardCapacity){
+        shards.computeIfAbsent(shardCapacity.type, type -> new ShardView(type, shardCapacity.shard))
+                .availableCapacity = shardCapacity.availableCapacity;
+        return Behaviors.same();
+    }
+
+    private Behavior<ShelveManagerActor.Message> onRelocationCompleted(RelocationCompleted relocationCompleted){
+        relocating.remove(relocationCompleted.orderId);
+        return Behaviors.same();
+    }
+
+    private Behavior<ShelveManagerActor.Message> onRelocationRejected(RelocationRejected relocationRejected){
+        ShelfPlacedOrder spo = relocationRejected.shelfPlacedOrder;
+        Shelf.ShelfType type = relocating.remove(spo.id);
+        if (type != null)
+            shards.get(type).availableCapacity = 0;
+
+        log.debug("[ORDERID: {}] - Relocation to the {} shelf rejected, placing the order back on the overflow shelf", spo.id, type);
+        placeOrMakeRoom(spo.cookedPlacedOrder, relocationRejected.order);
+        logCurrentShelfInventory();
+        return Behaviors.same();
+    }
+
+    private Behavior<ShelveManagerActor.Message> onGetOverflowOccupancy(ShelveManagerActor.GetOverflowOccupancy getOverflowOccupancy){
+        getOverflowOccupancy.replyTo.tell(new ShelveManagerActor.OverflowOccupancy(shelf.size(), shelf.maxCapacity));
+        return Behaviors.same();
+    }
+
+    private void placeOrMakeRoom(CookedPlacedOrder cookedPlacedOrder, ActorRef<OrderActor.Message> order){
+        if (shelf.isFull()){
+            ShardView target = getShardWithMostRoomForOverflowOrders();
+            if (target == null)
+                makeRoomByDropping(cookedPlacedOrder);
+            else
+                relocate(cookedPlacedOrder, target);
+        }
+        placeOnShelf(cookedPlacedOrder, order);
+    }
+
+    private void relocate(CookedPlacedOrder cookedPlacedOrder, ShardView target){
+        ShelfPlacedOrder candidateToMove = shelf.nextToExpire(target.type);
+        ActorRef<OrderActor.Message> candidateOrder = takeFromShelf(candidateToMove.id);
+
+        relocating.put(candidateToMove.id, target.type);
+        target.availableCapacity--;
+        target.shard.tell(new TemperatureShelfActor.Relocate(candidateToMove, candidateOrder));
+
+        log.debug("[ORDERID: {}] - Order {} is going to be moved from the overflow to the {} shelf to make room for the current order",
+                cookedPlacedOrder.id, candidateToMove.id, target.type);
+    }
+
+    private void makeRoomByDropping(CookedPlacedOrder cookedPlacedOrder){
+        log.debug("[ORDERID: {}] - Not able to find an allowable room for any overflow order, going to pick an order to drop",
+                cookedPlacedOrder.id);
+
+        ShelfPlacedOrder toBeDropped = dropPolicy.chooseVictim(shelf);
+
+        log.debug("[ORDERID: {}] - Order {} picked by the {} drop policy to be wasted and will not be available for pick up",
+                cookedPlacedOrder.id, toBeDropped.id, dropPolicy);
+
+        dropOrder(toBeDropped);
+    }
+
+    private ShardView getShardWithMostRoomForOverflowOrders(){
+        ShardView mostAvailable = null;
+        for (ShardView view: shards.values()){
+            if (view.availableCapacity <= 0 || shelf.size(view.type) == 0)
+                continue;
+            if (mostAvailable == null || view.availableCapacity > mostAvailable.availableCapacity)
+                mostAvailable = view;
+        }
+        return mostAvailable;
+    }
+
+    private void remove(ShelfPlacedOrder spo, int hops){
+        if (pickUpFromShelf(spo)){
+            log.debug("[ORDERID: {}] - Order removed from the overflow shelf", spo.id);
+            logCurrentShelfInventory();
+            return;
+        }
+
+        Shelf.ShelfType relocatingTo = relocating.get(spo.id);
+        if (relocatingTo != null && hops < MAX_REMOVAL_HOPS){
+            // It is on its way to its shard, which gets the relocation before this removal
+            shards.get(relocatingTo).shard.tell(new ForwardedRemoval(spo, hops + 1));
+        }else{
+            // Not on any shelf anymore, it has already been wasted
+            log.debug("[ORDERID: {}] - Order is not on the shelves anymore, nothing to remove", spo.id);
+        }
+    }
+
+}
@@ -0,0 +1,90 @@
+package com.cloudkitchens.codechallenge.shelf;
+
+import com.cloudkitchens.codechallenge.order.CookedPlacedOrder;
+import com.cloudkitchens.codechallenge.order.ShelfPlacedOrder;
+
+/*
+    Decides what happens to an order whose preferred shelf is full: whether it goes to the overflow shelf, which
+    order is moved to make room for it, which order is dropped, or whether the order itself is wasted. It also
+    decides which overflow order takes the room left on a temperature shelf by an order picked up or wasted.
+ */
+public interface PlacementPolicy {
+
+    public static enum Action {
+        // The order goes to the overflow shelf, which has room for it
+        OVERFLOW,
+        // The other order is moved from the preferred shelf of the order to the overflow shelf (which has room),
+        // and the order takes its place
+        DEMOTE,
+        // The other order is moved from the overflow shelf to its preferred shelf (which has room), and the order
+        // takes its place on the overflow shelf
+        MOVE,
+        // The other order is dropped from the overflow shelf, and the order takes its place
+        DROP,
+        // The order is wasted, nothing changes on the shelves
+        REJECT
+    }
+
+    public static class Placement {
+
+        private static final Placement OVERFLOW = new Placement(Action.OVERFLOW, null);
+        private static final Placement REJECT = new Placement(Action.REJECT, null);
+
+        public final Action action;
+        // The order moved or dropped to make room, null when no other order is involved
+        public final ShelfPlacedOrder other;
+
+        private Placement(Action action, ShelfPlacedOrder other){
+            this.action = action;
+            this.other = other;
+        }
+
+        public static Placement overflow(){
+            return OVERFLOW;
+        }
+
+        public static Placement demote(ShelfPlacedOrder other){
+            return new Placement(Action.DEMOTE, other);
+        }
+
+        public static Placement move(ShelfPlacedOrder other){
+            return new Placement(Action.MOVE, other);
+        }
+
+        public static Placement drop(ShelfPlacedOrder other){
+            return new Placement(Action.DROP, other);
+        }
+
+        public static Placement reject(){
+            return REJECT;
+        }
+    }
+
+    /*
+        Decides where the given order goes, its preferred shelf being full. It must not change the shelves.
+     */
+    Placement place(CookedPlacedOrder cookedPlacedOrder, Shelves<?> shelves, long now);
+
+    /*
+        The overflow order to move to the given temperature shelf, which has just got room for it, or null to leave
+        the overflow shelf as it is. It must not change the shelves.
+     */
+    ShelfPlacedOrder promote(Shelf shelf, Shelves<?> shelves, long now);
+
+    /*
+        Resolves the policy from its configuration name, "cascade" or "cost-based". The cascade drops orders
+        following the given drop policy, and the cost-based policy expects orders to be picked up the given
+        milliseconds after they are ready.
+     */
+    static PlacementPolicy fromName(String name, DropPolicy dropPolicy, long expectedPickupMillis){
+        switch (name.trim().toLowerCase()){
+            case "cascade":
+                return new CascadePlacement(dropPolicy);
+            case "cost-based":
+                return new CostBasedPlacement(expectedPickupMillis);
+            default:
+                throw new IllegalArgumentException(String.format("Unknown placement policy %s", name));
+        }
+    }
+
+}
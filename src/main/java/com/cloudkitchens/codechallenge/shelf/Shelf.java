@@ -1,11 +1,15 @@
 package com.cloudkitchens.codechallenge.shelf;
 
 import com.cloudkitchens.codechallenge.order.CookedPlacedOrder;
+import com.cloudkitchens.codechallenge.order.OrderId;
+import com.cloudkitchens.codechallenge.order.OrderIdMap;
 import com.cloudkitchens.codechallenge.order.ShelfPlacedOrder;
+import com.cloudkitchens.codechallenge.timer.Clock;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.stream.Collectors;
 
 public class Shelf {
@@ -14,7 +18,20 @@ public class Shelf {
 
     public final int maxCapacity;
     public final ShelfType type;
-    private final HashMap<String, ShelfPlacedOrder> map;
+    private final OrderIdMap<ShelfSlot> map;
+    // Dense copy of the orders on this shelf, so we can pick an order by position (e.g. a random one).
+    // Removals swap the last slot into the freed position to keep it dense.
+    private final ShelfSlot[] slots;
+    // Orders on this shelf bucketed by their preferred temperature, each bucket ordered by expiration time.
+    // Orders only share a shelf with other temperatures on the overflow shelf.
+    private final EnumMap<ShelfType, ExpiryQueue> expiryQueues = new EnumMap<>(ShelfType.class);
+    // Same buckets ordered by how fast their orders decay on their preferred shelf, which is what the value of an
+    // order at its pick up depends on (see CostBasedPlacement)
+    private final EnumMap<ShelfType, TreeSet<ShelfSlot>> decayIndexes = new EnumMap<>(ShelfType.class);
+    private long sequence;
+    private final Clock clock;
+    // Source of the random picks, the random generator of the current thread when not given
+    private final Random random;
 
     public static enum ShelfType{
         COLD,
@@ -24,18 +41,41 @@ public class Shelf {
     }
 
     public Shelf(ShelfType type, int maxCapacity){
+        this(type, maxCapacity, Clock.SYSTEM, null);
+    }
+
+    public Shelf(ShelfType type, int maxCapacity, Clock clock, Random random){
         this.type = type;
         this.maxCapacity = maxCapacity;
-        this.map = new HashMap<>(maxCapacity);
+        this.clock = clock;
+        this.random = random;
+        this.map = new OrderIdMap<>(maxCapacity);
+        this.slots = new ShelfSlot[maxCapacity];
+
+        for (ShelfType temperature: ShelfType.values()){
+            if (temperature != ShelfType.OVERFLOW){
+                expiryQueues.put(temperature, new ExpiryQueue(Math.min(maxCapacity, 16)));
+                decayIndexes.put(temperature, new TreeSet<>(ShelfSlot.BY_DECAY));
+            }
+        }
     }
 
     public ShelfPlacedOrder placeOrder(CookedPlacedOrder cookedPlacedOrder){
         if (isFull())
             throw new RuntimeException(
                     String.format("The shelf %s is full and will not allow the placement of the order %s", type, cookedPlacedOrder.id));
+        // Placing it again would take the slot of another order and leave the first placement in the indexes
+        if (map.containsKey(cookedPlacedOrder.id))
+            throw new RuntimeException(
+                    String.format("The order %s is already on the shelf %s and cannot be placed on it again", cookedPlacedOrder.id, type));
         ShelfPlacedOrder placedOrder = new ShelfPlacedOrder(this, cookedPlacedOrder);
-        map.put(cookedPlacedOrder.id, placedOrder);
-        log.info("{} Shelf: Order {} has been added to the shelf", type, cookedPlacedOrder.id);
+        ShelfSlot slot = new ShelfSlot(placedOrder, sequence++);
+        map.put(cookedPlacedOrder.id, slot);
+        slot.denseIndex = map.size() - 1;
+        slots[slot.denseIndex] = slot;
+        expiryQueues.get(cookedPlacedOrder.preferredShelfType()).offer(slot);
+        decayIndexes.get(cookedPlacedOrder.preferredShelfType()).add(slot);
+        log.debug("{} Shelf: Order {} has been added to the shelf", type, cookedPlacedOrder.id);
         return placedOrder;
     }
 
@@ -43,9 +83,22 @@ public class Shelf {
         return takeOrder(placedOrder.id);
     }
 
-    public ShelfPlacedOrder takeOrder(String orderId){
-        log.info("{} Shelf: Order {} has been removed from the shelf", type, orderId);
-        return map.remove(orderId);
+    public ShelfPlacedOrder takeOrder(OrderId orderId){
+        log.debug("{} Shelf: Order {} has been removed from the shelf", type, orderId);
+        ShelfSlot slot = map.remove(orderId);
+        if (slot == null)
+            return null;
+
+        int last = map.size();
+        if (slot.denseIndex != last){
+            slots[slot.denseIndex] = slots[last];
+            slots[slot.denseIndex].denseIndex = slot.denseIndex;
+        }
+        slots[last] = null;
+
+        expiryQueues.get(slot.order.cookedPlacedOrder.preferredShelfType()).remove(slot);
+        decayIndexes.get(slot.order.cookedPlacedOrder.preferredShelfType()).remove(slot);
+        return slot.order;
     }
 
     public boolean isFull(){
@@ -57,15 +110,89 @@ public class Shelf {
     }
 
     public List<ShelfPlacedOrder> getShelfPlacedOrdersOrderedByOrderValue(){
-        return map.values().stream()
-                .sorted(Comparator.comparingLong(e -> e.remainingForWasteMillis()))
+        return Arrays.stream(slots, 0, map.size())
+                .sorted(Comparator.comparingLong(e -> e.expiresAtMillis))
+                .map(e -> e.order)
                 .collect(Collectors.toList());
     }
 
+    /*
+        The order on this shelf that is going to expire first, or null if the shelf is empty.
+     */
+    public ShelfPlacedOrder nextToExpire(){
+        ShelfSlot next = null;
+        for (ExpiryQueue queue: expiryQueues.values()){
+            ShelfSlot candidate = queue.peek();
+            if (candidate != null && (next == null || candidate.expiresAtMillis < next.expiresAtMillis))
+                next = candidate;
+        }
+        return (next == null) ? null : next.order;
+    }
+
+    /*
+        The order on this shelf whose preferred shelf is the given temperature and that is going to expire first,
+        or null if there is no such order on this shelf.
+     */
+    public ShelfPlacedOrder nextToExpire(ShelfType temperature){
+        ShelfSlot next = expiryQueues.get(temperature).peek();
+        return (next == null) ? null : next.order;
+    }
+
+    /*
+        The order on this shelf whose preferred shelf is the given temperature and that decays (on its preferred
+        shelf) the fastest without going over the given decay per second, or null if there is no such order.
+     */
+    public ShelfPlacedOrder decayFloor(ShelfType temperature, float decayPerSecond){
+        ShelfSlot floor = decayIndexes.get(temperature).floor(new ShelfSlot(decayPerSecond, Long.MAX_VALUE));
+        return (floor == null) ? null : floor.order;
+    }
+
+    /*
+        The order on this shelf whose preferred shelf is the given temperature and that decays (on its preferred
+        shelf) the slowest while decaying at least the given decay per second, or null if there is no such order.
+     */
+    public ShelfPlacedOrder decayCeiling(ShelfType temperature, float decayPerSecond){
+        ShelfSlot ceiling = decayIndexes.get(temperature).ceiling(new ShelfSlot(decayPerSecond, Long.MIN_VALUE));
+        return (ceiling == null) ? null : ceiling.order;
+    }
+
+    /*
+        How many orders on this shelf have the given temperature as their preferred shelf.
+     */
+    public int size(ShelfType temperature){
+        return expiryQueues.get(temperature).size();
+    }
+
     public ShelfPlacedOrder removeRandom(){
-        int randIndex = new Random().nextInt(map.size());
-        String randKey = new ArrayList<>(map.keySet()).get(randIndex);
-        return takeOrder(randKey);
+        return takeOrder(randomOrder());
+    }
+
+    /*
+        Any order on this shelf picked with uniform probability, or null if the shelf is empty.
+     */
+    public ShelfPlacedOrder randomOrder(){
+        if (map.isEmpty())
+            return null;
+        Random random = (this.random == null) ? ThreadLocalRandom.current() : this.random;
+        return slots[random.nextInt(map.size())].order;
+    }
+
+    /*
+        The order on this shelf that currently has the lowest value, or null if the shelf is empty.
+        Every order is valued against the same clock reading.
+     */
+    public ShelfPlacedOrder lowestValueOrder(){
+        long now = clock.millis();
+        ShelfPlacedOrder lowest = null;
+        float lowestValue = Float.MAX_VALUE;
+        for (int i = 0; i < map.size(); i++){
+            float value = slots[i].order.orderValue(now);
+            if (value < lowestValue){
+                lowest = slots[i].order;
+                lowestValue = value;
+            }
+        }
+        return lowest;
     }
 
     public int size(){
@@ -0,0 +1,189 @@
+package com.cloudkitchens.codechallenge.shelf;
+
+import akka.actor.typed.ActorRef;
+import akka.actor.typed.javadsl.ActorContext;
+import akka.actor.typed.javadsl.BehaviorBuilder;
+import akka.actor.typed.javadsl.Behaviors;
+import akka.actor.typed.javadsl.TimerScheduler;
+import com.cloudkitchens.codechallenge.eventlog.LogSampler;
+import com.cloudkitchens.codechallenge.eventlog.OrderEventLog;
+import com.cloudkitchens.codechallenge.kitchen.KitchenUnitConfig;
+import com.cloudkitchens.codechallenge.order.CookedPlacedOrder;
+import com.cloudkitchens.codechallenge.order.OrderActor;
+import com.cloudkitchens.codechallenge.order.OrderId;
+import com.cloudkitchens.codechallenge.order.OrderIdMap;
+import com.cloudkitchens.codechallenge.order.ShelfPlacedOrder;
+import com.cloudkitchens.codechallenge.timer.Clock;
+import com.cloudkitchens.codechallenge.timer.TimingWheel;
+import com.typesafe.config.Config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.List;
+
+/*
+    Base of the actors of the sharded shelves mode, where every shelf is owned by its own actor
+    (see TemperatureShelfActor and OverflowShelfActor).
+
+    It takes care of what is common to all of them: placing orders on its shelf, controlling their expiration
+    and keeping the reference of the order actors so they can be advised when their order is wasted.
+ */
+abstract class ShelfShardActor {
+
+    protected final Logger log = LoggerFactory.getLogger(getClass());
+
+    // Hops allowed to a removal request looking for an order that has been moved in the meantime
+    protected static final int MAX_REMOVAL_HOPS = 4;
+
+    /*
+        Removal request forwarded between shards because the order was not where the requester expected it to be.
+     */
+    static class ForwardedRemoval implements ShelveManagerActor.Command {
+        public final ShelfPlacedOrder shelfPlacedOrder;
+        public final int hops;
+
+        public ForwardedRemoval(ShelfPlacedOrder shelfPlacedOrder, int hops){
+            this.shelfPlacedOrder = shelfPlacedOrder;
+            this.hops = hops;
+        }
+    }
+
+    private static enum ExpirationTick implements ShelveManagerActor.Command { INSTANCE }
+
+    protected ShelfShardActor(ActorContext<ShelveManagerActor.Message> context,
+                              TimerScheduler<ShelveManagerActor.Message> timer,
+                              Shelf shelf,
+                              Clock clock,
+                              OrderEventLog eventLog){
+        this.context = context;
+        this.timer = timer;
+        this.shelf = shelf;
+        this.clock = clock;
+        this.eventLog = eventLog;
+
+        Config wheelConfig = KitchenUnitConfig.config.getConfig("timing-wheel");
+        this.expirations = new TimingWheel<>(wheelConfig.getLong("tick-millis"), wheelConfig.getInt("wheel-size"),
+                clock.millis());
+        this.inventorySampler = new LogSampler(KitchenUnitConfig.config.getLong("event-log.inventory-interval-millis"));
+    }
+
+    protected final ActorContext<ShelveManagerActor.Message> context;
+    protected final TimerScheduler<ShelveManagerActor.Message> timer;
+    protected final Shelf shelf;
+    protected final Clock clock;
+    protected final OrderEventLog eventLog;
+    // Order actor of every order placed on this shelf
+    protected final OrderIdMap<ActorRef<OrderActor.Message>> orders = new OrderIdMap<>();
+    private final TimingWheel<OrderId, ShelfPlacedOrder> expirations;
+    private final LogSampler inventorySampler;
+    // Size of the shelf as last reported to the event log
+    private int reportedOccupancy;
+
+
+    protected BehaviorBuilder<ShelveManagerActor.Message> receiveBuilder(){
+        return Behaviors.receive(ShelveManagerActor.Message.class)
+                .onMessage(ExpirationTick.class, this::onExpirationTick);
+    }
+
+    /*
+        Hook for the shards that need to react to room being released on their shelf.
+     */
+    protected void onShelfChanged(){
+    }
+
+    private akka.actor.typed.Behavior<ShelveManagerActor.Message> onExpirationTick(ExpirationTick expirationTick){
+
+        long now = clock.millis();
+        List<ShelfPlacedOrder> expired = expirations.advance(now);
+
+        for (ShelfPlacedOrder spo: expired){
+            log.debug("[ORDERID: {}] - Shelf Placed Order has Expired and is going to be wasted from the {} shelf,",
+                    spo.id, shelf.type);
+            shelf.takeOrder(spo.id);
+            eventLog.record(OrderEventLog.Transition.EXPIRED, spo.id, shelf.type, spo.orderValue(now));
+            orders.remove(spo.id).tell(new OrderActor.OrderWastedEvent(spo));
+        }
+
+        if (!expired.isEmpty()){
+            onShelfChanged();
+            logCurrentShelfInventory();
+        }
+
+        if (expirations.isEmpty())
+            timer.cancel(ExpirationTick.INSTANCE);
+
+        return Behaviors.same();
+    }
+
+    protected ShelfPlacedOrder placeOnShelf(CookedPlacedOrder cookedPlacedOrder, ActorRef<OrderActor.Message> order){
+        return placeOnShelf(cookedPlacedOrder, order, OrderEventLog.Transition.PLACED);
+    }
+
+    protected ShelfPlacedOrder placeOnShelf(CookedPlacedOrder cookedPlacedOrder, ActorRef<OrderActor.Message> order,
+                                            OrderEventLog.Transition transition){
+        long now = clock.millis();
+        ShelfPlacedOrder spo = shelf.placeOrder(cookedPlacedOrder);
+        log.debug("[ORDERID: {}] - Order put on the {} Shelf", spo.id, shelf.type);
+        if (spo.wasted(now)){
+            // Defensive, just in case an already expired order makes its way to a shelf
+            shelf.takeOrder(spo);
+            eventLog.record(OrderEventLog.Transition.EXPIRED, spo.id, shelf.type, spo.orderValue(now));
+            order.tell(new OrderActor.OrderWastedEvent(spo));
+        }else{
+            eventLog.record(transition, spo.id, shelf.type, spo.orderValue(now));
+            if (expirations.isEmpty())
+                timer.startTimerAtFixedRate(ExpirationTick.INSTANCE, ExpirationTick.INSTANCE, Duration.ofMillis(expirations.tickMillis));
+            expirations.schedule(spo.id, spo, spo.remainingForWasteMillis(now), now);
+            orders.put(spo.id, order);
+            order.tell(new OrderActor.OrderPlacedOnShelfEvent(spo));
+        }
+        return spo;
+    }
+
+    /*
+        Takes the order from this shelf, returning its order actor or null if the order is not on this shelf.
+     */
+    protected ActorRef<OrderActor.Message> takeFromShelf(OrderId orderId){
+        ActorRef<OrderActor.Message> order = orders.remove(orderId);
+        if (order != null){
+            expirations.cancel(orderId);
+            shelf.takeOrder(orderId);
+        }
+        return order;
+    }
+
+    /*
+        Takes the order picked up by its courier from this shelf, returning false if the order is not on this shelf.
+     */
+    protected boolean pickUpFromShelf(ShelfPlacedOrder spo){
+        if (takeFromShelf(spo.id) == null)
+            return false;
+        eventLog.record(OrderEventLog.Transition.PICKED_UP, spo.id, shelf.type, spo.orderValue(clock.millis()));
+        return true;
+    }
+
+    /*
+        Takes the order from this shelf and advises its order actor it has been dropped.
+     */
+    protected void dropOrder(ShelfPlacedOrder spo){
+        ActorRef<OrderActor.Message> order = takeFromShelf(spo.id);
+        if (order != null){
+            eventLog.record(OrderEventLog.Transition.DROPPED, spo.id, shelf.type, spo.orderValue(clock.millis()));
+            order.tell(new OrderActor.OrderWastedEvent(spo));
+        }
+    }
+
+    protected void logCurrentShelfInventory(){
+        if (shelf.size() != reportedOccupancy){
+            eventLog.occupancyChanged(shelf.type, shelf.size() - reportedOccupancy);
+            reportedOccupancy = shelf.size();
+        }
+
+        // The inventory would be logged after every operation otherwise
+        if (!inventorySampler.sample(clock.millis()))
+            return;
+        log.info("*** Current {} Shelf Inventory: [{}]", shelf.type, shelf.size());
+    }
+
+}
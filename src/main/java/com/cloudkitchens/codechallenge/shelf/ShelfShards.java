@@ -0,0 +1,39 @@
+package com.cloudkitchens.codechallenge.shelf;
+
+import akka.actor.typed.ActorRef;
+import com.cloudkitchens.codechallenge.order.CookedPlacedOrder;
+
+import java.util.EnumMap;
+
+/*
+    The shelf actor each order has to talk to, given its preferred temperature.
+
+    With a single shelve manager every temperature resolves to the same actor, whereas in the sharded
+    mode every temperature resolves to the actor that owns its shelf.
+ */
+public class ShelfShards {
+
+    private final EnumMap<Shelf.ShelfType, ActorRef<ShelveManagerActor.Message>> shards = new EnumMap<>(Shelf.ShelfType.class);
+
+    public ShelfShards(ActorRef<ShelveManagerActor.Message> shelvesManager){
+        this(shelvesManager, shelvesManager, shelvesManager);
+    }
+
+    public ShelfShards(ActorRef<ShelveManagerActor.Message> hotShelf,
+                       ActorRef<ShelveManagerActor.Message> coldShelf,
+                       ActorRef<ShelveManagerActor.Message> frozenShelf){
+        shards.put(Shelf.ShelfType.HOT, hotShelf);
+        shards.put(Shelf.ShelfType.COLD, coldShelf);
+        shards.put(Shelf.ShelfType.FROZEN, frozenShelf);
+    }
+
+    public ActorRef<ShelveManagerActor.Message> of(Shelf.ShelfType type){
+        return shards.get(type);
+    }
+
+    public ActorRef<ShelveManagerActor.Message> of(CookedPlacedOrder cookedPlacedOrder){
+        // Orders with an unsupported temperature are refused by the kitchen unit, they never get this far
+        return of(cookedPlacedOrder.preferredShelfType());
+    }
+
+}
@@ -0,0 +1,43 @@
+package com.cloudkitchens.codechallenge.shelf;
+
+import com.cloudkitchens.codechallenge.order.ShelfPlacedOrder;
+
+import java.util.Comparator;
+
+/*
+    Holds an order placed on a shelf together with its position in the shelf indexes,
+    so the order can be removed from them without any search.
+ */
+class ShelfSlot {
+
+    final ShelfPlacedOrder order;
+    final long expiresAtMillis;
+    final float decayPerSecond;
+    // Breaks ties between orders decaying at the same pace, in the order they were placed
+    final long sequence;
+    int queueIndex = -1;
+    int denseIndex = -1;
+
+    ShelfSlot(ShelfPlacedOrder order, long sequence){
+        this.order = order;
+        this.expiresAtMillis = order.expiresAtMillis;
+        this.decayPerSecond = order.cookedPlacedOrder.placedOrder.decayPerSecond();
+        this.sequence = sequence;
+    }
+
+    /*
+        Stands for any order decaying at the given pace, to look up the ones around it.
+     */
+    ShelfSlot(float decayPerSecond, long sequence){
+        this.order = null;
+        this.expiresAtMillis = Long.MAX_VALUE;
+        this.decayPerSecond = decayPerSecond;
+        this.sequence = sequence;
+    }
+
+    static final Comparator<ShelfSlot> BY_DECAY = (a, b) -> {
+        int byDecay = Float.compare(a.decayPerSecond, b.decayPerSecond);
+        return (byDecay != 0) ? byDecay : Long.compare(a.sequence, b.sequence);
+    };
+
+}
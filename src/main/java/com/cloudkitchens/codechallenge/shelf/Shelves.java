@@ -0,0 +1,306 @@
+package com.cloudkitchens.codechallenge.shelf;
+
+import com.cloudkitchens.codechallenge.eventlog.OrderEventLog;
+import com.cloudkitchens.codechallenge.order.CookedPlacedOrder;
+import com.cloudkitchens.codechallenge.order.OrderId;
+import com.cloudkitchens.codechallenge.order.OrderIdMap;
+import com.cloudkitchens.codechallenge.order.ShelfPlacedOrder;
+import com.cloudkitchens.codechallenge.timer.Clock;
+import com.cloudkitchens.codechallenge.timer.TimingWheel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Random;
+
+/*
+    All the shelves of a kitchen unit and the rules to place orders on them: the preferred shelf first and, once it
+    is full, whatever the placement policy decides (the overflow shelf, moving or dropping another order to make
+    room, or wasting the order). Once an order leaves a temperature shelf (picked up or wasted), the overflow order
+    the placement policy chooses takes its room right away, rather than decaying twice as fast until a new order
+    needs the overflow shelf. It also controls the expiration of the orders on the shelves.
+
+    It does not know anything about actors, it is driven by whoever owns it (the ShelveManagerActor in real time, or
+    the KitchenSimulation in virtual time) so both of them take exactly the same decisions. The owner gets to know
+    what happened to every order through the listener, along with the handle it gave when the order was placed
+    (e.g. the order actor). Every transition is also recorded in the given event log.
+
+    This class is not thread safe.
+ */
+public class Shelves<R> {
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    public interface Listener<R> {
+
+        void onPlaced(ShelfPlacedOrder shelfPlacedOrder, R order);
+
+        void onWasted(ShelfPlacedOrder shelfPlacedOrder, R order);
+
+    }
+
+    private static class OrderLocation<R> {
+        public final R order;
+        public final Shelf shelf;
+
+        public OrderLocation(R order, Shelf shelf){
+            this.order = order;
+            this.shelf = shelf;
+        }
+    }
+
+    public Shelves(ShelvesProperties shelvesProperties, DropPolicy dropPolicy, TimingWheel<OrderId, ShelfPlacedOrder> expirations,
+                   Clock clock, Random random, OrderEventLog eventLog, Listener<R> listener){
+        this(shelvesProperties, new CascadePlacement(dropPolicy), expirations, clock, random, eventLog, listener);
+    }
+
+    public Shelves(ShelvesProperties shelvesProperties, PlacementPolicy placementPolicy, TimingWheel<OrderId, ShelfPlacedOrder> expirations,
+                   Clock clock, Random random, OrderEventLog eventLog, Listener<R> listener){
+        this.placementPolicy = placementPolicy;
+        this.expirations = expirations;
+        this.eventLog = eventLog;
+        this.listener = listener;
+
+        for (Shelf.ShelfType stype: Shelf.ShelfType.values())
+            shelves.put(stype, new Shelf(stype, shelvesProperties.getMaxCapacityByType(stype), clock, random));
+    }
+
+    private final PlacementPolicy placementPolicy;
+    // Expiration of every placed order, keyed by order id
+    private final TimingWheel<OrderId, ShelfPlacedOrder> expirations;
+    private final OrderEventLog eventLog;
+    private final Listener<R> listener;
+    private final EnumMap<Shelf.ShelfType, Shelf> shelves = new EnumMap<>(Shelf.ShelfType.class);
+    // Size of every shelf as last reported to the event log, by shelf type ordinal
+    private final int[] reportedOccupancy = new int[Shelf.ShelfType.values().length];
+
+    // Need to keep a reference of the order around in case this order is chosen to be dropped
+    // to make room for a new order (it sucks but it can happen if shelves are flooded with requests.
+    // This also servers another purpose, which is to keep track of which shelf each order is located.
+    // We cannot 100% trust in the ShelfPlacedOrder object that we hand over to the order. Although
+    // it is an immutable object it could happen that the order is moved to different shelves
+    // and in that case the order will be temporarily holding an old version of the ShelfPlacedOrder object.
+    // Such object will be eventually replaced since we emmit an event, but it might be to late and the
+    // courier might be already arrived and the order has issue a command to remove its order from the order shelf
+    // before we get the change to propagate the change.
+    // Therefore upon receiving a removal request form the order we should only rely on our vision
+    // of where the order is located.
+    private final OrderIdMap<OrderLocation<R>> orderLocator = new OrderIdMap<>();
+
+
+    public Shelf shelf(Shelf.ShelfType type){
+        return shelves.get(type);
+    }
+
+    public boolean hasPendingExpirations(){
+        return !expirations.isEmpty();
+    }
+
+    public long expirationTickMillis(){
+        return expirations.tickMillis;
+    }
+
+    public void place(CookedPlacedOrder cookedPlacedOrder, R order, long now){
+        Shelf shelf = shelves.get(cookedPlacedOrder.preferredShelfType());
+        if(shelf.isFull()){
+            log.debug("[ORDERID: {}] - {} Shelf is full, going to place this order following the {} placement policy",
+                    cookedPlacedOrder.id, shelf.type, placementPolicy);
+            placeOnFullShelf(shelf, cookedPlacedOrder, order, now);
+        }
+        else{
+            placeOnShelf(shelf, cookedPlacedOrder, order, now, OrderEventLog.Transition.PLACED);
+        }
+        reportOccupancy();
+    }
+
+    /*
+        Puts an order recovered after a crash back on the shelf it was on (expiring as it would have there), or
+        places it as a new order if that shelf has no room for it.
+     */
+    public void restore(CookedPlacedOrder cookedPlacedOrder, R order, Shelf.ShelfType shelfType, long now){
+        Shelf shelf = shelves.get(shelfType);
+        if (shelf.isFull()){
+            place(cookedPlacedOrder, order, now);
+            return;
+        }
+        placeOnShelf(shelf, cookedPlacedOrder, order, now, OrderEventLog.Transition.PLACED);
+        reportOccupancy();
+    }
+
+    /*
+        Takes the order from the shelf it is on, returning it or null if it is not on the shelves anymore.
+     */
+    public ShelfPlacedOrder remove(OrderId orderId, long now){
+        OrderLocation<R> orderLocation = orderLocator.remove(orderId);
+        if (orderLocation == null){
+            log.debug("[ORDERID: {}] - Order is not on the shelves anymore, nothing to remove", orderId);
+            return null;
+        }
+
+        expirations.cancel(orderId);
+        ShelfPlacedOrder spo = orderLocation.shelf.takeOrder(orderId);
+        eventLog.record(OrderEventLog.Transition.PICKED_UP, orderId, orderLocation.shelf.type, spo.orderValue(now));
+        rebalance(orderLocation.shelf, now);
+        reportOccupancy();
+        return spo;
+    }
+
+    /*
+        Wastes every order expired by the given time, returning how many of them were wasted.
+     */
+    public int expire(long now){
+        List<ShelfPlacedOrder> expired = expirations.advance(now);
+
+        for (ShelfPlacedOrder spo: expired){
+            OrderLocation<R> orderLocation = orderLocator.remove(spo.id);
+
+            log.debug("[ORDERID: {}] - Shelf Placed Order has Expired and is going to be wasted from the {} shelf,",
+                    spo.id, orderLocation.shelf.type);
+
+            //Remove expired (wasted) order from its shelf.
+            orderLocation.shelf.takeOrder(spo.id);
+            eventLog.record(OrderEventLog.Transition.EXPIRED, spo.id, orderLocation.shelf.type, spo.orderValue(now));
+
+            listener.onWasted(spo, orderLocation.order);
+        }
+
+        if (!expired.isEmpty()){
+            // Only once every expired order is gone, so none of them is moved instead of wasted
+            for (Shelf shelf: shelves.values())
+                rebalance(shelf, now);
+            reportOccupancy();
+        }
+
+        return expired.size();
+    }
+
+    public void logCurrentInventory(){
+        log.info("*** Current Shelves Inventory: HOT[{}], COLD[{}], FROZEN[{}], OVERFLOW[{}]",
+                shelves.get(Shelf.ShelfType.HOT).size(),
+                shelves.get(Shelf.ShelfType.COLD).size(),
+                shelves.get(Shelf.ShelfType.FROZEN).size(),
+                shelves.get(Shelf.ShelfType.OVERFLOW).size());
+    }
+
+    private void reportOccupancy(){
+        for (Shelf shelf: shelves.values()){
+            int delta = shelf.size() - reportedOccupancy[shelf.type.ordinal()];
+            if (delta != 0){
+                reportedOccupancy[shelf.type.ordinal()] = shelf.size();
+                eventLog.occupancyChanged(shelf.type, delta);
+            }
+        }
+    }
+
+    private void placeOnFullShelf(Shelf shelf, CookedPlacedOrder cookedPlacedOrder, R order, long now){
+
+        Shelf overflowShelf = shelves.get(Shelf.ShelfType.OVERFLOW);
+        PlacementPolicy.Placement placement = placementPolicy.place(cookedPlacedOrder, this, now);
+
+        switch (placement.action){
+            case OVERFLOW:
+                log.debug("[ORDERID: {}] - Moving this order to the overflow shelf", cookedPlacedOrder.id);
+                placeOnShelf(overflowShelf, cookedPlacedOrder, order, now, OrderEventLog.Transition.PLACED);
+                break;
+
+            case DEMOTE:
+                log.debug("[ORDERID: {}] - Order {} is going to be moved from the {} to the overflow shelf to make room for the current order",
+                        cookedPlacedOrder.id, placement.other.id, shelf.type);
+                move(placement.other, shelf, overflowShelf, now);
+                placeOnShelf(shelf, cookedPlacedOrder, order, now, OrderEventLog.Transition.PLACED);
+                break;
+
+            case MOVE:
+                log.debug("[ORDERID: {}] - Order {} is going to be moved from the overflow to the {} shelf to make room for the current order",
+                        cookedPlacedOrder.id, placement.other.id, placement.other.cookedPlacedOrder.preferredShelfType());
+                move(placement.other, overflowShelf, shelves.get(placement.other.cookedPlacedOrder.preferredShelfType()), now);
+                //Place current order on the overflow shelf
+                placeOnShelf(overflowShelf, cookedPlacedOrder, order, now, OrderEventLog.Transition.PLACED);
+                break;
+
+            case DROP:
+                ShelfPlacedOrder toBeDropped = overflowShelf.takeOrder(placement.other);
+
+                log.debug("[ORDERID: {}] - Order {} picked by the {} placement policy to be wasted and will not be available for pick up",
+                        cookedPlacedOrder.id, toBeDropped.id, placementPolicy);
+
+                // Cancel time of wasted order
+                expirations.cancel(toBeDropped.id);
+                eventLog.record(OrderEventLog.Transition.DROPPED, toBeDropped.id, overflowShelf.type, toBeDropped.orderValue(now));
+
+                //Propagate waste event to order management
+                listener.onWasted(toBeDropped, orderLocator.remove(toBeDropped.id).order);
+
+                //Place current order on the overflow shelf
+                placeOnShelf(overflowShelf, cookedPlacedOrder, order, now, OrderEventLog.Transition.PLACED);
+                break;
+
+            case REJECT:
+                // The order never makes it to a shelf, it is wasted as if it had been dropped from the overflow shelf
+                ShelfPlacedOrder rejected = new ShelfPlacedOrder(overflowShelf, cookedPlacedOrder);
+
+                log.debug("[ORDERID: {}] - Order picked by the {} placement policy to be wasted and will not be available for pick up",
+                        cookedPlacedOrder.id, placementPolicy);
+
+                eventLog.record(OrderEventLog.Transition.DROPPED, rejected.id, overflowShelf.type, rejected.orderValue(now));
+                listener.onWasted(rejected, order);
+                break;
+        }
+
+    }
+
+    /*
+        Moves overflow orders to the given temperature shelf while it has room and the placement policy finds an
+        order worth it. Every move is a couple of O(log n) updates of the shelf indexes and the expiration wheel
+        (the order is rescheduled for its new decay), no order is looked at but the chosen ones.
+     */
+    private void rebalance(Shelf shelf, long now){
+        if (shelf.type == Shelf.ShelfType.OVERFLOW)
+            return;
+
+        Shelf overflowShelf = shelves.get(Shelf.ShelfType.OVERFLOW);
+        while (!shelf.isFull() && overflowShelf.size(shelf.type) > 0){
+            ShelfPlacedOrder toPromote = placementPolicy.promote(shelf, this, now);
+            if (toPromote == null)
+                return;
+
+            log.debug("[ORDERID: {}] - Order is going to be moved from the overflow to the {} shelf, which has room for it",
+                    toPromote.id, shelf.type);
+            move(toPromote, overflowShelf, shelf, now);
+        }
+    }
+
+    private void move(ShelfPlacedOrder shelfPlacedOrder, Shelf from, Shelf to, long now){
+        from.takeOrder(shelfPlacedOrder);
+        placeOnShelf(to, shelfPlacedOrder.cookedPlacedOrder, orderLocator.get(shelfPlacedOrder.id).order, now,
+                OrderEventLog.Transition.MOVED);
+    }
+
+    private void placeOnShelf(Shelf shelf, CookedPlacedOrder cookedPlacedOrder, R order, long now,
+                              OrderEventLog.Transition transition){
+        ShelfPlacedOrder spo = shelf.placeOrder(cookedPlacedOrder);
+        log.debug("[ORDERID: {}] - Order put on the {} Shelf", spo.id, shelf.type);
+        if (spo.wasted(now)){
+            // This is just a defensive piece of code just in case an already expired order tries to
+            // make its way to a shelf. This could only happen if the mailbox of the shelve manager
+            // is extremelly backlogged.
+            shelf.takeOrder(spo);
+            orderLocator.remove(spo.id);
+            expirations.cancel(spo.id);
+            eventLog.record(OrderEventLog.Transition.EXPIRED, spo.id, shelf.type, spo.orderValue(now));
+            listener.onWasted(spo, order);
+        }else{
+            eventLog.record(transition, spo.id, shelf.type, spo.orderValue(now));
+            // Schedule the expiration of this order (replacing the previous one if the order is being moved)
+            expirations.schedule(spo.id, spo, spo.remainingForWasteMillis(now), now);
+            // Need to keep a reference of the order around in case this order is chosen to be dropped
+            // to make room for a new order (it sucks but it can happen if shelves are flooded with requests
+            orderLocator.put(spo.id, new OrderLocation<>(order, shelf));
+
+            // Advice the order its package was placed in a shelf
+            listener.onPlaced(spo, order);
+        }
+    }
+
+}
@@ -18,4 +18,8 @@ public class ShelvesProperties {
     public int getMaxCapacityByType(Shelf.ShelfType stype){
         return shelvesProperties.get(stype);
     }
+
+    public int getTotalMaxCapacity(){
+        return shelvesProperties.values().stream().mapToInt(Integer::intValue).sum();
+    }
 }
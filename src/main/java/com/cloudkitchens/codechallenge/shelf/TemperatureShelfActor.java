@@ -0,0 +1,141 @@
+package com.cloudkitchens.codechallenge.shelf;
+
+import akka.actor.typed.ActorRef;
+import akka.actor.typed.Behavior;
+import akka.actor.typed.javadsl.ActorContext;
+import akka.actor.typed.javadsl.Behaviors;
+import akka.actor.typed.javadsl.TimerScheduler;
+import com.cloudkitchens.codechallenge.eventlog.OrderEventLog;
+import com.cloudkitchens.codechallenge.order.OrderActor;
+import com.cloudkitchens.codechallenge.order.ShelfPlacedOrder;
+import com.cloudkitchens.codechallenge.timer.Clock;
+
+/*
+    Owner of one temperature shelf (HOT, COLD or FROZEN) in the sharded shelves mode.
+
+    Orders always talk to the shard of their preferred temperature. The shard places the orders it has room for,
+    and hands the others off to the overflow shard. Removal requests for orders that are not on this shelf
+    are forwarded to the overflow shard as well, since that is the only other place they can be.
+
+    The overflow shard is advised whenever this shelf gets full or gets room again, so it knows where it can
+    relocate its orders to. Reporting only those transitions (rather than every change) keeps the overflow shard
+    out of the way of the placements that do not involve it.
+ */
+public class TemperatureShelfActor extends ShelfShardActor {
+
+    /*
+        Request from the overflow shard to move one of its orders to this shelf.
+     */
+    static class Relocate implements ShelveManagerActor.Command {
+        public final ShelfPlacedOrder shelfPlacedOrder;
+        public final ActorRef<OrderActor.Message> order;
+
+        public Relocate(ShelfPlacedOrder shelfPlacedOrder, ActorRef<OrderActor.Message> order){
+            this.shelfPlacedOrder = shelfPlacedOrder;
+            this.order = order;
+        }
+    }
+
+
+    public static Behavior<ShelveManagerActor.Message> create(Shelf.ShelfType type, int maxCapacity,
+                                                              ActorRef<ShelveManagerActor.Message> overflowShelf){
+        return create(type, maxCapacity, overflowShelf, OrderEventLog.DISABLED);
+    }
+
+    public static Behavior<ShelveManagerActor.Message> create(Shelf.ShelfType type, int maxCapacity,
+                                                              ActorRef<ShelveManagerActor.Message> overflowShelf,
+                                                              OrderEventLog eventLog){
+        return Behaviors.setup(ctx -> Behaviors.withTimers(timer ->
+                new TemperatureShelfActor(ctx, timer, new Shelf(type, maxCapacity), overflowShelf, eventLog).receive()));
+    }
+
+    private TemperatureShelfActor(ActorContext<ShelveManagerActor.Message> context,
+                                  TimerScheduler<ShelveManagerActor.Message> timer,
+                                  Shelf shelf,
+                                  ActorRef<ShelveManagerActor.Message> overflowShelf,
+                                  OrderEventLog eventLog){
+        super(context, timer, shelf, Clock.SYSTEM, eventLog);
+        this.overflowShelf = overflowShelf;
+
+        reportCapacity();
+    }
+
+    private final ActorRef<ShelveManagerActor.Message> overflowShelf;
+    // Room the overflow shard believes this shelf has. It counts down the relocations it sends us on its own.
+    private int believedAvailable;
+
+
+    public Behavior<ShelveManagerActor.Message> receive(){
+        return receiveBuilder()
+                .onMessage(ShelveManagerActor.PlaceCookedOrder.class, this::onPlaceCookedOrder)
+                .onMessage(ShelveManagerActor.RemoveOrderFromShelf.class, this::onRemoveOrderFromShelf)
+                .onMessage(ForwardedRemoval.class, this::onForwardedRemoval)
+                .onMessage(Relocate.class, this::onRelocate)
+                .build();
+    }
+
+    private Behavior<ShelveManagerActor.Message> onPlaceCookedOrder(ShelveManagerActor.PlaceCookedOrder placeCookedOrder){
+        if (shelf.isFull()){
+            log.debug("[ORDERID: {}] - {} Shelf is full handing this order off to the overflow shelf", placeCookedOrder.cookedPlacedOrder.id, shelf.type);
+            overflowShelf.tell(new OverflowShelfActor.OverflowPlacement(placeCookedOrder));
+        }else{
+            placeOnShelf(placeCookedOrder.cookedPlacedOrder, placeCookedOrder.order);
+            onShelfChanged();
+            logCurrentShelfInventory();
+        }
+        return Behaviors.same();
+    }
+
+    private Behavior<ShelveManagerActor.Message> onRemoveOrderFromShelf(ShelveManagerActor.RemoveOrderFromShelf removeOrderFromShelf){
+        log.debug("[ORDERID: {}] - Receiving request to remove order from shelf", removeOrderFromShelf.shelfPlacedOrder.id);
+        remove(removeOrderFromShelf.shelfPlacedOrder, 0);
+        return Behaviors.same();
+    }
+
+    private Behavior<ShelveManagerActor.Message> onForwardedRemoval(ForwardedRemoval forwardedRemoval){
+        remove(forwardedRemoval.shelfPlacedOrder, forwardedRemoval.hops);
+        return Behaviors.same();
+    }
+
+    private Behavior<ShelveManagerActor.Message> onRelocate(Relocate relocate){
+        ShelfPlacedOrder spo = relocate.shelfPlacedOrder;
+        if (shelf.isFull()){
+            // The overflow shard had an outdated view of this shelf, it needs to find another place for it
+            log.debug("[ORDERID: {}] - {} Shelf got full before the relocation, sending the order back", spo.id, shelf.type);
+            overflowShelf.tell(new OverflowShelfActor.RelocationRejected(spo, relocate.order));
+            believedAvailable = 0;
+        }else{
+            log.debug("[ORDERID: {}] - Order moved from the overflow to the {} shelf", spo.id, shelf.type);
+            placeOnShelf(spo.cookedPlacedOrder, relocate.order, OrderEventLog.Transition.MOVED);
+            overflowShelf.tell(new OverflowShelfActor.RelocationCompleted(spo.id));
+            believedAvailable--;
+            onShelfChanged();
+            logCurrentShelfInventory();
+        }
+        return Behaviors.same();
+    }
+
+    private void remove(ShelfPlacedOrder spo, int hops){
+        if (pickUpFromShelf(spo)){
+            onShelfChanged();
+            logCurrentShelfInventory();
+        }else if (hops < MAX_REMOVAL_HOPS){
+            // Not here, so it is on (or on its way from) the overflow shelf
+            overflowShelf.tell(new ForwardedRemoval(spo, hops + 1));
+        }else{
+            log.warn("[ORDERID: {}] - Giving up on removing an order that could not be found on any shelf", spo.id);
+        }
+    }
+
+    @Override
+    protected void onShelfChanged(){
+        if (shelf.isFull() != (believedAvailable <= 0))
+            reportCapacity();
+    }
+
+    private void reportCapacity(){
+        believedAvailable = shelf.availableCapacity();
+        overflowShelf.tell(new OverflowShelfActor.ShardCapacity(shelf.type, context.getSelf(), shelf.availableCapacity()));
+    }
+
+}
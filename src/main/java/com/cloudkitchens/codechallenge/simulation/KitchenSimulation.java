@@ -0,0 +1,321 @@
+package com.cloudkitchens.codechallenge.simulation;
+
+import com.cloudkitchens.codechallenge.courier.CourierFleetProperties;
+import com.cloudkitchens.codechallenge.courier.DispatchStrategy;
+import com.cloudkitchens.codechallenge.ingestion.AdaptiveRateController;
+import com.cloudkitchens.codechallenge.journal.JournalState;
+import com.cloudkitchens.codechallenge.journal.OrderJournal;
+import com.cloudkitchens.codechallenge.order.CookedPlacedOrder;
+import com.cloudkitchens.codechallenge.order.OrderId;
+import com.cloudkitchens.codechallenge.order.OrderVo;
+import com.cloudkitchens.codechallenge.order.PlacedOrder;
+import com.cloudkitchens.codechallenge.order.ShelfPlacedOrder;
+import com.cloudkitchens.codechallenge.shelf.CascadePlacement;
+import com.cloudkitchens.codechallenge.shelf.DropPolicy;
+import com.cloudkitchens.codechallenge.shelf.PlacementPolicy;
+import com.cloudkitchens.codechallenge.shelf.Shelf;
+import com.cloudkitchens.codechallenge.shelf.Shelves;
+import com.cloudkitchens.codechallenge.shelf.ShelvesProperties;
+import com.cloudkitchens.codechallenge.timer.TimingWheel;
+import com.cloudkitchens.codechallenge.timer.VirtualClock;
+import com.typesafe.config.Config;
+import org.HdrHistogram.Histogram;
+
+import java.util.Iterator;
+import java.util.Random;
+
+/*
+    Runs a kitchen unit in virtual time: a discrete event loop jumps straight from one event (an order coming in
+    or a courier arriving) to the next one, rather than waiting for it, so a day of orders is handled as fast as
+    the CPU allows.
+
+    The shelves are the same ones the ShelveManagerActor drives (see Shelves), including the expiration timing wheel,
+    so the orders are placed, moved, expired and dropped following exactly the same rules as in real time. Courier
+    arrivals come from a seeded random generator, so two runs with the same seed take the same decisions.
+
+    Orders are cooked as soon as they come in and placed on the shelves right away, the dispatch strategy being told
+    of them when they are received and when they are placed, as the kitchen unit does. Couriers are dispatched by any of the dispatch strategies (see DispatchStrategy), and
+    the report tells the courier trips, the value delivered and how long food and couriers waited for each other,
+    so the strategies can be compared on the same orders.
+
+    Given a rate controller, orders come in at the rate it decides rather than at a fixed rate: every control
+    interval it gets a sample of the kitchen (overflow shelf occupancy, orders dropped since the previous sample and
+    orders waiting for their courier), as it does from the kitchen unit.
+
+    Given an order journal, the run goes on from where the journal was left by a crashed run: the orders it already
+    took are skipped, and its orders in flight are put back on their shelves (with their expirations) and get a
+    courier again.
+ */
+public class KitchenSimulation {
+
+    public static class Report {
+        public final long requestCount;
+        public final long requestDeliveryCount;
+        public final long requestDroppedCount;
+        // How long the orders took in virtual time
+        public final long virtualMillis;
+        // Couriers that got to the kitchen, whether their orders were still there or not
+        public final long courierTrips;
+        // Sum of the values of the delivered orders when they were picked up
+        public final double deliveredValue;
+        // From the orders being on a shelf to their pick up, in milliseconds
+        public final Histogram foodWait;
+        // From the couriers getting to the kitchen to their pick up, in milliseconds
+        public final Histogram courierWait;
+
+        public Report(long requestCount, long requestDeliveryCount, long requestDroppedCount, long virtualMillis,
+                      long courierTrips, double deliveredValue, Histogram foodWait, Histogram courierWait){
+            this.requestCount = requestCount;
+            this.requestDeliveryCount = requestDeliveryCount;
+            this.requestDroppedCount = requestDroppedCount;
+            this.virtualMillis = virtualMillis;
+            this.courierTrips = courierTrips;
+            this.deliveredValue = deliveredValue;
+            this.foodWait = foodWait;
+            this.courierWait = courierWait;
+        }
+
+        public double deliveredValuePerTrip(){
+            return (courierTrips == 0) ? 0 : deliveredValue / courierTrips;
+        }
+
+        public double wasteRate(){
+            return (requestCount == 0) ? 0 : (double) requestDroppedCount / requestCount;
+        }
+    }
+
+    public KitchenSimulation(ShelvesProperties shelvesProperties, DropPolicy dropPolicy, double ordersPerSecond,
+                             int minCourierArrivalSecs, int maxCourierArrivalSecs, long tickMillis, int wheelSize, long seed){
+        this(shelvesProperties, dropPolicy, ordersPerSecond, minCourierArrivalSecs, maxCourierArrivalSecs,
+                DispatchStrategy.Kind.MATCHED, null, tickMillis, wheelSize, seed);
+    }
+
+    /*
+        Simulation with couriers dispatched by the given strategy, the fleet properties are only needed by the fleet.
+     */
+    public KitchenSimulation(ShelvesProperties shelvesProperties, DropPolicy dropPolicy, double ordersPerSecond,
+                             int minCourierArrivalSecs, int maxCourierArrivalSecs, DispatchStrategy.Kind dispatchKind,
+                             CourierFleetProperties courierFleetProperties, long tickMillis, int wheelSize, long seed){
+        this(shelvesProperties, new CascadePlacement(dropPolicy), ordersPerSecond, minCourierArrivalSecs,
+                maxCourierArrivalSecs, dispatchKind, courierFleetProperties, tickMillis, wheelSize, seed);
+    }
+
+    public KitchenSimulation(ShelvesProperties shelvesProperties, PlacementPolicy placementPolicy, double ordersPerSecond,
+                             int minCourierArrivalSecs, int maxCourierArrivalSecs, DispatchStrategy.Kind dispatchKind,
+                             CourierFleetProperties courierFleetProperties, long tickMillis, int wheelSize, long seed){
+        this(shelvesProperties, placementPolicy, ordersPerSecond, minCourierArrivalSecs, maxCourierArrivalSecs,
+                dispatchKind, courierFleetProperties, null, 0, tickMillis, wheelSize, seed);
+    }
+
+    /*
+        Simulation with the ingestion rate decided by the given rate controller (starting at its own rate) every
+        control interval, no rate controller meaning orders come in at the fixed order rate.
+     */
+    public KitchenSimulation(ShelvesProperties shelvesProperties, PlacementPolicy placementPolicy, double ordersPerSecond,
+                             int minCourierArrivalSecs, int maxCourierArrivalSecs, DispatchStrategy.Kind dispatchKind,
+                             CourierFleetProperties courierFleetProperties, AdaptiveRateController rateController,
+                             long controlIntervalMillis, long tickMillis, int wheelSize, long seed){
+        if (ordersPerSecond <= 0)
+            throw new IllegalArgumentException(String.format("The order rate must be positive, got %s", ordersPerSecond));
+        if (rateController != null && controlIntervalMillis <= 0)
+            throw new IllegalArgumentException(String.format("The control interval must be positive, got %s", controlIntervalMillis));
+
+        this.shelvesProperties = shelvesProperties;
+        this.placementPolicy = placementPolicy;
+        this.ordersPerSecond = ordersPerSecond;
+        this.minCourierArrivalSecs = minCourierArrivalSecs;
+        this.maxCourierArrivalSecs = maxCourierArrivalSecs;
+        this.dispatchKind = dispatchKind;
+        this.courierFleetProperties = courierFleetProperties;
+        this.rateController = rateController;
+        this.controlIntervalMillis = controlIntervalMillis;
+        this.tickMillis = tickMillis;
+        this.wheelSize = wheelSize;
+        this.seed = seed;
+    }
+
+    public static KitchenSimulation fromConfig(Config conf){
+        Config shelvesConfig = conf.getConfig("shelf-max-capacity");
+        Config courierConfig = conf.getConfig("courier-arrival-range-second");
+        Config wheelConfig = conf.getConfig("timing-wheel");
+        Config dispatchConfig = conf.getConfig("courier-dispatch");
+        boolean adaptiveRate = "adaptive".equals(conf.getString("ingestion-rate.mode"));
+        return new KitchenSimulation(
+                new ShelvesProperties(
+                        shelvesConfig.getInt("hot"),
+                        shelvesConfig.getInt("cold"),
+                        shelvesConfig.getInt("frozen"),
+                        shelvesConfig.getInt("overflow")),
+                PlacementPolicy.fromName(conf.getString("placement-policy"),
+                        DropPolicy.fromName(conf.getString("overflow-drop-policy")),
+                        (courierConfig.getInt("min") + courierConfig.getInt("max")) * 1000L / 2),
+                conf.getDouble("order-ingestion-rate-per-second"),
+                courierConfig.getInt("min"),
+                courierConfig.getInt("max"),
+                DispatchStrategy.Kind.fromName(dispatchConfig.getString("strategy")),
+                CourierFleetProperties.fromConfig(dispatchConfig.getConfig("fleet")),
+                adaptiveRate ? AdaptiveRateController.fromConfig(conf) : null,
+                conf.getLong("ingestion-rate.control-interval-millis"),
+                wheelConfig.getLong("tick-millis"),
+                wheelConfig.getInt("wheel-size"),
+                conf.getLong("virtual-time.seed"));
+    }
+
+    private final ShelvesProperties shelvesProperties;
+    private final PlacementPolicy placementPolicy;
+    private final double ordersPerSecond;
+    private final int minCourierArrivalSecs;
+    private final int maxCourierArrivalSecs;
+    private final DispatchStrategy.Kind dispatchKind;
+    private final CourierFleetProperties courierFleetProperties;
+    private final AdaptiveRateController rateController;
+    private final long controlIntervalMillis;
+    private final long tickMillis;
+    private final int wheelSize;
+    private final long seed;
+
+    private long requestCount;
+    private long requestDeliveryCount;
+    private long requestDroppedCount;
+    private double deliveredValue;
+    private int droppedSinceLastSample;
+    private Shelves<PlacedOrder> shelves;
+    private DispatchStrategy<PlacedOrder> dispatch;
+
+
+    public Report run(Iterator<OrderVo> orders){
+        // Virtual time runs are about the outcome, the transitions of millions of orders are not recorded
+        return run(orders, OrderJournal.DISABLED);
+    }
+
+    /*
+        Runs the orders recording their lifecycle in the given journal, going on from what it recovered. The counters
+        of the report include the orders of the crashed run, the courier numbers only the ones of this run.
+     */
+    public Report run(Iterator<OrderVo> orders, OrderJournal journal){
+        JournalState recovered = journal.recovered();
+        // The orders already taken are not taken twice
+        for (long i = 0; i < recovered.inputOffset() && orders.hasNext(); i++)
+            orders.next();
+
+        requestCount = recovered.inputOffset();
+        requestDeliveryCount = recovered.pickedUp();
+        requestDroppedCount = recovered.wasted();
+        deliveredValue = recovered.pickedUpValue();
+        droppedSinceLastSample = 0;
+
+        Random random = new Random(seed);
+        // Time goes on from when the next order comes in
+        VirtualClock clock = new VirtualClock((long) (requestCount * 1000 / ordersPerSecond));
+
+        shelves = new Shelves<>(shelvesProperties, placementPolicy,
+                new TimingWheel<>(tickMillis, wheelSize, clock.millis()), clock, random,
+                journal,
+                new Shelves.Listener<PlacedOrder>() {
+                    @Override
+                    public void onPlaced(ShelfPlacedOrder shelfPlacedOrder, PlacedOrder order) {
+                        dispatch.ready(shelfPlacedOrder, order, clock.millis());
+                    }
+
+                    @Override
+                    public void onWasted(ShelfPlacedOrder shelfPlacedOrder, PlacedOrder order) {
+                        requestDroppedCount++;
+                        droppedSinceLastSample++;
+                        dispatch.cancel(shelfPlacedOrder.id);
+                    }
+                });
+
+        dispatch = DispatchStrategy.create(dispatchKind, courierFleetProperties, minCourierArrivalSecs,
+                maxCourierArrivalSecs, random, (shelfPlacedOrder, order, now) -> pickUp(shelfPlacedOrder.id, now, journal));
+
+        for (JournalState.JournaledOrder journaledOrder: recovered.orders()){
+            CookedPlacedOrder cookedPlacedOrder = journaledOrder.cookedPlacedOrder;
+            if (journaledOrder.shelfType() == null){
+                dispatch.received(cookedPlacedOrder.id, clock.millis());
+                shelves.place(cookedPlacedOrder, cookedPlacedOrder.placedOrder, clock.millis());
+            }else
+                shelves.restore(cookedPlacedOrder, cookedPlacedOrder.placedOrder, journaledOrder.shelfType(), clock.millis());
+        }
+
+        // With a rate controller every order comes in the current rate after the previous one
+        double adaptiveOrderMillis = clock.millis();
+        long nextSampleMillis = clock.millis() + controlIntervalMillis;
+        while (true){
+            long nextOrderMillis = !orders.hasNext() ? Long.MAX_VALUE
+                    : (rateController == null) ? (long) (requestCount * 1000 / ordersPerSecond) : (long) adaptiveOrderMillis;
+            // Couriers still on their way back once every order is gone do not make a difference
+            long nextCourierMillis = dispatch.isIdle() ? Long.MAX_VALUE : dispatch.nextEventMillis();
+            if (nextOrderMillis == Long.MAX_VALUE && nextCourierMillis == Long.MAX_VALUE)
+                break;
+            // The rate only matters while there are orders to come in
+            long nextRateSampleMillis = (rateController == null || nextOrderMillis == Long.MAX_VALUE)
+                    ? Long.MAX_VALUE : nextSampleMillis;
+
+            long now = Math.min(nextRateSampleMillis, Math.min(nextOrderMillis, nextCourierMillis));
+            clock.advanceTo(now);
+            // Whatever expired up to this moment is wasted before the event is handled, as the expiration
+            // tick of the shelve manager would have done
+            shelves.expire(now);
+
+            if (nextRateSampleMillis <= Math.min(nextOrderMillis, nextCourierMillis)){
+                sampleKitchen();
+                nextSampleMillis += controlIntervalMillis;
+            }else if (nextCourierMillis <= nextOrderMillis){
+                dispatch.advance(now);
+            }else{
+                OrderVo orderVo = orders.next();
+                PlacedOrder placedOrder = fromOrderVo(orderVo);
+                requestCount++;
+                if (rateController != null)
+                    adaptiveOrderMillis += 1000 / rateController.rate();
+
+                CookedPlacedOrder cookedPlacedOrder = new CookedPlacedOrder(placedOrder, now);
+                journal.taken(cookedPlacedOrder);
+                // Refused as the kitchen unit does when no shelf takes the temperature of the order, or it does not
+                // tell when it goes to waste
+                if (placedOrder.preferredShelfType == null || orderVo.getShelfLife() == null || orderVo.getDecayRate() == null){
+                    requestDroppedCount++;
+                    journal.record(OrderJournal.Transition.REFUSED, placedOrder.id);
+                    continue;
+                }
+                dispatch.received(placedOrder.id, now);
+                shelves.place(cookedPlacedOrder, placedOrder, now);
+            }
+        }
+
+        return new Report(requestCount, requestDeliveryCount, requestDroppedCount, clock.millis(),
+                dispatch.trips(), deliveredValue, dispatch.foodWait(), dispatch.courierWait());
+    }
+
+    /*
+        Hands the rate controller the same signals the kitchen unit samples: the overflow shelf occupancy, the orders
+        dropped since the previous sample and the orders taken but neither delivered nor dropped yet.
+     */
+    private void sampleKitchen(){
+        Shelf overflow = shelves.shelf(Shelf.ShelfType.OVERFLOW);
+        float overflowOccupancy = (overflow.maxCapacity == 0) ? 1 : (float) overflow.size() / overflow.maxCapacity;
+        rateController.update(new AdaptiveRateController.Signals(overflowOccupancy, droppedSinceLastSample,
+                (int) (requestCount - requestDeliveryCount - requestDroppedCount)));
+        droppedSinceLastSample = 0;
+    }
+
+    private void pickUp(OrderId orderId, long now, OrderJournal journal){
+        ShelfPlacedOrder spo = shelves.remove(orderId, now);
+        if (spo != null){
+            requestDeliveryCount++;
+            deliveredValue += spo.orderValue(now);
+            // Couriers deliver right away in virtual time
+            journal.record(OrderJournal.Transition.DELIVERED, orderId);
+        }
+    }
+
+    private PlacedOrder fromOrderVo(OrderVo vo){
+        return new PlacedOrder(
+                vo.getOrderId(),
+                vo.getName(),
+                vo.getTemp(),
+                (vo.getShelfLife() == null) ? 0 : vo.getShelfLife(),
+                (vo.getDecayRate() == null) ? 0 : vo.getDecayRate());
+    }
+
+}
@@ -0,0 +1,16 @@
+package com.cloudkitchens.codechallenge.timer;
+
+/*
+    Source of the current time for everything that depends on it (order values, expirations and courier arrivals).
+
+    Every reading is in milliseconds and readings of the same clock only ever move forward, so they can be safely
+    compared to work out ages and deadlines. Readings of different clocks must not be mixed.
+ */
+public interface Clock {
+
+    // Clock of the running kitchen, shared by all its actors so their readings can be compared
+    Clock SYSTEM = new MonotonicClock();
+
+    long millis();
+
+}
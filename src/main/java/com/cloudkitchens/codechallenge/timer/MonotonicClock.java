@@ -0,0 +1,18 @@
+package com.cloudkitchens.codechallenge.timer;
+
+/*
+    Clock driven by System.nanoTime(), so it is not affected by wall clock adjustments (NTP, daylight saving, etc.)
+    while orders are on the shelves. It starts at the wall clock time it is created, which keeps its readings close
+    to System.currentTimeMillis() for logs and reports.
+ */
+public class MonotonicClock implements Clock {
+
+    private final long originMillis = System.currentTimeMillis();
+    private final long originNanos = System.nanoTime();
+
+    @Override
+    public long millis() {
+        return originMillis + (System.nanoTime() - originNanos) / 1_000_000;
+    }
+
+}
@@ -0,0 +1,143 @@
+package com.cloudkitchens.codechallenge.timer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+/*
+    Hashed timing wheel (Varghese & Lauck) used to control a large number of timeouts from within a single actor.
+
+    Every timeout lands in the bucket of its deadline tick, and a timeout further away than a full rotation of
+    the wheel simply stays in its bucket until the wheel gets to its deadline. Scheduling and cancelling are O(1)
+    (buckets are intrusive doubly linked lists, and timeouts are indexed by key so they can be cancelled or
+    replaced), whereas firing is batched: advancing the wheel returns every timeout due up to that moment at once.
+
+    This class is not thread safe. It is meant to be owned by a single actor which drives it with a periodic tick.
+ */
+public class TimingWheel<K, V> {
+
+    private static class Timeout<K, V> {
+        final K key;
+        final V value;
+        final long deadlineTick;
+        final int bucket;
+        Timeout<K, V> prev;
+        Timeout<K, V> next;
+
+        Timeout(K key, V value, long deadlineTick, int bucket){
+            this.key = key;
+            this.value = value;
+            this.deadlineTick = deadlineTick;
+            this.bucket = bucket;
+        }
+    }
+
+    public final long tickMillis;
+    private final int mask;
+    private final Timeout<K, V>[] buckets;
+    private final HashMap<K, Timeout<K, V>> timeouts = new HashMap<>();
+    private final long startMillis;
+    // The next tick that has not been processed yet
+    private long currentTick;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public TimingWheel(long tickMillis, int wheelSize, long nowMillis){
+        if (tickMillis <= 0)
+            throw new IllegalArgumentException("The tick of the timing wheel must be positive");
+        if (wheelSize <= 0 || Integer.bitCount(wheelSize) != 1)
+            throw new IllegalArgumentException(String.format("The size of the timing wheel must be a power of two, got %s", wheelSize));
+
+        this.tickMillis = tickMillis;
+        this.mask = wheelSize - 1;
+        this.buckets = (Timeout<K, V>[]) new Timeout[wheelSize];
+        this.startMillis = nowMillis;
+    }
+
+    /*
+        Schedule the value to be fired after the given delay. If there is already a timeout for the same key it
+        gets replaced, the same way Akka's TimerScheduler does.
+     */
+    public void schedule(K key, V value, long delayMillis, long nowMillis){
+        cancel(key);
+
+        // Round it up so a timeout never fires before its delay is elapsed, and never schedule it in the past
+        long deadlineTick = Math.max(currentTick, ceilDiv(nowMillis + delayMillis - startMillis, tickMillis));
+        int bucket = (int) (deadlineTick & mask);
+
+        Timeout<K, V> timeout = new Timeout<>(key, value, deadlineTick, bucket);
+        Timeout<K, V> head = buckets[bucket];
+        timeout.next = head;
+        if (head != null)
+            head.prev = timeout;
+        buckets[bucket] = timeout;
+
+        timeouts.put(key, timeout);
+    }
+
+    public V cancel(K key){
+        Timeout<K, V> timeout = timeouts.remove(key);
+        if (timeout == null)
+            return null;
+        unlink(timeout);
+        return timeout.value;
+    }
+
+    public boolean isScheduled(K key){
+        return timeouts.containsKey(key);
+    }
+
+    /*
+        Move the wheel forward up to the given moment, returning all the values whose deadline has elapsed.
+     */
+    public List<V> advance(long nowMillis){
+        long targetTick = Math.floorDiv(nowMillis - startMillis, tickMillis);
+        if (targetTick < currentTick || timeouts.isEmpty()){
+            currentTick = Math.max(currentTick, targetTick + 1);
+            return Collections.emptyList();
+        }
+
+        List<V> expired = new ArrayList<>();
+        // After a full rotation every bucket has been visited, so there is no point to keep spinning
+        long ticks = Math.min(targetTick - currentTick + 1, buckets.length);
+        for (long tick = currentTick; tick < currentTick + ticks; tick++){
+            Timeout<K, V> timeout = buckets[(int) (tick & mask)];
+            while (timeout != null){
+                Timeout<K, V> next = timeout.next;
+                if (timeout.deadlineTick <= targetTick){
+                    unlink(timeout);
+                    timeouts.remove(timeout.key);
+                    expired.add(timeout.value);
+                }
+                timeout = next;
+            }
+        }
+        currentTick = targetTick + 1;
+
+        return expired;
+    }
+
+    public int size(){
+        return timeouts.size();
+    }
+
+    public boolean isEmpty(){
+        return timeouts.isEmpty();
+    }
+
+    private void unlink(Timeout<K, V> timeout){
+        if (timeout.prev != null)
+            timeout.prev.next = timeout.next;
+        else
+            buckets[timeout.bucket] = timeout.next;
+        if (timeout.next != null)
+            timeout.next.prev = timeout.prev;
+        timeout.prev = null;
+        timeout.next = null;
+    }
+
+    private static long ceilDiv(long x, long y){
+        return -Math.floorDiv(-x, y);
+    }
+
+}
@@ -0,0 +1,26 @@
+package com.cloudkitchens.codechallenge.timer;
+
+/*
+    Clock that only moves when it is told to, used to run the kitchen in virtual time (see KitchenSimulation).
+    This class is not thread safe, it is meant to be driven by a single event loop.
+ */
+public class VirtualClock implements Clock {
+
+    private long millis;
+
+    public VirtualClock(long startMillis){
+        this.millis = startMillis;
+    }
+
+    @Override
+    public long millis() {
+        return millis;
+    }
+
+    public void advanceTo(long millis){
+        if (millis < this.millis)
+            throw new IllegalArgumentException(String.format("A clock cannot go back in time, from %s to %s", this.millis, millis));
+        this.millis = millis;
+    }
+
+}
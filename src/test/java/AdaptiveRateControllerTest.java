@@ -0,0 +1,68 @@
+import com.cloudkitchens.codechallenge.courier.DispatchStrategy;
+import com.cloudkitchens.codechallenge.ingestion.AdaptiveRateController;
+import com.cloudkitchens.codechallenge.loadtest.LoadTestOrders;
+import com.cloudkitchens.codechallenge.shelf.CascadePlacement;
+import com.cloudkitchens.codechallenge.shelf.DropPolicy;
+import com.cloudkitchens.codechallenge.shelf.ShelvesProperties;
+import com.cloudkitchens.codechallenge.simulation.KitchenSimulation;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+import static org.junit.Assert.*;
+
+public class AdaptiveRateControllerTest {
+
+    @Test
+    public void testBacksOffUnderPressure(){
+
+        AdaptiveRateController controller = new AdaptiveRateController(10, 1, 20, 1, 0.5, 0.8F, 45);
+
+        assertEquals(11, controller.update(new AdaptiveRateController.Signals(0.5F, 0, 20)), 0.001);
+        assertEquals(5.5, controller.update(new AdaptiveRateController.Signals(0.5F, 1, 20)), 0.001);
+        assertEquals(2.75, controller.update(new AdaptiveRateController.Signals(0.9F, 0, 20)), 0.001);
+        assertEquals(1.375, controller.update(new AdaptiveRateController.Signals(0.5F, 0, 45)), 0.001);
+        assertEquals(1, controller.update(new AdaptiveRateController.Signals(0.9F, 0, 45)), 0.001);
+
+        assertEquals(1, controller.increases());
+        assertEquals(4, controller.decreases());
+        assertEquals(1, controller.droppedOrders());
+
+    }
+
+    @Test
+    public void testBeatsFixedRateOnReplayedOrders() throws IOException {
+
+        // orders.json replayed ten times in a row (so the steady state outweighs the start and the end of the run),
+        // at 100 times the default rate of 2 orders per second, through the shelves the kitchen unit uses
+        double replayRate = 2 * 100;
+        AdaptiveRateController controller = new AdaptiveRateController(replayRate, 1, replayRate, 1, 0.5, 0.8F, 45);
+
+        KitchenSimulation.Report fixed = simulation(replayRate, null)
+                .run(LoadTestOrders.replay(Paths.get("orders.json"), 10));
+        KitchenSimulation.Report adaptive = simulation(replayRate, controller)
+                .run(LoadTestOrders.replay(Paths.get("orders.json"), 10));
+
+        assertEquals(fixed.requestCount, adaptive.requestCount);
+        assertTrue(String.format("Adaptive %.2f delivered/s, fixed %.2f delivered/s",
+                        deliveredPerSecond(adaptive), deliveredPerSecond(fixed)),
+                deliveredPerSecond(adaptive) > deliveredPerSecond(fixed));
+        // Flooding the shelves gets most orders dropped before their courier arrives
+        assertTrue(adaptive.requestDeliveryCount > 10 * fixed.requestDeliveryCount);
+        assertTrue(adaptive.requestDroppedCount < fixed.requestDroppedCount);
+        assertTrue(controller.decreases() > 0);
+
+    }
+
+    private static KitchenSimulation simulation(double ordersPerSecond, AdaptiveRateController rateController){
+        return new KitchenSimulation(new ShelvesProperties(10, 10, 10, 15),
+                new CascadePlacement(DropPolicy.fromName("random")), ordersPerSecond, 2, 6,
+                DispatchStrategy.Kind.MATCHED, null, rateController, 100, 10, 512, 42);
+    }
+
+    private static double deliveredPerSecond(KitchenSimulation.Report report){
+        return report.requestDeliveryCount * 1000.0 / report.virtualMillis;
+    }
+
+}
@@ -0,0 +1,122 @@
+import com.cloudkitchens.codechallenge.eventlog.OrderEventLog;
+import com.cloudkitchens.codechallenge.order.CookedPlacedOrder;
+import com.cloudkitchens.codechallenge.order.PlacedOrder;
+import com.cloudkitchens.codechallenge.order.ShelfPlacedOrder;
+import com.cloudkitchens.codechallenge.shelf.CostBasedPlacement;
+import com.cloudkitchens.codechallenge.shelf.Shelf;
+import com.cloudkitchens.codechallenge.shelf.Shelves;
+import com.cloudkitchens.codechallenge.shelf.ShelvesProperties;
+import com.cloudkitchens.codechallenge.timer.TimingWheel;
+import com.cloudkitchens.codechallenge.timer.VirtualClock;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+public class CostBasedPlacementTest {
+
+    private final List<String> wasted = new ArrayList<>();
+
+    // One slot on every temperature shelf and two on the overflow shelf, orders expected to be picked up 4 seconds
+    // after they are ready
+    private Shelves<String> newShelves(){
+        VirtualClock clock = new VirtualClock(0);
+        return new Shelves<>(new ShelvesProperties(1, 1, 1, 2), new CostBasedPlacement(4000),
+                new TimingWheel<>(10, 512, 0), clock, new Random(42), OrderEventLog.DISABLED,
+                new Shelves.Listener<String>() {
+                    @Override
+                    public void onPlaced(ShelfPlacedOrder shelfPlacedOrder, String order) {
+                    }
+
+                    @Override
+                    public void onWasted(ShelfPlacedOrder shelfPlacedOrder, String order) {
+                        wasted.add(order);
+                    }
+                });
+    }
+
+    @Test
+    public void testFastDecayingOrderTakesThePreferredShelf() {
+
+        Shelves<String> shelves = newShelves();
+        PlacedOrder slow = newPlacedOrder("hot", 300, 0.5F);
+        PlacedOrder fast = newPlacedOrder("hot", 20, 1F);
+        shelves.place(new CookedPlacedOrder(slow, 0), "slow", 0);
+        shelves.place(new CookedPlacedOrder(fast, 0), "fast", 0);
+
+        // The slow order loses next to nothing on the overflow shelf by its pick up, the fast one a fifth of its value
+        assertEquals(fast.id, shelves.shelf(Shelf.ShelfType.HOT).nextToExpire().id);
+        assertEquals(slow.id, shelves.shelf(Shelf.ShelfType.OVERFLOW).nextToExpire().id);
+        assertTrue(wasted.isEmpty());
+
+    }
+
+    @Test
+    public void testDropsOrderWastedBeforeItsPickUp() {
+
+        Shelves<String> shelves = newShelves();
+        fillTemperatureShelves(shelves);
+        PlacedOrder doomed = newPlacedOrder("hot", 3, 1F);
+        shelves.place(new CookedPlacedOrder(doomed, 0), "doomed", 0);
+        shelves.place(new CookedPlacedOrder(newPlacedOrder("cold", 300, 0.5F), 0), "cold", 0);
+
+        // The doomed order is worth nothing on the overflow shelf by the time its courier gets there
+        shelves.place(new CookedPlacedOrder(newPlacedOrder("frozen", 300, 0.5F), 0), "frozen", 0);
+        assertEquals(1, wasted.size());
+        assertEquals("doomed", wasted.get(0));
+        assertEquals(2, shelves.shelf(Shelf.ShelfType.OVERFLOW).size());
+
+    }
+
+    @Test
+    public void testWastesNewOrderWorthLessThanAnyOther() {
+
+        Shelves<String> shelves = newShelves();
+        fillTemperatureShelves(shelves);
+        shelves.place(new CookedPlacedOrder(newPlacedOrder("hot", 300, 0.5F), 0), "hot", 0);
+        shelves.place(new CookedPlacedOrder(newPlacedOrder("cold", 300, 0.5F), 0), "cold", 0);
+
+        PlacedOrder doomed = newPlacedOrder("frozen", 3, 1F);
+        shelves.place(new CookedPlacedOrder(doomed, 0), "doomed", 0);
+        assertEquals(1, wasted.size());
+        assertEquals("doomed", wasted.get(0));
+        assertEquals(0, shelves.shelf(Shelf.ShelfType.OVERFLOW).size(Shelf.ShelfType.FROZEN));
+
+    }
+
+    @Test
+    public void testPromotesOrderGainingTheMost() {
+
+        Shelves<String> shelves = newShelves();
+        // Half of its value would be lost on the overflow shelf, nothing gains more from the hot shelf
+        PlacedOrder onHotShelf = newPlacedOrder("hot", 8, 1F);
+        shelves.place(new CookedPlacedOrder(onHotShelf, 0), "on hot shelf", 0);
+        PlacedOrder closestToExpire = newPlacedOrder("hot", 5, 1F);
+        PlacedOrder mostGaining = newPlacedOrder("hot", 10, 1F);
+        shelves.place(new CookedPlacedOrder(closestToExpire, 0), "closest to expire", 0);
+        shelves.place(new CookedPlacedOrder(mostGaining, 0), "most gaining", 0);
+        assertEquals(2, shelves.shelf(Shelf.ShelfType.OVERFLOW).size(Shelf.ShelfType.HOT));
+
+        // The room left on the hot shelf goes to the order losing the most value on the overflow shelf by its pick
+        // up, rather than to the one closest to expire, which is worth little by then on any shelf
+        shelves.remove(onHotShelf.id, 0);
+        assertEquals(mostGaining.id, shelves.shelf(Shelf.ShelfType.HOT).nextToExpire().id);
+        assertEquals(closestToExpire.id, shelves.shelf(Shelf.ShelfType.OVERFLOW).nextToExpire().id);
+        assertTrue(wasted.isEmpty());
+
+    }
+
+    private static void fillTemperatureShelves(Shelves<String> shelves){
+        for (String temp: new String[]{"hot", "cold", "frozen"})
+            shelves.place(new CookedPlacedOrder(newPlacedOrder(temp, 100, 0.1F), 0), temp, 0);
+    }
+
+    private static PlacedOrder newPlacedOrder(String temp, int shelfLife, float decayRate){
+        return new PlacedOrder(UUID.randomUUID().toString(), "some order", temp, shelfLife, decayRate);
+    }
+
+}
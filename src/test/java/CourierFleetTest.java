@@ -0,0 +1,84 @@
+import com.cloudkitchens.codechallenge.courier.CourierFleet;
+import com.cloudkitchens.codechallenge.courier.CourierFleetProperties;
+import com.cloudkitchens.codechallenge.order.ShelfPlacedOrder;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class CourierFleetTest {
+
+    private final List<ShelfPlacedOrder> pickedUp = new ArrayList<>();
+
+    // Couriers always take 2 seconds to get to the kitchen and 4 seconds to be back after a pick up
+    private CourierFleet<String> newFleet(int size, int batchSize){
+        return new CourierFleet<>(new CourierFleetProperties(size, batchSize, 1000, 4, 4), 2, 2, new Random(42),
+                (shelfPlacedOrder, order, now) -> pickedUp.add(shelfPlacedOrder));
+    }
+
+    @Test
+    public void testFullBatchLeavesRightAway() {
+
+        CourierFleet<String> fleet = newFleet(1, 3);
+        for (int i = 0; i < 3; i++)
+            fleet.ready(ShelfPlacedOrders.newShelfPlacedOrder(300, 0.5F), "order", 0);
+
+        assertEquals(0, fleet.couriersAtBase());
+        assertEquals(2000, fleet.nextEventMillis());
+
+        fleet.advance(2000);
+        assertEquals(3, pickedUp.size());
+        assertEquals(1, fleet.trips());
+        assertTrue(fleet.isIdle());
+
+    }
+
+    @Test
+    public void testBatchWindow() {
+
+        CourierFleet<String> fleet = newFleet(1, 3);
+        fleet.ready(ShelfPlacedOrders.newShelfPlacedOrder(300, 0.5F), "order", 0);
+        fleet.ready(ShelfPlacedOrders.newShelfPlacedOrder(300, 0.5F), "order", 500);
+
+        // The courier waits for the window of the first order to be over
+        assertEquals(1, fleet.couriersAtBase());
+        assertEquals(1000, fleet.nextEventMillis());
+
+        fleet.advance(1000);
+        assertEquals(0, fleet.couriersAtBase());
+
+        fleet.advance(3000);
+        assertEquals(2, pickedUp.size());
+
+    }
+
+    @Test
+    public void testClosestToExpireFirst() {
+
+        CourierFleet<String> fleet = newFleet(1, 1);
+        ShelfPlacedOrder longLived = ShelfPlacedOrders.newShelfPlacedOrder(300, 0.5F);
+        ShelfPlacedOrder shortLived = ShelfPlacedOrders.newShelfPlacedOrder(10, 0.5F);
+        ShelfPlacedOrder cancelled = ShelfPlacedOrders.newShelfPlacedOrder(5, 0.5F);
+        fleet.ready(longLived, "long lived", 0);
+        fleet.ready(shortLived, "short lived", 0);
+        fleet.ready(cancelled, "cancelled", 0);
+        fleet.cancel(cancelled.id);
+
+        fleet.advance(2000);
+        assertEquals(1, pickedUp.size());
+        assertEquals(shortLived.id, pickedUp.get(0).id);
+
+        // The only courier is back 4 seconds after the pick up, and goes for the order left
+        assertEquals(6000, fleet.nextEventMillis());
+        fleet.advance(6000);
+        fleet.advance(8000);
+        assertEquals(2, pickedUp.size());
+        assertEquals(longLived.id, pickedUp.get(1).id);
+        assertEquals(2, fleet.trips());
+
+    }
+
+}
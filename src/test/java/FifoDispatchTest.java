@@ -0,0 +1,153 @@
+import com.cloudkitchens.codechallenge.courier.FifoDispatch;
+import com.cloudkitchens.codechallenge.order.CookedPlacedOrder;
+import com.cloudkitchens.codechallenge.order.PlacedOrder;
+import com.cloudkitchens.codechallenge.order.ShelfPlacedOrder;
+import com.cloudkitchens.codechallenge.shelf.Shelf;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class FifoDispatchTest {
+
+    private final List<ShelfPlacedOrder> pickedUp = new ArrayList<>();
+
+    // Couriers always take 2 seconds to get to the kitchen
+    private FifoDispatch<String> newDispatch(){
+        return new FifoDispatch<>(2, 2, new Random(42),
+                (shelfPlacedOrder, order, now) -> pickedUp.add(shelfPlacedOrder));
+    }
+
+    @Test
+    public void testClosestToWasteFirst() {
+
+        FifoDispatch<String> dispatch = newDispatch();
+        ShelfPlacedOrder longLived = ShelfPlacedOrders.newShelfPlacedOrder(300, 0.5F);
+        ShelfPlacedOrder shortLived = ShelfPlacedOrders.newShelfPlacedOrder(10, 0.5F);
+        dispatch.ready(longLived, "long lived", 0);
+        dispatch.ready(shortLived, "short lived", 1000);
+
+        // The courier sent for the long lived order takes the short lived one
+        dispatch.advance(2000);
+        assertEquals(1, pickedUp.size());
+        assertEquals(shortLived.id, pickedUp.get(0).id);
+        assertEquals(1000, dispatch.foodWait().getMaxValue());
+
+        dispatch.advance(3000);
+        assertEquals(2, pickedUp.size());
+        assertEquals(longLived.id, pickedUp.get(1).id);
+        assertEquals(2, dispatch.trips());
+        assertTrue(dispatch.isIdle());
+
+    }
+
+    @Test
+    public void testMovedOrderKeepsOneEntry() {
+
+        FifoDispatch<String> dispatch = newDispatch();
+        ShelfPlacedOrder overflow = ShelfPlacedOrders.newShelfPlacedOrder(20, 0.5F);
+        ShelfPlacedOrder other = ShelfPlacedOrders.newShelfPlacedOrder(30, 0.5F);
+        dispatch.ready(overflow, "moved", 0);
+        dispatch.ready(other, "other", 0);
+        // Moved to a shelf where it lasts longer than the other order
+        ShelfPlacedOrder moved = new ShelfPlacedOrder(new Shelf(Shelf.ShelfType.HOT, 10),
+                new CookedPlacedOrder(new PlacedOrder(overflow.id, "some order", "hot", 300, 0.5F), 0));
+        dispatch.ready(moved, "moved", 500);
+        assertEquals(2, dispatch.waitingOrders());
+
+        dispatch.advance(2000);
+        assertEquals(2, pickedUp.size());
+        assertEquals(other.id, pickedUp.get(0).id);
+        assertSame(moved, pickedUp.get(1));
+        assertTrue(dispatch.isIdle());
+
+    }
+
+    @Test
+    public void testCourierWaitsForNextReadyOrder() {
+
+        FifoDispatch<String> dispatch = newDispatch();
+        ShelfPlacedOrder order = ShelfPlacedOrders.newShelfPlacedOrder(300, 0.5F);
+        // Its courier is sent as soon as the order is received, and gets there before it is ready
+        dispatch.received(order.id, 0);
+        dispatch.advance(2000);
+        assertEquals(1, dispatch.couriersAtKitchen());
+        assertTrue(pickedUp.isEmpty());
+
+        dispatch.ready(order, "order", 3500);
+        assertEquals(1, pickedUp.size());
+        assertEquals(0, dispatch.couriersAtKitchen());
+        assertEquals(1500, dispatch.courierWait().getMaxValue());
+        assertEquals(0, dispatch.foodWait().getMaxValue());
+        assertEquals(1, dispatch.trips());
+        assertTrue(dispatch.isIdle());
+
+    }
+
+    @Test
+    public void testCourierSentHomeWhenOrderIsWasted() {
+
+        FifoDispatch<String> dispatch = newDispatch();
+        ShelfPlacedOrder wasted = ShelfPlacedOrders.newShelfPlacedOrder(1, 0.5F);
+        dispatch.received(wasted.id, 0);
+        dispatch.ready(wasted, "wasted", 0);
+        dispatch.cancel(wasted.id);
+
+        // Its courier never gets to the kitchen
+        assertTrue(dispatch.isIdle());
+        assertEquals(Long.MAX_VALUE, dispatch.nextEventMillis());
+        dispatch.advance(2000);
+        assertTrue(pickedUp.isEmpty());
+        assertEquals(0, dispatch.trips());
+
+    }
+
+    @Test
+    public void testWaitingCourierSentHomeWhenOrderIsWasted() {
+
+        FifoDispatch<String> dispatch = newDispatch();
+        ShelfPlacedOrder wasted = ShelfPlacedOrders.newShelfPlacedOrder(1, 0.5F);
+        ShelfPlacedOrder other = ShelfPlacedOrders.newShelfPlacedOrder(300, 0.5F);
+        dispatch.received(wasted.id, 0);
+        dispatch.received(other.id, 0);
+        dispatch.advance(2000);
+        assertEquals(2, dispatch.couriersAtKitchen());
+
+        dispatch.cancel(wasted.id);
+        assertEquals(1, dispatch.couriersAtKitchen());
+        dispatch.ready(other, "other", 3000);
+        assertEquals(1, pickedUp.size());
+        assertEquals(0, dispatch.couriersAtKitchen());
+        assertEquals(2, dispatch.trips());
+        assertTrue(dispatch.isIdle());
+
+    }
+
+    @Test
+    public void testCourierOfTakenOrderGoesOnForTheOtherOne() {
+
+        FifoDispatch<String> dispatch = newDispatch();
+        ShelfPlacedOrder longLived = ShelfPlacedOrders.newShelfPlacedOrder(300, 0.5F);
+        ShelfPlacedOrder shortLived = ShelfPlacedOrders.newShelfPlacedOrder(10, 0.5F);
+        dispatch.received(longLived.id, 0);
+        dispatch.ready(longLived, "long lived", 0);
+        dispatch.received(shortLived.id, 1000);
+        dispatch.ready(shortLived, "short lived", 1000);
+
+        // The courier sent for the long lived order takes the short lived one
+        dispatch.advance(2000);
+        assertEquals(shortLived.id, pickedUp.get(0).id);
+
+        // So the courier sent for the short lived order is the one sent home when the long lived one goes to waste
+        dispatch.cancel(longLived.id);
+        assertTrue(dispatch.isIdle());
+        dispatch.advance(3000);
+        assertEquals(1, pickedUp.size());
+        assertEquals(1, dispatch.trips());
+
+    }
+
+}
@@ -0,0 +1,107 @@
+import akka.actor.testkit.typed.javadsl.TestKitJunitResource;
+import akka.http.javadsl.ServerBinding;
+import akka.stream.OverflowStrategy;
+import akka.stream.javadsl.Sink;
+import akka.stream.javadsl.Source;
+import akka.stream.javadsl.SourceQueueWithComplete;
+import com.cloudkitchens.codechallenge.ingestion.HttpOrderIntake;
+import com.cloudkitchens.codechallenge.order.OrderVo;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+public class HttpOrderIntakeTest {
+
+    @ClassRule
+    public static final TestKitJunitResource testKit = new TestKitJunitResource();
+
+    private static final Config httpConfig = ConfigFactory.parseString("host = \"127.0.0.1\", port = 0, max-order-bytes = 1024");
+
+    private static final String ORDER = "{\"id\":\"%s\",\"name\":\"Banana Split\",\"temp\":\"frozen\",\"shelfLife\":20,\"decayRate\":0.63}";
+
+    @Test
+    public void testTakesSingleBatchedAndNdjsonOrders(){
+
+        List<String> taken = new CopyOnWriteArrayList<>();
+        SourceQueueWithComplete<OrderVo> orders = Source.<OrderVo>queue(100, OverflowStrategy.dropNew())
+                .to(Sink.foreach(order -> taken.add(order.getId())))
+                .run(testKit.system());
+        ServerBinding binding = HttpOrderIntake.bind(httpConfig, orders, testKit.system()).toCompletableFuture().join();
+
+        assertEquals(202, post(binding, String.format(ORDER, "a")));
+        assertEquals(202, post(binding, "[" + String.format(ORDER, "b") + "," + String.format(ORDER, "c") + "]"));
+        assertEquals(202, post(binding, String.format(ORDER, "d") + "\n" + String.format(ORDER, "e") + "\n"));
+        assertEquals(400, post(binding, "{\"id\": not an id}"));
+
+        testKit.createTestProbe().awaitAssert(() -> {
+            assertEquals(5, taken.size());
+            return null;
+        });
+        assertEquals("a", taken.get(0));
+        assertEquals("e", taken.get(4));
+
+        binding.unbind().toCompletableFuture().join();
+    }
+
+    @Test
+    public void testFullOrClosedQueueTurnsOrdersAway(){
+
+        // Orders are only let through once an hour, so the queue fills up right away
+        SourceQueueWithComplete<OrderVo> orders = Source.<OrderVo>queue(2, OverflowStrategy.dropNew())
+                .throttle(1, Duration.ofHours(1))
+                .to(Sink.ignore())
+                .run(testKit.system());
+        AtomicBoolean shuttingDown = new AtomicBoolean();
+        ServerBinding binding = HttpOrderIntake.bind(httpConfig, orders, shuttingDown, testKit.system()).toCompletableFuture().join();
+
+        StringBuilder batch = new StringBuilder();
+        for (int i = 0; i < 20; i++)
+            batch.append(String.format(ORDER, i)).append('\n');
+        assertEquals(429, post(binding, batch.toString()));
+
+        // The queue still holds the orders it took while it drains, shutting down answers 503 all the same
+        shuttingDown.set(true);
+        orders.complete();
+        assertEquals(503, post(binding, String.format(ORDER, "late")));
+        assertEquals(503, post(binding, batch.toString()));
+
+        binding.unbind().toCompletableFuture().join();
+    }
+
+    private static int post(ServerBinding binding, String body){
+        try {
+            return postOrders(binding, body);
+        }catch (IOException e){
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static int postOrders(ServerBinding binding, String body) throws IOException {
+        URL url = new URL(String.format("http://127.0.0.1:%d/orders", binding.localAddress().getPort()));
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setRequestMethod("POST");
+        connection.setRequestProperty("Content-Type", "application/json");
+        connection.setDoOutput(true);
+        try (OutputStream out = connection.getOutputStream()){
+            out.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+        int status = connection.getResponseCode();
+        connection.disconnect();
+        return status;
+    }
+
+}
@@ -0,0 +1,116 @@
+import com.cloudkitchens.codechallenge.eventlog.OrderEventLog;
+import com.cloudkitchens.codechallenge.metrics.KitchenMetrics;
+import com.cloudkitchens.codechallenge.order.CookedPlacedOrder;
+import com.cloudkitchens.codechallenge.order.OrderId;
+import com.cloudkitchens.codechallenge.order.PlacedOrder;
+import com.cloudkitchens.codechallenge.order.ShelfPlacedOrder;
+import com.cloudkitchens.codechallenge.shelf.DropPolicy;
+import com.cloudkitchens.codechallenge.shelf.Shelf;
+import com.cloudkitchens.codechallenge.shelf.Shelves;
+import com.cloudkitchens.codechallenge.shelf.ShelvesProperties;
+import com.cloudkitchens.codechallenge.timer.TimingWheel;
+import com.cloudkitchens.codechallenge.timer.VirtualClock;
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class KitchenMetricsTest {
+
+    @Test
+    public void testMeasuresTheOrderTransitions(){
+
+        AtomicLong nanos = new AtomicLong();
+        KitchenMetrics metrics = new KitchenMetrics(nanos::get);
+
+        metrics.record(OrderEventLog.Transition.RECEIVED, OrderId.of("a"));
+        metrics.record(OrderEventLog.Transition.RECEIVED, OrderId.of("b"));
+        nanos.set(100_000);
+        metrics.record(OrderEventLog.Transition.PLACED, OrderId.of("a"), Shelf.ShelfType.HOT, 1);
+        metrics.record(OrderEventLog.Transition.PLACED, OrderId.of("b"), Shelf.ShelfType.OVERFLOW, 1);
+        metrics.occupancyChanged(Shelf.ShelfType.HOT, 1);
+        metrics.occupancyChanged(Shelf.ShelfType.OVERFLOW, 1);
+        nanos.set(200_000);
+        metrics.record(OrderEventLog.Transition.MOVED, OrderId.of("b"), Shelf.ShelfType.COLD, 1);
+        metrics.record(OrderEventLog.Transition.COURIER_ARRIVED, OrderId.of("a"));
+        nanos.set(500_000);
+        metrics.record(OrderEventLog.Transition.PICKED_UP, OrderId.of("a"), Shelf.ShelfType.HOT, 0.5F);
+        metrics.record(OrderEventLog.Transition.DELIVERED, OrderId.of("a"));
+        nanos.set(900_000);
+        metrics.record(OrderEventLog.Transition.EXPIRED, OrderId.of("b"), Shelf.ShelfType.COLD, 0);
+
+        KitchenMetrics.Snapshot snapshot = metrics.snapshot();
+        assertEquals(2, snapshot.received);
+        assertEquals(2, snapshot.placed);
+        assertEquals(1, snapshot.relocated);
+        assertEquals(1, snapshot.pickedUp);
+        assertEquals(1, snapshot.delivered);
+        assertEquals(1, snapshot.expired);
+        assertEquals(0, snapshot.dropped);
+        assertEquals(1, snapshot.occupancy(Shelf.ShelfType.HOT));
+        assertEquals(0, snapshot.occupancy(Shelf.ShelfType.FROZEN));
+
+        assertEquals(2, snapshot.timeToPlacement.getTotalCount());
+        assertEquals(100, snapshot.timeToPlacement.getMaxValue());
+        // Picked up after 400 us and expired after 800 us on the shelves, the expired order is kept apart
+        assertEquals(1, snapshot.shelfToPickup.getTotalCount());
+        assertEquals(400, snapshot.shelfToPickup.getMaxValue());
+        assertEquals(1, snapshot.shelfToWaste.getTotalCount());
+        assertTrue(snapshot.shelfToWaste.valuesAreEquivalent(800, snapshot.shelfToWaste.getMaxValue()));
+        assertEquals(1, snapshot.courierWait.getTotalCount());
+        assertEquals(300, snapshot.courierWait.getMaxValue());
+        // Only the delivered order went from being taken to its delivery
+        assertEquals(1, snapshot.endToEnd.getTotalCount());
+        assertEquals(500, snapshot.endToEnd.getMaxValue());
+        assertTrue(snapshot.valueAtPickup.valuesAreEquivalent(500, snapshot.valueAtPickup.getMaxValue()));
+
+        // Every snapshot only has the latencies recorded since the previous one, the counters keep adding up
+        KitchenMetrics.Snapshot next = metrics.snapshot();
+        assertEquals(0, next.shelfToPickup.getTotalCount());
+        assertEquals(0, next.shelfToWaste.getTotalCount());
+        assertEquals(2, next.received);
+
+    }
+
+    @Test
+    public void testAddsUpTheShelvesOfEveryKitchenUnit(){
+
+        KitchenMetrics metrics = new KitchenMetrics();
+        Shelves<String> first = newShelves(metrics);
+        Shelves<String> second = newShelves(metrics);
+
+        PlacedOrder hot = newPlacedOrder("hot");
+        first.place(new CookedPlacedOrder(hot, 0), "hot", 0);
+        first.place(new CookedPlacedOrder(newPlacedOrder("cold"), 0), "cold", 0);
+        second.place(new CookedPlacedOrder(newPlacedOrder("hot"), 0), "hot", 0);
+        assertEquals(2, metrics.snapshot().occupancy(Shelf.ShelfType.HOT));
+        assertEquals(1, metrics.snapshot().occupancy(Shelf.ShelfType.COLD));
+
+        // A unit taking an order off its shelf leaves the orders of the other one counted
+        first.remove(hot.id, 1000);
+        assertEquals(1, metrics.snapshot().occupancy(Shelf.ShelfType.HOT));
+
+    }
+
+    private static Shelves<String> newShelves(OrderEventLog eventLog){
+        return new Shelves<>(new ShelvesProperties(10, 10, 10, 10), DropPolicy.fromName("random"),
+                new TimingWheel<>(10, 512, 0), new VirtualClock(0), new Random(42), eventLog,
+                new Shelves.Listener<String>() {
+                    @Override
+                    public void onPlaced(ShelfPlacedOrder shelfPlacedOrder, String order) {
+                    }
+
+                    @Override
+                    public void onWasted(ShelfPlacedOrder shelfPlacedOrder, String order) {
+                    }
+                });
+    }
+
+    private static PlacedOrder newPlacedOrder(String temp){
+        return new PlacedOrder(UUID.randomUUID().toString(), "some order", temp, 300, 0.5F);
+    }
+
+}
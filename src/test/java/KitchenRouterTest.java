@@ -0,0 +1,100 @@
+import akka.actor.testkit.typed.Effect;
+import akka.actor.testkit.typed.javadsl.BehaviorTestKit;
+import akka.actor.testkit.typed.javadsl.TestInbox;
+import com.cloudkitchens.codechallenge.eventlog.OrderEventLog;
+import com.cloudkitchens.codechallenge.ingestion.AdaptiveRateController;
+import com.cloudkitchens.codechallenge.kitchen.KitchenRouterActor;
+import com.cloudkitchens.codechallenge.kitchen.KitchenUnitActor;
+import com.cloudkitchens.codechallenge.order.OrderVo;
+import org.junit.Test;
+
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+public class KitchenRouterTest {
+
+    @Test
+    public void testRoutingByKitchenField(){
+
+        BehaviorTestKit<KitchenUnitActor.Message> router =
+                BehaviorTestKit.create(KitchenRouterActor.create(2, KitchenRouterActor.KITCHEN_FIELD));
+
+        assertEquals("kitchenUnit:0", router.expectEffectClass(Effect.Spawned.class).childName());
+        assertEquals("kitchenUnit:1", router.expectEffectClass(Effect.Spawned.class).childName());
+
+        TestInbox<KitchenUnitActor.Message> kitchenUnit0 = router.childInbox("kitchenUnit:0");
+        TestInbox<KitchenUnitActor.Message> kitchenUnit1 = router.childInbox("kitchenUnit:1");
+
+        KitchenUnitActor.OrderRequest orderRequest = new KitchenUnitActor.OrderRequest(newOrderVo(3));
+        router.run(orderRequest);
+
+        assertEquals(orderRequest, kitchenUnit1.receiveMessage());
+        assertFalse(kitchenUnit0.hasMessages());
+
+    }
+
+    @Test
+    public void testAggregateShutdown(){
+
+        BehaviorTestKit<KitchenUnitActor.Message> router =
+                BehaviorTestKit.create(KitchenRouterActor.create(2, KitchenRouterActor.ORDER_ID_HASH));
+
+        router.run(KitchenUnitActor.UpstreamCompleted.INSTANCE);
+
+        // Every kitchen unit is advised the upstream is over
+        assertEquals(KitchenUnitActor.UpstreamCompleted.INSTANCE, router.childInbox("kitchenUnit:0").receiveMessage());
+        assertEquals(KitchenUnitActor.UpstreamCompleted.INSTANCE, router.childInbox("kitchenUnit:1").receiveMessage());
+
+        router.run(new KitchenUnitActor.KitchenUnitReport("kitchenUnit:0", 3, 2, 1));
+        assertTrue(router.isAlive());
+
+        router.run(new KitchenUnitActor.KitchenUnitReport("kitchenUnit:1", 1, 1, 0));
+        assertFalse(router.isAlive());
+
+    }
+
+    @Test
+    public void testRateControllerUpdatedOncePerInterval(){
+
+        AdaptiveRateController rateController = new AdaptiveRateController(10, 1, 20, 1, 0.5, 0.8F, 45);
+        BehaviorTestKit<KitchenUnitActor.Message> router = BehaviorTestKit.create(
+                KitchenRouterActor.create(2, KitchenRouterActor.ORDER_ID_HASH, rateController, OrderEventLog.DISABLED));
+
+        router.expectEffectClass(Effect.Spawned.class);
+        router.expectEffectClass(Effect.Spawned.class);
+        Effect.Scheduled<?> rateControlTick = router.expectEffectClass(Effect.Scheduled.class);
+        router.run((KitchenUnitActor.Message) rateControlTick.message());
+
+        // Every kitchen unit is asked for a sample of the same round
+        KitchenUnitActor.GetRateSignals sample0 = (KitchenUnitActor.GetRateSignals) router.childInbox("kitchenUnit:0").receiveMessage();
+        KitchenUnitActor.GetRateSignals sample1 = (KitchenUnitActor.GetRateSignals) router.childInbox("kitchenUnit:1").receiveMessage();
+        assertEquals(sample0.round, sample1.round);
+        assertEquals(router.getRef(), sample0.replyTo);
+
+        // Neither kitchen unit has too many orders waiting for their courier, both of them together do
+        router.run(new KitchenUnitActor.RateSignals(sample0.round, new AdaptiveRateController.Signals(0.5F, 0, 30)));
+        assertEquals(0, rateController.increases() + rateController.decreases());
+        router.run(new KitchenUnitActor.RateSignals(sample1.round, new AdaptiveRateController.Signals(0.2F, 0, 30)));
+        assertEquals(0, rateController.increases());
+        assertEquals(1, rateController.decreases());
+        assertEquals(5, rateController.rate(), 0.001);
+
+        // The rate only moves once per round
+        router.run(new KitchenUnitActor.RateSignals(sample1.round, new AdaptiveRateController.Signals(0.2F, 0, 0)));
+        assertEquals(1, rateController.increases() + rateController.decreases());
+
+    }
+
+    private OrderVo newOrderVo(int kitchen){
+        OrderVo orderVo = new OrderVo();
+        orderVo.setId(UUID.randomUUID().toString());
+        orderVo.setName("some order");
+        orderVo.setTemp("cold");
+        orderVo.setShelfLife(5);
+        orderVo.setDecayRate(0.7F);
+        orderVo.setKitchen(kitchen);
+        return orderVo;
+    }
+
+}
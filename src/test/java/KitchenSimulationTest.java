@@ -0,0 +1,297 @@
+import ch.qos.logback.classic.Level;
+import com.cloudkitchens.codechallenge.courier.CourierFleetProperties;
+import com.cloudkitchens.codechallenge.courier.DispatchStrategy;
+import com.cloudkitchens.codechallenge.ingestion.MemoryMappedOrders;
+import com.cloudkitchens.codechallenge.journal.JournalState;
+import com.cloudkitchens.codechallenge.journal.MappedOrderJournal;
+import com.cloudkitchens.codechallenge.order.OrderVo;
+import com.cloudkitchens.codechallenge.shelf.DropPolicy;
+import com.cloudkitchens.codechallenge.shelf.PlacementPolicy;
+import com.cloudkitchens.codechallenge.shelf.ShelvesProperties;
+import com.cloudkitchens.codechallenge.simulation.KitchenSimulation;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class KitchenSimulationTest {
+
+    private static final ch.qos.logback.classic.Logger shelvesLog =
+            (ch.qos.logback.classic.Logger) LoggerFactory.getLogger("com.cloudkitchens.codechallenge.shelf");
+
+    @BeforeClass
+    public static void quietShelves(){
+        shelvesLog.setLevel(Level.WARN);
+    }
+
+    @AfterClass
+    public static void restoreShelves(){
+        shelvesLog.setLevel(null);
+    }
+
+    @Test
+    public void testOrderExpiresBeforeItsCourier(){
+
+        // Couriers always take 2 seconds
+        KitchenSimulation simulation = new KitchenSimulation(new ShelvesProperties(1, 1, 1, 1),
+                DropPolicy.fromName("random"), 1, 2, 2, 10, 512, 42);
+
+        KitchenSimulation.Report report = simulation.run(Arrays.asList(
+                newOrderVo("hot", 300, 0.5F),
+                // Goes to the overflow shelf, where it expires after half a second
+                newOrderVo("hot", 1, 1F)).iterator());
+
+        assertEquals(2, report.requestCount);
+        assertEquals(1, report.requestDeliveryCount);
+        assertEquals(1, report.requestDroppedCount);
+        assertEquals(3000, report.virtualMillis);
+
+    }
+
+    @Test
+    public void testRefusesUnsupportedTemperature(){
+
+        KitchenSimulation simulation = new KitchenSimulation(new ShelvesProperties(1, 1, 1, 1),
+                DropPolicy.fromName("random"), 1, 2, 2, 10, 512, 42);
+
+        OrderVo noShelfLife = newOrderVo("cold", 300, 0.5F);
+        noShelfLife.setShelfLife(null);
+        OrderVo noDecayRate = newOrderVo("frozen", 300, 0.5F);
+        noDecayRate.setDecayRate(null);
+        KitchenSimulation.Report report = simulation.run(Arrays.asList(
+                newOrderVo("lukewarm", 300, 0.5F),
+                noShelfLife,
+                noDecayRate,
+                newOrderVo("hot", 300, 0.5F)).iterator());
+
+        assertEquals(4, report.requestCount);
+        assertEquals(1, report.requestDeliveryCount);
+        assertEquals(3, report.requestDroppedCount);
+
+    }
+
+    @Test
+    public void testSameSeedSameDecisions() throws IOException {
+
+        // Rate and capacity that keep the overflow shelf busy, so orders are moved and dropped
+        KitchenSimulation simulation = new KitchenSimulation(new ShelvesProperties(10, 10, 10, 15),
+                DropPolicy.fromName("random"), 20, 2, 6, 10, 512, 7);
+
+        KitchenSimulation.Report first;
+        try (MemoryMappedOrders orders = MemoryMappedOrders.open(Paths.get("orders.json"))){
+            first = simulation.run(orders.iterator());
+        }
+        KitchenSimulation.Report second;
+        try (MemoryMappedOrders orders = MemoryMappedOrders.open(Paths.get("orders.json"))){
+            second = simulation.run(orders.iterator());
+        }
+
+        assertEquals(132, first.requestCount);
+        assertTrue(first.requestDroppedCount > 0);
+        assertEquals(first.requestCount, first.requestDeliveryCount + first.requestDroppedCount);
+
+        assertEquals(first.requestDeliveryCount, second.requestDeliveryCount);
+        assertEquals(first.requestDroppedCount, second.requestDroppedCount);
+        assertEquals(first.virtualMillis, second.virtualMillis);
+
+    }
+
+    @Test
+    public void testCourierFleet() throws IOException {
+
+        // Same orders with one courier per order and with a fleet of 10 couriers taking up to 4 orders per trip
+        KitchenSimulation perOrder = new KitchenSimulation(new ShelvesProperties(10, 10, 10, 15),
+                DropPolicy.fromName("random"), 5, 2, 6, 10, 512, 7);
+        KitchenSimulation fleet = new KitchenSimulation(new ShelvesProperties(10, 10, 10, 15),
+                DropPolicy.fromName("random"), 5, 2, 6, DispatchStrategy.Kind.FLEET,
+                new CourierFleetProperties(10, 4, 1000, 4, 12), 10, 512, 7);
+
+        KitchenSimulation.Report perOrderReport;
+        try (MemoryMappedOrders orders = MemoryMappedOrders.open(Paths.get("orders.json"))){
+            perOrderReport = perOrder.run(orders.iterator());
+        }
+        KitchenSimulation.Report fleetReport;
+        try (MemoryMappedOrders orders = MemoryMappedOrders.open(Paths.get("orders.json"))){
+            fleetReport = fleet.run(orders.iterator());
+        }
+
+        assertEquals(perOrderReport.requestCount, perOrderReport.courierTrips);
+        assertEquals(fleetReport.requestCount, fleetReport.requestDeliveryCount + fleetReport.requestDroppedCount);
+        // Orders travel together, so there are fewer trips and every trip is worth more
+        assertTrue(fleetReport.courierTrips < fleetReport.requestDeliveryCount);
+        assertTrue(fleetReport.deliveredValuePerTrip() > perOrderReport.deliveredValuePerTrip());
+
+    }
+
+    @Test
+    public void testFifoDispatch() throws IOException {
+
+        // Same orders with a courier matched to every order and with couriers taking the order closest to waste
+        KitchenSimulation matched = new KitchenSimulation(new ShelvesProperties(10, 10, 10, 15),
+                DropPolicy.fromName("random"), 5, 2, 6, 10, 512, 7);
+        KitchenSimulation fifo = new KitchenSimulation(new ShelvesProperties(10, 10, 10, 15),
+                DropPolicy.fromName("random"), 5, 2, 6, DispatchStrategy.Kind.FIFO, null, 10, 512, 7);
+
+        KitchenSimulation.Report matchedReport;
+        try (MemoryMappedOrders orders = MemoryMappedOrders.open(Paths.get("orders.json"))){
+            matchedReport = matched.run(orders.iterator());
+        }
+        KitchenSimulation.Report fifoReport;
+        try (MemoryMappedOrders orders = MemoryMappedOrders.open(Paths.get("orders.json"))){
+            fifoReport = fifo.run(orders.iterator());
+        }
+
+        assertEquals(fifoReport.requestCount, fifoReport.requestDeliveryCount + fifoReport.requestDroppedCount);
+        assertEquals(fifoReport.requestDeliveryCount, fifoReport.foodWait.getTotalCount());
+        // Orders are cooked and placed as soon as they are received, so couriers never wait for them
+        assertEquals(0, fifoReport.courierWait.getMaxValue());
+        // Couriers of wasted orders are sent home instead of coming for nothing, and couriers take the orders losing
+        // value the fastest first
+        assertEquals(fifoReport.requestDeliveryCount, fifoReport.courierTrips);
+        assertTrue(fifoReport.courierTrips <= matchedReport.courierTrips);
+        assertTrue(fifoReport.deliveredValue > matchedReport.deliveredValue);
+
+    }
+
+    @Test
+    public void testCostBasedPlacement() throws IOException {
+
+        // Same orders coming in faster than the shelves can take, placed by the cascade and by projected value
+        KitchenSimulation cascade = new KitchenSimulation(new ShelvesProperties(10, 10, 10, 15),
+                PlacementPolicy.fromName("cascade", DropPolicy.fromName("random"), 4000), 20, 2, 6,
+                DispatchStrategy.Kind.MATCHED, null, 10, 512, 7);
+        KitchenSimulation costBased = new KitchenSimulation(new ShelvesProperties(10, 10, 10, 15),
+                PlacementPolicy.fromName("cost-based", DropPolicy.fromName("random"), 4000), 20, 2, 6,
+                DispatchStrategy.Kind.MATCHED, null, 10, 512, 7);
+
+        KitchenSimulation.Report cascadeReport;
+        try (MemoryMappedOrders orders = MemoryMappedOrders.open(Paths.get("orders.json"))){
+            cascadeReport = cascade.run(orders.iterator());
+        }
+        KitchenSimulation.Report costBasedReport;
+        try (MemoryMappedOrders orders = MemoryMappedOrders.open(Paths.get("orders.json"))){
+            costBasedReport = costBased.run(orders.iterator());
+        }
+
+        assertTrue(cascadeReport.requestDroppedCount > 0);
+        assertEquals(costBasedReport.requestCount, costBasedReport.requestDeliveryCount + costBasedReport.requestDroppedCount);
+        assertTrue(costBasedReport.deliveredValue > cascadeReport.deliveredValue);
+
+    }
+
+    @Test
+    public void testResumesAfterCrash() throws IOException {
+
+        List<OrderVo> orderVos = new ArrayList<>();
+        try (MemoryMappedOrders orders = MemoryMappedOrders.open(Paths.get("orders.json"))){
+            orders.iterator().forEachRemaining(orderVos::add);
+        }
+        Path directory = Files.createTempDirectory("order-journal");
+        KitchenSimulation simulation = new KitchenSimulation(new ShelvesProperties(10, 10, 10, 15),
+                DropPolicy.fromName("random"), 20, 2, 6, 10, 512, 7);
+
+        // The kitchen goes down while taking the 61st order, with orders on every shelf
+        MappedOrderJournal crashed = new MappedOrderJournal(directory, 64 * 1024, 10, 0);
+        Iterator<OrderVo> crashing = orderVos.iterator();
+        try {
+            simulation.run(new Iterator<OrderVo>() {
+                private int count;
+
+                @Override
+                public boolean hasNext() {
+                    return crashing.hasNext();
+                }
+
+                @Override
+                public OrderVo next() {
+                    if (count++ == 60)
+                        throw new IllegalStateException("Kitchen down");
+                    return crashing.next();
+                }
+            }, crashed);
+            fail();
+        }catch (IllegalStateException e){
+            assertEquals("Kitchen down", e.getMessage());
+        }
+
+        KitchenSimulation.Report report;
+        try (MappedOrderJournal journal = new MappedOrderJournal(directory, 64 * 1024, 10, 0)){
+            JournalState recovered = journal.recovered();
+            assertEquals(60, recovered.inputOffset());
+            assertTrue(recovered.inFlight() > 0);
+            assertEquals(60, recovered.inFlight() + recovered.pickedUp() + recovered.wasted());
+
+            // Every order is either delivered or wasted once, whether it was taken before the crash or after it
+            report = simulation.run(orderVos.iterator(), journal);
+        }
+
+        assertEquals(orderVos.size(), report.requestCount);
+        assertEquals(report.requestCount, report.requestDeliveryCount + report.requestDroppedCount);
+        try (MappedOrderJournal reopened = new MappedOrderJournal(directory, 64 * 1024, 10, 0)){
+            assertEquals(0, reopened.recovered().inFlight());
+        }
+
+        // Mapped files cannot be deleted on every platform, so the crashed journal is released first
+        crashed.close();
+        try (Stream<Path> files = Files.walk(directory)){
+            for (Path file: files.sorted(Comparator.reverseOrder()).collect(Collectors.toList()))
+                Files.delete(file);
+        }
+
+    }
+
+    @Test(timeout = 60_000)
+    public void testMillionOrders(){
+
+        int orderCount = 1_000_000;
+        KitchenSimulation simulation = new KitchenSimulation(new ShelvesProperties(10, 10, 10, 15),
+                DropPolicy.fromName("random"), 10, 2, 6, 10, 512, 42);
+
+        KitchenSimulation.Report report = simulation.run(new Iterator<OrderVo>() {
+            private final String[] temps = {"hot", "cold", "frozen"};
+            private int count;
+
+            @Override
+            public boolean hasNext() {
+                return count < orderCount;
+            }
+
+            @Override
+            public OrderVo next() {
+                return newOrderVo(temps[count++ % temps.length], 300, 0.5F);
+            }
+        });
+
+        // More than a day of orders at 10 orders per second
+        assertTrue(report.virtualMillis > 24 * 60 * 60 * 1000);
+        assertEquals(orderCount, report.requestCount);
+        assertEquals(orderCount, report.requestDeliveryCount + report.requestDroppedCount);
+
+    }
+
+    private static OrderVo newOrderVo(String temp, int shelfLife, float decayRate){
+        OrderVo orderVo = new OrderVo();
+        orderVo.setId(UUID.randomUUID().toString());
+        orderVo.setName("some order");
+        orderVo.setTemp(temp);
+        orderVo.setShelfLife(shelfLife);
+        orderVo.setDecayRate(decayRate);
+        return orderVo;
+    }
+
+}
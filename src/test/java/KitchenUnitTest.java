@@ -1,12 +1,16 @@
 import akka.actor.testkit.typed.Effect;
 import akka.actor.testkit.typed.javadsl.BehaviorTestKit;
+import akka.actor.testkit.typed.javadsl.TestInbox;
 import akka.actor.testkit.typed.javadsl.TestKitJunitResource;
+import akka.actor.testkit.typed.javadsl.TestProbe;
+import akka.actor.typed.ActorRef;
 import com.cloudkitchens.codechallenge.kitchen.KitchenUnitActor;
 import com.cloudkitchens.codechallenge.order.OrderVo;
 import com.cloudkitchens.codechallenge.order.PlacedOrder;
 import org.junit.ClassRule;
 import org.junit.Test;
 
+import java.time.Duration;
 import java.util.UUID;
 
 import static org.junit.Assert.*;
@@ -31,6 +35,7 @@ public class KitchenUnitTest {
         BehaviorTestKit<KitchenUnitActor.Message> kitchenUnit = BehaviorTestKit.create(KitchenUnitActor.create());
 
         assertEquals("shelvesManager", kitchenUnit.expectEffectClass(Effect.Spawned.class).childName());
+        assertEquals("courierDispatch", kitchenUnit.expectEffectClass(Effect.Spawned.class).childName());
 
         kitchenUnit.run(new KitchenUnitActor.OrderRequest(orderVo));
 
@@ -47,4 +52,116 @@ public class KitchenUnitTest {
 
     }
 
+    @Test
+    public void testKitchenUnitBackPressure(){
+
+        BehaviorTestKit<KitchenUnitActor.Message> kitchenUnit = BehaviorTestKit.create(KitchenUnitActor.create());
+        TestInbox<KitchenUnitActor.Ack> upstream = TestInbox.create();
+
+        kitchenUnit.run(new KitchenUnitActor.UpstreamStarted(upstream.getRef()));
+        upstream.expectMessage(KitchenUnitActor.Ack.INSTANCE);
+
+        // The default high-water mark is the capacity of all the shelves together
+        int highWaterMark = 10 + 10 + 10 + 15;
+        OrderVo lastOrder = null;
+        for (int i = 0; i < highWaterMark; i++){
+            lastOrder = newOrderVo();
+            kitchenUnit.run(new KitchenUnitActor.OrderRequest(lastOrder, upstream.getRef()));
+            if (i < highWaterMark - 1)
+                upstream.expectMessage(KitchenUnitActor.Ack.INSTANCE);
+        }
+
+        // Too many orders in flight, the upstream is held back until one of them leaves the kitchen unit
+        assertFalse(upstream.hasMessages());
+
+        kitchenUnit.run(new KitchenUnitActor.OrderDelivered(new PlacedOrder(lastOrder.getId(), lastOrder.getName(),
+                lastOrder.getTemp(), lastOrder.getShelfLife(), lastOrder.getDecayRate())));
+
+        upstream.expectMessage(KitchenUnitActor.Ack.INSTANCE);
+    }
+
+    @Test
+    public void testKitchenUnitBackPressureOnFullShelves(){
+
+        ActorRef<KitchenUnitActor.Message> kitchenUnit = testKit.spawn(KitchenUnitActor.create());
+        TestProbe<KitchenUnitActor.Ack> upstream = testKit.createTestProbe();
+
+        kitchenUnit.tell(new KitchenUnitActor.UpstreamStarted(upstream.getRef()));
+        upstream.expectMessage(KitchenUnitActor.Ack.INSTANCE);
+
+        // Hot orders fill the hot shelf and then the overflow shelf, far below the high-water mark of orders in flight
+        int hotAndOverflow = 10 + 15;
+        for (int i = 0; i < hotAndOverflow; i++){
+            kitchenUnit.tell(new KitchenUnitActor.OrderRequest(newOrderVo(), upstream.getRef()));
+            upstream.expectMessage(KitchenUnitActor.Ack.INSTANCE);
+        }
+
+        // Once the overflow shelf is sampled full the upstream is held back, even with room on the cold shelf
+        upstream.expectNoMessage(Duration.ofMillis(300));
+        OrderVo coldOrder = newOrderVo();
+        coldOrder.setTemp("cold");
+        kitchenUnit.tell(new KitchenUnitActor.OrderRequest(coldOrder, upstream.getRef()));
+        upstream.expectNoMessage(Duration.ofMillis(500));
+
+        // Couriers (2 seconds away at least) make room on the shelves
+        upstream.expectMessage(Duration.ofSeconds(10), KitchenUnitActor.Ack.INSTANCE);
+    }
+
+    @Test
+    public void testKitchenUnitRefusesUnsupportedTemperature(){
+
+        TestInbox<KitchenUnitActor.Message> reports = TestInbox.create();
+        BehaviorTestKit<KitchenUnitActor.Message> kitchenUnit = BehaviorTestKit.create(KitchenUnitActor.create(reports.getRef()));
+        kitchenUnit.getAllEffects();
+
+        OrderVo orderVo = newOrderVo();
+        orderVo.setTemp("lukewarm");
+        kitchenUnit.run(new KitchenUnitActor.OrderRequest(orderVo));
+
+        // No shelf takes the order, so it never gets an order actor
+        assertFalse(kitchenUnit.hasEffects());
+
+        kitchenUnit.run(KitchenUnitActor.UpstreamCompleted.INSTANCE);
+        assertFalse(kitchenUnit.isAlive());
+
+        KitchenUnitActor.KitchenUnitReport report = (KitchenUnitActor.KitchenUnitReport) reports.receiveMessage();
+        assertEquals(1, report.requestCount);
+        assertEquals(0, report.requestDeliveryCount);
+        assertEquals(1, report.requestDroppedCount);
+    }
+
+    @Test
+    public void testKitchenUnitRefusesOrderWithoutShelfLifeOrDecayRate(){
+
+        TestInbox<KitchenUnitActor.Message> reports = TestInbox.create();
+        BehaviorTestKit<KitchenUnitActor.Message> kitchenUnit = BehaviorTestKit.create(KitchenUnitActor.create(reports.getRef()));
+        kitchenUnit.getAllEffects();
+
+        OrderVo noShelfLife = newOrderVo();
+        noShelfLife.setShelfLife(null);
+        kitchenUnit.run(new KitchenUnitActor.OrderRequest(noShelfLife));
+        OrderVo noDecayRate = newOrderVo();
+        noDecayRate.setDecayRate(null);
+        kitchenUnit.run(new KitchenUnitActor.OrderRequest(noDecayRate));
+
+        // Neither order is cooked, and the kitchen unit keeps running
+        assertFalse(kitchenUnit.hasEffects());
+        assertTrue(kitchenUnit.isAlive());
+
+        kitchenUnit.run(KitchenUnitActor.UpstreamCompleted.INSTANCE);
+        KitchenUnitActor.KitchenUnitReport report = (KitchenUnitActor.KitchenUnitReport) reports.receiveMessage();
+        assertEquals(2, report.requestCount);
+        assertEquals(2, report.requestDroppedCount);
+    }
+
+    private OrderVo newOrderVo(){
+        OrderVo orderVo = new OrderVo();
+        orderVo.setId(UUID.randomUUID().toString());
+        orderVo.setName("some order");
+        orderVo.setTemp("hot");
+        orderVo.setShelfLife(300);
+        orderVo.setDecayRate(0.5F);
+        return orderVo;
+    }
+
 }
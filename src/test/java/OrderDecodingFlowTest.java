@@ -0,0 +1,113 @@
+import akka.actor.testkit.typed.javadsl.TestKitJunitResource;
+import akka.stream.javadsl.Sink;
+import akka.stream.javadsl.Source;
+import akka.util.ByteString;
+import com.cloudkitchens.codechallenge.ingestion.OrderDecodingFlow;
+import com.cloudkitchens.codechallenge.order.OrderVo;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class OrderDecodingFlowTest {
+
+    @ClassRule
+    public static final TestKitJunitResource testKit = new TestKitJunitResource();
+
+    private static final int FRAMES = 12;
+    private static final int PARALLELISM = 4;
+
+    @Test
+    public void testOrdersKeepTheFileOrder(){
+
+        List<ByteString> frames = new ArrayList<>();
+        for (int i = 0; i < FRAMES; i++)
+            frames.add(frame(i));
+
+        ExecutorService pool = Executors.newFixedThreadPool(PARALLELISM);
+        List<Integer> decoded = Collections.synchronizedList(new ArrayList<>());
+        try {
+            List<OrderVo> orders = Source.from(frames)
+                    .via(OrderDecodingFlow.create(PARALLELISM, slowerFirst(pool, decoded)))
+                    .runWith(Sink.seq(), testKit.system())
+                    .toCompletableFuture().join();
+
+            assertEquals(FRAMES, orders.size());
+            for (int i = 0; i < FRAMES; i++)
+                assertEquals(String.format("order %d", i), orders.get(i).getName());
+
+            // The frames were not decoded in the order they came in
+            List<Integer> inFileOrder = new ArrayList<>(decoded);
+            Collections.sort(inFileOrder);
+            assertEquals(FRAMES, decoded.size());
+            assertNotEquals(inFileOrder, decoded);
+        }finally {
+            pool.shutdown();
+        }
+
+    }
+
+    @Test
+    public void testMalformedFrameFailsTheStream(){
+
+        List<ByteString> frames = new ArrayList<>();
+        for (int i = 0; i < FRAMES; i++)
+            frames.add(frame(i));
+        frames.set(FRAMES / 2, ByteString.fromString("[\"not an order\"]"));
+
+        ExecutorService pool = Executors.newFixedThreadPool(PARALLELISM);
+        try {
+            Source.from(frames)
+                    .via(OrderDecodingFlow.create(PARALLELISM, slowerFirst(pool, new ArrayList<>())))
+                    .runWith(Sink.seq(), testKit.system())
+                    .toCompletableFuture().join();
+            fail("A malformed frame must fail the stream");
+        }catch (CompletionException e){
+            Throwable cause = e;
+            while (cause != null && !(cause instanceof IOException))
+                cause = cause.getCause();
+            assertNotNull(e.toString(), cause);
+        }finally {
+            pool.shutdown();
+        }
+
+    }
+
+    /*
+        Executor on the given pool taking longer to decode the frames that come in first, so the decoding of the
+        frames that follow them finishes before. Records the number of every frame as its decoding starts.
+     */
+    private static Executor slowerFirst(ExecutorService pool, List<Integer> decoded){
+        AtomicInteger submitted = new AtomicInteger();
+        return task -> {
+            int frame = submitted.getAndIncrement();
+            pool.execute(() -> {
+                try {
+                    Thread.sleep((FRAMES - frame) * 20L);
+                }catch (InterruptedException e){
+                    Thread.currentThread().interrupt();
+                }
+                decoded.add(frame);
+                task.run();
+            });
+        };
+    }
+
+    private static ByteString frame(int number){
+        return ByteString.fromString(String.format(
+                "{\"id\": \"%s\", \"name\": \"order %d\", \"temp\": \"hot\", \"shelfLife\": 300, \"decayRate\": 0.45}",
+                UUID.randomUUID(), number));
+    }
+
+}
@@ -0,0 +1,82 @@
+import com.cloudkitchens.codechallenge.eventlog.AsyncOrderEventLog;
+import com.cloudkitchens.codechallenge.eventlog.LogSampler;
+import com.cloudkitchens.codechallenge.eventlog.OrderEventLog;
+import com.cloudkitchens.codechallenge.order.OrderId;
+import com.cloudkitchens.codechallenge.shelf.Shelf;
+import com.cloudkitchens.codechallenge.timer.VirtualClock;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class OrderEventLogTest {
+
+    @Test
+    public void testRecordsAreWrittenOnClose() throws IOException {
+
+        Path file = Files.createTempFile("order-events", ".log");
+        VirtualClock clock = new VirtualClock(1000);
+
+        AsyncOrderEventLog eventLog = new AsyncOrderEventLog(file, 1024, 10, clock);
+        eventLog.record(OrderEventLog.Transition.RECEIVED, OrderId.of("a"));
+        eventLog.record(OrderEventLog.Transition.PLACED, OrderId.of("a"), Shelf.ShelfType.HOT, 1);
+        clock.advanceTo(2500);
+        eventLog.record(OrderEventLog.Transition.DROPPED, OrderId.of("a"), Shelf.ShelfType.OVERFLOW, 0.4567F);
+        eventLog.close();
+
+        // Nothing is recorded once closed
+        eventLog.record(OrderEventLog.Transition.DELIVERED, OrderId.of("a"));
+
+        assertEquals(Arrays.asList(
+                "1000\tRECEIVED\ta\t-\t-",
+                "1000\tPLACED\ta\tHOT\t1.000",
+                "2500\tDROPPED\ta\tOVERFLOW\t0.457"), Files.readAllLines(file));
+        assertEquals(3, eventLog.written());
+        assertEquals(1, eventLog.dropped());
+
+        Files.delete(file);
+
+    }
+
+    @Test
+    public void testDropsRecordsWhenTheBufferIsFull() throws IOException {
+
+        Path file = Files.createTempFile("order-events", ".log");
+
+        // The writer drains once when it starts and then only on close, so at most 8 records make it
+        AsyncOrderEventLog eventLog = new AsyncOrderEventLog(file, 4, 60_000, new VirtualClock(0));
+        for (int i = 0; i < 10; i++)
+            eventLog.record(OrderEventLog.Transition.RECEIVED, OrderId.of(String.valueOf(i)));
+        eventLog.close();
+
+        List<String> lines = Files.readAllLines(file);
+        assertTrue(eventLog.dropped() >= 2);
+        assertEquals(10, eventLog.written() + eventLog.dropped());
+        assertEquals(eventLog.written(), lines.size());
+
+        Files.delete(file);
+
+    }
+
+    @Test
+    public void testLogSampler(){
+
+        LogSampler sampler = new LogSampler(1000);
+        assertTrue(sampler.sample(0));
+        assertFalse(sampler.sample(999));
+        assertTrue(sampler.sample(1000));
+        assertFalse(sampler.sample(1500));
+
+        LogSampler everyLine = new LogSampler(0);
+        assertTrue(everyLine.sample(0));
+        assertTrue(everyLine.sample(0));
+        assertFalse(new LogSampler(-1).sample(0));
+
+    }
+
+}
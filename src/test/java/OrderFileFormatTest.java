@@ -0,0 +1,108 @@
+import akka.actor.testkit.typed.javadsl.TestKitJunitResource;
+import akka.stream.javadsl.Sink;
+import akka.stream.javadsl.Source;
+import akka.util.ByteString;
+import com.cloudkitchens.codechallenge.ingestion.BinaryOrders;
+import com.cloudkitchens.codechallenge.ingestion.MemoryMappedOrders;
+import com.cloudkitchens.codechallenge.ingestion.OrderFileConverter;
+import com.cloudkitchens.codechallenge.ingestion.OrderFileFormat;
+import com.cloudkitchens.codechallenge.ingestion.OrderVoDecoder;
+import com.cloudkitchens.codechallenge.order.OrderVo;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class OrderFileFormatTest {
+
+    @ClassRule
+    public static final TestKitJunitResource testKit = new TestKitJunitResource();
+
+    @Test
+    public void testFormatOfTheFile(){
+
+        assertEquals(OrderFileFormat.JSON, OrderFileFormat.of(Paths.get("orders.json"), "auto"));
+        assertEquals(OrderFileFormat.NDJSON, OrderFileFormat.of(Paths.get("orders.ndjson"), "auto"));
+        assertEquals(OrderFileFormat.NDJSON, OrderFileFormat.of(Paths.get("orders.jsonl"), "auto"));
+        assertEquals(OrderFileFormat.BINARY, OrderFileFormat.of(Paths.get("orders.bin"), "auto"));
+        assertEquals(OrderFileFormat.BINARY, OrderFileFormat.of(Paths.get("orders.json"), "binary"));
+
+    }
+
+    @Test
+    public void testConvertedBinaryOrders() throws IOException {
+
+        List<OrderVo> original = readOrdersJson();
+        Path binary = Files.createTempFile("orders", ".bin");
+        try {
+            assertEquals(original.size(), OrderFileConverter.convert(Paths.get("orders.json"), binary, OrderFileFormat.BINARY));
+
+            // Chunks cut anywhere, as read from the file, come out as whole records
+            byte[] bytes = Files.readAllBytes(binary);
+            List<ByteString> chunks = new ArrayList<>();
+            for (int i = 0; i < bytes.length; i += 7)
+                chunks.add(ByteString.fromArray(bytes, i, Math.min(7, bytes.length - i)));
+
+            List<OrderVo> decoded = Source.from(chunks)
+                    .via(BinaryOrders.framing())
+                    .map(BinaryOrders::decode)
+                    .runWith(Sink.seq(), testKit.system())
+                    .toCompletableFuture().join();
+
+            assertSameOrders(original, decoded);
+        }finally {
+            Files.delete(binary);
+        }
+
+    }
+
+    @Test
+    public void testConvertedNdjsonOrders() throws IOException {
+
+        List<OrderVo> original = readOrdersJson();
+        Path ndjson = Files.createTempFile("orders", ".ndjson");
+        try {
+            assertEquals(original.size(), OrderFileConverter.convert(Paths.get("orders.json"), ndjson, OrderFileFormat.NDJSON));
+
+            List<String> lines = Files.readAllLines(ndjson);
+            assertEquals(original.size(), lines.size());
+            List<OrderVo> decoded = new ArrayList<>();
+            for (String line: lines)
+                decoded.add(OrderVoDecoder.decode(ByteString.fromString(line)));
+
+            assertSameOrders(original, decoded);
+        }finally {
+            Files.delete(ndjson);
+        }
+
+    }
+
+    private static List<OrderVo> readOrdersJson() throws IOException {
+        List<OrderVo> orders = new ArrayList<>();
+        try (MemoryMappedOrders mappedOrders = MemoryMappedOrders.open(Paths.get("orders.json"))){
+            mappedOrders.iterator().forEachRemaining(orders::add);
+        }
+        return orders;
+    }
+
+    private static void assertSameOrders(List<OrderVo> expected, List<OrderVo> actual){
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++){
+            assertEquals(expected.get(i).getOrderId(), actual.get(i).getOrderId());
+            assertEquals(expected.get(i).getId(), actual.get(i).getId());
+            assertEquals(expected.get(i).getName(), actual.get(i).getName());
+            assertEquals(expected.get(i).getTemp(), actual.get(i).getTemp());
+            assertEquals(expected.get(i).getShelfLife(), actual.get(i).getShelfLife());
+            assertEquals(expected.get(i).getDecayRate(), actual.get(i).getDecayRate());
+            assertEquals(expected.get(i).getKitchen(), actual.get(i).getKitchen());
+        }
+    }
+
+}
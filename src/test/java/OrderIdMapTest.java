@@ -0,0 +1,86 @@
+import com.cloudkitchens.codechallenge.order.OrderId;
+import com.cloudkitchens.codechallenge.order.OrderIdMap;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+public class OrderIdMapTest {
+
+    @Test
+    public void testOrderIdText() {
+
+        String uuid = UUID.randomUUID().toString();
+        OrderId orderId = OrderId.of(uuid);
+
+        assertTrue(orderId.isUuid());
+        assertEquals(uuid, orderId.toString());
+        assertEquals(orderId, OrderId.of(uuid.toUpperCase()));
+        assertEquals(UUID.fromString(uuid).getMostSignificantBits(), orderId.mostSignificantBits);
+        assertEquals(UUID.fromString(uuid).getLeastSignificantBits(), orderId.leastSignificantBits);
+
+        // Ids that are not UUIDs keep their text
+        OrderId other = OrderId.of("order-1");
+        assertFalse(other.isUuid());
+        assertEquals("order-1", other.toString());
+        assertEquals(other, OrderId.of("order-1"));
+        assertNotEquals(other, OrderId.of("order-2"));
+
+    }
+
+    @Test
+    public void testPutGetRemove() {
+
+        OrderIdMap<String> map = new OrderIdMap<>(4);
+        OrderId a = OrderId.of("a");
+        OrderId b = OrderId.of("b");
+
+        assertTrue(map.isEmpty());
+        assertNull(map.put(a, "first"));
+        assertEquals("first", map.put(a, "second"));
+        assertNull(map.put(b, "third"));
+
+        assertEquals(2, map.size());
+        assertEquals("second", map.get(OrderId.of("a")));
+        assertTrue(map.containsKey(b));
+
+        assertEquals("second", map.remove(a));
+        assertNull(map.remove(a));
+        assertNull(map.get(a));
+        assertEquals("third", map.get(b));
+        assertEquals(1, map.size());
+
+    }
+
+    @Test
+    public void testSameAsHashMap() {
+
+        // Many more operations than the initial capacity, so the map grows and removals shift entries back
+        Random random = new Random(7);
+        OrderIdMap<Integer> map = new OrderIdMap<>();
+        Map<OrderId, Integer> expected = new HashMap<>();
+        List<OrderId> ids = new ArrayList<>();
+        for (int i = 0; i < 2000; i++)
+            ids.add(OrderId.of(random.nextLong(), random.nextLong()));
+
+        for (int i = 0; i < 20000; i++){
+            OrderId id = ids.get(random.nextInt(ids.size()));
+            if (random.nextBoolean())
+                assertEquals(expected.put(id, i), map.put(id, i));
+            else
+                assertEquals(expected.remove(id), map.remove(id));
+        }
+
+        assertEquals(expected.size(), map.size());
+        for (OrderId id: ids)
+            assertEquals(expected.get(id), map.get(id));
+
+    }
+
+}
@@ -0,0 +1,200 @@
+import com.cloudkitchens.codechallenge.eventlog.OrderEventLog;
+import com.cloudkitchens.codechallenge.journal.JournalState;
+import com.cloudkitchens.codechallenge.journal.MappedOrderJournal;
+import com.cloudkitchens.codechallenge.order.CookedPlacedOrder;
+import com.cloudkitchens.codechallenge.order.PlacedOrder;
+import com.cloudkitchens.codechallenge.shelf.Shelf;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class OrderJournalTest {
+
+    @Test
+    public void testRecoversOrdersInFlight() throws IOException {
+
+        Path directory = Files.createTempDirectory("order-journal");
+
+        MappedOrderJournal journal = new MappedOrderJournal(directory, 4096, 10, 0);
+        CookedPlacedOrder pickedUp = take(journal, "picked up", "hot", 1000);
+        CookedPlacedOrder wasted = take(journal, "wasted", "cold", 2000);
+        CookedPlacedOrder moved = take(journal, "moved", "frozen", 3000);
+        CookedPlacedOrder onItsWay = take(journal, "on its way", "hot", 4000);
+        journal.record(OrderEventLog.Transition.PLACED, pickedUp.id, Shelf.ShelfType.HOT, 1);
+        journal.record(OrderEventLog.Transition.PLACED, wasted.id, Shelf.ShelfType.OVERFLOW, 1);
+        journal.record(OrderEventLog.Transition.PLACED, moved.id, Shelf.ShelfType.OVERFLOW, 1);
+        journal.record(OrderEventLog.Transition.PICKED_UP, pickedUp.id, Shelf.ShelfType.HOT, 0.5F);
+        journal.record(OrderEventLog.Transition.DELIVERED, pickedUp.id);
+        journal.record(OrderEventLog.Transition.EXPIRED, wasted.id, Shelf.ShelfType.OVERFLOW, 0);
+        journal.record(OrderEventLog.Transition.MOVED, moved.id, Shelf.ShelfType.FROZEN, 0.9F);
+        // Couriers are not part of the kitchen state
+        journal.record(OrderEventLog.Transition.COURIER_DISPATCHED, onItsWay.id);
+        journal.commit();
+        assertEquals(11, journal.committedRecords());
+
+        // The kitchen goes down without closing the journal
+        JournalState recovered;
+        try (MappedOrderJournal reopened = new MappedOrderJournal(directory, 4096, 10, 0)){
+            recovered = reopened.recovered();
+        }
+
+        assertEquals(4, recovered.inputOffset());
+        assertEquals(2, recovered.inFlight());
+        assertEquals(1, recovered.pickedUp());
+        assertEquals(0.5, recovered.pickedUpValue(), 0.0001);
+        assertEquals(1, recovered.delivered());
+        assertEquals(1, recovered.wasted());
+
+        List<JournalState.JournaledOrder> orders = recovered.orders();
+        assertEquals(moved.id, orders.get(0).cookedPlacedOrder.id);
+        assertEquals(Shelf.ShelfType.FROZEN, orders.get(0).shelfType());
+        assertEquals(2, orders.get(0).inputOffset);
+        assertEquals(3000, orders.get(0).cookedPlacedOrder.readySinceMillis);
+        assertEquals("moved", orders.get(0).cookedPlacedOrder.placedOrder.name);
+        assertEquals(Shelf.ShelfType.FROZEN, orders.get(0).cookedPlacedOrder.preferredShelfType());
+        assertEquals(300, orders.get(0).cookedPlacedOrder.placedOrder.shelfLife);
+        assertEquals(0.5F, orders.get(0).cookedPlacedOrder.placedOrder.decayRate, 0.0001);
+
+        // Still on its way to the shelves
+        assertEquals(onItsWay.id, orders.get(1).cookedPlacedOrder.id);
+        assertNull(orders.get(1).shelfType());
+
+        // Mapped files cannot be deleted on every platform, so the crashed journal is released first
+        journal.close();
+        delete(directory);
+
+    }
+
+    @Test
+    public void testRecoversFromSnapshotAndTail() throws IOException {
+
+        Path directory = Files.createTempDirectory("order-journal");
+
+        MappedOrderJournal journal = new MappedOrderJournal(directory, 4096, 10, 0);
+        CookedPlacedOrder first = take(journal, "first", "hot", 0);
+        journal.record(OrderEventLog.Transition.PLACED, first.id, Shelf.ShelfType.HOT, 1);
+        CookedPlacedOrder second = take(journal, "second", "cold", 0);
+        journal.record(OrderEventLog.Transition.PLACED, second.id, Shelf.ShelfType.COLD, 1);
+        journal.snapshot();
+
+        journal.record(OrderEventLog.Transition.PICKED_UP, first.id, Shelf.ShelfType.HOT, 1);
+        CookedPlacedOrder third = take(journal, "third", "hot", 0);
+        journal.record(OrderEventLog.Transition.PLACED, third.id, Shelf.ShelfType.OVERFLOW, 1);
+
+        JournalState recovered;
+        try (MappedOrderJournal reopened = new MappedOrderJournal(directory, 4096, 10, 0)){
+            recovered = reopened.recovered();
+        }
+
+        assertEquals(3, recovered.inputOffset());
+        assertEquals(2, recovered.inFlight());
+        assertEquals(1, recovered.pickedUp());
+        assertNull(recovered.order(first.id));
+        assertEquals(Shelf.ShelfType.COLD, recovered.order(second.id).shelfType());
+        assertEquals(Shelf.ShelfType.OVERFLOW, recovered.order(third.id).shelfType());
+
+        journal.close();
+        delete(directory);
+
+    }
+
+    @Test
+    public void testSnapshotDeletesTheSegmentsItHolds() throws IOException {
+
+        Path directory = Files.createTempDirectory("order-journal");
+
+        // A few dozen orders fill a segment
+        MappedOrderJournal journal = new MappedOrderJournal(directory, 4096, 10, 0);
+        for (int i = 0; i < 200; i++)
+            take(journal, "order", "hot", i);
+        assertTrue(files(directory, ".segment").size() > 1);
+
+        // Closing the journal leaves a snapshot of everything, and only the segment being written
+        journal.close();
+        assertEquals(1, files(directory, ".snapshot").size());
+        assertEquals(1, files(directory, ".segment").size());
+
+        try (MappedOrderJournal reopened = new MappedOrderJournal(directory, 4096, 10, 0)){
+            assertEquals(200, reopened.recovered().inputOffset());
+            assertEquals(200, reopened.recovered().inFlight());
+            assertEquals(199, reopened.recovered().orders().get(199).cookedPlacedOrder.readySinceMillis);
+        }
+
+        delete(directory);
+
+    }
+
+    @Test
+    public void testRecoveryStopsAtTornRecord() throws IOException {
+
+        Path directory = Files.createTempDirectory("order-journal");
+
+        MappedOrderJournal journal = new MappedOrderJournal(directory, 4096, 10, 0);
+        take(journal, "first", "hot", 0);
+        take(journal, "second", "hot", 0);
+        take(journal, "torn", "hot", 0);
+        journal.commit();
+
+        // The last byte of the third record did not make it to the disk
+        Path segment = files(directory, ".segment").get(0);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)){
+            ByteBuffer length = ByteBuffer.allocate(4);
+            long position = 0;
+            for (int i = 0; i < 3; i++){
+                length.clear();
+                channel.read(length, position);
+                position += 8 + length.getInt(0);
+            }
+            channel.write(ByteBuffer.wrap(new byte[]{42}), position - 1);
+        }
+
+        try (MappedOrderJournal recovered = new MappedOrderJournal(directory, 4096, 10, 0)){
+            assertEquals(2, recovered.recovered().inputOffset());
+            assertEquals(2, recovered.records());
+
+            // The journal goes on right after the last record recovered
+            take(recovered, "third", "hot", 0);
+            recovered.commit();
+            try (MappedOrderJournal reopened = new MappedOrderJournal(directory, 4096, 10, 0)){
+                assertEquals(3, reopened.recovered().inputOffset());
+            }
+        }
+
+        journal.close();
+        delete(directory);
+
+    }
+
+    private static CookedPlacedOrder take(MappedOrderJournal journal, String name, String temp, long readySinceMillis){
+        PlacedOrder placedOrder = new PlacedOrder(UUID.randomUUID().toString(), name, temp, 300, 0.5F);
+        CookedPlacedOrder cookedPlacedOrder = new CookedPlacedOrder(placedOrder, readySinceMillis);
+        journal.taken(cookedPlacedOrder);
+        return cookedPlacedOrder;
+    }
+
+    private static List<Path> files(Path directory, String suffix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)){
+            return files.filter(file -> file.toString().endsWith(suffix)).sorted().collect(Collectors.toList());
+        }
+    }
+
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)){
+            for (Path file: files.sorted(Comparator.reverseOrder()).collect(Collectors.toList()))
+                Files.delete(file);
+        }
+    }
+
+}
@@ -0,0 +1,65 @@
+import akka.util.ByteString;
+import com.cloudkitchens.codechallenge.ingestion.MemoryMappedOrders;
+import com.cloudkitchens.codechallenge.ingestion.OrderVoDecoder;
+import com.cloudkitchens.codechallenge.order.OrderVo;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+import static org.junit.Assert.*;
+
+public class OrderVoDecoderTest {
+
+    @Test
+    public void testDecodeFrame() throws IOException {
+
+        OrderVo orderVo = OrderVoDecoder.decode(ByteString.fromString(
+                "{\"id\": \"a8cfcb76-7f24-4420-a5ba-d46dd77bdffd\", \"name\": \"Banana Split\", \"temp\": \"frozen\"," +
+                " \"unknown\": {\"nested\": [1, 2]}, \"shelfLife\": 20, \"decayRate\": 0.63}"));
+
+        assertEquals("a8cfcb76-7f24-4420-a5ba-d46dd77bdffd", orderVo.getId());
+        assertEquals("Banana Split", orderVo.getName());
+        assertEquals("frozen", orderVo.getTemp());
+        assertEquals(Integer.valueOf(20), orderVo.getShelfLife());
+        assertEquals(0.63F, orderVo.getDecayRate(), 0.0001F);
+        assertNull(orderVo.getKitchen());
+
+    }
+
+    @Test
+    public void testNonNumericFieldsFailTheDecoding() throws IOException {
+
+        String[] orders = {
+                "{\"id\": \"a\", \"temp\": \"hot\", \"shelfLife\": \"soon\", \"decayRate\": 0.63}",
+                "{\"id\": \"b\", \"temp\": \"hot\", \"shelfLife\": \"300\", \"decayRate\": 0.63}",
+                "{\"id\": \"c\", \"temp\": \"hot\", \"shelfLife\": 300, \"decayRate\": \"slow\"}",
+                "{\"id\": \"d\", \"temp\": \"hot\", \"shelfLife\": 300, \"decayRate\": 0.63, \"kitchen\": true}"
+        };
+        for (String order: orders)
+            assertThrows(order, IOException.class, () -> OrderVoDecoder.decode(ByteString.fromString(order)));
+
+        // Missing ones are left null, so the order is refused by the kitchen unit
+        OrderVo orderVo = OrderVoDecoder.decode(ByteString.fromString("{\"id\": \"e\", \"temp\": \"hot\", \"shelfLife\": null}"));
+        assertNull(orderVo.getShelfLife());
+        assertNull(orderVo.getDecayRate());
+
+    }
+
+    @Test
+    public void testMemoryMappedOrders() throws IOException {
+
+        int orders = 0;
+        try (MemoryMappedOrders mappedOrders = MemoryMappedOrders.open(Paths.get("orders.json"))){
+            OrderVo orderVo;
+            while ((orderVo = mappedOrders.next()) != null){
+                assertNotNull(orderVo.getId());
+                orders++;
+            }
+        }
+
+        assertEquals(132, orders);
+
+    }
+
+}
@@ -0,0 +1,81 @@
+import akka.actor.testkit.typed.javadsl.TestKitJunitResource;
+import akka.actor.testkit.typed.javadsl.TestProbe;
+import akka.actor.typed.ActorRef;
+import com.cloudkitchens.codechallenge.kitchen.KitchenUnitActor;
+import com.cloudkitchens.codechallenge.order.CookedPlacedOrder;
+import com.cloudkitchens.codechallenge.order.OrderActor;
+import com.cloudkitchens.codechallenge.order.OrderWorkerActor;
+import com.cloudkitchens.codechallenge.order.PlacedOrder;
+import com.cloudkitchens.codechallenge.order.ShelfPlacedOrder;
+import com.cloudkitchens.codechallenge.shelf.Shelf;
+import com.cloudkitchens.codechallenge.shelf.ShelveManagerActor;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+
+public class OrderWorkerTest {
+
+    @ClassRule
+    public static final TestKitJunitResource testKit = new TestKitJunitResource();
+
+    @Test
+    public void testOrderWasted(){
+
+        TestProbe<KitchenUnitActor.Message> kitchenUnit =
+                testKit.createTestProbe(KitchenUnitActor.Message.class);
+
+        TestProbe<ShelveManagerActor.Message> shelves =
+                testKit.createTestProbe(ShelveManagerActor.Message.class);
+
+        PlacedOrder placedOrder = new PlacedOrder(UUID.randomUUID().toString(),
+                "some order", "hot", 5, 0.7F);
+
+        ActorRef<OrderActor.Message> orderWorker = testKit.spawn(OrderWorkerActor.create(kitchenUnit.getRef(), shelves.getRef()));
+
+        orderWorker.tell(new OrderActor.OrderCookedEvent(new CookedPlacedOrder(placedOrder)));
+        ShelveManagerActor.PlaceCookedOrder placeCookedOrder = (ShelveManagerActor.PlaceCookedOrder)shelves.receiveMessage();
+        assertEquals(placeCookedOrder.cookedPlacedOrder.id, placedOrder.id);
+
+        orderWorker.tell(new OrderActor.OrderWastedEvent(
+                new ShelfPlacedOrder(new Shelf(Shelf.ShelfType.HOT, 1),new CookedPlacedOrder(placedOrder))));
+        KitchenUnitActor.OrderDropped orderDropped =  (KitchenUnitActor.OrderDropped )kitchenUnit.receiveMessage();
+        assertEquals(orderDropped.placedOrder.id, placedOrder.id);
+
+        // The courier of a wasted order is cancelled, so the order is never picked up
+        shelves.expectNoMessage(Duration.ofSeconds(7));
+    }
+
+    @Test
+    public void testSeveralOrdersFullLifecycle(){
+
+        TestProbe<KitchenUnitActor.Message> kitchenUnit =
+                testKit.createTestProbe(KitchenUnitActor.Message.class);
+
+        TestProbe<ShelveManagerActor.Message> shelves =
+                testKit.createTestProbe(ShelveManagerActor.Message.class);
+
+        PlacedOrder placedOrder1 = new PlacedOrder(UUID.randomUUID().toString(),
+                "some order", "hot", 300, 0.7F);
+        PlacedOrder placedOrder2 = new PlacedOrder(UUID.randomUUID().toString(),
+                "some order", "cold", 300, 0.7F);
+
+        ActorRef<OrderActor.Message> orderWorker = testKit.spawn(OrderWorkerActor.create(kitchenUnit.getRef(), shelves.getRef()));
+
+        orderWorker.tell(new OrderActor.OrderCookedEvent(new CookedPlacedOrder(placedOrder1)));
+        orderWorker.tell(new OrderActor.OrderCookedEvent(new CookedPlacedOrder(placedOrder2)));
+        shelves.receiveSeveralMessages(2);
+
+        orderWorker.tell(new OrderActor.OrderPlacedOnShelfEvent(new ShelfPlacedOrder(new Shelf(Shelf.ShelfType.HOT, 1),new CookedPlacedOrder(placedOrder1))));
+        orderWorker.tell(new OrderActor.OrderPlacedOnShelfEvent(new ShelfPlacedOrder(new Shelf(Shelf.ShelfType.COLD, 1),new CookedPlacedOrder(placedOrder2))));
+
+        // Both couriers are handled by the same worker, each order is removed from the shelf and delivered
+        shelves.receiveSeveralMessages(2, Duration.ofSeconds(7));
+        kitchenUnit.receiveSeveralMessages(2);
+
+    }
+
+}
@@ -0,0 +1,122 @@
+import akka.actor.testkit.typed.javadsl.TestKitJunitResource;
+import akka.actor.testkit.typed.javadsl.TestProbe;
+import akka.actor.typed.ActorRef;
+import com.cloudkitchens.codechallenge.order.CookedPlacedOrder;
+import com.cloudkitchens.codechallenge.order.OrderActor;
+import com.cloudkitchens.codechallenge.order.PlacedOrder;
+import com.cloudkitchens.codechallenge.shelf.OverflowShelfActor;
+import com.cloudkitchens.codechallenge.shelf.Shelf;
+import com.cloudkitchens.codechallenge.shelf.ShelveManagerActor;
+import com.cloudkitchens.codechallenge.shelf.TemperatureShelfActor;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+public class ShardedShelvesTest {
+
+    @ClassRule
+    public static final TestKitJunitResource testKit = new TestKitJunitResource();
+
+    @Test
+    public void testHandOffToOverflowAndRemove(){
+
+        ActorRef<ShelveManagerActor.Message> overflow = testKit.spawn(OverflowShelfActor.create(1));
+        ActorRef<ShelveManagerActor.Message> hot = testKit.spawn(TemperatureShelfActor.create(Shelf.ShelfType.HOT, 1, overflow));
+
+        TestProbe<OrderActor.Message> probe = testKit.createTestProbe(OrderActor.Message.class);
+
+        PlacedOrder placedOrder1 = newOrder("hot", 300);
+        PlacedOrder placedOrder2 = newOrder("hot", 300);
+
+        hot.tell(new ShelveManagerActor.PlaceCookedOrder(probe.getRef(), new CookedPlacedOrder(placedOrder1)));
+        hot.tell(new ShelveManagerActor.PlaceCookedOrder(probe.getRef(), new CookedPlacedOrder(placedOrder2)));
+
+        OrderActor.OrderPlacedOnShelfEvent placed1 = (OrderActor.OrderPlacedOnShelfEvent)probe.receiveMessage();
+        OrderActor.OrderPlacedOnShelfEvent placed2 = (OrderActor.OrderPlacedOnShelfEvent)probe.receiveMessage();
+        assertEquals(Shelf.ShelfType.HOT, placed1.shelfPlacedOrder.shelfType);
+        assertEquals(Shelf.ShelfType.OVERFLOW, placed2.shelfPlacedOrder.shelfType);
+
+        // Orders always ask their own shard to remove them, it finds the order on the overflow shelf
+        hot.tell(new ShelveManagerActor.RemoveOrderFromShelf(placed2.shelfPlacedOrder));
+
+        // There is room on the overflow shelf again, so no order is dropped to make room for this one
+        PlacedOrder placedOrder3 = newOrder("hot", 300);
+        hot.tell(new ShelveManagerActor.PlaceCookedOrder(probe.getRef(), new CookedPlacedOrder(placedOrder3)));
+        OrderActor.OrderPlacedOnShelfEvent placed3 = (OrderActor.OrderPlacedOnShelfEvent)probe.receiveMessage();
+        assertEquals(placedOrder3.id, placed3.shelfPlacedOrder.id);
+        assertEquals(Shelf.ShelfType.OVERFLOW, placed3.shelfPlacedOrder.shelfType);
+
+    }
+
+    @Test
+    public void testRelocationToShardWithRoom(){
+
+        ActorRef<ShelveManagerActor.Message> overflow = testKit.spawn(OverflowShelfActor.create(1));
+        ActorRef<ShelveManagerActor.Message> hot = testKit.spawn(TemperatureShelfActor.create(Shelf.ShelfType.HOT, 1, overflow));
+        ActorRef<ShelveManagerActor.Message> cold = testKit.spawn(TemperatureShelfActor.create(Shelf.ShelfType.COLD, 1, overflow));
+
+        TestProbe<OrderActor.Message> hotOrders = testKit.createTestProbe(OrderActor.Message.class);
+        TestProbe<OrderActor.Message> coldOrders = testKit.createTestProbe(OrderActor.Message.class);
+
+        cold.tell(new ShelveManagerActor.PlaceCookedOrder(coldOrders.getRef(), new CookedPlacedOrder(newOrder("cold", 300))));
+        PlacedOrder coldOnOverflow = newOrder("cold", 300);
+        cold.tell(new ShelveManagerActor.PlaceCookedOrder(coldOrders.getRef(), new CookedPlacedOrder(coldOnOverflow)));
+
+        OrderActor.OrderPlacedOnShelfEvent coldPlaced = (OrderActor.OrderPlacedOnShelfEvent)coldOrders.receiveMessage();
+        OrderActor.OrderPlacedOnShelfEvent overflowPlaced = (OrderActor.OrderPlacedOnShelfEvent)coldOrders.receiveMessage();
+        assertEquals(Shelf.ShelfType.OVERFLOW, overflowPlaced.shelfPlacedOrder.shelfType);
+
+        // Free the cold shelf, then fill the hot shelf and make the overflow shelf to need room
+        cold.tell(new ShelveManagerActor.RemoveOrderFromShelf(coldPlaced.shelfPlacedOrder));
+        hot.tell(new ShelveManagerActor.PlaceCookedOrder(hotOrders.getRef(), new CookedPlacedOrder(newOrder("hot", 300))));
+        hotOrders.receiveMessage();
+        // Give the cold shard the chance to advise the overflow shard it has room again
+        coldOrders.expectNoMessage(Duration.ofMillis(300));
+
+        PlacedOrder hotOnOverflow = newOrder("hot", 300);
+        hot.tell(new ShelveManagerActor.PlaceCookedOrder(hotOrders.getRef(), new CookedPlacedOrder(hotOnOverflow)));
+
+        OrderActor.OrderPlacedOnShelfEvent hotPlaced = (OrderActor.OrderPlacedOnShelfEvent)hotOrders.receiveMessage(Duration.ofSeconds(1));
+        assertEquals(hotOnOverflow.id, hotPlaced.shelfPlacedOrder.id);
+        assertEquals(Shelf.ShelfType.OVERFLOW, hotPlaced.shelfPlacedOrder.shelfType);
+
+        // The cold order waiting on the overflow shelf has been moved to the cold shelf
+        OrderActor.OrderPlacedOnShelfEvent relocated = (OrderActor.OrderPlacedOnShelfEvent)coldOrders.receiveMessage(Duration.ofSeconds(1));
+        assertEquals(coldOnOverflow.id, relocated.shelfPlacedOrder.id);
+        assertEquals(Shelf.ShelfType.COLD, relocated.shelfPlacedOrder.shelfType);
+
+    }
+
+    @Test
+    public void testDropWhenNoShardHasRoom(){
+
+        ActorRef<ShelveManagerActor.Message> overflow = testKit.spawn(OverflowShelfActor.create(1));
+        ActorRef<ShelveManagerActor.Message> hot = testKit.spawn(TemperatureShelfActor.create(Shelf.ShelfType.HOT, 1, overflow));
+
+        TestProbe<OrderActor.Message> probe = testKit.createTestProbe(OrderActor.Message.class);
+
+        PlacedOrder placedOrder1 = newOrder("hot", 300);
+        PlacedOrder placedOrder2 = newOrder("hot", 300);
+        PlacedOrder placedOrder3 = newOrder("hot", 300);
+
+        hot.tell(new ShelveManagerActor.PlaceCookedOrder(probe.getRef(), new CookedPlacedOrder(placedOrder1)));
+        hot.tell(new ShelveManagerActor.PlaceCookedOrder(probe.getRef(), new CookedPlacedOrder(placedOrder2)));
+        probe.receiveSeveralMessages(2);
+
+        hot.tell(new ShelveManagerActor.PlaceCookedOrder(probe.getRef(), new CookedPlacedOrder(placedOrder3)));
+        OrderActor.OrderWastedEvent wasted = (OrderActor.OrderWastedEvent)probe.receiveMessage();
+        assertEquals(placedOrder2.id, wasted.shelfPlacedOrder.id);
+        OrderActor.OrderPlacedOnShelfEvent placed3 = (OrderActor.OrderPlacedOnShelfEvent)probe.receiveMessage();
+        assertEquals(placedOrder3.id, placed3.shelfPlacedOrder.id);
+
+    }
+
+    private PlacedOrder newOrder(String temp, int shelfLife){
+        return new PlacedOrder(UUID.randomUUID().toString(), "some order", temp, shelfLife, 0.5F);
+    }
+
+}
@@ -0,0 +1,18 @@
+import com.cloudkitchens.codechallenge.order.CookedPlacedOrder;
+import com.cloudkitchens.codechallenge.order.PlacedOrder;
+import com.cloudkitchens.codechallenge.order.ShelfPlacedOrder;
+import com.cloudkitchens.codechallenge.shelf.Shelf;
+
+import java.util.UUID;
+
+/*
+    Orders on a hot shelf, cooked at time 0, for the tests of the dispatch strategies.
+ */
+class ShelfPlacedOrders {
+
+    static ShelfPlacedOrder newShelfPlacedOrder(int shelfLife, float decayRate){
+        PlacedOrder placedOrder = new PlacedOrder(UUID.randomUUID().toString(), "some order", "hot", shelfLife, decayRate);
+        return new ShelfPlacedOrder(new Shelf(Shelf.ShelfType.HOT, 10), new CookedPlacedOrder(placedOrder, 0));
+    }
+
+}
@@ -1,5 +1,6 @@
 import com.cloudkitchens.codechallenge.order.CookedPlacedOrder;
 import com.cloudkitchens.codechallenge.order.PlacedOrder;
+import com.cloudkitchens.codechallenge.shelf.DropPolicy;
 import com.cloudkitchens.codechallenge.shelf.Shelf;
 import com.cloudkitchens.codechallenge.order.ShelfPlacedOrder;
 import org.junit.Test;
@@ -32,14 +33,36 @@ public class ShelfTest {
 
         ShelfPlacedOrder spo = shelf.placeOrder(new CookedPlacedOrder(placedOrder));
 
-        assertFalse(spo.wasted());
+        assertFalse(spo.wasted(System.currentTimeMillis()));
 
         Thread.sleep(2000);
 
-        assertTrue(spo.wasted());
+        assertTrue(spo.wasted(System.currentTimeMillis()));
 
     }
 
+    @Test
+    public void testOrderValueAgainstClockReading(){
+        PlacedOrder placedOrder = new PlacedOrder(UUID.randomUUID().toString(),
+                "some order", "hot", 100, 0.5F);
+        long readySince = 1_000_000L;
+
+        ShelfPlacedOrder onHotShelf = new Shelf(Shelf.ShelfType.HOT, 1).placeOrder(new CookedPlacedOrder(placedOrder, readySince));
+        ShelfPlacedOrder onOverflowShelf = new Shelf(Shelf.ShelfType.OVERFLOW, 1).placeOrder(new CookedPlacedOrder(placedOrder, readySince));
+
+        assertEquals(1F, onHotShelf.orderValue(readySince), 0.0001F);
+        assertEquals(0.95F, onHotShelf.orderValue(readySince + 10_000), 0.0001F);
+        // The overflow shelf decays orders twice as fast
+        assertEquals(0.9F, onOverflowShelf.orderValue(readySince + 10_000), 0.0001F);
+
+        assertEquals(readySince + 200_000, onHotShelf.expiresAtMillis);
+        assertEquals(readySince + 100_000, onOverflowShelf.expiresAtMillis);
+        assertEquals(50_000, onOverflowShelf.remainingForWasteMillis(readySince + 50_000));
+
+        assertFalse(onHotShelf.wasted(readySince + 150_000));
+        assertTrue(onOverflowShelf.wasted(readySince + 150_000));
+    }
+
     @Test
     public void testShelfCapacity(){
 
@@ -64,6 +87,102 @@ public class ShelfTest {
 
     }
 
+    @Test
+    public void testOrderAlreadyOnShelf(){
+
+        Shelf shelf = new Shelf(Shelf.ShelfType.OVERFLOW, 3);
+
+        PlacedOrder placedOrder1 = getNewOrder();
+        PlacedOrder placedOrder2 = getNewOrder();
+        shelf.placeOrder(new CookedPlacedOrder(placedOrder1));
+        shelf.placeOrder(new CookedPlacedOrder(placedOrder2));
+
+        assertThrows(RuntimeException.class, () -> {
+            shelf.placeOrder(new CookedPlacedOrder(placedOrder1));
+        });
+
+        // The rejected placement leaves both orders where they were
+        assertEquals(2, shelf.size());
+        assertEquals(placedOrder1.id, shelf.takeOrder(placedOrder1.id).id);
+        assertEquals(placedOrder2.id, shelf.takeOrder(placedOrder2.id).id);
+        assertEquals(0, shelf.size());
+        assertNull(shelf.nextToExpire());
+
+    }
+
+    @Test
+    public void testNextToExpire(){
+
+        Shelf shelf = new Shelf(Shelf.ShelfType.OVERFLOW, 5);
+
+        PlacedOrder hot1 = new PlacedOrder(UUID.randomUUID().toString(), "some order", "hot", 300, 0.5F);
+        PlacedOrder hot2 = new PlacedOrder(UUID.randomUUID().toString(), "some order", "hot", 100, 0.5F);
+        PlacedOrder cold1 = new PlacedOrder(UUID.randomUUID().toString(), "some order", "cold", 50, 0.5F);
+        PlacedOrder cold2 = new PlacedOrder(UUID.randomUUID().toString(), "some order", "cold", 200, 0.5F);
+
+        assertNull(shelf.nextToExpire());
+
+        shelf.placeOrder(new CookedPlacedOrder(hot1));
+        shelf.placeOrder(new CookedPlacedOrder(hot2));
+        shelf.placeOrder(new CookedPlacedOrder(cold1));
+        shelf.placeOrder(new CookedPlacedOrder(cold2));
+
+        assertEquals(cold1.id, shelf.nextToExpire().id);
+        assertEquals(hot2.id, shelf.nextToExpire(Shelf.ShelfType.HOT).id);
+        assertEquals(cold1.id, shelf.nextToExpire(Shelf.ShelfType.COLD).id);
+        assertNull(shelf.nextToExpire(Shelf.ShelfType.FROZEN));
+
+        shelf.takeOrder(cold1.id);
+        assertEquals(hot2.id, shelf.nextToExpire().id);
+        assertEquals(cold2.id, shelf.nextToExpire(Shelf.ShelfType.COLD).id);
+
+        // Moving an order to its preferred shelf changes its decay, hence its expiration
+        ShelfPlacedOrder moved = shelf.takeOrder(hot2.id);
+        ShelfPlacedOrder placed = new Shelf(Shelf.ShelfType.HOT, 1).placeOrder(moved.cookedPlacedOrder);
+        assertEquals(moved.totalExpirationMillis * 2, placed.totalExpirationMillis);
+        assertEquals(hot1.id, shelf.nextToExpire(Shelf.ShelfType.HOT).id);
+
+    }
+
+    @Test
+    public void testRemoveRandom(){
+
+        Shelf shelf = new Shelf(Shelf.ShelfType.OVERFLOW, 10);
+        for (int i = 0; i < 10; i++)
+            shelf.placeOrder(new CookedPlacedOrder(getNewOrder()));
+
+        // Swap removals must keep the shelf consistent until the very last order
+        for (int i = 10; i > 0; i--){
+            ShelfPlacedOrder removed = shelf.removeRandom();
+            assertNotNull(removed);
+            assertNull(shelf.takeOrder(removed.id));
+            assertEquals(i - 1, shelf.size());
+        }
+        assertNull(shelf.randomOrder());
+
+    }
+
+    @Test
+    public void testDropPolicies(){
+
+        PlacedOrder longLived = new PlacedOrder(UUID.randomUUID().toString(), "some order", "hot", 300, 0.1F);
+        PlacedOrder shortLived = new PlacedOrder(UUID.randomUUID().toString(), "some order", "cold", 30, 0.5F);
+        PlacedOrder lowValue = new PlacedOrder(UUID.randomUUID().toString(), "some order", "frozen", 100, 0.5F);
+
+        Shelf shelf = new Shelf(Shelf.ShelfType.OVERFLOW, 3);
+        shelf.placeOrder(new CookedPlacedOrder(longLived));
+        shelf.placeOrder(new CookedPlacedOrder(shortLived));
+        // Cooked a while ago, so it has already lost most of its value though it expires after the short lived one
+        shelf.placeOrder(new CookedPlacedOrder(lowValue, System.currentTimeMillis() - 60_000));
+
+        assertEquals(shortLived.id, DropPolicy.fromName("soonest-to-expire").chooseVictim(shelf).id);
+        assertEquals(lowValue.id, DropPolicy.fromName("lowest-value").chooseVictim(shelf).id);
+        assertNotNull(DropPolicy.fromName("random").chooseVictim(shelf));
+        // Choosing a victim does not take it from the shelf
+        assertEquals(3, shelf.size());
+
+    }
+
     private PlacedOrder getNewOrder(){
         return new PlacedOrder(UUID.randomUUID().toString(),
                 "some order", "hot", 300, 0.45F);
@@ -0,0 +1,174 @@
+import akka.actor.testkit.typed.javadsl.ManualTime;
+import akka.actor.testkit.typed.javadsl.TestKitJunitResource;
+import akka.actor.testkit.typed.javadsl.TestProbe;
+import akka.actor.typed.ActorRef;
+import com.cloudkitchens.codechallenge.eventlog.OrderEventLog;
+import com.cloudkitchens.codechallenge.journal.JournalState;
+import com.cloudkitchens.codechallenge.journal.OrderJournal;
+import com.cloudkitchens.codechallenge.order.CookedPlacedOrder;
+import com.cloudkitchens.codechallenge.order.OrderActor;
+import com.cloudkitchens.codechallenge.order.OrderId;
+import com.cloudkitchens.codechallenge.order.OrderVo;
+import com.cloudkitchens.codechallenge.order.PlacedOrder;
+import com.cloudkitchens.codechallenge.order.ShelfPlacedOrder;
+import com.cloudkitchens.codechallenge.shelf.DropPolicy;
+import com.cloudkitchens.codechallenge.shelf.Shelf;
+import com.cloudkitchens.codechallenge.shelf.ShelveManagerActor;
+import com.cloudkitchens.codechallenge.shelf.ShelvesProperties;
+import com.cloudkitchens.codechallenge.simulation.KitchenSimulation;
+import com.cloudkitchens.codechallenge.timer.VirtualClock;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+/*
+    The same orders, coming in at the same times and picked up by couriers arriving at the same times, go through
+    the ShelveManagerActor in manual time and through the virtual time simulation, which have to deliver and waste
+    the same orders.
+ */
+public class ShelveManagerVirtualTimeTest {
+
+    @ClassRule
+    public static final TestKitJunitResource testKit = new TestKitJunitResource(ManualTime.config());
+
+    private static final long ORDER_INTERVAL_MILLIS = 500;
+    private static final int COURIER_ARRIVAL_SECS = 3;
+
+    @Test
+    public void testSameDecisionsAsSimulation(){
+
+        // One order of every temperature fits its shelf, so the others go through the overflow shelf: some of them
+        // are moved to their shelf when it frees up, some go to waste before that, and none is dropped
+        List<OrderVo> orders = new ArrayList<>();
+        orders.add(newOrderVo(1, "hot", 10, 1));
+        orders.add(newOrderVo(2, "hot", 2, 1));
+        orders.add(newOrderVo(3, "cold", 10, 1));
+        orders.add(newOrderVo(4, "hot", 5, 1));
+        orders.add(newOrderVo(5, "cold", 3, 1));
+        orders.add(newOrderVo(6, "frozen", 10, 1));
+        orders.add(newOrderVo(7, "frozen", 4, 1));
+        orders.add(newOrderVo(8, "hot", 8, 2));
+        orders.add(newOrderVo(9, "cold", 20, 1));
+        orders.add(newOrderVo(10, "hot", 1, 1));
+
+        Map<OrderId, Boolean> simulated = new HashMap<>();
+        KitchenSimulation simulation = new KitchenSimulation(new ShelvesProperties(1, 1, 1, 10),
+                DropPolicy.fromName("random"), 1000.0 / ORDER_INTERVAL_MILLIS, COURIER_ARRIVAL_SECS, COURIER_ARRIVAL_SECS,
+                10, 512, 42);
+        KitchenSimulation.Report report = simulation.run(orders.iterator(), deliveries(simulated));
+        assertEquals(6, report.requestDeliveryCount);
+        assertEquals(4, report.requestDroppedCount);
+
+        assertEquals(simulated, runShelveManager(orders));
+
+    }
+
+    /*
+        Drives the shelve manager as the order actors and their couriers would, an order coming in every interval
+        and its courier arriving right after it is placed. Returns whether every order was delivered.
+     */
+    private Map<OrderId, Boolean> runShelveManager(List<OrderVo> orders){
+        ManualTime manualTime = ManualTime.get(testKit.system());
+        // Only moved by this thread before time passes or a message is sent, which the shelve manager then sees
+        VirtualClock clock = new VirtualClock(0);
+
+        TestProbe<Object> probe = testKit.createTestProbe();
+        ActorRef<OrderActor.Message> order = probe.getRef().narrow();
+        ActorRef<ShelveManagerActor.Message> shelvesActor =
+                testKit.spawn(ShelveManagerActor.create(new ShelvesProperties(1, 1, 1, 10), clock));
+
+        Map<OrderId, ShelfPlacedOrder> placed = new HashMap<>();
+        Map<OrderId, Boolean> delivered = new HashMap<>();
+        int courierDelay = (int) (COURIER_ARRIVAL_SECS * 1000 / ORDER_INTERVAL_MILLIS);
+        for (int i = 0; i < orders.size() + courierDelay; i++){
+            long now = i * ORDER_INTERVAL_MILLIS;
+            if (i > 0){
+                clock.advanceTo(now);
+                // Whatever expired up to this moment is wasted by the expiration ticks
+                manualTime.timePasses(Duration.ofMillis(ORDER_INTERVAL_MILLIS));
+                takeEvents(shelvesActor, probe, placed, delivered);
+            }
+
+            // A courier arriving at the same time as an order comes first, as in the simulation
+            if (i >= courierDelay){
+                OrderId orderId = OrderId.of(orders.get(i - courierDelay).getId());
+                if (!delivered.containsKey(orderId)){
+                    shelvesActor.tell(new ShelveManagerActor.RemoveOrderFromShelf(placed.get(orderId)));
+                    delivered.put(orderId, true);
+                    takeEvents(shelvesActor, probe, placed, delivered);
+                }
+            }
+
+            if (i < orders.size()){
+                OrderVo orderVo = orders.get(i);
+                PlacedOrder placedOrder = new PlacedOrder(orderVo.getId(), orderVo.getName(), orderVo.getTemp(),
+                        orderVo.getShelfLife(), orderVo.getDecayRate());
+                shelvesActor.tell(new ShelveManagerActor.PlaceCookedOrder(order, new CookedPlacedOrder(placedOrder, now)));
+                takeEvents(shelvesActor, probe, placed, delivered);
+            }
+        }
+
+        testKit.stop(shelvesActor);
+        return delivered;
+    }
+
+    /*
+        Takes what the shelve manager told the orders so far: an occupancy query sent last is answered once every
+        message before it is handled.
+     */
+    private void takeEvents(ActorRef<ShelveManagerActor.Message> shelvesActor, TestProbe<Object> probe,
+                            Map<OrderId, ShelfPlacedOrder> placed, Map<OrderId, Boolean> delivered){
+        shelvesActor.tell(new ShelveManagerActor.GetOverflowOccupancy(probe.getRef().narrow()));
+
+        Object event;
+        while (!((event = probe.receiveMessage()) instanceof ShelveManagerActor.OverflowOccupancy)){
+            if (event instanceof OrderActor.OrderPlacedOnShelfEvent){
+                ShelfPlacedOrder shelfPlacedOrder = ((OrderActor.OrderPlacedOnShelfEvent) event).shelfPlacedOrder;
+                placed.put(shelfPlacedOrder.id, shelfPlacedOrder);
+            }else if (event instanceof OrderActor.OrderWastedEvent){
+                delivered.put(((OrderActor.OrderWastedEvent) event).shelfPlacedOrder.id, false);
+            }
+        }
+    }
+
+    // Journal keeping whether every order was delivered, and nothing else
+    private static OrderJournal deliveries(Map<OrderId, Boolean> delivered){
+        return new OrderJournal() {
+            @Override
+            public void record(OrderEventLog.Transition transition, OrderId orderId, Shelf.ShelfType shelf, float value) {
+                if (transition == OrderEventLog.Transition.DELIVERED)
+                    delivered.put(orderId, true);
+                else if (transition == OrderEventLog.Transition.EXPIRED || transition == OrderEventLog.Transition.DROPPED)
+                    delivered.put(orderId, false);
+            }
+
+            @Override
+            public void taken(CookedPlacedOrder cookedPlacedOrder) {
+            }
+
+            @Override
+            public JournalState recovered() {
+                return new JournalState();
+            }
+        };
+    }
+
+    private OrderVo newOrderVo(int number, String temp, int shelfLife, float decayRate){
+        OrderVo orderVo = new OrderVo();
+        orderVo.setId(new UUID(0, number).toString());
+        orderVo.setName(String.format("order %d", number));
+        orderVo.setTemp(temp);
+        orderVo.setShelfLife(shelfLife);
+        orderVo.setDecayRate(decayRate);
+        return orderVo;
+    }
+
+}
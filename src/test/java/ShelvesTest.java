@@ -0,0 +1,93 @@
+import com.cloudkitchens.codechallenge.eventlog.OrderEventLog;
+import com.cloudkitchens.codechallenge.order.CookedPlacedOrder;
+import com.cloudkitchens.codechallenge.order.PlacedOrder;
+import com.cloudkitchens.codechallenge.order.ShelfPlacedOrder;
+import com.cloudkitchens.codechallenge.shelf.DropPolicy;
+import com.cloudkitchens.codechallenge.shelf.Shelf;
+import com.cloudkitchens.codechallenge.shelf.Shelves;
+import com.cloudkitchens.codechallenge.shelf.ShelvesProperties;
+import com.cloudkitchens.codechallenge.timer.TimingWheel;
+import com.cloudkitchens.codechallenge.timer.VirtualClock;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+public class ShelvesTest {
+
+    private final List<ShelfPlacedOrder> placed = new ArrayList<>();
+    private final List<ShelfPlacedOrder> wasted = new ArrayList<>();
+
+    // One slot on every temperature shelf and two on the overflow shelf
+    private Shelves<String> newShelves(){
+        return new Shelves<>(new ShelvesProperties(1, 1, 1, 2), DropPolicy.fromName("random"),
+                new TimingWheel<>(10, 512, 0), new VirtualClock(0), new Random(42), OrderEventLog.DISABLED,
+                new Shelves.Listener<String>() {
+                    @Override
+                    public void onPlaced(ShelfPlacedOrder shelfPlacedOrder, String order) {
+                        placed.add(shelfPlacedOrder);
+                    }
+
+                    @Override
+                    public void onWasted(ShelfPlacedOrder shelfPlacedOrder, String order) {
+                        wasted.add(shelfPlacedOrder);
+                    }
+                });
+    }
+
+    @Test
+    public void testPickUpMakesRoomForOverflowOrder() {
+
+        Shelves<String> shelves = newShelves();
+        PlacedOrder onColdShelf = newPlacedOrder("cold", 300);
+        PlacedOrder longLived = newPlacedOrder("cold", 200);
+        PlacedOrder shortLived = newPlacedOrder("cold", 100);
+        shelves.place(new CookedPlacedOrder(onColdShelf, 0), "on cold shelf", 0);
+        shelves.place(new CookedPlacedOrder(longLived, 0), "long lived", 0);
+        shelves.place(new CookedPlacedOrder(shortLived, 0), "short lived", 0);
+        assertEquals(2, shelves.shelf(Shelf.ShelfType.OVERFLOW).size());
+
+        // The overflow order closest to expire takes the room right away, without waiting for another order
+        assertNotNull(shelves.remove(onColdShelf.id, 1000));
+        ShelfPlacedOrder moved = placed.get(placed.size() - 1);
+        assertEquals(shortLived.id, moved.id);
+        assertEquals(Shelf.ShelfType.COLD, moved.shelfType);
+        assertEquals(shortLived.id, shelves.shelf(Shelf.ShelfType.COLD).nextToExpire().id);
+        assertEquals(1, shelves.shelf(Shelf.ShelfType.OVERFLOW).size());
+
+    }
+
+    @Test
+    public void testExpirationMakesRoomForOverflowOrder() {
+
+        Shelves<String> shelves = newShelves();
+        PlacedOrder expiring = newPlacedOrder("hot", 1);
+        PlacedOrder onOverflowShelf = newPlacedOrder("hot", 10);
+        shelves.place(new CookedPlacedOrder(expiring, 0), "expiring", 0);
+        shelves.place(new CookedPlacedOrder(onOverflowShelf, 0), "on overflow shelf", 0);
+
+        // 10 seconds on the overflow shelf, 20 on the hot shelf
+        assertEquals(10_000, placed.get(1).expiresAtMillis);
+
+        assertEquals(1, shelves.expire(2000));
+        assertEquals(expiring.id, wasted.get(0).id);
+        assertEquals(Shelf.ShelfType.HOT, placed.get(2).shelfType);
+        assertEquals(20_000, placed.get(2).expiresAtMillis);
+
+        // Its expiration follows it to the hot shelf
+        assertEquals(0, shelves.expire(10_000));
+        assertEquals(1, shelves.expire(20_000));
+        assertEquals(onOverflowShelf.id, wasted.get(1).id);
+        assertEquals(Shelf.ShelfType.HOT, wasted.get(1).shelfType);
+
+    }
+
+    private static PlacedOrder newPlacedOrder(String temp, int shelfLife){
+        return new PlacedOrder(UUID.randomUUID().toString(), "some order", temp, shelfLife, 0.5F);
+    }
+
+}
@@ -0,0 +1,79 @@
+import com.cloudkitchens.codechallenge.timer.TimingWheel;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TimingWheelTest {
+
+    @Test
+    public void testBatchedExpiration(){
+
+        TimingWheel<String, String> wheel = new TimingWheel<>(10, 8, 0);
+
+        wheel.schedule("a", "a", 15, 0);
+        wheel.schedule("b", "b", 18, 0);
+        wheel.schedule("c", "c", 45, 0);
+
+        assertTrue(wheel.advance(10).isEmpty());
+
+        List<String> expired = wheel.advance(20);
+        assertEquals(2, expired.size());
+        assertTrue(expired.containsAll(Arrays.asList("a", "b")));
+
+        assertEquals(Arrays.asList("c"), wheel.advance(50));
+        assertTrue(wheel.isEmpty());
+
+    }
+
+    @Test
+    public void testTimeoutBeyondOneRotation(){
+
+        TimingWheel<String, String> wheel = new TimingWheel<>(10, 4, 0);
+
+        // A full rotation of this wheel is 40 millis, so this timeout needs to survive a few rotations
+        wheel.schedule("a", "a", 125, 0);
+
+        assertTrue(wheel.advance(40).isEmpty());
+        assertTrue(wheel.advance(90).isEmpty());
+        assertTrue(wheel.advance(120).isEmpty());
+        assertEquals(Arrays.asList("a"), wheel.advance(130));
+
+    }
+
+    @Test
+    public void testCancelAndReplace(){
+
+        TimingWheel<String, String> wheel = new TimingWheel<>(10, 8, 0);
+
+        wheel.schedule("a", "a", 20, 0);
+        wheel.schedule("b", "b", 20, 0);
+        assertEquals("a", wheel.cancel("a"));
+        assertNull(wheel.cancel("a"));
+
+        // Scheduling the same key again replaces the previous timeout
+        wheel.schedule("b", "b2", 60, 0);
+        assertEquals(1, wheel.size());
+
+        assertTrue(wheel.advance(30).isEmpty());
+        assertEquals(Arrays.asList("b2"), wheel.advance(60));
+
+    }
+
+    @Test
+    public void testLateAdvanceFiresEverythingDue(){
+
+        TimingWheel<Integer, Integer> wheel = new TimingWheel<>(10, 4, 0);
+
+        for (int i = 0; i < 10; i++)
+            wheel.schedule(i, i, i * 25, 0);
+
+        // Jumping several rotations at once must still fire every timeout that is due
+        assertEquals(10, wheel.advance(1000).size());
+        assertTrue(wheel.isEmpty());
+
+    }
+
+}